@@ -0,0 +1,92 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.widgets.Button;
+import io.streamlitconnect.widgets.Checkbox;
+import io.streamlitconnect.widgets.DateInput;
+import io.streamlitconnect.widgets.IntegerSlider;
+import io.streamlitconnect.widgets.Multiselect;
+import io.streamlitconnect.widgets.NumberInput;
+import io.streamlitconnect.widgets.Radio;
+import io.streamlitconnect.widgets.Selectbox;
+import io.streamlitconnect.widgets.TextInput;
+import io.streamlitconnect.widgets.Toggle;
+import io.streamlitconnect.widgets.Widget;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Contexts and widgets shared by the in-memory benchmarks.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class BenchmarkFixtures {
+
+    /**
+     * The widget types covered by the per-widget benchmarks.
+     */
+    static final String[] WIDGET_TYPES = {
+        "button", "checkbox", "toggle", "radio", "selectbox", "multiselect", "dateInput", "numberInput", "textInput",
+        "slider"
+    };
+
+    /**
+     * Returns a session context running its mailbox on the calling thread.
+     */
+    static GrpcStreamlitSessionContext sessionContext() {
+        return new GrpcStreamlitSessionContext(
+            "benchmark",
+            null,
+            Config.builder().build(),
+            new OperationQueueMetrics(),
+            Runnable::run);
+    }
+
+    /**
+     * Returns an operations request context without a response observer - its operations are to be taken from its
+     * queue by the benchmark.
+     */
+    static GrpcOperationsRequestContext operationsContext(@NonNull GrpcStreamlitSessionContext sessionContext) {
+        return new GrpcOperationsRequestContext(
+            sessionContext,
+            1,
+            StreamlitOperationsRequest.getDefaultInstance(),
+            null,
+            false,
+            null);
+    }
+
+    /**
+     * Returns a widget of the given type with typical properties set.
+     */
+    static Widget<?> widget(@NonNull String type) {
+        String[] options = {"Alpha", "Beta", "Gamma", "Delta", "Epsilon"};
+        return switch (type) {
+            case "button" -> new Button("Submit", "Submits the form");
+            case "checkbox" -> new Checkbox("Accept terms");
+            case "toggle" -> new Toggle("Dark mode");
+            case "radio" -> {
+                Radio radio = new Radio("Pick one");
+                radio.setOptions(options);
+                yield radio;
+            }
+            case "selectbox" -> {
+                Selectbox selectbox = new Selectbox("Choose");
+                selectbox.setOptions(options);
+                yield selectbox;
+            }
+            case "multiselect" -> {
+                Multiselect multiselect = new Multiselect("Choose some");
+                multiselect.setOptions(options);
+                yield multiselect;
+            }
+            case "dateInput" -> new DateInput("Date");
+            case "numberInput" -> new NumberInput("Amount");
+            case "textInput" -> new TextInput("Name", "Your full name");
+            case "slider" -> new IntegerSlider("Level");
+            default -> throw new IllegalArgumentException("Unknown widget type: " + type);
+        };
+    }
+
+}
@@ -0,0 +1,92 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitApp;
+import io.streamlitconnect.StreamlitAppManager;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.server.grpc.gen.StreamlitPingPongProto.PingRequest;
+import io.streamlitconnect.server.grpc.gen.StreamlitPingPongServiceGrpc;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A server running a single app on a free local port, with a client channel to it - the fixture of the benchmarks.
+ */
+class BenchmarkServer implements AutoCloseable {
+
+    @Getter(AccessLevel.PACKAGE)
+    private final NettyStreamlitServer server = new NettyStreamlitServer();
+
+    private final Thread serverThread;
+
+    @Getter
+    private final ManagedChannel channel;
+
+    BenchmarkServer(@NonNull Config.ConfigBuilder configBuilder, @NonNull StreamlitApp app) {
+        this(configBuilder, context -> app);
+    }
+
+    BenchmarkServer(@NonNull Config.ConfigBuilder configBuilder, @NonNull StreamlitAppManager appManager) {
+        int port = freePort();
+        Config config = configBuilder.grpcServerPort(port).build();
+
+        // Starting blocks until the server is stopped
+        serverThread = Thread.ofPlatform().name("benchmark-server").start(() -> server.start(appManager, config));
+
+        channel = NettyChannelBuilder.forAddress("localhost", port)
+            .usePlaintext()
+            .flowControlWindow(config.getTransport().getFlowControlWindowBytes())
+            .maxInboundMessageSize(Integer.MAX_VALUE)
+            .build();
+
+        awaitReady();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.stop();
+        serverThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void awaitReady() {
+        var stub = StreamlitPingPongServiceGrpc.newBlockingStub(channel);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            try {
+                stub.ping(PingRequest.newBuilder().setSessionId("benchmark").build());
+                return;
+            } catch (StatusRuntimeException e) {
+                if (System.nanoTime() > deadline) {
+                    throw new StreamlitException("Benchmark server did not start", e);
+                }
+                sleep(50);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore the interrupted status
+            throw new StreamlitException(e);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new StreamlitException(e);
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ClientCapability;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc.StreamlitOperationServiceBlockingStub;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.widgets.Widget;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end rerun throughput over an in-process gRPC channel: the request handling, the app rendering one widget of
+ * each type plus {@code texts} text elements, and the streaming of the operations, with or without render deltas. The
+ * network stack is left out, {@link TransportBenchmark} covers it.
+ * <p>
+ * Run with: {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=InProcessRerunBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@Threads(4)
+public class InProcessRerunBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        @Param({"10", "1000"})
+        public int texts;
+
+        @Param({"false", "true"})
+        public boolean renderDeltas;
+
+        NettyStreamlitServer streamlitServer;
+
+        Server server;
+
+        ManagedChannel channel;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            int count = texts;
+            String name = "benchmark-" + UUID.randomUUID();
+            streamlitServer = new NettyStreamlitServer();
+            Config config = Config.builder().renderDeltasEnabled(renderDeltas).build();
+
+            InProcessServerBuilder builder = InProcessServerBuilder.forName(name).directExecutor();
+            List<Widget<?>> widgets = Arrays.stream(BenchmarkFixtures.WIDGET_TYPES)
+                .<Widget<?>>map(BenchmarkFixtures::widget)
+                .toList();
+            streamlitServer.bindServices(appName -> context -> {
+                widgets.forEach(context.getRootContainer()::widget);
+                for (int i = 0; i < count; i++) {
+                    context.getRootContainer().text("Line " + i);
+                }
+            }, config).forEach(builder::addService);
+            server = builder.build().start();
+            channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            streamlitServer.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SessionState {
+
+        final String sessionId = UUID.randomUUID().toString();
+
+        int seq;
+
+        StreamlitOperationServiceBlockingStub stub;
+
+        List<ClientCapability> capabilities;
+
+        @Setup(Level.Trial)
+        public void setUp(ServerState serverState) {
+            stub = StreamlitOperationServiceGrpc.newBlockingStub(serverState.channel);
+            capabilities = serverState.renderDeltas ? List.of(ClientCapability.RENDER_DELTAS) : List.of();
+        }
+    }
+
+    @Benchmark
+    public int rerun(SessionState session) {
+        StreamlitOperationsRequest request = StreamlitOperationsRequest.newBuilder()
+            .setSessionId(session.sessionId)
+            .setSeq(++session.seq)
+            .addAllCapabilities(session.capabilities)
+            .build();
+
+        int count = 0;
+        Iterator<StreamlitOperation> operations = session.stub.getOperations(request);
+        while (operations.hasNext()) {
+            operations.next();
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,187 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitAppManager;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.store.CompressedHeapSessionStore;
+import io.streamlitconnect.store.MappedFileSessionStore;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+
+/**
+ * Synthetic multi-session load generator, standing in for the Python relay and its browsers to capacity-plan servers.
+ * Thousands of {@link SimulatedSession}s rerun against a server with the configured action mix, think times and page
+ * switches, while the time to the first operation and to the EndOp of each rerun are recorded in HdrHistograms.
+ * <p>
+ * Without a {@code -target} an embedded server running the {@link LoadTestApp} is started in the same JVM, which also
+ * reports the live sessions, the heap used per session and the eviction rate. The heap per session is an upper bound,
+ * as it includes the client-side state of the simulated sessions.
+ * <p>
+ * Run with: {@code mvn -Pbenchmarks test-compile exec:exec@load-test -DloadTest="-sessions 2000 -duration 120"},
+ * setting the JVM options with e.g. {@code -DloadTest.jvmArgs="-Xmx8g"}. See {@link LoadTestOptions#USAGE} for all
+ * options.
+ */
+public class LoadGenerator {
+
+    // How long the sessions are given to complete their current rerun at the end of the run
+    private static final long RESPONSE_GRACE_SECONDS = 10;
+
+    private final LoadTestOptions options;
+
+    private final LoadTestMetrics metrics = new LoadTestMetrics();
+
+    private final PrintStream out = System.out;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private volatile boolean running = true;
+
+    private BenchmarkServer embeddedServer;
+
+    private LoadGenerator(@NonNull LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (StreamlitException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestOptions.USAGE);
+            System.exit(1);
+            return;
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws InterruptedException {
+        out.println("Load test: " + options);
+
+        ManagedChannel channel;
+        if (options.isEmbedded()) {
+            StreamlitAppManager appManager = sessionId -> new LoadTestApp(options.getPages(), options.getTexts());
+            embeddedServer = new BenchmarkServer(
+                Config.builder()
+                    .evictionTimeoutSeconds(options.getEvictionTimeoutSeconds())
+                    .maxSessions(options.getMaxSessions())
+                    .metricsPort(options.getMetricsPort())
+                    .passivationIdleSeconds(options.getPassivationIdleSeconds())
+                    .widgetRetentionReruns(options.getWidgetRetentionReruns())
+                    .rerunDebounceMillis(options.getRerunDebounceMillis())
+                    .sessionStore(switch (options.getSessionStore()) {
+                        case HEAP -> new CompressedHeapSessionStore();
+                        case MAPPED -> MappedFileSessionStore.createTemp();
+                    }),
+                appManager);
+            channel = embeddedServer.getChannel();
+        } else {
+            channel = NettyChannelBuilder.forAddress(options.getTargetHost(), options.getTargetPort())
+                .usePlaintext()
+                .maxInboundMessageSize(Integer.MAX_VALUE)
+                .build();
+        }
+
+        long baselineHeap = usedHeapAfterGc();
+        long baselineEvictions = evictedSessions();
+
+        // Start the sessions over the ramp-up, each replaced by a new one when abandoned
+        long start = System.nanoTime();
+        long rampUpNanos = TimeUnit.SECONDS.toNanos(options.getRampUpSeconds());
+        List<Thread> threads = new ArrayList<>(options.getSessions());
+        for (int i = 0; i < options.getSessions(); i++) {
+            long startAt = start + rampUpNanos * i / options.getSessions();
+            threads.add(Thread.ofVirtual().name("session-" + i).start(() -> runSessions(channel, startAt)));
+        }
+
+        // Report during the ramp-up, and restart the measurements once all sessions run
+        long measureStart = start + rampUpNanos;
+        long end = measureStart + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.getReportIntervalSeconds());
+        boolean measuring = rampUpNanos == 0;
+        long evictionsAtMeasureStart = baselineEvictions;
+        if (!measuring) {
+            out.println("Ramping up " + options.getSessions() + " sessions over " + options.getRampUpSeconds() + "s");
+        }
+        while (System.nanoTime() < end) {
+            long now = System.nanoTime();
+            long next = Math.min(now + intervalNanos, measuring ? end : measureStart);
+            TimeUnit.NANOSECONDS.sleep(next - now);
+            metrics.reportInterval(out, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), serverFigures());
+            if (!measuring && System.nanoTime() >= measureStart) {
+                metrics.reset();
+                evictionsAtMeasureStart = evictedSessions();
+                measuring = true;
+                out.println("Ramp-up done, measuring for " + options.getDurationSeconds() + "s");
+            }
+        }
+        double measuredSeconds = (System.nanoTime() - measureStart) / 1e9;
+
+        // Sample the heap while all sessions are still alive
+        long liveSessions = embeddedServer != null ? embeddedServer.getServer().getSessionCount() : -1;
+        long usedHeap = usedHeapAfterGc();
+        long evictions = evictedSessions() - evictionsAtMeasureStart;
+
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(RESPONSE_GRACE_SECONDS));
+        }
+
+        out.println();
+        out.printf("Summary of %d sessions over %.0fs (%s transport, render deltas %s)%n", options.getSessions(),
+            measuredSeconds, options.getTransport().name().toLowerCase(), options.isRenderDeltas() ? "on" : "off");
+        metrics.reportSummary(out, measuredSeconds);
+        if (embeddedServer != null) {
+            out.printf("Live server sessions: %d, heap used: %.1f MiB, heap per session: %.1f KiB%n",
+                liveSessions,
+                usedHeap / (1024.0 * 1024.0),
+                liveSessions > 0 ? (usedHeap - baselineHeap) / 1024.0 / liveSessions : 0.0);
+            out.printf("Evicted sessions: %d (%.2f/min)%n", evictions, evictions / measuredSeconds * 60);
+            embeddedServer.close();
+        } else {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private void runSessions(ManagedChannel channel, long startAt) {
+        try {
+            long delay = startAt - System.nanoTime();
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            while (running) {
+                new SimulatedSession(options, metrics, channel).run(() -> running);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore the interrupted status
+        }
+    }
+
+    private String serverFigures() {
+        if (embeddedServer == null) {
+            return "";
+        }
+        NettyStreamlitServer server = embeddedServer.getServer();
+        return String.format("  sessions: %d  evicted: %d  heap: %d MiB",
+            server.getSessionCount(),
+            server.getEvictedSessionCount(),
+            memory.getHeapMemoryUsage().getUsed() / (1024 * 1024));
+    }
+
+    private long evictedSessions() {
+        return embeddedServer != null ? embeddedServer.getServer().getEvictedSessionCount() : 0;
+    }
+
+    private long usedHeapAfterGc() {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+}
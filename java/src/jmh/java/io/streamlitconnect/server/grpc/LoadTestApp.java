@@ -0,0 +1,93 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.Container;
+import io.streamlitconnect.MultiPageApp;
+import io.streamlitconnect.NavigationMenu;
+import io.streamlitconnect.NavigationMenu.MenuItem;
+import io.streamlitconnect.NavigationMenu.NavigationEntry;
+import io.streamlitconnect.NavigationRequestContext;
+import io.streamlitconnect.OperationsRequestContext;
+import io.streamlitconnect.Page;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.widgets.Widget;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.NonNull;
+
+/**
+ * The app of the embedded server of the {@link LoadGenerator}: a number of pages, each with a title, one widget of each
+ * type, a line echoing each changed widget value and a number of static text elements. An instance is created per
+ * session, so the widgets keep their values per session.
+ */
+class LoadTestApp implements MultiPageApp {
+
+    private final List<LoadTestPage> pages = new ArrayList<>();
+
+    LoadTestApp(int pageCount, int texts) {
+        for (int i = 0; i < pageCount; i++) {
+            pages.add(new LoadTestPage("page_" + i, texts));
+        }
+    }
+
+    @Override
+    public @NonNull Page getPage(@NonNull String name) {
+        if ("default".equals(name)) {
+            return pages.getFirst();
+        }
+        return pages.stream()
+            .filter(page -> page.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new StreamlitException("Unknown page: " + name));
+    }
+
+    @Override
+    public NavigationMenu getNavigationMenu(NavigationRequestContext context) {
+        List<NavigationEntry> entries = new ArrayList<>();
+        for (int i = 0; i < pages.size(); i++) {
+            String name = pages.get(i).getName();
+            entries.add(new NavigationEntry(name, "Page " + i, null, i == 0));
+        }
+        NavigationMenu menu = new NavigationMenu();
+        menu.addItems(new MenuItem(null, entries));
+        return menu;
+    }
+
+    private static class LoadTestPage implements Page {
+
+        private final String name;
+
+        private final int texts;
+
+        private final List<Widget<?>> widgets = Arrays.stream(BenchmarkFixtures.WIDGET_TYPES)
+            .<Widget<?>>map(BenchmarkFixtures::widget)
+            .toList();
+
+        LoadTestPage(String name, int texts) {
+            this.name = name;
+            this.texts = texts;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void render(OperationsRequestContext context) {
+            Container root = context.getRootContainer();
+            root.title("Load test " + name);
+            for (Widget<?> widget : widgets) {
+                root.widget(widget);
+            }
+            for (Widget<?> widget : context.changedWidgets()) {
+                Object value = widget.getValue() instanceof int[] indices ? Arrays.toString(indices) : widget.getValue();
+                root.text(widget.getLabel() + " changed to " + value);
+            }
+            for (int i = 0; i < texts; i++) {
+                root.text("Static line " + i + " of " + name);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package io.streamlitconnect.server.grpc;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.NonNull;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * The measurements of a {@link LoadGenerator} run, recorded concurrently by the simulated sessions. Latencies are
+ * recorded in microseconds into HdrHistogram recorders, which are sampled per report interval and accumulated into the
+ * histograms of the whole run.
+ */
+class LoadTestMetrics {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    // Time from sending the operations request until its first operation is received
+    private final Recorder firstOpRecorder = new Recorder(3);
+
+    // Time from sending the operations request until its EndOp is received
+    private final Recorder endOpRecorder = new Recorder(3);
+
+    private final Histogram firstOpTotal = new Histogram(3);
+
+    private final Histogram endOpTotal = new Histogram(3);
+
+    private final LongAdder reruns = new LongAdder();
+
+    private final LongAdder operations = new LongAdder();
+
+    private final LongAdder actions = new LongAdder();
+
+    private final LongAdder pageSwitches = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder sessionsStarted = new LongAdder();
+
+    private final LongAdder sessionsAbandoned = new LongAdder();
+
+    private long intervalStartNanos = System.nanoTime();
+
+    private long intervalReruns;
+
+    private long intervalOperations;
+
+    private long intervalErrors;
+
+    /**
+     * Records a completed rerun.
+     *
+     * @param firstOpNanos The time to the first operation.
+     * @param endOpNanos   The time to the EndOp.
+     * @param ops          The number of operations received.
+     */
+    void recordRerun(long firstOpNanos, long endOpNanos, int ops) {
+        firstOpRecorder.recordValue(TimeUnit.NANOSECONDS.toMicros(firstOpNanos));
+        endOpRecorder.recordValue(TimeUnit.NANOSECONDS.toMicros(endOpNanos));
+        reruns.increment();
+        operations.add(ops);
+    }
+
+    void recordActions(int count) {
+        actions.add(count);
+    }
+
+    void recordPageSwitch() {
+        pageSwitches.increment();
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    void recordSessionStarted() {
+        sessionsStarted.increment();
+    }
+
+    void recordSessionAbandoned() {
+        sessionsAbandoned.increment();
+    }
+
+    /**
+     * Discards everything recorded so far - called at the end of the ramp-up, so the measurements only cover the steady
+     * state.
+     */
+    synchronized void reset() {
+        firstOpRecorder.reset();
+        endOpRecorder.reset();
+        firstOpTotal.reset();
+        endOpTotal.reset();
+        reruns.reset();
+        operations.reset();
+        actions.reset();
+        pageSwitches.reset();
+        errors.reset();
+        intervalStartNanos = System.nanoTime();
+        intervalReruns = 0;
+        intervalOperations = 0;
+        intervalErrors = 0;
+    }
+
+    /**
+     * Prints the throughput and latencies since the previous interval report, and accumulates the interval into the
+     * totals.
+     *
+     * @param out      The stream to print to.
+     * @param elapsed  The seconds elapsed since the start of the run.
+     * @param extra    Further figures to append to the line, e.g. about the server.
+     */
+    synchronized void reportInterval(@NonNull PrintStream out, long elapsed, @NonNull String extra) {
+        long now = System.nanoTime();
+        double seconds = (now - intervalStartNanos) / 1e9;
+        Histogram firstOp = firstOpRecorder.getIntervalHistogram();
+        Histogram endOp = endOpRecorder.getIntervalHistogram();
+        firstOpTotal.add(firstOp);
+        endOpTotal.add(endOp);
+
+        long totalReruns = reruns.sum();
+        long totalOperations = operations.sum();
+        long totalErrors = errors.sum();
+        out.printf("[%5ds] reruns/s: %8.1f  ops/s: %10.1f  errors: %d  first-op p50/p99: %s/%s  end-op p50/p99: %s/%s%s%n",
+            elapsed,
+            (totalReruns - intervalReruns) / seconds,
+            (totalOperations - intervalOperations) / seconds,
+            totalErrors - intervalErrors,
+            millis(firstOp.getValueAtPercentile(50)), millis(firstOp.getValueAtPercentile(99)),
+            millis(endOp.getValueAtPercentile(50)), millis(endOp.getValueAtPercentile(99)),
+            extra);
+
+        intervalStartNanos = now;
+        intervalReruns = totalReruns;
+        intervalOperations = totalOperations;
+        intervalErrors = totalErrors;
+    }
+
+    /**
+     * Prints the summary of the measured run. To be called after a final {@link #reportInterval}.
+     *
+     * @param out     The stream to print to.
+     * @param seconds The measured duration in seconds.
+     */
+    synchronized void reportSummary(@NonNull PrintStream out, double seconds) {
+        out.printf("Reruns: %d (%.1f/s), operations: %d (%.1f/s), actions: %d, page switches: %d, errors: %d%n",
+            reruns.sum(), reruns.sum() / seconds, operations.sum(), operations.sum() / seconds, actions.sum(),
+            pageSwitches.sum(), errors.sum());
+        out.printf("Sessions started: %d, abandoned: %d%n", sessionsStarted.sum(), sessionsAbandoned.sum());
+        printLatencies(out, "Time to first op (ms)", firstOpTotal);
+        printLatencies(out, "Time to EndOp (ms)", endOpTotal);
+    }
+
+    private static void printLatencies(PrintStream out, String title, Histogram histogram) {
+        StringBuilder line = new StringBuilder(title).append(": ");
+        for (double percentile : PERCENTILES) {
+            line.append("p").append(percentile).append("=").append(millis(histogram.getValueAtPercentile(percentile)))
+                .append("  ");
+        }
+        line.append("max=").append(millis(histogram.getMaxValue()))
+            .append("  mean=").append(String.format("%.3f", histogram.getMean() / 1000))
+            .append("  count=").append(histogram.getTotalCount());
+        out.println(line);
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.3f", micros / 1000.0);
+    }
+
+}
@@ -0,0 +1,210 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * The options of the {@link LoadGenerator}, parsed from {@code -name value} pairs of the command line. See
+ * {@link #USAGE} for the options and their defaults.
+ */
+@Getter
+@ToString
+class LoadTestOptions {
+
+    static final String USAGE = """
+        Options (all optional):
+          -sessions <n>             Concurrent simulated sessions (default 1000)
+          -duration <s>             Measured run time in seconds, after the ramp-up (default 60)
+          -ramp-up <s>              Time over which the sessions are started (default 10)
+          -think-time <min>:<max>   Uniformly distributed pause between reruns in ms (default 500:2000)
+          -page-switch <p>          Probability of a rerun switching to another page (default 0.1)
+          -actions <mix>            Weighted action mix, e.g. button=4,checkbox=2,none=1 - the kinds being none, button,
+                                    checkbox, toggle, radio, selectbox, multiselect, dateInput, numberInput, textInput
+                                    and slider (default: all kinds weight 1, none weight 2)
+          -session-reruns <n>       Reruns after which a session is abandoned and replaced by a new one, leaving the
+                                    old one to eviction - 0 never abandons (default 0)
+          -transport <mode>         channel (session channel, as the Python relay), unary or batches (default channel)
+          -render-deltas <bool>     Whether the client declares the RENDER_DELTAS capability (default true)
+          -widget-ids <bool>        Whether the client declares the WIDGET_IDS capability (default true)
+          -report-interval <s>      Seconds between interval reports (default 10)
+          -target <host:port>       Server to load - an embedded server is started if not given
+          -pages <n>                Pages of the embedded app (default 3)
+          -texts <n>                Text elements per page of the embedded app (default 20)
+          -eviction-timeout <s>     Session eviction timeout of the embedded server (default 300)
+          -max-sessions <n>         Session limit of the embedded server - 0 does not limit (default 0)
+          -metrics-port <port>      Port of the Prometheus endpoint of the embedded server - 0 disables it (default 0)
+          -passivation-idle <s>     Idle time after which the embedded server passivates sessions - 0 disables
+                                    passivation (default 0)
+          -session-store <kind>     Store of the passivated sessions: heap (compressed) or mapped (default heap)
+          -widget-retention <n>     Reruns the embedded server keeps widgets not rendered - 0 keeps them all
+                                    (default 5)
+          -rerun-debounce <ms>      Delay of the reruns of the embedded server, coalescing bursts - 0 disables it
+                                    (default 0)
+        """;
+
+    static final String NO_ACTION = "none";
+
+    static final String[] ACTION_KINDS = {
+        NO_ACTION, "button", "checkbox", "toggle", "radio", "selectbox", "multiselect", "dateInput", "numberInput",
+        "textInput", "slider"
+    };
+
+    enum SessionStoreKind {
+        HEAP,
+        MAPPED
+    }
+
+    enum Transport {
+        CHANNEL,
+        UNARY,
+        BATCHES
+    }
+
+    private int sessions = 1000;
+
+    private int durationSeconds = 60;
+
+    private int rampUpSeconds = 10;
+
+    private int minThinkTimeMillis = 500;
+
+    private int maxThinkTimeMillis = 2000;
+
+    private double pageSwitchProbability = 0.1;
+
+    // Action kind -> weight, in the order of ACTION_KINDS
+    private final Map<String, Integer> actionMix = new LinkedHashMap<>();
+
+    private int sessionReruns;
+
+    private Transport transport = Transport.CHANNEL;
+
+    private boolean renderDeltas = true;
+
+    private boolean widgetIds = true;
+
+    private int reportIntervalSeconds = 10;
+
+    private String targetHost;
+
+    private int targetPort;
+
+    private int pages = 3;
+
+    private int texts = 20;
+
+    private int evictionTimeoutSeconds = Config.DEFAULT_EVICTION_TIMEOUT_SECONDS;
+
+    private int maxSessions;
+
+    private int metricsPort;
+
+    private int passivationIdleSeconds;
+
+    private SessionStoreKind sessionStore = SessionStoreKind.HEAP;
+
+    private int widgetRetentionReruns = Config.DEFAULT_WIDGET_RETENTION_RERUNS;
+
+    private int rerunDebounceMillis;
+
+    private LoadTestOptions() {
+        for (String kind : ACTION_KINDS) {
+            actionMix.put(kind, NO_ACTION.equals(kind) ? 2 : 1);
+        }
+    }
+
+    /**
+     * Parses the given command line arguments.
+     *
+     * @param args The arguments.
+     * @return The options.
+     * @throws StreamlitException If an argument is unknown or invalid.
+     */
+    static LoadTestOptions parse(@NonNull String... args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 >= args.length) {
+                throw new StreamlitException("Missing value of option: " + name);
+            }
+            String value = args[++i];
+            try {
+                switch (name) {
+                    case "-sessions" -> options.sessions = positive(name, Integer.parseInt(value));
+                    case "-duration" -> options.durationSeconds = positive(name, Integer.parseInt(value));
+                    case "-ramp-up" -> options.rampUpSeconds = Integer.parseInt(value);
+                    case "-think-time" -> {
+                        String[] range = value.split(":");
+                        options.minThinkTimeMillis = Integer.parseInt(range[0]);
+                        options.maxThinkTimeMillis =
+                            range.length > 1 ? Integer.parseInt(range[1]) : options.minThinkTimeMillis;
+                    }
+                    case "-page-switch" -> options.pageSwitchProbability = Double.parseDouble(value);
+                    case "-actions" -> options.parseActionMix(value);
+                    case "-session-reruns" -> options.sessionReruns = Integer.parseInt(value);
+                    case "-transport" -> options.transport = Transport.valueOf(value.toUpperCase());
+                    case "-render-deltas" -> options.renderDeltas = Boolean.parseBoolean(value);
+                    case "-widget-ids" -> options.widgetIds = Boolean.parseBoolean(value);
+                    case "-report-interval" -> options.reportIntervalSeconds = positive(name, Integer.parseInt(value));
+                    case "-target" -> {
+                        int colon = value.lastIndexOf(':');
+                        options.targetHost = value.substring(0, colon);
+                        options.targetPort = Integer.parseInt(value.substring(colon + 1));
+                    }
+                    case "-pages" -> options.pages = positive(name, Integer.parseInt(value));
+                    case "-texts" -> options.texts = Integer.parseInt(value);
+                    case "-eviction-timeout" -> options.evictionTimeoutSeconds = positive(name, Integer.parseInt(value));
+                    case "-max-sessions" -> options.maxSessions = Integer.parseInt(value);
+                    case "-metrics-port" -> options.metricsPort = Integer.parseInt(value);
+                    case "-passivation-idle" -> options.passivationIdleSeconds = Integer.parseInt(value);
+                    case "-session-store" -> options.sessionStore = SessionStoreKind.valueOf(value.toUpperCase());
+                    case "-widget-retention" -> options.widgetRetentionReruns = Integer.parseInt(value);
+                    case "-rerun-debounce" -> options.rerunDebounceMillis = Integer.parseInt(value);
+                    default -> throw new StreamlitException("Unknown option: " + name + "\n" + USAGE);
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new StreamlitException("Invalid value of option " + name + ": " + value, e);
+            }
+        }
+        if (options.minThinkTimeMillis < 0 || options.maxThinkTimeMillis < options.minThinkTimeMillis) {
+            throw new StreamlitException("Invalid think time range: " + options.minThinkTimeMillis + ":"
+                + options.maxThinkTimeMillis);
+        }
+        return options;
+    }
+
+    /**
+     * Whether an embedded server is to be started, rather than loading a target server.
+     */
+    boolean isEmbedded() {
+        return targetHost == null;
+    }
+
+    private void parseActionMix(String value) {
+        actionMix.replaceAll((kind, weight) -> 0);
+        for (String entry : value.split(",")) {
+            String[] kindAndWeight = entry.split("=");
+            String kind = kindAndWeight[0].trim();
+            if (!actionMix.containsKey(kind)) {
+                throw new IllegalArgumentException("Unknown action kind: " + kind);
+            }
+            actionMix.put(kind, kindAndWeight.length > 1 ? Integer.parseInt(kindAndWeight[1].trim()) : 1);
+        }
+        if (actionMix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The action mix has no positive weight");
+        }
+    }
+
+    private static int positive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,107 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.Action;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.ButtonAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.CheckboxAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.DateInputAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.MultiselectAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.NumberInputAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.RadioAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.SelectboxAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.SliderAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.TextInputAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.ToggleAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.IntOrFloat;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ValueSingle;
+import io.streamlitconnect.widgets.Widget;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of applying a rerun's actions to the session widgets, with one action per widget type and {@code widgets} of
+ * each type registered in the session. Two action lists with different values are applied in turn, so every action
+ * actually changes its widget.
+ * <p>
+ * Run with: {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=ProcessActionsBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class ProcessActionsBenchmark {
+
+    @Param({"1", "100"})
+    public int widgets;
+
+    private GrpcStreamlitSessionContext sessionContext;
+
+    private List<Action> evenActions;
+
+    private List<Action> oddActions;
+
+    private boolean odd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionContext = BenchmarkFixtures.sessionContext();
+        Map<String, String> keys = new HashMap<>();
+        for (int i = 0; i < widgets; i++) {
+            for (String type : BenchmarkFixtures.WIDGET_TYPES) {
+                Widget<?> widget = BenchmarkFixtures.widget(type);
+                sessionContext.addWidget(widget);
+                keys.put(type, widget.getKey()); // Act on the last registered widget of each type
+            }
+        }
+        evenActions = actions(keys, 0);
+        oddActions = actions(keys, 1);
+    }
+
+    @Benchmark
+    public void processActions() {
+        odd = !odd;
+        sessionContext.processActions(odd ? oddActions : evenActions);
+    }
+
+    private static List<Action> actions(Map<String, String> keys, int variant) {
+        List<Action> actions = new ArrayList<>();
+        actions.add(Action.newBuilder().setButtonAction(ButtonAction.newBuilder()
+            .setKey(keys.get("button"))).build());
+        actions.add(Action.newBuilder().setCheckboxAction(CheckboxAction.newBuilder()
+            .setKey(keys.get("checkbox")).setValue(variant == 1)).build());
+        actions.add(Action.newBuilder().setToggleAction(ToggleAction.newBuilder()
+            .setKey(keys.get("toggle")).setValue(variant == 1)).build());
+        actions.add(Action.newBuilder().setRadioAction(RadioAction.newBuilder()
+            .setKey(keys.get("radio")).setIndex(variant + 1)).build());
+        actions.add(Action.newBuilder().setSelectboxAction(SelectboxAction.newBuilder()
+            .setKey(keys.get("selectbox")).setIndex(variant + 2)).build());
+        actions.add(Action.newBuilder().setMultiselectAction(MultiselectAction.newBuilder()
+            .setKey(keys.get("multiselect")).addSelectedIndices(variant).addSelectedIndices(3)).build());
+        actions.add(Action.newBuilder().setDateInputAction(DateInputAction.newBuilder()
+            .setKey(keys.get("dateInput")).setFromDate("2024-01-0" + (variant + 1)).setToDate("2024-02-01")).build());
+        actions.add(Action.newBuilder().setNumberInputAction(NumberInputAction.newBuilder()
+            .setKey(keys.get("numberInput")).setValue(IntOrFloat.newBuilder().setF(1.5f + variant))).build());
+        actions.add(Action.newBuilder().setTextInputAction(TextInputAction.newBuilder()
+            .setKey(keys.get("textInput")).setValue("Text " + variant)).build());
+        actions.add(Action.newBuilder().setSliderAction(SliderAction.newBuilder()
+            .setKey(keys.get("slider")).setValueSingle(ValueSingle.newBuilder().setValueInt(10 + variant))).build());
+        return actions;
+    }
+
+}
@@ -0,0 +1,568 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.server.grpc.LoadTestOptions.Transport;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.Action;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.ButtonAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.CheckboxAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.DateInputAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.MultiselectAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.NumberInputAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.RadioAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.SelectboxAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.SliderAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.TextInputAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.ToggleAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ClientCapability;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.IntOrFloat;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ValueSingle;
+import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.MenuItem;
+import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.NavigationEntry;
+import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.StreamlitNavigation;
+import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.StreamlitNavigationRequest;
+import io.streamlitconnect.server.grpc.gen.StreamlitNavigationServiceGrpc;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.OperationBatch;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.SliderOp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation.OperationCase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.WidgetProperties;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionRequestFrame;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionResponseFrame;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionServiceGrpc;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import lombok.NonNull;
+
+/**
+ * A simulated browser session of the {@link LoadGenerator}, speaking the protocol like the Python relay does: each rerun
+ * sends a navigation request and then an operations request for the current page, carrying the actions of the previous
+ * rerun. The retained operations of each page are maintained as by the relay, so render deltas are applied and the
+ * widgets to act on are known.
+ * <p>
+ * Between reruns the session thinks, and then either switches to another page of the navigation menu or acts on a
+ * widget of the current page according to the action mix.
+ */
+class SimulatedSession {
+
+    private static final long RESPONSE_TIMEOUT_SECONDS = 60;
+
+    private static final Set<OperationCase> CONTROL_OPS = EnumSet.of(
+        OperationCase.ENDOP, OperationCase.RERUNOP, OperationCase.STOPOP, OperationCase.TERMINATESESSIONOP,
+        OperationCase.SWITCHPAGEOP, OperationCase.RETAINOP, OperationCase.REMOVEOP);
+
+    // Action kind of the options -> operation of the widget to act on
+    private static final Map<String, OperationCase> ACTION_WIDGETS = Map.of(
+        "button", OperationCase.BUTTONOP,
+        "checkbox", OperationCase.CHECKBOXOP,
+        "toggle", OperationCase.TOGGLEOP,
+        "radio", OperationCase.RADIOOP,
+        "selectbox", OperationCase.SELECTBOXOP,
+        "multiselect", OperationCase.MULTISELECTOP,
+        "dateInput", OperationCase.DATEINPUTOP,
+        "numberInput", OperationCase.NUMBERINPUTOP,
+        "textInput", OperationCase.TEXTINPUTOP,
+        "slider", OperationCase.SLIDEROP);
+
+    private record Retained(int seq, List<StreamlitOperation> ops) {
+
+    }
+
+    private final LoadTestOptions options;
+
+    private final LoadTestMetrics metrics;
+
+    private final ManagedChannel channel;
+
+    private final String sessionId = UUID.randomUUID().toString();
+
+    private final List<ClientCapability> capabilities = new ArrayList<>();
+
+    // Page -> the operations of its last completed rerun
+    private final Map<String, Retained> retained = new HashMap<>();
+
+    private final List<String> pages = new ArrayList<>();
+
+    private Requests requests;
+
+    private int seq;
+
+    private String page;
+
+    private List<Action> pendingActions = Collections.emptyList();
+
+    SimulatedSession(@NonNull LoadTestOptions options, @NonNull LoadTestMetrics metrics, @NonNull ManagedChannel channel) {
+        this.options = options;
+        this.metrics = metrics;
+        this.channel = channel;
+        if (options.isRenderDeltas()) {
+            capabilities.add(ClientCapability.RENDER_DELTAS);
+        }
+        if (options.isWidgetIds()) {
+            capabilities.add(ClientCapability.WIDGET_IDS);
+        }
+        if (options.getTransport() != Transport.UNARY) {
+            capabilities.add(ClientCapability.OPERATION_BATCHES);
+        }
+        capabilities.add(ClientCapability.PACKED_SELECTIONS);
+        capabilities.add(ClientCapability.TEMPORAL_NUMBERS);
+    }
+
+    /**
+     * Runs reruns until the session is abandoned after the configured number of reruns, or the run is over.
+     *
+     * @param running Whether the run is still going on.
+     * @throws InterruptedException If interrupted while thinking or waiting for a response.
+     */
+    void run(@NonNull BooleanSupplier running) throws InterruptedException {
+        metrics.recordSessionStarted();
+        int reruns = 0;
+        try {
+            while (running.getAsBoolean()) {
+                rerun();
+                if (options.getSessionReruns() > 0 && ++reruns >= options.getSessionReruns()) {
+                    metrics.recordSessionAbandoned(); // Like a closed browser tab, the server evicts the session later
+                    return;
+                }
+                think();
+                prepareNextRerun();
+            }
+        } finally {
+            if (requests != null) {
+                requests.close();
+            }
+        }
+    }
+
+    private void rerun() throws InterruptedException {
+        seq++;
+        List<Action> actions = pendingActions;
+        pendingActions = Collections.emptyList();
+        metrics.recordActions(actions.size());
+
+        if (requests == null) {
+            requests = switch (options.getTransport()) {
+                case CHANNEL -> new ChannelRequests(channel);
+                case UNARY -> new UnaryRequests(channel, false);
+                case BATCHES -> new UnaryRequests(channel, true);
+            };
+        }
+
+        try {
+            StreamlitNavigation navigation = requests.navigate(StreamlitNavigationRequest.newBuilder()
+                .setSessionId(sessionId)
+                .setSeq(seq)
+                .addAllActions(actions)
+                .build());
+            updatePages(navigation);
+            runOperations(actions);
+        } catch (StatusRuntimeException | StreamlitException e) {
+            metrics.recordError();
+            requests.close();
+            requests = null; // Reconnect on the next rerun
+        }
+    }
+
+    private void runOperations(List<Action> actions) throws InterruptedException {
+        String pageKey = page != null ? page : "";
+        Retained base = retained.remove(pageKey);
+        List<StreamlitOperation> baseOps = base != null ? base.ops() : Collections.emptyList();
+
+        StreamlitOperationsRequest.Builder request = StreamlitOperationsRequest.newBuilder()
+            .setSessionId(sessionId)
+            .setSeq(seq)
+            .addAllActions(actions)
+            .addAllCapabilities(capabilities)
+            .setDeltaBaseSeq(base != null ? base.seq() : 0);
+        if (page != null) {
+            request.setPage(page);
+        }
+
+        long start = System.nanoTime();
+        long firstOp = 0;
+        int count = 0;
+        int cursor = 0; // The next base op
+        List<StreamlitOperation> retainedOps = new ArrayList<>(baseOps.size());
+        Iterator<StreamlitOperation> operations = requests.operations(request.build());
+        while (operations.hasNext()) {
+            StreamlitOperation operation = operations.next();
+            if (count++ == 0) {
+                firstOp = System.nanoTime() - start;
+            }
+
+            switch (operation.getOperationCase()) {
+                case RETAINOP -> {
+                    // Replay the next retained ops unchanged
+                    int retain = operation.getRetainOp().getCount();
+                    if (cursor + retain > baseOps.size()) {
+                        throw new StreamlitException("Cannot retain " + retain + " ops at " + cursor + " of "
+                            + baseOps.size());
+                    }
+                    retainedOps.addAll(baseOps.subList(cursor, cursor + retain));
+                    cursor += retain;
+                }
+                case REMOVEOP -> cursor += operation.getRemoveOp().getCount(); // Skip the next retained ops
+                case SWITCHPAGEOP -> page = operation.getSwitchPageOp().getPage();
+                case ENDOP -> {
+                    metrics.recordRerun(firstOp, System.nanoTime() - start, count);
+                    if (!operation.getEndOp().getCancelled()) {
+                        retained.put(pageKey, new Retained(seq, retainedOps));
+                    }
+                }
+                default -> {
+                    if (!CONTROL_OPS.contains(operation.getOperationCase())) {
+                        retainedOps.add(operation); // Inserts the op at the cursor
+                    }
+                }
+            }
+        }
+    }
+
+    private void updatePages(StreamlitNavigation navigation) {
+        pages.clear();
+        for (MenuItem item : navigation.getItemsList()) {
+            for (NavigationEntry entry : item.getEntriesList()) {
+                pages.add(entry.getPage());
+                if (page == null && entry.getIsDefault()) {
+                    page = entry.getPage();
+                }
+            }
+        }
+        if (page == null && !pages.isEmpty()) {
+            page = pages.getFirst();
+        }
+    }
+
+    private void think() throws InterruptedException {
+        int millis = ThreadLocalRandom.current().nextInt(
+            options.getMinThinkTimeMillis(), options.getMaxThinkTimeMillis() + 1);
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private void prepareNextRerun() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (pages.size() > 1 && random.nextDouble() < options.getPageSwitchProbability()) {
+            List<String> others = new ArrayList<>(pages);
+            others.remove(page);
+            page = others.get(random.nextInt(others.size()));
+            metrics.recordPageSwitch();
+            return;
+        }
+
+        String kind = pickActionKind(random);
+        OperationCase widgetCase = ACTION_WIDGETS.get(kind);
+        if (widgetCase == null) {
+            return; // No action, just a rerun
+        }
+        Retained current = retained.get(page != null ? page : "");
+        if (current == null) {
+            return;
+        }
+        List<StreamlitOperation> widgets = current.ops().stream()
+            .filter(op -> op.getOperationCase() == widgetCase)
+            .toList();
+        if (!widgets.isEmpty()) {
+            pendingActions = List.of(toAction(widgets.get(random.nextInt(widgets.size())), random));
+        }
+    }
+
+    private String pickActionKind(ThreadLocalRandom random) {
+        Map<String, Integer> mix = options.getActionMix();
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        return LoadTestOptions.NO_ACTION;
+    }
+
+    private static Action toAction(StreamlitOperation op, ThreadLocalRandom random) {
+        // Only one of the key and the id is set, depending on the WIDGET_IDS capability
+        WidgetProperties props = widgetProps(op);
+        return switch (op.getOperationCase()) {
+            case BUTTONOP -> Action.newBuilder().setButtonAction(ButtonAction.newBuilder()
+                .setKey(props.getKey()).setId(props.getId())).build();
+            case CHECKBOXOP -> Action.newBuilder().setCheckboxAction(CheckboxAction.newBuilder()
+                .setKey(props.getKey()).setId(props.getId())
+                .setValue(!op.getCheckboxOp().getValue())).build();
+            case TOGGLEOP -> Action.newBuilder().setToggleAction(ToggleAction.newBuilder()
+                .setKey(props.getKey()).setId(props.getId())
+                .setValue(!op.getToggleOp().getValue())).build();
+            case RADIOOP -> Action.newBuilder().setRadioAction(RadioAction.newBuilder()
+                .setKey(props.getKey()).setId(props.getId())
+                .setIndex(random.nextInt(Math.max(1, op.getRadioOp().getOptionsCount())))).build();
+            case SELECTBOXOP -> Action.newBuilder().setSelectboxAction(SelectboxAction.newBuilder()
+                .setKey(props.getKey()).setId(props.getId())
+                .setIndex(random.nextInt(Math.max(1, op.getSelectboxOp().getOptionsCount())))).build();
+            case MULTISELECTOP -> {
+                MultiselectAction.Builder action = MultiselectAction.newBuilder()
+                    .setKey(props.getKey()).setId(props.getId());
+                for (int i = 0; i < op.getMultiselectOp().getOptionsCount(); i++) {
+                    if (random.nextBoolean()) {
+                        action.addSelectedIndices(i);
+                    }
+                }
+                yield Action.newBuilder().setMultiselectAction(action).build();
+            }
+            case DATEINPUTOP -> {
+                LocalDate from = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365));
+                yield Action.newBuilder().setDateInputAction(DateInputAction.newBuilder()
+                    .setKey(props.getKey()).setId(props.getId())
+                    .setFromEpochDay((int) from.toEpochDay())
+                    .setToEpochDay((int) from.plusDays(random.nextInt(30)).toEpochDay())).build();
+            }
+            case NUMBERINPUTOP -> {
+                IntOrFloat value = op.getNumberInputOp().getValue().hasF()
+                    ? IntOrFloat.newBuilder().setF(random.nextFloat() * 100).build()
+                    : IntOrFloat.newBuilder().setI(random.nextInt(100)).build();
+                yield Action.newBuilder().setNumberInputAction(NumberInputAction.newBuilder()
+                    .setKey(props.getKey()).setId(props.getId())
+                    .setValue(value)).build();
+            }
+            case TEXTINPUTOP -> Action.newBuilder().setTextInputAction(TextInputAction.newBuilder()
+                .setKey(props.getKey()).setId(props.getId())
+                .setValue("Text " + random.nextInt(1000))).build();
+            case SLIDEROP -> {
+                SliderOp slider = op.getSliderOp();
+                int max = Math.max(slider.getMinValueInt() + 1, slider.getMaxValueInt());
+                yield Action.newBuilder().setSliderAction(SliderAction.newBuilder()
+                    .setKey(props.getKey()).setId(props.getId())
+                    .setValueSingle(ValueSingle.newBuilder()
+                        .setValueInt(random.nextInt(slider.getMinValueInt(), max + 1)))).build();
+            }
+            default -> throw new IllegalArgumentException("Not a widget operation: " + op.getOperationCase());
+        };
+    }
+
+    private static WidgetProperties widgetProps(StreamlitOperation op) {
+        return switch (op.getOperationCase()) {
+            case BUTTONOP -> op.getButtonOp().getWidgetProps();
+            case CHECKBOXOP -> op.getCheckboxOp().getWidgetProps();
+            case TOGGLEOP -> op.getToggleOp().getWidgetProps();
+            case RADIOOP -> op.getRadioOp().getWidgetProps();
+            case SELECTBOXOP -> op.getSelectboxOp().getWidgetProps();
+            case MULTISELECTOP -> op.getMultiselectOp().getWidgetProps();
+            case DATEINPUTOP -> op.getDateInputOp().getWidgetProps();
+            case NUMBERINPUTOP -> op.getNumberInputOp().getWidgetProps();
+            case TEXTINPUTOP -> op.getTextInputOp().getWidgetProps();
+            case SLIDEROP -> op.getSliderOp().getWidgetProps();
+            default -> throw new IllegalArgumentException("Not a widget operation: " + op.getOperationCase());
+        };
+    }
+
+    /**
+     * The requests of a session over one of the transports.
+     */
+    private interface Requests {
+
+        StreamlitNavigation navigate(StreamlitNavigationRequest request) throws InterruptedException;
+
+        Iterator<StreamlitOperation> operations(StreamlitOperationsRequest request) throws InterruptedException;
+
+        void close();
+    }
+
+    /**
+     * A GetNavigation and a GetOperations (or GetOperationBatches) call per rerun.
+     */
+    private static class UnaryRequests implements Requests {
+
+        private final StreamlitNavigationServiceGrpc.StreamlitNavigationServiceBlockingStub navigationStub;
+
+        private final StreamlitOperationServiceGrpc.StreamlitOperationServiceBlockingStub operationStub;
+
+        private final boolean batches;
+
+        UnaryRequests(ManagedChannel channel, boolean batches) {
+            this.navigationStub = StreamlitNavigationServiceGrpc.newBlockingStub(channel);
+            this.operationStub = StreamlitOperationServiceGrpc.newBlockingStub(channel);
+            this.batches = batches;
+        }
+
+        @Override
+        public StreamlitNavigation navigate(StreamlitNavigationRequest request) {
+            return navigationStub.withDeadlineAfter(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS).getNavigation(request);
+        }
+
+        @Override
+        public Iterator<StreamlitOperation> operations(StreamlitOperationsRequest request) {
+            var stub = operationStub.withDeadlineAfter(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!batches) {
+                return stub.getOperations(request);
+            }
+            Iterator<OperationBatch> operationBatches = stub.getOperationBatches(request);
+            return new Iterator<>() {
+
+                private Iterator<StreamlitOperation> batch = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!batch.hasNext() && operationBatches.hasNext()) {
+                        batch = operationBatches.next().getOperationsList().iterator();
+                    }
+                    return batch.hasNext();
+                }
+
+                @Override
+                public StreamlitOperation next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return batch.next();
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close, the calls are complete
+        }
+    }
+
+    /**
+     * A long-lived session channel, carrying the requests of all reruns as frames. Each response is read up to its end
+     * (or error) frame before the next request is sent.
+     */
+    private static class ChannelRequests implements Requests {
+
+        // Response frames, or the Throwable failing the channel
+        private final BlockingQueue<Object> responses = new LinkedBlockingQueue<>();
+
+        private final StreamObserver<SessionRequestFrame> requestObserver;
+
+        ChannelRequests(ManagedChannel channel) {
+            requestObserver = StreamlitSessionServiceGrpc.newStub(channel).sessionChannel(new StreamObserver<>() {
+
+                @Override
+                public void onNext(SessionResponseFrame frame) {
+                    responses.add(frame);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    responses.add(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    responses.add(new StreamlitException("Session channel completed by the server"));
+                }
+            });
+        }
+
+        @Override
+        public StreamlitNavigation navigate(StreamlitNavigationRequest request) throws InterruptedException {
+            requestObserver.onNext(SessionRequestFrame.newBuilder().setNavigationRequest(request).build());
+            StreamlitNavigation navigation = StreamlitNavigation.getDefaultInstance();
+            while (true) {
+                SessionResponseFrame frame = take(request.getSeq());
+                switch (frame.getFrameCase()) {
+                    case NAVIGATION -> navigation = frame.getNavigation();
+                    case END -> {
+                        return navigation;
+                    }
+                    default -> throw new StreamlitException("Unexpected navigation frame: " + frame.getFrameCase());
+                }
+            }
+        }
+
+        @Override
+        public Iterator<StreamlitOperation> operations(StreamlitOperationsRequest request) throws InterruptedException {
+            requestObserver.onNext(SessionRequestFrame.newBuilder().setOperationsRequest(request).build());
+            Queue<StreamlitOperation> received = new ArrayDeque<>();
+            int seq = request.getSeq();
+            return new Iterator<>() {
+
+                private boolean ended;
+
+                @Override
+                public boolean hasNext() {
+                    while (received.isEmpty() && !ended) {
+                        SessionResponseFrame frame;
+                        try {
+                            frame = take(seq);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt(); // Restore the interrupted status
+                            throw new StreamlitException(e);
+                        }
+                        switch (frame.getFrameCase()) {
+                            case OPERATION -> received.add(frame.getOperation());
+                            case OPERATION_BATCH -> received.addAll(frame.getOperationBatch().getOperationsList());
+                            case END -> ended = true;
+                            default -> throw new StreamlitException("Unexpected operations frame: "
+                                + frame.getFrameCase());
+                        }
+                    }
+                    return !received.isEmpty();
+                }
+
+                @Override
+                public StreamlitOperation next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return received.poll();
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            try {
+                requestObserver.onCompleted();
+            } catch (RuntimeException e) {
+                // The channel already failed
+            }
+        }
+
+        /**
+         * Takes the next frame of the request with the given sequence number, skipping frames of superseded requests.
+         */
+        private SessionResponseFrame take(int seq) throws InterruptedException {
+            while (true) {
+                Object response = responses.poll(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (response == null) {
+                    throw new StreamlitException("No response to seq " + seq + " within " + RESPONSE_TIMEOUT_SECONDS
+                        + " seconds");
+                }
+                if (response instanceof Throwable t) {
+                    throw new StreamlitException("Session channel failed", t);
+                }
+                SessionResponseFrame frame = (SessionResponseFrame) response;
+                if (frame.getSeq() != seq) {
+                    continue;
+                }
+                if (frame.hasError()) {
+                    throw new StreamlitException("Request seq " + seq + " failed: " + frame.getError().getMessage());
+                }
+                return frame;
+            }
+        }
+    }
+
+}
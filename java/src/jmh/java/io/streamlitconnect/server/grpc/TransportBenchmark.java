@@ -0,0 +1,132 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.TransportConfig;
+import io.streamlitconnect.TransportConfig.HandlerExecutor;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc.StreamlitOperationServiceBlockingStub;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end rerun throughput over a local connection, for each transport knob of {@link TransportConfig}. Every
+ * {@code transport} profile changes a single knob from the defaults, so comparing it against {@code defaults} shows the
+ * effect of that knob. Each benchmark thread is a session running reruns of an app emitting {@code opsPerRerun} text
+ * operations, without render deltas or batching.
+ * <p>
+ * Run with: {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=TransportBenchmark}, adding e.g.
+ * {@code -t 64} to the benchmark arguments to simulate more concurrent sessions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@Threads(8)
+public class TransportBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        @Param({
+            "defaults",
+            "epoll",
+            "direct-executor",
+            "virtual-executor",
+            "single-worker",
+            "small-window",
+            "large-window",
+            "keepalive",
+            "max-message-size"
+        })
+        public String transport;
+
+        @Param({"10", "1000"})
+        public int opsPerRerun;
+
+        BenchmarkServer server;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            TransportConfig.TransportConfigBuilder transportBuilder = TransportConfig.builder();
+            switch (transport) {
+                case "defaults" -> {
+                }
+                case "epoll" -> transportBuilder.nativeTransport(true);
+                case "direct-executor" -> transportBuilder.handlerExecutor(HandlerExecutor.DIRECT);
+                case "virtual-executor" -> transportBuilder.handlerExecutor(HandlerExecutor.VIRTUAL_THREADS);
+                case "single-worker" -> transportBuilder.workerEventLoopThreads(1);
+                case "small-window" -> transportBuilder.flowControlWindowBytes(64 * 1024);
+                case "large-window" -> transportBuilder.flowControlWindowBytes(16 * 1024 * 1024);
+                case "keepalive" -> transportBuilder.keepAliveTimeSeconds(10).maxConnectionIdleSeconds(60);
+                case "max-message-size" -> transportBuilder
+                    .maxInboundMessageBytes(16 * 1024 * 1024)
+                    .maxOutboundMessageBytes(4 * 1024 * 1024);
+                default -> throw new IllegalArgumentException("Unknown transport profile: " + transport);
+            }
+
+            int ops = opsPerRerun;
+            server = new BenchmarkServer(
+                Config.builder().renderDeltasEnabled(false).transport(transportBuilder.build()),
+                context -> {
+                    for (int i = 0; i < ops; i++) {
+                        context.getRootContainer().text("Line " + i);
+                    }
+                });
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SessionState {
+
+        final String sessionId = UUID.randomUUID().toString();
+
+        int seq;
+
+        StreamlitOperationServiceBlockingStub stub;
+
+        @Setup(Level.Trial)
+        public void setUp(ServerState serverState) {
+            stub = StreamlitOperationServiceGrpc.newBlockingStub(serverState.server.getChannel());
+        }
+    }
+
+    @Benchmark
+    public int rerun(SessionState session) {
+        StreamlitOperationsRequest request = StreamlitOperationsRequest.newBuilder()
+            .setSessionId(session.sessionId)
+            .setSeq(++session.seq)
+            .build();
+
+        int count = 0;
+        Iterator<StreamlitOperation> operations = session.stub.getOperations(request);
+        while (operations.hasNext()) {
+            operations.next();
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.widgets.Button;
+import io.streamlitconnect.widgets.Checkbox;
+import io.streamlitconnect.widgets.DateInput;
+import io.streamlitconnect.widgets.IntegerSlider;
+import io.streamlitconnect.widgets.Multiselect;
+import io.streamlitconnect.widgets.NumberInput;
+import io.streamlitconnect.widgets.Radio;
+import io.streamlitconnect.widgets.Selectbox;
+import io.streamlitconnect.widgets.TextInput;
+import io.streamlitconnect.widgets.Toggle;
+import io.streamlitconnect.widgets.Widget;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning a widget into its Streamlit operation, per widget type: {@code mapper} measures the
+ * {@link WidgetMapper} conversion alone, {@code container} the whole {@link ContainerImpl#widget} path including the
+ * widget registration and the operations queue hand-off. {@code text} is the plain element baseline.
+ * {@code capabilities} maps as for a client declaring the optional protocol features: widget ids, packed selections and
+ * temporal numbers.
+ * <p>
+ * Run with: {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=WidgetOpsBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class WidgetOpsBenchmark {
+
+    @Param({
+        "button", "checkbox", "toggle", "radio", "selectbox", "multiselect", "dateInput", "numberInput", "textInput",
+        "slider"
+    })
+    public String widgetType;
+
+    @Param({"false", "true"})
+    public boolean capabilities;
+
+    private Widget<?> widget;
+
+    private GrpcOperationsRequestContext context;
+
+    private OperationRingBuffer operationsQueue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        widget = BenchmarkFixtures.widget(widgetType);
+        context = BenchmarkFixtures.operationsContext(BenchmarkFixtures.sessionContext());
+        operationsQueue = context.getOperationsQueue();
+    }
+
+    @Benchmark
+    public Object mapper() {
+        String containerKey = context.getRootContainer().getKey();
+        return switch (widget) {
+            case Button button -> WidgetMapper.toButtonOp(button, containerKey, capabilities);
+            case Checkbox checkbox -> WidgetMapper.toCheckboxOp(checkbox, containerKey, capabilities);
+            case Toggle toggle -> WidgetMapper.toToggleOp(toggle, containerKey, capabilities);
+            case Radio radio -> WidgetMapper.toRadioOp(radio, containerKey, capabilities);
+            case Selectbox selectbox -> WidgetMapper.toSelectboxOp(selectbox, containerKey, capabilities);
+            case Multiselect multiselect ->
+                WidgetMapper.toMultiselectOp(multiselect, containerKey, capabilities, capabilities);
+            case DateInput dateInput -> WidgetMapper.toDateInputOp(dateInput, containerKey, capabilities, capabilities);
+            case NumberInput numberInput -> WidgetMapper.toNumberInputOp(numberInput, containerKey, capabilities);
+            case TextInput textInput -> WidgetMapper.toTextInputOp(textInput, containerKey, capabilities);
+            case IntegerSlider slider -> WidgetMapper.toSliderOp(slider, containerKey, capabilities, capabilities);
+            default -> throw new IllegalStateException("Unexpected widget: " + widget);
+        };
+    }
+
+    @Benchmark
+    public StreamlitOperation container() throws InterruptedException {
+        context.getRootContainer().widget(widget);
+        return operationsQueue.take();
+    }
+
+    @Benchmark
+    public StreamlitOperation text() throws InterruptedException {
+        context.getRootContainer().text("Some text");
+        return operationsQueue.take();
+    }
+
+}
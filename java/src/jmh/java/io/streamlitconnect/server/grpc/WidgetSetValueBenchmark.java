@@ -0,0 +1,90 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.widgets.DateInput;
+import io.streamlitconnect.widgets.Multiselect;
+import io.streamlitconnect.widgets.Selectbox;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the change detection of {@link io.streamlitconnect.widgets.Widget#setValue} for the scalar
+ * ({@code Integer}), array ({@code int[]}) and pair ({@code MutablePair}) values, setting either an equal value
+ * ({@code unchanged}) or a different one ({@code changed}). Every value is a fresh instance, as decoded from an action.
+ * <p>
+ * Run with: {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=WidgetSetValueBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class WidgetSetValueBenchmark {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+
+    private static final LocalDate TO = LocalDate.of(2024, 2, 1);
+
+    private Selectbox selectbox;
+
+    private Multiselect multiselect;
+
+    private DateInput dateInput;
+
+    private int toggle;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        selectbox = new Selectbox("Selectbox");
+        selectbox.setOptions(new String[]{"A", "B", "C"});
+        selectbox.setValue(1);
+        multiselect = new Multiselect("Multiselect");
+        multiselect.setOptions(new String[]{"A", "B", "C", "D"});
+        multiselect.setValue(new int[]{0, 2});
+        dateInput = new DateInput("DateInput");
+        dateInput.setValue(MutablePair.of(FROM, TO));
+    }
+
+    @Benchmark
+    public boolean integerUnchanged() {
+        return selectbox.setValue(Integer.valueOf(1));
+    }
+
+    @Benchmark
+    public boolean integerChanged() {
+        return selectbox.setValue(Integer.valueOf(toggle ^= 1));
+    }
+
+    @Benchmark
+    public boolean intArrayUnchanged() {
+        return multiselect.setValue(new int[]{0, 2});
+    }
+
+    @Benchmark
+    public boolean intArrayChanged() {
+        return multiselect.setValue(new int[]{toggle ^= 1, 2});
+    }
+
+    @Benchmark
+    public boolean pairUnchanged() {
+        return dateInput.setValue(MutablePair.of(FROM, TO));
+    }
+
+    @Benchmark
+    public boolean pairChanged() {
+        return dateInput.setValue(MutablePair.of((toggle ^= 1) == 0 ? FROM : TO, TO));
+    }
+
+}
@@ -1,55 +1,50 @@
 package io.streamlitconnect;
 
-import java.util.concurrent.ConcurrentHashMap;
 import lombok.NonNull;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Formerly cached the app of each session. The server now keeps the app of each session in its session registry, bounded
+ * by the session limits of the {@link Config}, and closes it when the session is removed - so this class only delegates
+ * to the given app manager.
+ *
+ * @deprecated Pass the app manager to the server directly.
+ */
+@Deprecated
 public class AppCache implements StreamlitAppManager {
 
     private final static Logger log = LoggerFactory.getLogger(AppCache.class);
 
     private final StreamlitAppManager appManager;
 
-    // Use a ConcurrentHashMap to store the StreamlitApp instances by session ID
-
-    private final ConcurrentHashMap<String, StreamlitApp> cache = new ConcurrentHashMap<>();
-
     public AppCache(@NonNull StreamlitAppManager appManager) {
         this.appManager = appManager;
     }
 
     @Override
     public @NotNull StreamlitApp getOrCreateApp(@NonNull StreamlitSessionContext context) {
-        return cache.computeIfAbsent(context.getSessionId(), k -> appManager.getOrCreateApp(context));
+        return appManager.getOrCreateApp(context);
     }
 
     @Override
     public void disposeSession(@NonNull String sessionId) {
-        log.debug("Disposing app for session: {}", sessionId);
-        StreamlitApp app = cache.remove(sessionId);
-        if (app != null) {
-            log.debug("App removed from cache, now closing it: {}", app);
-            app.close();
-            log.info("App instance closed/disposed {}", app);
-        }
+        log.debug("Disposing session: {}", sessionId);
+        appManager.disposeSession(sessionId);
     }
 
+    /**
+     * Does nothing, the server removes the app with its session.
+     */
     public void remove(@NonNull String sessionId) {
-        cache.remove(sessionId);
+        // Nothing cached
     }
 
+    /**
+     * Does nothing, the server closes the apps of its sessions when stopped.
+     */
     public void clear() {
-        log.info("Disposing all apps and clearing cache");
-        for (StreamlitApp app : cache.values()) {
-            try {
-                app.close();
-                log.info("App instance closed: {}", app);
-            } catch (Exception e) {
-                log.warn("Error '{}' closing app: {}", app, e.getMessage(), e);
-            }
-        }
-        cache.clear();
+        // Nothing cached
     }
 }
@@ -1,5 +1,9 @@
 package io.streamlitconnect;
 
+import io.streamlitconnect.metrics.MetricsRegistry;
+import io.streamlitconnect.metrics.MetricsSink;
+import io.streamlitconnect.store.CompressedHeapSessionStore;
+import io.streamlitconnect.store.SessionStore;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
@@ -16,6 +20,22 @@ public class Config {
 
     public static final int DEFAULT_EVICTION_TIMEOUT_SECONDS = 5 * 60;
 
+    public static final int DEFAULT_EVICTION_TICK_MILLIS = 1000;
+
+    public static final int DEFAULT_ADMISSION_MIN_IDLE_SECONDS = 60;
+
+    public static final int DEFAULT_WIDGET_RETENTION_RERUNS = 5;
+
+    public static final int DEFAULT_RENDER_BASELINE_PAGES = 8;
+
+    public static final int DEFAULT_OP_QUEUE_CAPACITY = 1024;
+
+    public static final int DEFAULT_OP_BATCH_MAX_OPS = 128;
+
+    public static final int DEFAULT_OP_BATCH_MAX_BYTES = 32 * 1024;
+
+    public static final int DEFAULT_OP_BATCH_LINGER_MICROS = 500;
+
 
     private boolean serveFrontendApp; // Not yet implemented
 
@@ -25,4 +45,130 @@ public class Config {
     @Builder.Default
     private int evictionTimeoutSeconds = DEFAULT_EVICTION_TIMEOUT_SECONDS;
 
+    /**
+     * The granularity of the session eviction: inactive sessions are evicted up to this long after their eviction timeout.
+     */
+    @Builder.Default
+    private int evictionTickMillis = DEFAULT_EVICTION_TICK_MILLIS;
+
+    /**
+     * The maximum number of sessions of the server. 0 (the default) does not limit the number of sessions.
+     */
+    private int maxSessions;
+
+    /**
+     * The maximum total weight of the sessions of the server, as estimated by the {@link #sessionWeigher}. 0 (the
+     * default) does not limit the weight of the sessions.
+     */
+    private long maxSessionWeight;
+
+    /**
+     * Estimates the weight of each session, bounded by {@link #maxSessionWeight}. Defaults to weighing every session 1.
+     */
+    @Builder.Default
+    private SessionWeigher sessionWeigher = SessionWeigher.UNIT;
+
+    /**
+     * How long the least recently used session must have been inactive to make room for a new session when the limits of
+     * the sessions are reached. If it was active more recently, the new session is rejected with
+     * {@code RESOURCE_EXHAUSTED}, and a hint when to retry.
+     */
+    @Builder.Default
+    private int admissionMinIdleSeconds = DEFAULT_ADMISSION_MIN_IDLE_SECONDS;
+
+    /**
+     * How long a session must have been inactive to be passivated: its widget values and serializable attributes are moved
+     * to the {@link #sessionStore}, and its app is closed, until the next request of the session creates the app again
+     * and restores its state. Must be shorter than the {@link #evictionTimeoutSeconds} to have any effect. 0 (the
+     * default) disables passivation.
+     */
+    private int passivationIdleSeconds;
+
+    /**
+     * Where the state of passivated sessions is kept. Defaults to compressing it on the heap.
+     */
+    @Builder.Default
+    private SessionStore sessionStore = new CompressedHeapSessionStore();
+
+    /**
+     * For how many reruns of a session a widget is kept without being rendered: after that, it is dropped with its value,
+     * so the widgets of pages left or of conditional branches not taken don't pile up. Widgets created with the app are
+     * always kept. 0 keeps every widget for the lifetime of the session.
+     */
+    @Builder.Default
+    private int widgetRetentionReruns = DEFAULT_WIDGET_RETENTION_RERUNS;
+
+    /**
+     * How long the tasks run by a request may take, from the start of the request: the tasks still running then are
+     * cancelled, and waiting for them fails. 0 (the default) does not limit how long they take.
+     */
+    private long taskTimeoutMillis;
+
+    /**
+     * How long the start of a rerun is delayed, waiting for the burst of requests it belongs to - e.g. of quick clicks -
+     * to settle: a request superseded by a newer request of the session before it starts is dropped, its actions merged
+     * into the newer one, so the burst is rendered once. Requests still waiting behind another one are coalesced even
+     * without delay. 0 (the default) starts reruns right away.
+     */
+    private int rerunDebounceMillis;
+
+    /**
+     * Whether reruns are diffed against the previous rerun of the same page, sending only the changed operations to clients
+     * that support render deltas. Disabling this always sends the full list of operations.
+     */
+    @Builder.Default
+    private boolean renderDeltasEnabled = true;
+
+    /**
+     * For how many pages of a session the operations of the last rerun are retained for render deltas: the least recently
+     * rendered pages beyond that are sent in full on their next rerun.
+     */
+    @Builder.Default
+    private int renderBaselinePages = DEFAULT_RENDER_BASELINE_PAGES;
+
+    /**
+     * The maximum number of operations buffered per request. Rendering is paused while the buffer is full, i.e. while the
+     * client does not keep up with receiving the operations.
+     */
+    @Builder.Default
+    private int opQueueCapacity = DEFAULT_OP_QUEUE_CAPACITY;
+
+    /**
+     * The maximum number of operations coalesced into one batch, for clients receiving operation batches.
+     */
+    @Builder.Default
+    private int opBatchMaxOps = DEFAULT_OP_BATCH_MAX_OPS;
+
+    /**
+     * The serialized size in bytes at which a batch of operations is flushed.
+     */
+    @Builder.Default
+    private int opBatchMaxBytes = DEFAULT_OP_BATCH_MAX_BYTES;
+
+    /**
+     * How long a non-empty batch of operations waits for further operations before it is flushed. The first batch of a
+     * rerun is always flushed right away.
+     */
+    @Builder.Default
+    private int opBatchLingerMicros = DEFAULT_OP_BATCH_LINGER_MICROS;
+
+    /**
+     * Tuning of the gRPC/Netty transport of the server.
+     */
+    @Builder.Default
+    private TransportConfig transport = TransportConfig.builder().build();
+
+    /**
+     * Where the server reports its measurements. The default {@link MetricsRegistry} keeps them in memory, served by the
+     * stats service and, if a {@link #metricsPort} is configured, by a Prometheus endpoint.
+     */
+    @Builder.Default
+    private MetricsSink metricsSink = new MetricsRegistry();
+
+    /**
+     * The port of the HTTP endpoint serving the metrics of the {@link MetricsRegistry} in the Prometheus text format at
+     * {@code /metrics}. 0 (the default) disables the endpoint.
+     */
+    private int metricsPort;
+
 }
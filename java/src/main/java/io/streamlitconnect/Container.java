@@ -9,6 +9,8 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import lombok.NonNull;
 
 /**
@@ -265,6 +267,37 @@ public interface Container {
      */
     List<Container> columns(@NonNull ColumnContainer.ColumnGap gap, @NonNull ColumnVerticalAlignment verticalAlignment, float... columnWidths);
 
+    /**
+     * Renders containers in parallel, each by its renderer on a thread of its own: e.g. the columns or tabs of this
+     * container, each showing the result of a slow query, rendered in the time of the slowest rather than of all of
+     * them. The containers may also be unrelated to this one, like the sidebar and the root container.
+     * <p>
+     * The output of each container is buffered until all of them are rendered, then sent in the iteration order of the
+     * map - so use an ordered map, like a {@link java.util.LinkedHashMap} - as if they had been rendered one after the
+     * other: a rerun sends the same output whatever the timing of the renderers. A renderer must only write to its own
+     * container and to the containers it creates in it. If a renderer fails, the others are cancelled, as the tasks of
+     * {@link StreamlitRequestContext#all(java.util.Collection)} are.
+     *
+     * @param renderers The containers to render, each with its renderer.
+     * @throws StreamlitException If a renderer failed, or a container is not one of the current request.
+     */
+    void renderParallel(@NonNull Map<? extends Container, ? extends Consumer<? super Container>> renderers);
+
+    /**
+     * Reserves a placeholder for content computed by a task, e.g. a chart of a slow query: the rest of the app is
+     * rendered - and sent - without waiting for it, and the placeholder is filled once the content is computed, before
+     * the rerun ends. The supplier computes the content on a thread of its own, and returns the renderer writing it to
+     * the container it is given, which replaces what the placeholder showed meanwhile - e.g. a loading message.
+     * <p>
+     * The content of the deferred containers is sent after the rest of the app, in the order the containers were
+     * declared, so a rerun sends the same output whatever the timing of the content. It is computed as a task of the
+     * Streamlit req/res transaction: cancelled with it, and failing it if it fails.
+     *
+     * @param content Computes the content, returning the renderer writing it to a container.
+     * @return The placeholder, which can show something until it is filled.
+     */
+    Container deferred(@NonNull Supplier<? extends Consumer<? super Container>> content);
+
     /**
      * Returns an empty (placeholder) container in the Streamlit container. See
      * <a href="https://docs.streamlit.io/develop/api-reference/layout/st.empty">Streamlit st.empty API doc</a>
@@ -1,5 +1,7 @@
 package io.streamlitconnect;
 
+import io.streamlitconnect.widgets.Widget;
+import java.util.List;
 
 /**
  * StreamlitContext interface represents the context for a Streamlit req/res transaction, i.e. a single top-down application
@@ -28,4 +30,14 @@ public interface OperationsRequestContext extends StreamlitRequestContext {
      * @return The sidebar Container for the Streamlit application session.
      */
     Container getSidebarContainer();
+
+    /**
+     * This method returns the widgets whose value was changed since the previous rerun, i.e. those that
+     * {@link Widget#isChanged() are changed}: by the user, or by the app itself - e.g. a value set while rendering the
+     * previous rerun. Apps can use it to only recompute what depends on the changed widgets, rather than checking every
+     * widget.
+     *
+     * @return The changed widgets, in the order they were changed. Empty if nothing changed.
+     */
+    List<Widget<?>> changedWidgets();
 }
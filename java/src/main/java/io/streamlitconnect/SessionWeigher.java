@@ -0,0 +1,26 @@
+package io.streamlitconnect;
+
+import lombok.NonNull;
+
+/**
+ * Estimates the weight of a session, i.e. its share of the memory of the server, as bounded by
+ * {@link Config#getMaxSessionWeight()}. Sessions are weighed when created and again after each rerun, so the weight may
+ * grow with the widgets and attributes of the session.
+ */
+@FunctionalInterface
+public interface SessionWeigher {
+
+    /**
+     * Weighs every session 1, i.e. bounds the number of sessions.
+     */
+    SessionWeigher UNIT = session -> 1;
+
+    /**
+     * Returns the weight of the session.
+     *
+     * @param session The session.
+     * @return The weight of the session, at least 1.
+     */
+    int weigh(@NonNull StreamlitSessionContext session);
+
+}
@@ -8,7 +8,8 @@ import lombok.NonNull;
 public interface StreamlitAppManager {
 
     /**
-     * Returns the Streamlit application for the given context, creating it if necessary.
+     * Returns the Streamlit application for the given context, creating it if necessary. The server calls this on the
+     * first request of a session, and keeps the application until the session is removed, when it is closed.
      *
      * @param context The Streamlit context.
      * @return The Streamlit application.
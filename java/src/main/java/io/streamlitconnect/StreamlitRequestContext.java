@@ -3,11 +3,18 @@ package io.streamlitconnect;
 
 import java.io.Closeable;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import lombok.NonNull;
 
 /**
  * The StreamlitContext interface represents the (super) context for a Streamlit req/res transaction.
+ * <p>
+ * A context, and the containers it provides, may be reused by the framework for a later transaction of the same session
+ * once closed: do not keep references to them beyond the transaction.
  */
 public interface StreamlitRequestContext extends Executor, Closeable {
 
@@ -57,18 +64,69 @@ public interface StreamlitRequestContext extends Executor, Closeable {
      * Runs a command in the Streamlit req/res transaction. The framework should run this in a separate (virtual thread) to avoid
      * blocking the execution thread. Note that the command will be attempted cancelled if a new request is received before the
      * command is completed irrespective of the command's state.
+     * <p>
+     * The commands and tasks of the transaction are waited for before it completes. If one of them fails, the others
+     * are cancelled, and the transaction fails. They are also cancelled once the task timeout of the server is reached.
      *
      * @param command the runnable task
      */
     void execute(@NonNull Runnable command);
 
+    /**
+     * Runs a task in the Streamlit req/res transaction, as {@link #execute(Runnable)} does, returning its result.
+     *
+     * @param task The task to run
+     * @param <T>  The type of the result of the task
+     * @return The future result of the task, cancelled without running the task if the transaction was cancelled or a
+     * task of it failed.
+     */
+    <T> Future<T> fork(@NonNull Callable<T> task);
+
+    /**
+     * Runs the tasks in parallel in the Streamlit req/res transaction, and waits for all of them. If one of them fails,
+     * the others are cancelled. They are also cancelled with the transaction, or once the task timeout of the server is
+     * reached.
+     *
+     * @param tasks The tasks to run
+     * @param <T>   The type of the results of the tasks
+     * @return The results of the tasks, in the order of the tasks.
+     * @throws StreamlitException If a task failed, was cancelled, or did not complete in time.
+     */
+    <T> List<T> all(@NonNull Collection<? extends Callable<T>> tasks);
+
+    /**
+     * Runs the tasks in parallel in the Streamlit req/res transaction, and waits for the first one to succeed. The
+     * others are then cancelled. They are also cancelled with the transaction, or once the task timeout of the server is
+     * reached.
+     *
+     * @param tasks The tasks to run
+     * @param <T>   The type of the results of the tasks
+     * @return The result of the first task to succeed.
+     * @throws StreamlitException If no task succeeded, or none in time.
+     */
+    <T> T any(@NonNull Collection<? extends Callable<T>> tasks);
+
     /**
      * Returns a boolean indicating whether the Streamlit req/res transaction has been closed.
      */
     boolean isClosed();
 
     /**
-     * Returns a boolean indicating whether the Streamlit req/res transaction has been cancelled.
+     * Returns a boolean indicating whether the Streamlit req/res transaction has been cancelled, i.e. interrupted by the
+     * client or superseded by a newer transaction of the session. Long computations should check it regularly, and
+     * stop once it is set.
      */
     boolean isCancelled();
+
+    /**
+     * Registers a handler to run if the Streamlit req/res transaction is cancelled, e.g. to abort a long data load by
+     * closing its statement or connection. The handler is run once, on the thread cancelling the transaction, so it
+     * must not block; it is run right away if the transaction is already cancelled, and dropped once the transaction
+     * completes.
+     * <p>
+     * On cancellation, the tasks of the transaction are cancelled, and the thread rendering the app is interrupted.
+     *
+     * @param handler The handler to run on cancellation
+     */
+    void onCancel(@NonNull Runnable handler);
 }
@@ -0,0 +1,95 @@
+package io.streamlitconnect;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Tuning of the gRPC/Netty transport of the server. The defaults correspond to the gRPC defaults, except where noted.
+ */
+@Getter
+@Builder
+@ToString
+public class TransportConfig {
+
+    public static final int DEFAULT_FLOW_CONTROL_WINDOW_BYTES = 1024 * 1024;
+
+    public static final int DEFAULT_MAX_INBOUND_MESSAGE_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * The executor running the gRPC service handlers.
+     */
+    public enum HandlerExecutor {
+
+        /**
+         * gRPC's default, a shared cached thread pool.
+         */
+        DEFAULT,
+
+        /**
+         * Runs handlers directly on the Netty event loop threads. Safe, as the handlers hand off any blocking work, and
+         * saves a thread hop per message.
+         */
+        DIRECT,
+
+        /**
+         * A virtual thread per handler invocation.
+         */
+        VIRTUAL_THREADS
+    }
+
+    /**
+     * The number of threads accepting connections.
+     */
+    @Builder.Default
+    private int bossEventLoopThreads = 1;
+
+    /**
+     * The number of threads handling the I/O of the connections, 0 for Netty's default (twice the number of cores).
+     */
+    @Builder.Default
+    private int workerEventLoopThreads = 0;
+
+    /**
+     * Whether to use the native epoll transport. Falls back to NIO where epoll is not available (i.e. not on Linux).
+     */
+    @Builder.Default
+    private boolean nativeTransport = false;
+
+    @Builder.Default
+    private HandlerExecutor handlerExecutor = HandlerExecutor.DEFAULT;
+
+    /**
+     * The initial HTTP/2 flow-control window of each stream.
+     */
+    @Builder.Default
+    private int flowControlWindowBytes = DEFAULT_FLOW_CONTROL_WINDOW_BYTES;
+
+    @Builder.Default
+    private int maxInboundMessageBytes = DEFAULT_MAX_INBOUND_MESSAGE_BYTES;
+
+    /**
+     * The maximum size of a message sent to the client, 0 for no limit. A call exceeding it fails with RESOURCE_EXHAUSTED.
+     */
+    @Builder.Default
+    private int maxOutboundMessageBytes = 0;
+
+    /**
+     * The interval of keepalive pings sent to idle clients, 0 to disable keepalive.
+     */
+    @Builder.Default
+    private int keepAliveTimeSeconds = 0;
+
+    /**
+     * How long to wait for the acknowledgement of a keepalive ping before closing the connection.
+     */
+    @Builder.Default
+    private int keepAliveTimeoutSeconds = 20;
+
+    /**
+     * How long a connection without outstanding calls is kept open, 0 for no limit.
+     */
+    @Builder.Default
+    private int maxConnectionIdleSeconds = 0;
+
+}
@@ -0,0 +1,66 @@
+package io.streamlitconnect.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.NonNull;
+
+/**
+ * A lock-free histogram with fixed bucket upper bounds, in the shape of a Prometheus histogram: a count per bucket, plus
+ * the sum and count of all observed values.
+ */
+class Histogram {
+
+    private final double[] upperBounds;
+
+    // Non-cumulative counts per bucket, the last one counting the values above all upper bounds
+    private final LongAdder[] buckets;
+
+    private final DoubleAdder sum = new DoubleAdder();
+
+    private final LongAdder count = new LongAdder();
+
+    Histogram(double @NonNull ... upperBounds) {
+        this.upperBounds = upperBounds.clone();
+        this.buckets = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void observe(double value) {
+        int i = 0;
+        while (i < upperBounds.length && value > upperBounds[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sum.add(value);
+        count.increment();
+    }
+
+    double[] getUpperBounds() {
+        return upperBounds.clone();
+    }
+
+    /**
+     * Returns the cumulative bucket counts, i.e. the number of values less than or equal to each upper bound, followed by
+     * the count of all values (the {@code +Inf} bucket).
+     */
+    long[] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    double getSum() {
+        return sum.sum();
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+}
@@ -0,0 +1,360 @@
+package io.streamlitconnect.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.NonNull;
+
+/**
+ * The default {@link MetricsSink}, keeping counters and histograms in memory without any further dependencies. The
+ * recorded values can be read as {@link Sample}s or written in the Prometheus text exposition format, as served by the
+ * metrics endpoint and the stats service of the server.
+ * <p>
+ * Recording is lock-free. The per-app and per-page histograms are created on their first measurement and kept for the
+ * lifetime of the registry, so the number of pages should be bounded.
+ */
+public class MetricsRegistry implements MetricsSink {
+
+    public static final String SESSIONS_ACTIVE = "streamlit_sessions_active";
+
+    public static final String SESSIONS_CREATED = "streamlit_sessions_created_total";
+
+    public static final String SESSIONS_EVICTED = "streamlit_sessions_evicted_total";
+
+    public static final String SESSIONS_REJECTED = "streamlit_sessions_rejected_total";
+
+    public static final String SESSIONS_PASSIVATED = "streamlit_sessions_passivated_total";
+
+    public static final String SESSIONS_REHYDRATED = "streamlit_sessions_rehydrated_total";
+
+    public static final String PASSIVATED_STATE_BYTES = "streamlit_passivated_state_bytes";
+
+    public static final String WIDGETS_LIVE = "streamlit_widgets_live";
+
+    public static final String WIDGETS_SWEPT = "streamlit_widgets_swept_total";
+
+    public static final String RENDER_DURATION = "streamlit_render_duration_seconds";
+
+    public static final String RERUN_OPERATIONS = "streamlit_rerun_operations";
+
+    public static final String RERUN_BYTES = "streamlit_rerun_bytes";
+
+    public static final String OP_QUEUE_DEPTH = "streamlit_op_queue_depth";
+
+    public static final String SESSION_MAILBOX_WAIT = "streamlit_session_mailbox_wait_seconds";
+
+    public static final String ACTION_DURATION = "streamlit_action_duration_seconds";
+
+    public static final String REQUESTS_CANCELLED = "streamlit_requests_cancelled_total";
+
+    public static final String REQUESTS_SUPERSEDED = "streamlit_requests_superseded_total";
+
+    private static final String DEFAULT_APP = "default";
+
+    private static final double[] SECONDS_BUCKETS =
+        {0.0001, 0.0005, 0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final double[] COUNT_BUCKETS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final double[] BYTES_BUCKETS =
+        {256, 1024, 4096, 16384, 65536, 262144, 1048576, 4194304, 16777216};
+
+    private final LongAdder sessionsActive = new LongAdder();
+
+    private final LongAdder sessionsCreated = new LongAdder();
+
+    private final LongAdder sessionsEvicted = new LongAdder();
+
+    private final LongAdder sessionsRejected = new LongAdder();
+
+    private final LongAdder sessionsPassivated = new LongAdder();
+
+    private final LongAdder sessionsRehydrated = new LongAdder();
+
+    private final Histogram passivatedStateBytes = new Histogram(BYTES_BUCKETS);
+
+    private final LongAdder widgetsLive = new LongAdder();
+
+    private final LongAdder widgetsSwept = new LongAdder();
+
+    private final ConcurrentMap<List<String>, Histogram> renderDurations = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<List<String>, Histogram> rerunOperations = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<List<String>, Histogram> rerunBytes = new ConcurrentHashMap<>();
+
+    private final Histogram opQueueDepth = new Histogram(COUNT_BUCKETS);
+
+    private final Histogram sessionMailboxWait = new Histogram(SECONDS_BUCKETS);
+
+    private final ConcurrentMap<String, Histogram> actionDurations = new ConcurrentHashMap<>();
+
+    private final Map<RequestKind, LongAdder> requestsCancelled = adders();
+
+    private final Map<RequestKind, LongAdder> requestsSuperseded = adders();
+
+    /**
+     * A single value of a metric, as exposed by Prometheus: histograms are exposed as their cumulative {@code _bucket}
+     * counts (labeled with the upper bound {@code le}), {@code _sum} and {@code _count}.
+     *
+     * @param name   The name of the metric.
+     * @param labels The labels of the value, in a stable order.
+     * @param value  The value.
+     */
+    public record Sample(@NonNull String name, @NonNull Map<String, String> labels, double value) {
+
+    }
+
+    @Override
+    public void sessionCreated(String app) {
+        sessionsCreated.increment();
+        sessionsActive.increment();
+    }
+
+    @Override
+    public void sessionRejected(String app) {
+        sessionsRejected.increment();
+    }
+
+    @Override
+    public void sessionRemoved(String app, boolean evicted) {
+        sessionsActive.decrement();
+        if (evicted) {
+            sessionsEvicted.increment();
+        }
+    }
+
+    @Override
+    public void sessionPassivated(String app, int bytes) {
+        sessionsPassivated.increment();
+        passivatedStateBytes.observe(bytes);
+    }
+
+    @Override
+    public void sessionRehydrated(String app) {
+        sessionsRehydrated.increment();
+    }
+
+    @Override
+    public void liveWidgetsChanged(int delta) {
+        widgetsLive.add(delta);
+    }
+
+    @Override
+    public void widgetsSwept(int count) {
+        widgetsSwept.add(count);
+    }
+
+    @Override
+    public void renderCompleted(String app, String page, long nanos) {
+        histogram(renderDurations, appPage(app, page), SECONDS_BUCKETS).observe(seconds(nanos));
+    }
+
+    @Override
+    public void rerunStreamed(String app, String page, int ops, long bytes) {
+        List<String> key = appPage(app, page);
+        histogram(rerunOperations, key, COUNT_BUCKETS).observe(ops);
+        histogram(rerunBytes, key, BYTES_BUCKETS).observe(bytes);
+    }
+
+    @Override
+    public void opQueueDepth(int depth) {
+        opQueueDepth.observe(depth);
+    }
+
+    @Override
+    public void sessionMailboxWait(long nanos) {
+        sessionMailboxWait.observe(seconds(nanos));
+    }
+
+    @Override
+    public void actionProcessed(String actionType, long nanos) {
+        histogram(actionDurations, actionType, SECONDS_BUCKETS).observe(seconds(nanos));
+    }
+
+    @Override
+    public void requestCancelled(RequestKind kind) {
+        requestsCancelled.get(kind).increment();
+    }
+
+    @Override
+    public void requestSuperseded(RequestKind kind) {
+        requestsSuperseded.get(kind).increment();
+    }
+
+    /**
+     * Returns the current values of all metrics.
+     */
+    public List<Sample> samples() {
+        List<Sample> samples = new ArrayList<>();
+        forEachMetric((name, type, help, metric) -> samples.addAll(metric));
+        return samples;
+    }
+
+    /**
+     * Writes the current values of all metrics in the Prometheus text exposition format (version 0.0.4).
+     *
+     * @param out Where to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writePrometheus(@NonNull Appendable out) throws IOException {
+        try {
+            forEachMetric((name, type, help, metric) -> {
+                if (metric.isEmpty()) {
+                    return;
+                }
+                append(out, "# HELP " + name + " " + help + "\n");
+                append(out, "# TYPE " + name + " " + type + "\n");
+                for (Sample sample : metric) {
+                    append(out, sample.name());
+                    if (!sample.labels().isEmpty()) {
+                        StringBuilder labels = new StringBuilder("{");
+                        sample.labels().forEach((label, value) -> {
+                            if (labels.length() > 1) {
+                                labels.append(',');
+                            }
+                            labels.append(label).append("=\"").append(escape(value)).append('"');
+                        });
+                        append(out, labels.append('}').toString());
+                    }
+                    append(out, " " + format(sample.value()) + "\n");
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void forEachMetric(MetricConsumer consumer) {
+        consumer.accept(SESSIONS_ACTIVE, "gauge", "Number of live sessions.",
+            List.of(sample(SESSIONS_ACTIVE, Map.of(), sessionsActive.sum())));
+        consumer.accept(SESSIONS_CREATED, "counter", "Number of sessions created.",
+            List.of(sample(SESSIONS_CREATED, Map.of(), sessionsCreated.sum())));
+        consumer.accept(SESSIONS_EVICTED, "counter", "Number of sessions evicted for inactivity or to make room.",
+            List.of(sample(SESSIONS_EVICTED, Map.of(), sessionsEvicted.sum())));
+        consumer.accept(SESSIONS_REJECTED, "counter", "Number of new sessions rejected at the session limits.",
+            List.of(sample(SESSIONS_REJECTED, Map.of(), sessionsRejected.sum())));
+        consumer.accept(SESSIONS_PASSIVATED, "counter", "Number of idle sessions passivated to the session store.",
+            List.of(sample(SESSIONS_PASSIVATED, Map.of(), sessionsPassivated.sum())));
+        consumer.accept(SESSIONS_REHYDRATED, "counter", "Number of passivated sessions rehydrated by a new request.",
+            List.of(sample(SESSIONS_REHYDRATED, Map.of(), sessionsRehydrated.sum())));
+        consumer.accept(PASSIVATED_STATE_BYTES, "histogram", "Serialized size of the state of passivated sessions.",
+            histogramSamples(PASSIVATED_STATE_BYTES, Map.of(List.of(), passivatedStateBytes), List.of()));
+        consumer.accept(WIDGETS_LIVE, "gauge", "Number of widgets registered in the sessions.",
+            List.of(sample(WIDGETS_LIVE, Map.of(), widgetsLive.sum())));
+        consumer.accept(WIDGETS_SWEPT, "counter", "Number of widgets dropped after not being rendered for a while.",
+            List.of(sample(WIDGETS_SWEPT, Map.of(), widgetsSwept.sum())));
+        consumer.accept(RENDER_DURATION, "histogram",
+            "Time to render a page, until all of its operations are queued.",
+            histogramSamples(RENDER_DURATION, renderDurations, List.of("app", "page")));
+        consumer.accept(RERUN_OPERATIONS, "histogram", "Number of operations sent per rerun.",
+            histogramSamples(RERUN_OPERATIONS, rerunOperations, List.of("app", "page")));
+        consumer.accept(RERUN_BYTES, "histogram", "Serialized size of the operations sent per rerun.",
+            histogramSamples(RERUN_BYTES, rerunBytes, List.of("app", "page")));
+        consumer.accept(OP_QUEUE_DEPTH, "histogram", "Maximum depth of the operations queue per rerun.",
+            histogramSamples(OP_QUEUE_DEPTH, Map.of(List.of(), opQueueDepth), List.of()));
+        consumer.accept(SESSION_MAILBOX_WAIT, "histogram",
+            "Time a session message waits for the messages posted before it.",
+            histogramSamples(SESSION_MAILBOX_WAIT, Map.of(List.of(), sessionMailboxWait), List.of()));
+        consumer.accept(ACTION_DURATION, "histogram", "Time to apply an action to its widget.",
+            histogramSamples(ACTION_DURATION, byAction(), List.of("action")));
+        consumer.accept(REQUESTS_CANCELLED, "counter", "Number of requests cancelled by the client.",
+            counterSamples(REQUESTS_CANCELLED, requestsCancelled));
+        consumer.accept(REQUESTS_SUPERSEDED, "counter",
+            "Number of requests superseded by a newer request of the same session.",
+            counterSamples(REQUESTS_SUPERSEDED, requestsSuperseded));
+    }
+
+    private Map<List<String>, Histogram> byAction() {
+        Map<List<String>, Histogram> byAction = new LinkedHashMap<>();
+        actionDurations.forEach((action, histogram) -> byAction.put(List.of(action), histogram));
+        return byAction;
+    }
+
+    private static List<Sample> histogramSamples(String name, Map<List<String>, Histogram> histograms,
+        List<String> labelNames) {
+        List<Sample> samples = new ArrayList<>();
+        histograms.forEach((labelValues, histogram) -> {
+            Map<String, String> labels = new LinkedHashMap<>();
+            for (int i = 0; i < labelNames.size(); i++) {
+                labels.put(labelNames.get(i), labelValues.get(i));
+            }
+            double[] upperBounds = histogram.getUpperBounds();
+            long[] counts = histogram.getCumulativeCounts();
+            for (int i = 0; i < counts.length; i++) {
+                Map<String, String> bucketLabels = new LinkedHashMap<>(labels);
+                bucketLabels.put("le", i < upperBounds.length ? format(upperBounds[i]) : "+Inf");
+                samples.add(sample(name + "_bucket", bucketLabels, counts[i]));
+            }
+            samples.add(sample(name + "_sum", labels, histogram.getSum()));
+            samples.add(sample(name + "_count", labels, histogram.getCount()));
+        });
+        return samples;
+    }
+
+    private static List<Sample> counterSamples(String name, Map<RequestKind, LongAdder> counters) {
+        List<Sample> samples = new ArrayList<>();
+        counters.forEach((kind, counter) ->
+            samples.add(sample(name, Map.of("kind", kind.name().toLowerCase()), counter.sum())));
+        return samples;
+    }
+
+    private static Sample sample(String name, Map<String, String> labels, double value) {
+        return new Sample(name, labels, value);
+    }
+
+    private static <K> Histogram histogram(ConcurrentMap<K, Histogram> histograms, K key, double[] buckets) {
+        Histogram histogram = histograms.get(key);
+        return histogram != null ? histogram : histograms.computeIfAbsent(key, k -> new Histogram(buckets));
+    }
+
+    private static List<String> appPage(String app, String page) {
+        return List.of(app != null ? app : DEFAULT_APP, page != null ? page : "");
+    }
+
+    private static Map<RequestKind, LongAdder> adders() {
+        Map<RequestKind, LongAdder> adders = new LinkedHashMap<>();
+        for (RequestKind kind : RequestKind.values()) {
+            adders.put(kind, new LongAdder());
+        }
+        return adders;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void append(Appendable out, String text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MetricConsumer {
+
+        void accept(String name, String type, String help, List<Sample> samples);
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package io.streamlitconnect.metrics;
+
+/**
+ * Receives the measurements of the server: sessions, renders, operation queues, action processing and requests. Plug
+ * in an implementation forwarding to a metrics library of choice with {@code Config.builder().metricsSink(...)}, the
+ * default being the dependency-free {@link MetricsRegistry}.
+ * <p>
+ * The methods are called on the request handling threads, so implementations must be thread-safe and must not block.
+ * All methods default to doing nothing, so an implementation only needs to override what it is interested in.
+ */
+public interface MetricsSink {
+
+    /**
+     * The kind of request a measurement is about.
+     */
+    enum RequestKind {
+        NAVIGATION,
+        OPERATIONS
+    }
+
+    /**
+     * A sink discarding all measurements.
+     */
+    MetricsSink NOOP = new MetricsSink() {
+    };
+
+    /**
+     * A session was created by its first request.
+     *
+     * @param app The name of the app of the session, null for the default app.
+     */
+    default void sessionCreated(String app) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * A new session was rejected, as the limits of the sessions are reached.
+     *
+     * @param app The name of the app of the session, null for the default app.
+     */
+    default void sessionRejected(String app) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * A session was removed, either evicted (for inactivity or to make room for a new session) or closed with the
+     * server.
+     *
+     * @param app     The name of the app of the session, null for the default app.
+     * @param evicted Whether the session was evicted.
+     */
+    default void sessionRemoved(String app, boolean evicted) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * An idle session was passivated: its state was moved to the session store, and its app closed.
+     *
+     * @param app   The name of the app of the session, null for the default app.
+     * @param bytes The size of the stored state in bytes.
+     */
+    default void sessionPassivated(String app, int bytes) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * A passivated session was rehydrated by a new request: its app was created again, and its state restored.
+     *
+     * @param app The name of the app of the session, null for the default app.
+     */
+    default void sessionRehydrated(String app) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * The number of widgets registered in the sessions changed.
+     *
+     * @param delta The change, negative when widgets are dropped.
+     */
+    default void liveWidgetsChanged(int delta) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * Widgets not rendered for the retained number of reruns were dropped from a session.
+     *
+     * @param count The number of widgets dropped.
+     */
+    default void widgetsSwept(int count) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * The app rendered a page, from the start of the rendering until all of its operations were queued.
+     *
+     * @param app   The name of the app, null for the default app.
+     * @param page  The name of the page.
+     * @param nanos The render time in nanoseconds.
+     */
+    default void renderCompleted(String app, String page, long nanos) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * The operations of a rerun were sent to the client.
+     *
+     * @param app   The name of the app, null for the default app.
+     * @param page  The name of the page.
+     * @param ops   The number of operations sent, after render deltas were applied.
+     * @param bytes The serialized size of the operations sent.
+     */
+    default void rerunStreamed(String app, String page, int ops, long bytes) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * The maximum depth the operations queue of a rerun reached.
+     *
+     * @param depth The number of queued operations.
+     */
+    default void opQueueDepth(int depth) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * A message of a session's mailbox waited for the messages posted before it, e.g. a request waiting for the
+     * session's previous request to be set up.
+     *
+     * @param nanos The time between posting and running the message in nanoseconds.
+     */
+    default void sessionMailboxWait(long nanos) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * An action of a request was applied to its widget.
+     *
+     * @param actionType The type of the action, e.g. {@code checkbox_action}.
+     * @param nanos      The processing time in nanoseconds.
+     */
+    default void actionProcessed(String actionType, long nanos) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * The client cancelled a request before its response was complete.
+     *
+     * @param kind The kind of the request.
+     */
+    default void requestCancelled(RequestKind kind) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * A request was superseded by a newer request of the same session, either while being handled or by arriving with
+     * an outdated sequence number.
+     *
+     * @param kind The kind of the request.
+     */
+    default void requestSuperseded(RequestKind kind) {
+        // Default implementation does nothing
+    }
+
+}
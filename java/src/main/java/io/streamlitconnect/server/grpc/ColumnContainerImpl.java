@@ -21,7 +21,7 @@ class ColumnContainerImpl extends ContainerImpl implements ColumnContainer {
         int col,
         float width
     ) {
-        super("column_" + Utils.randomKeySuffix() + "(" + col + ")", parent, context);
+        super("column_" + context.nextKeySuffix() + "(" + col + ")", parent, context);
         isTrue(col >= 0, "Column number must be greater than 0");
 
         for (Container container = parent; container != null; container = container.parent()) {
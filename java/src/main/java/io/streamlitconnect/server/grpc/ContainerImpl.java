@@ -44,6 +44,8 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -89,6 +91,13 @@ class ContainerImpl implements Container {
         }
     }
 
+    /**
+     * Forgets the children of the container, for its request context to be reused.
+     */
+    void reset() {
+        children.clear();
+    }
+
     void addChild(@NonNull ContainerImpl child) {
         if (child.parent() != this) {
             throw new StreamlitException("Child parent mismatch. Expected: " + this + ", actual: " + child.parent());
@@ -230,7 +239,7 @@ class ContainerImpl implements Container {
     @Override
     public void writeStream(Iterator<String> chunks) {
         checkCancelled();
-        String streamKey = this.key + "(stream_" + Utils.randomKeySuffix() + ")";
+        String streamKey = this.key + "(stream_" + context.nextKeySuffix() + ")";
 
         // Post WriteStreamChunk operations
         Runnable task = () -> {
@@ -258,7 +267,11 @@ class ContainerImpl implements Container {
             log.debug("Finished writing chunks for stream: {}", streamKey);
         };
 
-        context.execute(task);
+        if (context.isRenderingBranch()) {
+            task.run(); // Buffered with the other operations of the branch, already rendered in parallel
+        } else {
+            context.execute(task);
+        }
     }
 
     @Override
@@ -464,6 +477,21 @@ class ContainerImpl implements Container {
         context.enqueueOp(op);
     }
 
+    @Override
+    public Container deferred(@NonNull Supplier<? extends Consumer<? super Container>> content) {
+        checkCancelled();
+        PlaceholderContainerImpl slot = new PlaceholderContainerImpl(this, context);
+        postPlaceholderContainerOp(slot);
+        context.defer(slot, content);
+        return slot;
+    }
+
+    @Override
+    public void renderParallel(@NonNull Map<? extends Container, ? extends Consumer<? super Container>> renderers) {
+        checkCancelled();
+        context.renderParallel(renderers);
+    }
+
     @Override
     public Container widget(@NonNull Widget<?> widget) {
         checkCancelled();
@@ -500,6 +528,7 @@ class ContainerImpl implements Container {
     }
 
     private void checkCancelled() {
+        context.checkNotRecycled();
         if (context.isCancelled()) {
             throw new StreamlitException("Request context cancelled: " + context);
         }
@@ -508,7 +537,7 @@ class ContainerImpl implements Container {
     private void button(@NonNull Button button) {
         context.getSessionContext().addWidget(button);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setButtonOp(WidgetMapper.toButtonOp(button, key))
+            .setButtonOp(WidgetMapper.toButtonOp(button, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing Button operation: {}", op);
         context.enqueueOp(op);
@@ -517,7 +546,7 @@ class ContainerImpl implements Container {
     private void pageLink(@NonNull PageLink pageLink) {
         context.getSessionContext().addWidget(pageLink);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setPageLinkOp(WidgetMapper.toPageLinkOp(pageLink, key))
+            .setPageLinkOp(WidgetMapper.toPageLinkOp(pageLink, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing PageLink operation: {}", op);
         context.enqueueOp(op);
@@ -526,7 +555,7 @@ class ContainerImpl implements Container {
     private void checkbox(@NonNull Checkbox checkbox) {
         context.getSessionContext().addWidget(checkbox);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setCheckboxOp(WidgetMapper.toCheckboxOp(checkbox, key))
+            .setCheckboxOp(WidgetMapper.toCheckboxOp(checkbox, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing Checkbox operation: {}", op);
         context.enqueueOp(op);
@@ -535,7 +564,7 @@ class ContainerImpl implements Container {
     private void toggle(@NonNull Toggle toggle) {
         context.getSessionContext().addWidget(toggle);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setToggleOp(WidgetMapper.toToggleOp(toggle, key))
+            .setToggleOp(WidgetMapper.toToggleOp(toggle, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing Toggle operation: {}", op);
         context.enqueueOp(op);
@@ -544,7 +573,7 @@ class ContainerImpl implements Container {
     private void radio(@NonNull Radio radio) {
         context.getSessionContext().addWidget(radio);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setRadioOp(WidgetMapper.toRadioOp(radio, key))
+            .setRadioOp(WidgetMapper.toRadioOp(radio, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing Radio operation: {}", op);
         context.enqueueOp(op);
@@ -553,7 +582,7 @@ class ContainerImpl implements Container {
     private void selectbox(@NonNull Selectbox selectbox) {
         context.getSessionContext().addWidget(selectbox);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setSelectboxOp(WidgetMapper.toSelectboxOp(selectbox, key))
+            .setSelectboxOp(WidgetMapper.toSelectboxOp(selectbox, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing Selectbox operation: {}", op);
         context.enqueueOp(op);
@@ -562,7 +591,8 @@ class ContainerImpl implements Container {
     private void multiselect(@NonNull Multiselect multiselect) {
         context.getSessionContext().addWidget(multiselect);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setMultiselectOp(WidgetMapper.toMultiselectOp(multiselect, key))
+            .setMultiselectOp(
+                WidgetMapper.toMultiselectOp(multiselect, key, context.isWidgetIds(), context.isPackedSelections()))
             .build();
         log.debug("Queuing Multiselect operation: {}", op);
         context.enqueueOp(op);
@@ -571,7 +601,7 @@ class ContainerImpl implements Container {
     private void selectSlider(@NonNull SelectSlider selectSlider) {
         context.getSessionContext().addWidget(selectSlider);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setSelectSliderOp(WidgetMapper.toSelectSliderOp(selectSlider, key))
+            .setSelectSliderOp(WidgetMapper.toSelectSliderOp(selectSlider, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing SelectSlider operation: {}", op);
         context.enqueueOp(op);
@@ -583,7 +613,8 @@ class ContainerImpl implements Container {
         }
         context.getSessionContext().addWidget(dateInput);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setDateInputOp(WidgetMapper.toDateInputOp(dateInput, key))
+            .setDateInputOp(
+                WidgetMapper.toDateInputOp(dateInput, key, context.isWidgetIds(), context.isTemporalNumbers()))
             .build();
         log.debug("Queuing DateInput operation: {}", op);
         context.enqueueOp(op);
@@ -592,7 +623,8 @@ class ContainerImpl implements Container {
     private void timeInput(@NonNull TimeInput timeInput) {
         context.getSessionContext().addWidget(timeInput);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setTimeInputOp(WidgetMapper.toTimeInputOp(timeInput, key))
+            .setTimeInputOp(
+                WidgetMapper.toTimeInputOp(timeInput, key, context.isWidgetIds(), context.isTemporalNumbers()))
             .build();
         log.debug("Queuing TimeInput operation: {}", op);
         context.enqueueOp(op);
@@ -601,7 +633,7 @@ class ContainerImpl implements Container {
     private void numberInput(@NonNull NumberInput numberInput) {
         context.getSessionContext().addWidget(numberInput);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setNumberInputOp(WidgetMapper.toNumberInputOp(numberInput, key))
+            .setNumberInputOp(WidgetMapper.toNumberInputOp(numberInput, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing NumberInput operation: {}", op);
         context.enqueueOp(op);
@@ -610,7 +642,7 @@ class ContainerImpl implements Container {
     private void textInput(@NonNull TextInput textInput) {
         context.getSessionContext().addWidget(textInput);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setTextInputOp(WidgetMapper.toTextInputOp(textInput, key))
+            .setTextInputOp(WidgetMapper.toTextInputOp(textInput, key, context.isWidgetIds()))
             .build();
         log.debug("Queuing TextInput operation: {}", op);
         context.enqueueOp(op);
@@ -619,7 +651,7 @@ class ContainerImpl implements Container {
     private void slider(@NonNull Slider<?, ?> slider) {
         context.getSessionContext().addWidget(slider);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setSliderOp(WidgetMapper.toSliderOp(slider, key))
+            .setSliderOp(WidgetMapper.toSliderOp(slider, key, context.isWidgetIds(), context.isTemporalNumbers()))
             .build();
         log.debug("Queuing Slider operation: {}", op);
         context.enqueueOp(op);
@@ -628,7 +660,7 @@ class ContainerImpl implements Container {
     private void rangeSlider(RangeSlider<?, ?> rangeSlider) {
         context.getSessionContext().addWidget(rangeSlider);
         StreamlitOperation op = StreamlitOperation.newBuilder()
-            .setSliderOp(WidgetMapper.toSliderOp(rangeSlider, key))
+            .setSliderOp(WidgetMapper.toSliderOp(rangeSlider, key, context.isWidgetIds(), context.isTemporalNumbers()))
             .build();
         log.debug("Queuing RangeSlider operation: {}", op);
         context.enqueueOp(op);
@@ -20,7 +20,7 @@ class ExpandableContainerImpl extends ContainerImpl implements ExpandableContain
         boolean initiallyExpanded,
         String icon
     ) {
-        super("expandable_" + Utils.randomKeySuffix(), parent, context);
+        super("expandable_" + context.nextKeySuffix(), parent, context);
 
         // Check that none of the parent containers are expandable
         for (Container container = parent; container != null; container = container.parent()) {
@@ -0,0 +1,66 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.streamlitconnect.StreamlitException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.NonNull;
+
+/**
+ * Outbound flow control of a server call: lets the thread sending messages wait until the transport is ready to accept
+ * more, instead of buffering an unbounded number of messages in gRPC. Must be created while the call is being set up, as
+ * it installs the call's on-ready handler.
+ */
+class FlowControl {
+
+    // Upper bound of a single wait, so a call cancelled without a further ready signal is noticed
+    private static final long MAX_WAIT_MILLIS = 100;
+
+    private final ServerCallStreamObserver<?> observer;
+
+    private final OperationQueueMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition ready = lock.newCondition();
+
+    FlowControl(@NonNull ServerCallStreamObserver<?> observer, @NonNull OperationQueueMetrics metrics) {
+        this.observer = observer;
+        this.metrics = metrics;
+        observer.setOnReadyHandler(this::signalReady);
+    }
+
+    /**
+     * Waits until the transport is ready for the next message, or the call is cancelled.
+     */
+    void awaitReady() {
+        if (observer.isReady()) {
+            return;
+        }
+
+        long waitingSince = System.nanoTime();
+        lock.lock();
+        try {
+            while (!observer.isReady() && !observer.isCancelled()) {
+                ready.await(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore the interrupted status
+            throw new StreamlitException(e);
+        } finally {
+            lock.unlock();
+            metrics.recordTransportStall(System.nanoTime() - waitingSince);
+        }
+    }
+
+    private void signalReady() {
+        lock.lock();
+        try {
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
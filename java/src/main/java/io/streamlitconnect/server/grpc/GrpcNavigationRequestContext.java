@@ -9,6 +9,7 @@ import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.Action;
 import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto;
 import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.StreamlitNavigation;
 import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.StreamlitNavigationRequest;
+import io.streamlitconnect.widgets.WidgetKeyScope;
 import java.util.List;
 import lombok.NonNull;
 import org.slf4j.Logger;
@@ -27,11 +28,12 @@ class GrpcNavigationRequestContext extends GrpcStreamlitRequestContext implement
     }
 
     protected void handleRequest(@NonNull StreamlitApp app) {
-        if (isCancelled() || isClosed()) {
-            return; // Abort
-        }
-
         try {
+            if (isCancelled() || isClosed()) {
+                return; // Abort
+            }
+            startTasksDeadline();
+
             StreamlitNavigationRequest request = (StreamlitNavigationRequest) getRequest();
             StreamObserver<StreamlitNavigation> responseObserver = (StreamObserver<StreamlitNavigation>) getResponseObserver();
 
@@ -39,7 +41,13 @@ class GrpcNavigationRequestContext extends GrpcStreamlitRequestContext implement
             List<Action> actions = request.getActionsList();
             sessionContext.processActions(actions);
 
-            NavigationMenu menu = app.getNavigationMenu(this);
+            NavigationMenu menu;
+            attachRenderThread();
+            try (WidgetKeyScope ignored = WidgetKeyScope.open(sessionContext.getWidgetIds())) {
+                menu = app.getNavigationMenu(this);
+            } finally {
+                detachRenderThread();
+            }
             StreamlitNavigation.Builder navBuilder = StreamlitNavigation.newBuilder();
 
             if (menu != null) {
@@ -48,6 +56,9 @@ class GrpcNavigationRequestContext extends GrpcStreamlitRequestContext implement
 
             StreamlitNavigation nav = navBuilder.build();
             waitForTasks(); // Wait for all tasks to complete before sending the response
+            if (isCancelled()) {
+                return; // The response of the cancelled request is already completed
+            }
 
             log.debug("Sending navigation response {}", nav);
             responseObserver.onNext(nav);
@@ -58,9 +69,15 @@ class GrpcNavigationRequestContext extends GrpcStreamlitRequestContext implement
             close();
 
             log.debug("Streamlit getNavigation completed for session: {}", getSessionContext().getSessionId());
+        } catch (RuntimeException e) {
+            if (!isCancelled()) {
+                throw e;
+            }
+            // The request was aborted by the cancellation, as expected
+            log.debug("Navigation of cancelled request aborted: {}", e.toString());
         } finally {
             // Signal to the session context that we're done with this request
-            sessionContext.signalNavigationRequestFinished();
+            sessionContext.signalNavigationRequestFinished(this);
         }
     }
 
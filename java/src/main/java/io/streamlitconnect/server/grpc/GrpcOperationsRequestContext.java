@@ -1,19 +1,30 @@
 package io.streamlitconnect.server.grpc;
 
 import io.grpc.stub.StreamObserver;
+import io.streamlitconnect.Container;
 import io.streamlitconnect.OperationsRequestContext;
 import io.streamlitconnect.StreamlitApp;
 import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.metrics.MetricsSink;
 import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.Action;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ClientCapability;
 import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.EndOp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.OperationBatch;
 import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
 import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation.OperationCase;
 import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.widgets.Widget;
+import io.streamlitconnect.widgets.WidgetKeyScope;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -29,9 +40,9 @@ class GrpcOperationsRequestContext extends GrpcStreamlitRequestContext implement
 
     private final static Logger log = LoggerFactory.getLogger(GrpcOperationsRequestContext.class);
 
-    // Use a BlockingQueue to keep track of the Streamlit operations to send back to the client
+    // Bounded buffer of the Streamlit operations to send back to the client, parking the render thread while it is full
     @Getter(AccessLevel.MODULE)
-    private final BlockingQueue<StreamlitOperation> operationsQueue = new LinkedBlockingQueue<>();
+    private final OperationRingBuffer operationsQueue;
 
     @Getter
     private final RootContainerImpl rootContainer = new RootContainerImpl(this);
@@ -41,61 +52,182 @@ class GrpcOperationsRequestContext extends GrpcStreamlitRequestContext implement
 
     private final AtomicReference<Thread> processingOpsThread = new AtomicReference<>();
 
+    // Orders the start of the processing thread with the cancellation, one of them completing the response
+    private final Object processingLock = new Object();
+
+    // Container keys are numbered per request, so an unchanged rerun produces the very same operations (see RenderDiffer)
+    private final AtomicInteger keySequence = new AtomicInteger();
+
+    private RenderDiffer renderDiffer;
+
+    // Whether the response observer takes operation batches rather than single operations
+    private boolean batchOperations;
+
+    // Outbound flow control of the call, if any
+    private FlowControl flowControl;
+
     @Getter
     @Setter(AccessLevel.PACKAGE)
     private String pageName;
 
+    // Whether the client identifies widgets by id rather than key
+    @Getter(AccessLevel.PACKAGE)
+    private boolean widgetIds;
+
+    // Whether the client accepts multiselect selections packed into bitmaps
+    @Getter(AccessLevel.PACKAGE)
+    private boolean packedSelections;
+
+    // Whether the client accepts dates and times as numbers rather than ISO strings
+    @Getter(AccessLevel.PACKAGE)
+    private boolean temporalNumbers;
+
+    // The containers to fill once the app is rendered, in the order they were declared, see defer
+    private final List<RenderBranch.Deferred> deferred = Collections.synchronizedList(new ArrayList<>());
+
+    // The widgets changed by the actions of this rerun, or of cancelled ones before it
+    private List<Widget<?>> changedWidgets = List.of();
+
+    // The generation of the widgets registered by this rerun, see GrpcStreamlitSessionContext.sweepWidgets
+    private int renderGeneration;
+
+    // Operations sent to the client and their serialized size, only touched by the processing operations thread
+    private int sentOps;
+
+    private long sentBytes;
+
     GrpcOperationsRequestContext(
         @NonNull GrpcStreamlitSessionContext sessionContext,
         int sequenceNumber,
         Object request,
-        StreamObserver<?> responseObserver
+        StreamObserver<?> responseObserver,
+        boolean batchOperations,
+        FlowControl flowControl
     ) {
         super(sessionContext, sequenceNumber, request, responseObserver);
+        this.batchOperations = batchOperations;
+        this.flowControl = flowControl;
+        this.operationsQueue = new OperationRingBuffer(
+            sessionContext.getConfig().getOpQueueCapacity(), sessionContext.getQueueMetrics());
+    }
+
+    /**
+     * Prepares the context for a new operations request of its session, reusing its queue and containers.
+     */
+    void reset(
+        int sequenceNumber,
+        Object request,
+        StreamObserver<?> responseObserver,
+        boolean batchOperations,
+        FlowControl flowControl
+    ) {
+        reset(sequenceNumber, request, responseObserver);
+        this.batchOperations = batchOperations;
+        this.flowControl = flowControl;
+        operationsQueue.reset();
+        rootContainer.reset();
+        sidebarContainer.reset();
+        keySequence.set(0);
+        deferred.clear();
+        sentOps = 0;
+        sentBytes = 0;
+    }
+
+    @Override
+    protected void recycle() {
+        super.recycle();
+        flowControl = null;
+        renderDiffer = null;
+        changedWidgets = List.of();
+        processingOpsThread.set(null);
+        rootContainer.reset();
+        sidebarContainer.reset();
     }
 
     @Override
-    public void cancel() {
-        operationsQueue.clear();
-        addEndSignal(false, true);
-        super.cancel();
-        Optional.ofNullable(processingOpsThread.get()).ifPresent(Thread::interrupt);
+    boolean isReusable() {
+        Thread processingThread = processingOpsThread.get();
+        return super.isReusable() && (processingThread == null || !processingThread.isAlive());
+    }
+
+    @Override
+    protected void endCancelledResponse() {
+        // Drop the pending operations and release a parked render thread, only the END signal is still sent
+        operationsQueue.terminate(endSignal(false, true));
+        synchronized (processingLock) {
+            if (processingOpsThread.get() == null) {
+                // Processing never starts, so nothing sends the END signal
+                getResponseObserver().onCompleted();
+            }
+        }
     }
 
     @Override
     public void close() {
         super.close();
-        operationsQueue.clear();
+        if (!isCancelled()) {
+            operationsQueue.clear();
+        } // Else the processing thread still sends the END signal
     }
 
     @Override
-    protected void handleRequest(@NonNull StreamlitApp app) {
-        if (isCancelled() || isClosed()) {
-            return; // Abort
-        }
+    public List<Widget<?>> changedWidgets() {
+        checkNotRecycled();
+        return changedWidgets;
+    }
 
+    @Override
+    protected void handleRequest(@NonNull StreamlitApp app) {
         try {
+            if (isCancelled() || isClosed()) {
+                return; // Abort
+            }
+            startTasksDeadline();
+
             StreamlitOperationsRequest request = (StreamlitOperationsRequest) getRequest();
-            StreamObserver<StreamlitOperation> responseObserver = (StreamObserver<StreamlitOperation>) getResponseObserver();
 
             // Process the actions
             List<Action> actions = request.getActionsList();
             sessionContext.processActions(actions);
+            changedWidgets = sessionContext.takeChangedWidgets();
 
-            // Start a new thread for processing the operations (blocking queue)
-            startProcessingOperations();
+            widgetIds = request.getCapabilitiesList().contains(ClientCapability.WIDGET_IDS);
+            packedSelections = request.getCapabilitiesList().contains(ClientCapability.PACKED_SELECTIONS);
+            temporalNumbers = request.getCapabilitiesList().contains(ClientCapability.TEMPORAL_NUMBERS);
 
             pageName = request.getPage();
             if (StringUtils.isBlank(pageName)) {
                 pageName = DEFAULT_PAGE_NAME;
             }
 
+            // Diff against the previous rerun of the page if the client supports render deltas
+            renderDiffer = createRenderDiffer(request);
+
+            renderGeneration = sessionContext.beginRender();
+
+            // Start a new thread for processing the operations (blocking queue)
+            startProcessingOperations();
+
             // Render the app
             log.debug("Rendering app: {}", app);
-            app.render(this);
+            long renderStart = System.nanoTime();
+            attachRenderThread();
+            try (WidgetKeyScope ignored = WidgetKeyScope.open(sessionContext.getWidgetIds())) {
+                app.render(this);
+            } finally {
+                detachRenderThread();
+            }
+
+            // Fill the deferred containers as their content completes, after the rest of the app
+            fillDeferred();
 
             // Wait for all tasks to complete before sending the END ops signal
             waitForTasks();
+            if (isCancelled()) {
+                return; // The END signal of the cancelled rerun is already queued
+            }
+            sessionContext.getMetrics().renderCompleted(
+                sessionContext.getAppName(), pageName, System.nanoTime() - renderStart);
 
             // Add the END ops signal
             addEndSignal();
@@ -112,19 +244,120 @@ class GrpcOperationsRequestContext extends GrpcStreamlitRequestContext implement
             close();
 
             log.debug("Streamlit getOperations completed for session: {}", getSessionContext().getSessionId());
+        } catch (RuntimeException e) {
+            if (!isCancelled()) {
+                throw e;
+            }
+            // The rendering was aborted by the cancellation, as expected
+            log.debug("Rendering of cancelled request aborted: {}", e.toString());
         } finally {
             // Signal to the session context that we're done with this request
-            sessionContext.signalOperationsRequestFinished();
+            sessionContext.signalOperationsRequestFinished(this);
         }
     }
 
+    String nextKeySuffix() {
+        RenderBranch branch = RenderBranch.current(this);
+        return branch != null ? branch.nextKeySuffix() : String.valueOf(keySequence.incrementAndGet());
+    }
+
+    /**
+     * Returns whether the current thread renders a container in parallel with its siblings.
+     */
+    boolean isRenderingBranch() {
+        return RenderBranch.current(this) != null;
+    }
+
+    /**
+     * Renders containers in parallel, see {@link io.streamlitconnect.Container#renderParallel(Map)}.
+     */
+    void renderParallel(@NonNull Map<? extends Container, ? extends Consumer<? super Container>> renderers) {
+        // Derived from the key sequence of the calling thread, so the keys within the branches are the same every rerun
+        String blockSuffix = nextKeySuffix();
+        List<RenderBranch> branches = new ArrayList<>(renderers.size());
+        List<Callable<Void>> tasks = new ArrayList<>(renderers.size());
+        for (Map.Entry<? extends Container, ? extends Consumer<? super Container>> entry : renderers.entrySet()) {
+            if (!(entry.getKey() instanceof ContainerImpl container) || container.getContext() != this) {
+                throw new StreamlitException("Not a container of this request: " + entry.getKey());
+            }
+            Consumer<? super Container> renderer = entry.getValue();
+            RenderBranch branch = new RenderBranch(this, blockSuffix + "." + branches.size());
+            branches.add(branch);
+            tasks.add(() -> {
+                branch.render(container, renderer);
+                return null;
+            });
+        }
+
+        all(tasks);
+
+        // Stitch the operations of the branches back in their order
+        for (RenderBranch branch : branches) {
+            branch.getOperations().forEach(this::enqueueOp);
+            branch.getDeferred().forEach(this::addDeferred);
+        }
+    }
+
+    /**
+     * Fills a container with content computed by a task, see
+     * {@link io.streamlitconnect.Container#deferred(Supplier)}. The operations of the content are buffered, and only
+     * enqueued once the app is rendered - after those of the deferred containers declared before.
+     */
+    void defer(@NonNull ContainerImpl slot, @NonNull Supplier<? extends Consumer<? super Container>> content) {
+        RenderBranch branch = new RenderBranch(this, nextKeySuffix());
+        TaskScope scope = openTaskScope();
+        scope.fork(() -> {
+            branch.render(slot, container -> content.get().accept(container.innerContainer()));
+            return null;
+        });
+        addDeferred(new RenderBranch.Deferred(branch, scope));
+    }
+
+    private void addDeferred(RenderBranch.Deferred fill) {
+        RenderBranch branch = RenderBranch.current(this);
+        if (branch != null) {
+            branch.addDeferred(fill); // Declared within a branch, so ordered with it
+        } else {
+            deferred.add(fill);
+        }
+    }
+
+    private void fillDeferred() {
+        // The list grows with the containers deferred by the content of the filled ones
+        for (int i = 0; i < deferred.size(); i++) {
+            RenderBranch.Deferred fill = deferred.get(i);
+            try (TaskScope scope = fill.scope()) {
+                joinTaskScope(scope);
+            }
+            fill.branch().getOperations().forEach(this::enqueueOp);
+            fill.branch().getDeferred().forEach(deferred::add);
+        }
+        deferred.clear();
+    }
+
     void enqueueOp(@NonNull StreamlitOperation operation) {
         log.debug("Enqueueing operation: {}", operation);
-        operationsQueue.add(operation);
+        RenderBranch branch = RenderBranch.current(this);
+        if (branch != null) {
+            branch.add(operation); // Enqueued once all the branches are rendered
+            return;
+        }
+        try {
+            if (!operationsQueue.put(operation)) {
+                log.debug("Dropped operation of terminated request: {}", operation);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore the interrupted status
+            throw new StreamlitException(e);
+        }
     }
 
     private void startProcessingOperations() {
-        processingOpsThread.set(Thread.startVirtualThread(this::processOperations));
+        synchronized (processingLock) {
+            if (!isCancelled()) {
+                processingOpsThread.set(Thread.startVirtualThread(this::processOperations));
+            }
+        }
     }
 
     private void processOperations() {
@@ -132,25 +365,147 @@ class GrpcOperationsRequestContext extends GrpcStreamlitRequestContext implement
 
         log.debug("Processing operations thread started");
 
-        StreamObserver<StreamlitOperation> responseObserver = (StreamObserver<StreamlitOperation>) getResponseObserver();
+        OperationBatcher batcher = null;
+        Consumer<StreamlitOperation> transportSink;
+        if (batchOperations) {
+            StreamObserver<OperationBatch> responseObserver = (StreamObserver<OperationBatch>) getResponseObserver();
+            batcher = new OperationBatcher(batch -> {
+                awaitTransportReady();
+                responseObserver.onNext(batch);
+            }, sessionContext.getConfig());
+            transportSink = batcher::add;
+        } else {
+            StreamObserver<StreamlitOperation> responseObserver = (StreamObserver<StreamlitOperation>) getResponseObserver();
+            transportSink = operation -> {
+                awaitTransportReady();
+                responseObserver.onNext(operation);
+            };
+        }
+        Consumer<StreamlitOperation> sink = operation -> {
+            sentOps++;
+            sentBytes += operation.getSerializedSize();
+            transportSink.accept(operation);
+        };
+
+        boolean ended = false;
         try {
             while (true) {
-                StreamlitOperation operation = operationsQueue.take();
+                StreamlitOperation operation = takeOp(batcher);
+                if (operation == null) {
+                    batcher.flush(); // The batch has lingered long enough
+                    continue;
+                }
                 log.debug("Operation popped from queue: {}", operation);
                 if (operation.getOperationCase() == OperationCase.ENDOP) {
-                    sessionContext.resetAllWidgetsChangedFlags(); // All touches have been handled by now, reset the touched flags
-                    responseObserver.onNext(operation);
-                    responseObserver.onCompleted();
+                    ended = true;
+                    // All changes have been handled by now, reset the changed flags
+                    sessionContext.releaseChangedWidgets(changedWidgets, operation.getEndOp().getCancelled());
+                    if (!operation.getEndOp().getCancelled()) {
+                        // Only a complete rerun tells which widgets are no longer rendered
+                        sessionContext.sweepWidgets(renderGeneration);
+                    }
+                    completeRenderDiff(operation.getEndOp(), sink);
+                    sink.accept(operation);
+                    if (batcher != null) {
+                        batcher.flush();
+                        log.debug("Operations sent in {} batches", batcher.getBatchCount());
+                    }
+                    getResponseObserver().onCompleted();
+                    reportMetrics(operation.getEndOp());
+                    log.debug("Operations queue max depth: {}/{}, render stalls: {} ({} ms)",
+                        operationsQueue.getHighWaterMark(), operationsQueue.capacity(), operationsQueue.getStallCount(),
+                        TimeUnit.NANOSECONDS.toMillis(operationsQueue.getStallNanos()));
                     break;
                 }
-                responseObserver.onNext(operation);
+                if (renderDiffer != null) {
+                    renderDiffer.diff(operation, sink);
+                } else {
+                    sink.accept(operation);
+                }
             }
         } catch (InterruptedException e) {
             Thread.interrupted(); // Restore the interrupted status
-            throw new StreamlitException(e);
+            failProcessing(e);
+        } catch (RuntimeException e) {
+            failProcessing(e);
+        } finally {
+            if (!ended) {
+                // Nothing takes the operations anymore: release a render thread parked on the full buffer
+                operationsQueue.terminate(endSignal(false, true));
+            }
+            log.debug("Processing operations thread finished");
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Cancels the request whose operations can no longer be sent - e.g. its stream is closed - so its rendering and
+     * tasks stop, and fails its response.
+     */
+    private void failProcessing(Exception e) {
+        log.warn("Processing operations failed, cancelling the request: {}", e.getMessage(), e);
+        cancel();
+        try {
+            getResponseObserver().onError(e);
+        } catch (RuntimeException ignored) {
+            // The response is already terminated, or its call closed
+        }
+    }
+
+    /**
+     * Takes the next operation from the queue, or returns null when a pending batch is due before one arrives.
+     */
+    private StreamlitOperation takeOp(OperationBatcher batcher) throws InterruptedException {
+        if (batcher == null || !batcher.hasPending()) {
+            return operationsQueue.take();
+        }
+        long remaining = batcher.remainingLingerNanos();
+        return operationsQueue.poll(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    private void awaitTransportReady() {
+        if (flowControl != null) {
+            flowControl.awaitReady();
+        }
+    }
+
+    private void reportMetrics(EndOp endOp) {
+        MetricsSink metrics = sessionContext.getMetrics();
+        metrics.opQueueDepth(operationsQueue.getHighWaterMark());
+        if (!endOp.getCancelled()) {
+            metrics.rerunStreamed(sessionContext.getAppName(), pageName, sentOps, sentBytes);
         }
-        log.debug("Processing operations thread finished");
-        MDC.clear();
+    }
+
+    private RenderDiffer createRenderDiffer(StreamlitOperationsRequest request) {
+        if (!sessionContext.getConfig().isRenderDeltasEnabled() ||
+            !request.getCapabilitiesList().contains(ClientCapability.RENDER_DELTAS)) {
+            return null;
+        }
+
+        RenderDiffer.Baseline baseline = sessionContext.getRenderBaseline(pageName);
+        if (baseline != null && baseline.seq() != request.getDeltaBaseSeq()) {
+            log.debug("Client delta base seq {} does not match retained seq {}, sending all operations",
+                request.getDeltaBaseSeq(), baseline.seq());
+            baseline = null;
+        }
+        return new RenderDiffer(baseline);
+    }
+
+    private void completeRenderDiff(EndOp endOp, Consumer<StreamlitOperation> sink) {
+        if (renderDiffer == null) {
+            return;
+        }
+
+        if (endOp.getCancelled()) {
+            // The client drops its retained operations for a cancelled rerun, so do we
+            sessionContext.removeRenderBaseline(pageName);
+            return;
+        }
+
+        renderDiffer.finish(sink);
+        sessionContext.setRenderBaseline(pageName, renderDiffer.toBaseline(getSequenceNumber()));
+        log.debug("Render diff completed, #retained operations: {}", renderDiffer.getRetainedCount());
     }
 
     private void addEndSignal() {
@@ -158,12 +513,15 @@ class GrpcOperationsRequestContext extends GrpcStreamlitRequestContext implement
     }
 
     private void addEndSignal(boolean terminate, boolean cancelled) {
+        enqueueOp(endSignal(terminate, cancelled));
+    }
+
+    static StreamlitOperation endSignal(boolean terminate, boolean cancelled) {
         EndOp.Builder builder = EndOp.newBuilder()
             .setTerminateSession(terminate)
             .setCancelled(cancelled);
 
-        StreamlitOperation op = StreamlitOperation.newBuilder().setEndOp(builder.build()).build();
-        enqueueOp(op);
+        return StreamlitOperation.newBuilder().setEndOp(builder.build()).build();
     }
 }
 
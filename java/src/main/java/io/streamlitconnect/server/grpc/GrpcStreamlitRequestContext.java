@@ -7,82 +7,214 @@ import io.streamlitconnect.StreamlitApp;
 import io.streamlitconnect.StreamlitException;
 import io.streamlitconnect.StreamlitRequestContext;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Base of the request contexts. A context runs its tasks on the executor shared by the server, in a {@link TaskScope}
+ * shut down on the first failure, when the request is cancelled, or at the deadline of the tasks.
+ * <p>
+ * A request is cancelled when its call is cancelled by the client, or when a newer request of the session supersedes
+ * it: the response is ended, the tasks are cancelled, the {@link #onCancel cancel handlers} are run, and the thread
+ * rendering the app is interrupted, so a stale rerun stops as soon as possible.
+ * <p>
+ * A context may be reused for a later request of its session: once closed, and released with no task left running (see
+ * {@link #isReusable()}), it is {@link #recycle() recycled}, then {@link #reset reset} for the new request. A recycled
+ * context fails fast when used, e.g. by a task of the app outliving its request. Contexts are equal by identity only,
+ * as their request changes with reuse.
+ */
 abstract class GrpcStreamlitRequestContext implements StreamlitRequestContext {
 
     private final static Logger log = LoggerFactory.getLogger(GrpcStreamlitRequestContext.class);
 
     @Getter(AccessLevel.PACKAGE)
-    private final StreamObserver<?> responseObserver;
+    private StreamObserver<?> responseObserver;
 
     @Getter
     protected final GrpcStreamlitSessionContext sessionContext;
 
     @Getter
-    private final int sequenceNumber;
+    private int sequenceNumber;
 
     @Getter(AccessLevel.PACKAGE)
-    private final Object request;
+    private Object request;
 
     @Getter
-    private final Instant createdAt = Instant.now();
+    private Instant createdAt;
 
     @Getter
     private Instant closedAt;
 
     private final Map<String, Object> attributes = new HashMap<>();
 
-    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    // The tasks of the request, and the scopes of its all() and any() calls: the context is only reused once idle
+    private final TaskScope taskScope;
 
-    private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+    // The System.nanoTime() the tasks must be done by, or TaskScope.NO_DEADLINE. Set when the render starts
+    private volatile long tasksDeadline;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
     private final AtomicBoolean cancelled = new AtomicBoolean(false);
 
+    // Set once the request is over and the context waits to be reused
+    private volatile boolean recycled;
+
+    // Run once if the request is cancelled, guarded by itself
+    private final List<Runnable> cancelHandlers = new ArrayList<>();
+
+    private final Object renderLock = new Object();
+
+    // The thread rendering the app, interrupted if the request is cancelled meanwhile, guarded by renderLock
+    private Thread renderThread;
+
     GrpcStreamlitRequestContext(
         @NonNull GrpcStreamlitSessionContext sessionContext,
         int sequenceNumber,
         Object request,
         StreamObserver<?> responseObserver
     ) {
-        isTrue(sequenceNumber >= 1, "sequenceNumber must be >= 0");
         this.sessionContext = sessionContext;
+        this.taskScope = new TaskScope(sessionContext.getExecutor(), TaskScope.Policy.ALL);
+        reset(sequenceNumber, request, responseObserver);
+    }
+
+    /**
+     * Prepares the context for a new request of its session.
+     */
+    protected void reset(int sequenceNumber, Object request, StreamObserver<?> responseObserver) {
+        isTrue(sequenceNumber >= 1, "sequenceNumber must be >= 0");
         this.sequenceNumber = sequenceNumber;
         this.request = request;
         this.responseObserver = responseObserver;
+        this.createdAt = Instant.now();
+        this.closedAt = null;
+        recycled = false;
+        closed.set(false);
+        cancelled.set(false);
+        clearCancelHandlers();
+        taskScope.reset();
+        tasksDeadline = TaskScope.NO_DEADLINE;
+    }
+
+    /**
+     * Starts the time the tasks of the request have to complete, as the request starts being handled - not when the
+     * context was acquired, the request possibly waiting for its debounce window and the mailbox of the session first.
+     */
+    protected void startTasksDeadline() {
+        long taskTimeoutMillis = sessionContext.getConfig().getTaskTimeoutMillis();
+        tasksDeadline = taskTimeoutMillis > 0
+            ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(taskTimeoutMillis)
+            : TaskScope.NO_DEADLINE;
+    }
+
+    /**
+     * Drops the references to the finished request, so they are not retained while the context waits to be reused.
+     */
+    protected void recycle() {
+        recycled = true;
+        request = null;
+        responseObserver = null;
+        clearCancelHandlers();
+    }
+
+    /**
+     * Returns whether the context can be reused: closed, with none of its tasks still running.
+     */
+    boolean isReusable() {
+        return closed.get() && taskScope.isIdle();
+    }
+
+    /**
+     * Fails if the context was recycled, its request being over: it must not be used until reset for a new request.
+     */
+    void checkNotRecycled() {
+        if (recycled) {
+            throw new StreamlitException("Request context used after its request ended: " + this);
+        }
     }
 
     @Override
     public Object getAttribute(@NonNull String name) {
+        checkNotRecycled();
         return attributes.get(name);
     }
 
     @Override
     public void setAttribute(@NonNull String name, Object value) {
+        checkNotRecycled();
         attributes.put(name, value);
     }
 
     @Override
     public void execute(@NonNull Runnable runnable) {
-        Future<?> future = executorService.submit(runnable);
-        futures.add(future);
+        checkNotRecycled();
+        taskScope.fork(Executors.callable(runnable, null));
+    }
+
+    @Override
+    public <T> Future<T> fork(@NonNull Callable<T> task) {
+        checkNotRecycled();
+        return taskScope.fork(task);
+    }
+
+    @Override
+    public <T> List<T> all(@NonNull Collection<? extends Callable<T>> tasks) {
+        checkNotRecycled();
+        try (TaskScope scope = taskScope.open(TaskScope.Policy.ALL)) {
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                futures.add(scope.fork(task));
+            }
+            scope.join(tasksDeadline);
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                if (future.state() != Future.State.SUCCESS) {
+                    throw new StreamlitException("Task cancelled with its request");
+                }
+                results.add(future.resultNow());
+            }
+            return results;
+        }
+    }
+
+    @Override
+    public <T> T any(@NonNull Collection<? extends Callable<T>> tasks) {
+        checkNotRecycled();
+        try (TaskScope scope = taskScope.open(TaskScope.Policy.ANY)) {
+            for (Callable<T> task : tasks) {
+                scope.fork(task);
+            }
+            scope.join(tasksDeadline);
+            return scope.result();
+        }
+    }
+
+    @Override
+    public void onCancel(@NonNull Runnable handler) {
+        checkNotRecycled();
+        synchronized (cancelHandlers) {
+            if (!cancelled.get()) {
+                cancelHandlers.add(handler);
+                return;
+            }
+        }
+        runCancelHandler(handler); // Already cancelled
     }
 
     @Override
@@ -91,7 +223,7 @@ abstract class GrpcStreamlitRequestContext implements StreamlitRequestContext {
             closedAt = Instant.now();
             log.debug("Closing request context: {}", this);
             attributes.clear();
-            futures.clear();
+            clearCancelHandlers();
         }
     }
 
@@ -105,27 +237,6 @@ abstract class GrpcStreamlitRequestContext implements StreamlitRequestContext {
         return cancelled.get();
     }
 
-    @Override
-    public int hashCode() {
-        return new HashCodeBuilder(17, 37)
-            .append(sessionContext.getSessionId())
-            .append(sequenceNumber)
-            .toHashCode();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final GrpcStreamlitRequestContext other = (GrpcStreamlitRequestContext) obj;
-        return sessionContext.getSessionId().equals(other.sessionContext.getSessionId()) &&
-            sequenceNumber == other.sequenceNumber;
-    }
-
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
@@ -136,6 +247,7 @@ abstract class GrpcStreamlitRequestContext implements StreamlitRequestContext {
             .append("responseObserver", responseObserver)
             .append("closed", closed)
             .append("cancelled", cancelled)
+            .append("recycled", recycled)
             .append("createdAt", createdAt)
             .append("closedAt", closedAt)
             .append("attributes", attributes)
@@ -144,33 +256,106 @@ abstract class GrpcStreamlitRequestContext implements StreamlitRequestContext {
 
     protected abstract void handleRequest(@NonNull StreamlitApp app);
 
+    /**
+     * Opens a scope of tasks within the scope of the request, shut down with it. To be joined with
+     * {@link #joinTaskScope}, then closed.
+     */
+    protected TaskScope openTaskScope() {
+        return taskScope.open(TaskScope.Policy.ALL);
+    }
+
+    /**
+     * Waits for the tasks of a scope opened with {@link #openTaskScope()}, up to the deadline of the tasks.
+     */
+    protected void joinTaskScope(@NonNull TaskScope scope) {
+        scope.join(tasksDeadline);
+    }
+
     void waitForTasks() {
-        log.debug("Waiting for #tasks to complete: {}", futures.size());
-        futures.forEach(future -> {
-            try {
-                future.get();
-            } catch (Exception e) {
-                throw new StreamlitException("Error waiting for task: " + e.getMessage(), e);
-            }
-        });
-        futures.clear();
+        log.debug("Waiting for the tasks to complete");
+        taskScope.join(tasksDeadline);
     }
 
+    /**
+     * Cancels the request, unless already closed. Called when its call is cancelled by the client, when a newer request
+     * of the session supersedes it, or when it failed.
+     */
     void cancel() {
         if ((!closed.get()) && cancelled.compareAndSet(false, true)) {
             log.debug("Cancelling request context: {}", this);
-//            responseObserver.onError(new StreamlitException("Request context cancelled: " + this));
-            responseObserver.onCompleted();
+            endCancelledResponse();
             cancelTasks();
+            runCancelHandlers();
+            interruptRenderThread();
             close();
         }
     }
 
+    /**
+     * Ends the response of the cancelled request, the call being completed rather than failed.
+     */
+    protected void endCancelledResponse() {
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Marks the current thread as rendering the app, to be interrupted if the request is cancelled. To be followed by
+     * {@link #detachRenderThread()} once the rendering is over.
+     */
+    protected void attachRenderThread() {
+        synchronized (renderLock) {
+            renderThread = Thread.currentThread();
+        }
+    }
+
+    /**
+     * Marks the current thread as no longer rendering the app. The interrupted status set by the cancellation of the
+     * request is cleared, so it does not leak into the rest of the request handling.
+     */
+    protected void detachRenderThread() {
+        synchronized (renderLock) {
+            renderThread = null;
+            if (cancelled.get()) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void interruptRenderThread() {
+        synchronized (renderLock) {
+            if (renderThread != null) {
+                log.debug("Interrupting the render thread: {}", renderThread);
+                renderThread.interrupt();
+            }
+        }
+    }
+
+    private void runCancelHandlers() {
+        List<Runnable> handlers;
+        synchronized (cancelHandlers) {
+            handlers = List.copyOf(cancelHandlers);
+            cancelHandlers.clear();
+        }
+        handlers.forEach(this::runCancelHandler);
+    }
+
+    private void runCancelHandler(Runnable handler) {
+        try {
+            handler.run();
+        } catch (RuntimeException e) {
+            log.warn("Cancel handler failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void clearCancelHandlers() {
+        synchronized (cancelHandlers) {
+            cancelHandlers.clear();
+        }
+    }
+
     private void cancelTasks() {
-        log.debug("Cancelling #tasks: {}", futures.size());
-        futures.forEach(future -> future.cancel(true));
-        executorService.shutdownNow();
-        futures.clear();
+        log.debug("Cancelling the tasks");
+        taskScope.shutdown();
     }
 
 }
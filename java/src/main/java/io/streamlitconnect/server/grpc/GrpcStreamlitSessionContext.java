@@ -1,7 +1,12 @@
 package io.streamlitconnect.server.grpc;
 
+import io.grpc.stub.StreamObserver;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitApp;
 import io.streamlitconnect.StreamlitException;
 import io.streamlitconnect.StreamlitSessionContext;
+import io.streamlitconnect.metrics.MetricsSink;
+import io.streamlitconnect.metrics.MetricsSink.RequestKind;
 import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.Action;
 import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.ButtonAction;
 import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.CheckboxAction;
@@ -16,6 +21,7 @@ import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.TextInputAction
 import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.TimeInputAction;
 import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.ToggleAction;
 import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.IntOrFloat;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ValueSingle;
 import io.streamlitconnect.widgets.Button;
 import io.streamlitconnect.widgets.Checkbox;
 import io.streamlitconnect.widgets.DateInput;
@@ -38,12 +44,20 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -58,38 +72,140 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
 
     private static final Logger log = LoggerFactory.getLogger(GrpcStreamlitSessionContext.class);
 
+    /**
+     * The number of widget ids in a block of a render branch.
+     */
+    static final int WIDGET_ID_BLOCK_SIZE = 1024;
+
     @Getter
     private final String sessionId;
 
     @Getter
     private final String appName;
 
+    @Getter(AccessLevel.PACKAGE)
+    private final Config config;
+
+    @Getter(AccessLevel.PACKAGE)
+    private final OperationQueueMetrics queueMetrics;
+
+    @Getter(AccessLevel.PACKAGE)
+    private final MetricsSink metrics;
+
     @Getter
     @Setter(AccessLevel.PACKAGE)
-    private Instant lastActivityAt;
+    private volatile Instant lastActivityAt;
+
+    // The app of the session, created by the app manager on the first request
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile StreamlitApp app;
+
+    // Held while the app is created or closed, so the requests waiting for the app create it once, off the mailbox
+    @Getter(AccessLevel.PACKAGE)
+    private final ReentrantLock appLock = new ReentrantLock();
+
+    // Whether the state of the session is in the session store, and its app closed
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile boolean passivated;
 
-    private final Map<String, Widget<?>> widgets = new HashMap<>();
+    // Guarded by widgetsLock: the render of a request may still register widgets while the next one resolves actions
+    private final WidgetRegistry widgets = new WidgetRegistry();
 
+    private final ReentrantLock widgetsLock = new ReentrantLock();
+
+    // The widgets changed by the actions, or by the app, not yet taken by a rerun, in the order of the changes. Guarded
+    // by widgetsLock
+    private final Set<Widget<?>> changedWidgets = new LinkedHashSet<>();
+
+    private final Consumer<Widget<?>> changeListener = this::markChanged;
+
+    // The generation of the widgets registered by the current render, one per operations rerun
+    private final AtomicInteger renderGeneration = new AtomicInteger();
+
+    // The last widget id allocated in the key scopes of the session
+    @Getter(AccessLevel.PACKAGE)
+    private final AtomicInteger widgetIds = new AtomicInteger();
+
+    // Declaration path of a render branch -> the first id of its block of widget ids, see getWidgetIdBlock
+    private final Map<String, Integer> widgetIdBlocks = new ConcurrentHashMap<>();
+
+    @Getter(AccessLevel.PACKAGE)
     private final Map<String, Object> attributes = new HashMap<>();
 
-    private int currentSeqNum;
+    // page name -> operations of the last completed rerun of the page (only kept for clients supporting render deltas),
+    // least recently rendered first, bounded by Config#getRenderBaselinePages. Guarded by renderBaselinesLock
+    private final LinkedHashMap<String, RenderDiffer.Baseline> renderBaselines = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ReentrantLock renderBaselinesLock = new ReentrantLock();
+
+    private final AtomicInteger currentSeqNum = new AtomicInteger();
+
+    private final AtomicReference<GrpcOperationsRequestContext> currentOpsReqContext = new AtomicReference<>();
 
-    private GrpcOperationsRequestContext currentOpsReqContext;
+    private final AtomicReference<GrpcNavigationRequestContext> currentNavReqContext = new AtomicReference<>();
 
-    private GrpcNavigationRequestContext currentNavReqContext;
+    // The operations request waiting to be started, see queueOperationsRequest. Guarded by pendingOpsRequestLock
+    private PendingOperationsRequest pendingOpsRequest;
 
-    final Lock lock = new ReentrantLock();
+    private final ReentrantLock pendingOpsRequestLock = new ReentrantLock();
 
-    final Condition requestFinished = lock.newCondition();
+    // A closed operations request context kept for the next rerun of the session, see acquireOpsReqContext
+    private final AtomicReference<GrpcOperationsRequestContext> spareOpsReqContext = new AtomicReference<>();
 
-    GrpcStreamlitSessionContext(@NonNull String sessionId, String appName) {
+    private final SessionMailbox mailbox;
+
+    // The executor shared by the server, running the mailbox and the tasks of the requests
+    @Getter(AccessLevel.PACKAGE)
+    private final Executor executor;
+
+    GrpcStreamlitSessionContext(
+        @NonNull String sessionId,
+        String appName,
+        @NonNull Config config,
+        @NonNull OperationQueueMetrics queueMetrics,
+        @NonNull Executor executor
+    ) {
         this.sessionId = sessionId;
         this.appName = appName;
+        this.config = config;
+        this.queueMetrics = queueMetrics;
+        this.metrics = config.getMetricsSink();
+        this.executor = executor;
+        this.mailbox = new SessionMailbox(executor, metrics);
+        this.lastActivityAt = Instant.now();
     }
 
     @Override
     public Widget<?> getWidget(String widgetKey) {
-        return widgets.get(widgetKey);
+        return widgetKey != null ? getWidget(Widget.idOf(widgetKey)) : null;
+    }
+
+    /**
+     * Returns the widget with the given id, or with the given key if the id is 0 - as sent by clients not identifying
+     * widgets by id.
+     */
+    Widget<?> getWidget(int widgetId, String widgetKey) {
+        return widgetId != 0 ? getWidget(widgetId) : getWidget(widgetKey);
+    }
+
+    private Widget<?> getWidget(int widgetId) {
+        widgetsLock.lock();
+        try {
+            return widgets.get(widgetId);
+        } finally {
+            widgetsLock.unlock();
+        }
+    }
+
+    List<Widget<?>> getWidgets() {
+        widgetsLock.lock();
+        try {
+            return widgets.values();
+        } finally {
+            widgetsLock.unlock();
+        }
     }
 
     @Override
@@ -104,8 +220,24 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
 
     @Override
     public void close() {
+        app = null;
         attributes.clear();
-        widgets.clear();
+        widgetsLock.lock();
+        try {
+            metrics.liveWidgetsChanged(-widgets.size());
+            widgets.clear();
+            changedWidgets.clear();
+        } finally {
+            widgetsLock.unlock();
+        }
+        widgetIdBlocks.clear();
+        renderBaselinesLock.lock();
+        try {
+            renderBaselines.clear();
+        } finally {
+            renderBaselinesLock.unlock();
+        }
+        spareOpsReqContext.set(null);
     }
 
     @Override
@@ -114,30 +246,47 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
             .append("sessionId", sessionId)
             .append("appName", appName)
             .append("lastActivityAt", lastActivityAt)
-            .append("currentSeqNum", currentSeqNum)
-            .append("currentNavReqContext", currentNavReqContext)
-            .append("currentOpsReqContext", currentOpsReqContext)
-            .append("widgets", widgets)
+            .append("passivated", passivated)
+            .append("currentSeqNum", currentSeqNum.get())
+            .append("currentNavReqContext", currentNavReqContext.get())
+            .append("currentOpsReqContext", currentOpsReqContext.get())
+            .append("widgets", getWidgets())
             .append("attributes", attributes)
             .toString();
     }
 
+    /**
+     * Posts a message to the mailbox of this session. Request starts and other state transitions of the session are run as
+     * messages, one at a time.
+     *
+     * @param message The message.
+     */
+    void post(@NonNull Runnable message) {
+        mailbox.post(message);
+    }
+
     int getCurrentSequenceNumber() {
-        lock.lock();
-        try {
-            return currentSeqNum;
-        } finally {
-            lock.unlock();
-        }
+        return currentSeqNum.get();
     }
 
-    void setCurrentSequenceNumber(int sequenceNumber) {
-        lock.lock();
-        try {
-            currentSeqNum = sequenceNumber;
-            lastActivityAt = Instant.now();
-        } finally {
-            lock.unlock();
+    /**
+     * Advances the current sequence number to that of a new request, unless the request is outdated.
+     *
+     * @param sequenceNumber The sequence number of the request.
+     * @param allowCurrent   Whether a request with the current sequence number is accepted, as for the operations request
+     *                       following the navigation request of the same rerun.
+     * @return Whether the sequence number was advanced, false if the request is outdated.
+     */
+    boolean advanceSequenceNumber(int sequenceNumber, boolean allowCurrent) {
+        while (true) {
+            int current = currentSeqNum.get();
+            if (sequenceNumber < current || (sequenceNumber == current && !allowCurrent)) {
+                return false;
+            }
+            if (currentSeqNum.compareAndSet(current, sequenceNumber)) {
+                lastActivityAt = Instant.now();
+                return true;
+            }
         }
     }
 
@@ -146,98 +295,185 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
     //
 
     GrpcNavigationRequestContext getCurrentNavReqContext() {
-        lock.lock();
-        try {
-            return currentNavReqContext;
-        } finally {
-            lock.unlock();
-        }
+        return currentNavReqContext.get();
     }
 
     void setCurrentNavReqContext(@NonNull GrpcNavigationRequestContext navReqContext) {
-        lock.lock();
+        GrpcNavigationRequestContext previous = currentNavReqContext.getAndSet(navReqContext);
+        if (previous != null) {
+            metrics.requestSuperseded(RequestKind.NAVIGATION);
+            previous.cancel();
+        }
+    }
+
+    void signalNavigationRequestFinished(@NonNull GrpcNavigationRequestContext navReqContext) {
+        // Only clears the request if not already superseded by a newer one
+        currentNavReqContext.compareAndSet(navReqContext, null);
+    }
+
+    //
+    // Operations request context management
+    //
+
+    GrpcOperationsRequestContext getCurrentOpsReqContext() {
+        return currentOpsReqContext.get();
+    }
+
+    /**
+     * Queues an operations request to be started, coalescing it with the request of the session still waiting to be
+     * started, if any: of the two, the request with the lower sequence number is dropped, and its actions are merged
+     * ahead of those of the other one.
+     *
+     * @param request The request.
+     * @return The dropped request, to be answered by the caller - the given one if the waiting request is newer - or
+     * null if no request was waiting.
+     */
+    PendingOperationsRequest queueOperationsRequest(@NonNull PendingOperationsRequest request) {
+        pendingOpsRequestLock.lock();
         try {
-            if (currentNavReqContext != null) {
-                currentNavReqContext.cancel();
+            PendingOperationsRequest waiting = pendingOpsRequest;
+            if (waiting == null) {
+                pendingOpsRequest = request;
+                return null;
             }
-            currentNavReqContext = navReqContext;
+            if (waiting.getSeq() >= request.getSeq()) {
+                waiting.mergeActionsOf(request);
+                return request;
+            }
+            request.mergeActionsOf(waiting);
+            pendingOpsRequest = request;
+            return waiting;
         } finally {
-            lock.unlock();
+            pendingOpsRequestLock.unlock();
         }
     }
 
-    void waitForNavReqToFinish() {
-        lock.lock();
+    /**
+     * Takes a queued operations request to be started.
+     *
+     * @return false if the request was dropped meanwhile, coalesced with a newer one.
+     */
+    boolean takeOperationsRequest(@NonNull PendingOperationsRequest request) {
+        pendingOpsRequestLock.lock();
         try {
-            while (currentNavReqContext != null) {
-                requestFinished.await();
+            if (pendingOpsRequest != request) {
+                return false;
             }
-        } catch (InterruptedException e) {
-            log.warn("Interrupted while waiting for navigation request to finish", e);
-            Thread.interrupted(); // clear interrupted status
-            throw new StreamlitException("Interrupted while waiting for navigation request to finish", e);
+            pendingOpsRequest = null;
+            return true;
         } finally {
-            lock.unlock();
+            pendingOpsRequestLock.unlock();
         }
     }
 
-    void signalNavigationRequestFinished() {
-        lock.lock();
-        try {
-            currentNavReqContext = null;
-            requestFinished.signalAll();
-        } finally {
-            lock.unlock();
+    /**
+     * Returns a context for a new operations request of the session: the spare context released by a previous rerun,
+     * reset, or a new one.
+     */
+    GrpcOperationsRequestContext acquireOpsReqContext(
+        int sequenceNumber,
+        Object request,
+        StreamObserver<?> responseObserver,
+        boolean batchOperations,
+        FlowControl flowControl
+    ) {
+        GrpcOperationsRequestContext opsReqContext = spareOpsReqContext.getAndSet(null);
+        if (opsReqContext == null) {
+            return new GrpcOperationsRequestContext(
+                this, sequenceNumber, request, responseObserver, batchOperations, flowControl);
+        }
+        opsReqContext.reset(sequenceNumber, request, responseObserver, batchOperations, flowControl);
+        return opsReqContext;
+    }
+
+    /**
+     * Hands back the context of a finished operations request, kept as the spare context of the session if nothing of
+     * the request still runs: a closed context whose tasks were cancelled but are still running is left to the GC.
+     */
+    void releaseOpsReqContext(@NonNull GrpcOperationsRequestContext opsReqContext) {
+        if (!opsReqContext.isReusable() || passivated) {
+            return;
+        }
+        opsReqContext.recycle();
+        spareOpsReqContext.compareAndSet(null, opsReqContext);
+    }
+
+    void setCurrentOpsReqContext(@NonNull GrpcOperationsRequestContext opsReqContext) {
+        GrpcOperationsRequestContext previous = currentOpsReqContext.getAndSet(opsReqContext);
+        if (previous != null && previous != opsReqContext) {
+            metrics.requestSuperseded(RequestKind.OPERATIONS);
+            // Stop the stale rerun rather than let it render to the end
+            previous.cancel();
+        }
+    }
+
+    void signalOperationsRequestFinished(@NonNull GrpcOperationsRequestContext opsReqContext) {
+        // Only clears the request if not already superseded by a newer one
+        currentOpsReqContext.compareAndSet(opsReqContext, null);
+    }
+
+    /**
+     * Cancels the current request of the session answered through the given observer, if any: its call was cancelled
+     * by the client.
+     */
+    void cancelRequest(@NonNull StreamObserver<?> responseObserver) {
+        GrpcOperationsRequestContext opsReqContext = currentOpsReqContext.get();
+        if (opsReqContext != null && opsReqContext.getResponseObserver() == responseObserver) {
+            opsReqContext.cancel();
+        }
+        GrpcNavigationRequestContext navReqContext = currentNavReqContext.get();
+        if (navReqContext != null && navReqContext.getResponseObserver() == responseObserver) {
+            navReqContext.cancel();
         }
     }
 
     //
-    // Operations request context management
+    // Render baselines (render deltas)
     //
 
-    GrpcOperationsRequestContext getCurrentOpsReqContext() {
-        lock.lock();
+    RenderDiffer.Baseline getRenderBaseline(@NonNull String pageName) {
+        renderBaselinesLock.lock();
         try {
-            return currentOpsReqContext;
+            return renderBaselines.get(pageName);
         } finally {
-            lock.unlock();
+            renderBaselinesLock.unlock();
         }
     }
 
-    void setCurrentOpsReqContext(@NonNull GrpcOperationsRequestContext opsReqContext) {
-        lock.lock();
+    /**
+     * Retains the baseline of a page, dropping the baselines of the least recently rendered pages beyond
+     * {@link Config#getRenderBaselinePages()}: the next rerun of such a page is sent in full.
+     */
+    void setRenderBaseline(@NonNull String pageName, @NonNull RenderDiffer.Baseline baseline) {
+        int maxPages = Math.max(1, config.getRenderBaselinePages());
+        renderBaselinesLock.lock();
         try {
-            if (currentOpsReqContext != null) {
-                currentOpsReqContext.close();
+            renderBaselines.put(pageName, baseline);
+            Iterator<String> leastRecent = renderBaselines.keySet().iterator();
+            while (renderBaselines.size() > maxPages) {
+                leastRecent.next();
+                leastRecent.remove();
             }
-            currentOpsReqContext = opsReqContext;
         } finally {
-            lock.unlock();
+            renderBaselinesLock.unlock();
         }
     }
 
-    void waitForOpsReqToFinish() {
-        lock.lock();
+    void removeRenderBaseline(@NonNull String pageName) {
+        renderBaselinesLock.lock();
         try {
-            while (currentOpsReqContext != null) {
-                requestFinished.await();
-            }
-        } catch (InterruptedException e) {
-            log.warn("Interrupted while waiting for operation request to finish", e);
-            Thread.interrupted(); // clear interrupted status
-            throw new StreamlitException("Interrupted while waiting for operation request to finish", e);
+            renderBaselines.remove(pageName);
         } finally {
-            lock.unlock();
+            renderBaselinesLock.unlock();
         }
     }
 
-    void signalOperationsRequestFinished() {
-        lock.lock();
+    int getRenderBaselineCount() {
+        renderBaselinesLock.lock();
         try {
-            currentOpsReqContext = null;
-            requestFinished.signalAll();
+            return renderBaselines.size();
         } finally {
-            lock.unlock();
+            renderBaselinesLock.unlock();
         }
     }
 
@@ -245,16 +481,169 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
     // Widget management
     //
 
+    /**
+     * Registers a widget rendered by the current rerun.
+     */
     void addWidget(@NonNull Widget<?> widget) {
-        widgets.put(widget.getKey(), widget);
+        putWidget(widget, renderGeneration.get());
+    }
+
+    /**
+     * Registers a widget created with the app, which is kept whether rendered or not - so its value survives the pages
+     * not rendering it.
+     */
+    void pinWidget(@NonNull Widget<?> widget) {
+        putWidget(widget, WidgetRegistry.PINNED);
+    }
+
+    private void putWidget(Widget<?> widget, int generation) {
+        Widget<?> previous;
+        boolean added;
+        widgetsLock.lock();
+        try {
+            previous = widgets.get(widget.getId());
+            added = widgets.put(widget, generation);
+        } finally {
+            widgetsLock.unlock();
+        }
+        if (added) {
+            metrics.liveWidgetsChanged(1);
+        }
+        if (previous != widget) {
+            // Whether changed by an action or by the app, the widget is reported to the next rerun - also when it
+            // replaces the widget of a previous rerun with the same id, see getWidgetIdBlock
+            widget.setChangeListener(changeListener);
+        }
+    }
+
+    /**
+     * Returns the first id of a block of {@link #WIDGET_ID_BLOCK_SIZE} widget ids of a render branch, allocated the
+     * first time the branch is rendered and kept for its later reruns. So the widgets created on the branch get the
+     * same ids every rerun, whatever the timing of the threads - a widget replacing the one of the previous rerun at
+     * the same place - and the reruns do not use up the ids of the session.
+     *
+     * @param path The declaration path of the branch in the app, followed by the index of the block in the branch.
+     */
+    int getWidgetIdBlock(@NonNull String path) {
+        return widgetIdBlocks.computeIfAbsent(path, ignored -> widgetIds.getAndUpdate(id -> {
+            if (id > Integer.MAX_VALUE - WIDGET_ID_BLOCK_SIZE) {
+                throw new IllegalStateException("Widget ids of the session exhausted");
+            }
+            return id + WIDGET_ID_BLOCK_SIZE;
+        }) + 1);
+    }
+
+    /**
+     * Starts the widget ids of the session over, its widgets being gone with its app.
+     */
+    void resetWidgetIds() {
+        widgetIds.set(0);
+        widgetIdBlocks.clear();
+    }
+
+    /**
+     * Starts the render of an operations rerun: the widgets it registers are stamped with a new generation.
+     *
+     * @return The generation of the rerun.
+     */
+    int beginRender() {
+        return renderGeneration.incrementAndGet();
+    }
+
+    /**
+     * Unregisters the widgets not rendered by the last {@link Config#getWidgetRetentionReruns() retained} reruns, up to
+     * the given completed one. Their state is dropped: should they be rendered again, they start over from their
+     * defaults.
+     *
+     * @param generation The generation of the completed rerun.
+     */
+    void sweepWidgets(int generation) {
+        int retention = config.getWidgetRetentionReruns();
+        if (retention <= 0) {
+            return;
+        }
+        int swept;
+        widgetsLock.lock();
+        try {
+            swept = widgets.sweep(generation - retention + 1);
+        } finally {
+            widgetsLock.unlock();
+        }
+        if (swept > 0) {
+            log.debug("Swept {} widgets not rendered for {} reruns in session: {}", swept, retention, sessionId);
+            metrics.liveWidgetsChanged(-swept);
+            metrics.widgetsSwept(swept);
+        }
     }
 
     void resetWidgets() {
-        widgets.values().forEach(Widget::reset);
+        forEachWidget(Widget::reset);
     }
 
-    void resetAllWidgetsChangedFlags() {
-        widgets.values().forEach(Widget::resetChanged);
+    /**
+     * Takes the widgets changed by the actions processed since the last rerun, leaving them flagged changed until the
+     * rerun {@link #releaseChangedWidgets releases} them.
+     *
+     * @return The changed widgets, in the order of the actions.
+     */
+    List<Widget<?>> takeChangedWidgets() {
+        widgetsLock.lock();
+        try {
+            if (changedWidgets.isEmpty()) {
+                return List.of();
+            }
+            List<Widget<?>> taken = List.copyOf(changedWidgets);
+            changedWidgets.clear();
+            return taken;
+        } finally {
+            widgetsLock.unlock();
+        }
+    }
+
+    /**
+     * Releases the changed widgets taken by a rerun once it ended. The changed flags of the widgets are reset, but for
+     * those changed again by the actions of a newer request. If the rerun was cancelled, the widgets are handed over to
+     * the next rerun instead, which still has to see the changes.
+     *
+     * @param widgets   The widgets {@link #takeChangedWidgets taken} by the rerun.
+     * @param cancelled Whether the rerun was cancelled.
+     */
+    void releaseChangedWidgets(@NonNull List<Widget<?>> widgets, boolean cancelled) {
+        if (widgets.isEmpty()) {
+            return;
+        }
+        widgetsLock.lock();
+        try {
+            if (cancelled) {
+                changedWidgets.addAll(widgets);
+                return;
+            }
+            for (Widget<?> widget : widgets) {
+                if (!changedWidgets.contains(widget)) {
+                    widget.resetChanged();
+                }
+            }
+        } finally {
+            widgetsLock.unlock();
+        }
+    }
+
+    private void markChanged(Widget<?> widget) {
+        widgetsLock.lock();
+        try {
+            changedWidgets.add(widget);
+        } finally {
+            widgetsLock.unlock();
+        }
+    }
+
+    private void forEachWidget(Consumer<Widget<?>> action) {
+        widgetsLock.lock();
+        try {
+            widgets.forEach(action);
+        } finally {
+            widgetsLock.unlock();
+        }
     }
 
     //
@@ -265,6 +654,7 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
         log.debug("Processing #actions: {}", actions.size());
         for (Action action : actions) {
             log.debug("Processing action: {}", action);
+            long start = System.nanoTime();
 
             switch (action.getActionCase()) {
 
@@ -319,27 +709,26 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 default:
                     throw new StreamlitException("Unsupported action: " + action.getActionCase());
             }
+
+            metrics.actionProcessed(action.getActionCase().name().toLowerCase(), System.nanoTime() - start);
         }
     }
 
     private void handleButtonAction(ButtonAction action) {
-        String key = action.getKey();
-        Button button = (Button) getWidget(key);
+        Button button = getWidget(action.getId(), action.getKey(), Button.class);
         if (button != null) {
             List<String> args = action.getArgsList();
             Map<String, String> kwargs = action.getKwargsMap();
             button.setValue(null);
             button.onChange(args, kwargs);
             log.debug("Button clicked action: {}", button);
-        } else {
-            log.warn("Button not found for key: {}", key);
         }
     }
 
     private void handleCheckboxAction(CheckboxAction action) {
-        String key = action.getKey();
-        Checkbox checkbox = (Checkbox) getWidget(key);
+        Checkbox checkbox = getWidget(action.getId(), action.getKey(), Checkbox.class);
         if (checkbox != null) {
+            String key = checkbox.getKey();
             List<String> args = action.getArgsList();
             Map<String, String> kwargs = action.getKwargsMap();
             boolean changed = checkbox.setValue(action.getValue());
@@ -352,15 +741,13 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 checkbox.onChange(args, kwargs);
             }
             log.debug("Checkbox action: {}", checkbox);
-        } else {
-            log.warn("Checkbox not found for key: {}", key);
         }
     }
 
     private void handleToggleAction(ToggleAction action) {
-        String key = action.getKey();
-        Toggle toggle = (Toggle) getWidget(key);
+        Toggle toggle = getWidget(action.getId(), action.getKey(), Toggle.class);
         if (toggle != null) {
+            String key = toggle.getKey();
             List<String> args = action.getArgsList();
             Map<String, String> kwargs = action.getKwargsMap();
             boolean changed = toggle.setValue(action.getValue());
@@ -373,15 +760,13 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 toggle.onChange(args, kwargs);
             }
             log.debug("Toggle action: {}", toggle);
-        } else {
-            log.warn("Toggle not found for key: {}", key);
         }
     }
 
     private void handleRadioAction(RadioAction radioAction) {
-        String key = radioAction.getKey();
-        Radio radio = (Radio) getWidget(key);
+        Radio radio = getWidget(radioAction.getId(), radioAction.getKey(), Radio.class);
         if (radio != null) {
+            String key = radio.getKey();
             List<String> args = radioAction.getArgsList();
             Map<String, String> kwargs = radioAction.getKwargsMap();
             boolean changed = radio.setValue(radioAction.getIndex());
@@ -394,15 +779,13 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 radio.onChange(args, kwargs);
             }
             log.debug("Radio action: {}", radio);
-        } else {
-            log.warn("Radio not found for key: {}", key);
         }
     }
 
     private void handleSelectboxAction(SelectboxAction selectboxAction) {
-        String key = selectboxAction.getKey();
-        Selectbox selectbox = (Selectbox) getWidget(key);
+        Selectbox selectbox = getWidget(selectboxAction.getId(), selectboxAction.getKey(), Selectbox.class);
         if (selectbox != null) {
+            String key = selectbox.getKey();
             List<String> args = selectboxAction.getArgsList();
             Map<String, String> kwargs = selectboxAction.getKwargsMap();
             boolean changed = selectbox.setValue(selectboxAction.getIndex());
@@ -415,19 +798,24 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 selectbox.onChange(args, kwargs);
             }
             log.debug("Selectbox action: {}", selectbox);
-        } else {
-            log.warn("Selectbox not found for key: {}", key);
         }
     }
 
     private void handleMultiselectAction(MultiselectAction multiselectAction) {
-        String key = multiselectAction.getKey();
-        Multiselect multiselect = (Multiselect) getWidget(key);
+        Multiselect multiselect = getWidget(multiselectAction.getId(), multiselectAction.getKey(), Multiselect.class);
         if (multiselect != null) {
-            int selectedIndicesCount = multiselectAction.getSelectedIndicesCount();
-            int[] selectedIndices = new int[selectedIndicesCount];
-            for (int i = 0; i < multiselectAction.getSelectedIndicesCount(); i++) {
-                selectedIndices[i] = multiselectAction.getSelectedIndices(i);
+            String key = multiselect.getKey();
+            int[] selectedIndices;
+            if (!multiselectAction.getSelectedBitmap().isEmpty()) {
+                // Sent packed by the client, in ascending order
+                BitSet bitmap = BitSet.valueOf(multiselectAction.getSelectedBitmap().asReadOnlyByteBuffer());
+                selectedIndices = bitmap.stream().toArray();
+            } else {
+                int selectedIndicesCount = multiselectAction.getSelectedIndicesCount();
+                selectedIndices = new int[selectedIndicesCount];
+                for (int i = 0; i < multiselectAction.getSelectedIndicesCount(); i++) {
+                    selectedIndices[i] = multiselectAction.getSelectedIndices(i);
+                }
             }
 
             boolean changed = multiselect.setValue(selectedIndices);
@@ -440,17 +828,16 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 multiselect.onChange(multiselectAction.getArgsList(), multiselectAction.getKwargsMap());
             }
             log.debug("Multiselect action: {}", multiselect);
-        } else {
-            log.warn("Multiselect not found for key: {}", key);
         }
     }
 
     private void handleSelectSliderAction(SelectSliderAction selectSliderAction) {
-        String key = selectSliderAction.getKey();
-        SelectSlider selectSlider = (SelectSlider) getWidget(key);
+        SelectSlider selectSlider =
+            getWidget(selectSliderAction.getId(), selectSliderAction.getKey(), SelectSlider.class);
         if (selectSlider != null) {
-            boolean changed = selectSlider.setValue(
-                MutablePair.of(selectSliderAction.getLowerIndex(), selectSliderAction.getUpperIndex()));
+            String key = selectSlider.getKey();
+            boolean changed = selectSlider.setRange(
+                selectSliderAction.getLowerIndex(), selectSliderAction.getUpperIndex());
             if (changed) {
                 log.debug(
                     "SelectSlider '{}' changed from '{}' to '{}'",
@@ -460,24 +847,26 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 selectSlider.onChange(selectSliderAction.getArgsList(), selectSliderAction.getKwargsMap());
             }
             log.debug("SelectSlider action: {}", selectSlider);
-        } else {
-            log.warn("SelectSlider not found for key: {}", key);
         }
     }
 
     private void handleDateInputAction(DateInputAction dateInputAction) {
-        String key = dateInputAction.getKey();
-        DateInput dateInput = (DateInput) getWidget(key);
+        DateInput dateInput = getWidget(dateInputAction.getId(), dateInputAction.getKey(), DateInput.class);
         if (dateInput != null) {
+            String key = dateInput.getKey();
             LocalDate actionFrom = null, actionTo = null;
             LocalDate existingFrom = dateInput.getValue().getLeft();
             LocalDate existingTo = dateInput.getValue().getRight();
 
-            if (!dateInputAction.getFromDate().isEmpty()) {
+            if (dateInputAction.hasFromEpochDay()) {
+                actionFrom = LocalDate.ofEpochDay(dateInputAction.getFromEpochDay());
+            } else if (!dateInputAction.getFromDate().isEmpty()) {
                 actionFrom = LocalDate.parse(dateInputAction.getFromDate(), DateTimeFormatter.ISO_LOCAL_DATE);
             }
 
-            if (!dateInputAction.getToDate().isEmpty()) {
+            if (dateInputAction.hasToEpochDay()) {
+                actionTo = LocalDate.ofEpochDay(dateInputAction.getToEpochDay());
+            } else if (!dateInputAction.getToDate().isEmpty()) {
                 actionTo = LocalDate.parse(dateInputAction.getToDate(), DateTimeFormatter.ISO_LOCAL_DATE);
             }
 
@@ -490,18 +879,18 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 dateInput.onChange(dateInputAction.getArgsList(), dateInputAction.getKwargsMap());
             }
             log.debug("DateInput action: {}", dateInput);
-        } else {
-            log.warn("DateInput not found for key: {}", key);
         }
     }
 
     private void handleTimeInputAction(TimeInputAction timeInputAction) {
-        String key = timeInputAction.getKey();
-        TimeInput timeInput = (TimeInput) getWidget(key);
+        TimeInput timeInput = getWidget(timeInputAction.getId(), timeInputAction.getKey(), TimeInput.class);
         if (timeInput != null) {
+            String key = timeInput.getKey();
             boolean changed = false;
 
-            if (!timeInputAction.getValue().isEmpty()) {
+            if (timeInputAction.hasNanoOfDay()) {
+                changed = timeInput.setValue(LocalTime.ofNanoOfDay(timeInputAction.getNanoOfDay()));
+            } else if (!timeInputAction.getValue().isEmpty()) {
                 LocalTime value = LocalTime.parse(timeInputAction.getValue(), DateTimeFormatter.ISO_LOCAL_TIME);
                 changed = timeInput.setValue(value);
             }
@@ -511,15 +900,13 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 timeInput.onChange(timeInputAction.getArgsList(), timeInputAction.getKwargsMap());
             }
             log.debug("TimeInput action: {}", timeInput);
-        } else {
-            log.warn("TimeInput not found for key: {}", key);
         }
     }
 
     private void handleNumberInputAction(NumberInputAction numberInputAction) {
-        String key = numberInputAction.getKey();
-        NumberInput numberInput = (NumberInput) getWidget(key);
+        NumberInput numberInput = getWidget(numberInputAction.getId(), numberInputAction.getKey(), NumberInput.class);
         if (numberInput != null) {
+            String key = numberInput.getKey();
             Number newValue = getIntOrFloat(numberInputAction.getValue());
             boolean changed = numberInput.setValue(newValue);
             if (changed) {
@@ -531,55 +918,50 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
                 numberInput.onChange(numberInputAction.getArgsList(), numberInputAction.getKwargsMap());
             }
             log.debug("NumberInput action: {}", numberInput);
-        } else {
-            log.warn("NumberInput not found for key: {}", key);
         }
     }
 
     private void handleTextInputAction(TextInputAction textInputAction) {
-        String key = textInputAction.getKey();
-        TextInput textInput = (TextInput) getWidget(key);
+        TextInput textInput = getWidget(textInputAction.getId(), textInputAction.getKey(), TextInput.class);
         if (textInput != null) {
+            String key = textInput.getKey();
             boolean changed = textInput.setValue(textInputAction.getValue());
             if (changed) {
                 log.debug("TextInput '{}' changed from '{}' to '{}'", key, textInput.getPreviousValue(), textInput.getValue());
                 textInput.onChange(textInputAction.getArgsList(), textInputAction.getKwargsMap());
             }
             log.debug("TextInput action: {}", textInput);
-        } else {
-            log.warn("TextInput not found for key: {}", key);
         }
     }
 
     private void handleSliderAction(SliderAction sliderAction) {
-        String key = sliderAction.getKey();
-        Widget<?> slider = getWidget(key);
-
+        Widget<?> slider = getWidget(sliderAction.getId(), sliderAction.getKey(), Widget.class);
         if (slider != null) {
+            String key = slider.getKey();
             boolean changed =
                 switch (slider) {
 
-                    case IntegerSlider iSlider -> iSlider.setValue(sliderAction.getValueSingle().getValueInt());
+                    case IntegerSlider iSlider -> iSlider.setInt(sliderAction.getValueSingle().getValueInt());
 
-                    case FloatSlider fSlider -> fSlider.setValue(sliderAction.getValueSingle().getValueFloat());
+                    case FloatSlider fSlider -> fSlider.setFloat(sliderAction.getValueSingle().getValueFloat());
 
-                    case DateSlider dateSlider -> dateSlider.setValue(
-                        LocalDate.parse(sliderAction.getValueSingle().getValueDatetime()));
+                    case DateSlider dateSlider -> dateSlider.setValue(getDate(sliderAction.getValueSingle()));
 
-                    case TimeSlider timeSlider -> timeSlider.setValue(
-                        LocalTime.parse(sliderAction.getValueSingle().getValueDatetime()));
+                    case TimeSlider timeSlider -> timeSlider.setValue(getTime(sliderAction.getValueSingle()));
 
-                    case IntegerRangeSlider iRangeSlider -> iRangeSlider.setValue(
-                        MutablePair.of(
-                            sliderAction.getValueRange().getFromValueInt(),
-                            sliderAction.getValueRange().getToValueInt()));
+                    case IntegerRangeSlider iRangeSlider -> iRangeSlider.setRange(
+                        sliderAction.getValueRange().getFromValueInt(),
+                        sliderAction.getValueRange().getToValueInt());
 
-                    case FloatRangeSlider fRangeSlider -> fRangeSlider.setValue(
-                        MutablePair.of(
-                            sliderAction.getValueRange().getFromValueFloat(),
-                            sliderAction.getValueRange().getToValueFloat()));
+                    case FloatRangeSlider fRangeSlider -> fRangeSlider.setRange(
+                        sliderAction.getValueRange().getFromValueFloat(),
+                        sliderAction.getValueRange().getToValueFloat());
 
-                    default -> throw new StreamlitException("Unsupported slider type: " + slider.getClass());
+                    default -> {
+                        log.warn("{} '{}' does not match the type of the slider action, ignored",
+                            slider.getClass().getSimpleName(), key);
+                        yield false;
+                    }
                 };
 
             if (changed) {
@@ -592,11 +974,31 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
             }
             log.debug("Slider action: {}", slider);
 
-        } else {
-            log.warn("Slider not found for key: {}", key);
         }
     }
 
+    /**
+     * Returns the widget an action is meant for, or null if there is no such widget or if it is not of the type of the
+     * action - e.g. its key was reused by another widget: the action is then logged and ignored.
+     */
+    private <W extends Widget<?>> W getWidget(int widgetId, String widgetKey, Class<W> type) {
+        Widget<?> widget = getWidget(widgetId, widgetKey);
+        if (widget == null) {
+            log.warn("{} not found for key: {}", type.getSimpleName(), widgetKey(widgetId, widgetKey));
+            return null;
+        }
+        if (!type.isInstance(widget)) {
+            log.warn("{} '{}' does not match the type of the action, a {} is expected",
+                widget.getClass().getSimpleName(), widget.getKey(), type.getSimpleName());
+            return null;
+        }
+        return type.cast(widget);
+    }
+
+    private static String widgetKey(int widgetId, String widgetKey) {
+        return widgetId != 0 ? Widget.keyOf(widgetId) : widgetKey;
+    }
+
     private static Number getIntOrFloat(IntOrFloat value) {
         if (value.hasI()) {
             return value.getI();
@@ -605,4 +1007,18 @@ class GrpcStreamlitSessionContext implements StreamlitSessionContext {
         }
         return null;
     }
+
+    // Sent as an epoch day by clients supporting TEMPORAL_NUMBERS, else as an ISO string
+    private static LocalDate getDate(ValueSingle value) {
+        return value.hasValueEpochDay()
+            ? LocalDate.ofEpochDay(value.getValueEpochDay())
+            : LocalDate.parse(value.getValueDatetime());
+    }
+
+    // Sent as a nano of day by clients supporting TEMPORAL_NUMBERS, else as an ISO string
+    private static LocalTime getTime(ValueSingle value) {
+        return value.hasValueNanoOfDay()
+            ? LocalTime.ofNanoOfDay(value.getValueNanoOfDay())
+            : LocalTime.parse(value.getValueDatetime());
+    }
 }
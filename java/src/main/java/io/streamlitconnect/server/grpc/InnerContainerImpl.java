@@ -20,7 +20,7 @@ class InnerContainerImpl extends ContainerImpl implements InnerContainer {
         int height, // <= 0 means auto height
         boolean border
     ) {
-        super("inner_" + Utils.randomKeySuffix(), parent, context);
+        super("inner_" + context.nextKeySuffix(), parent, context);
         this.height = height;
         this.border = border;
     }
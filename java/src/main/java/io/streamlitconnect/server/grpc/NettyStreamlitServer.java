@@ -1,7 +1,9 @@
 package io.streamlitconnect.server.grpc;
 
+import io.grpc.BindableService;
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import io.streamlitconnect.Config;
@@ -9,28 +11,46 @@ import io.streamlitconnect.StreamlitApp;
 import io.streamlitconnect.StreamlitAppManager;
 import io.streamlitconnect.StreamlitException;
 import io.streamlitconnect.StreamlitServer;
+import io.streamlitconnect.metrics.MetricsRegistry;
+import io.streamlitconnect.metrics.MetricsSink.RequestKind;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ClientCapability;
 import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.StreamlitNavigation;
 import io.streamlitconnect.server.grpc.gen.StreamlitNavigationProto.StreamlitNavigationRequest;
 import io.streamlitconnect.server.grpc.gen.StreamlitNavigationServiceGrpc.StreamlitNavigationServiceImplBase;
 import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc.StreamlitOperationServiceImplBase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.OperationBatch;
 import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
 import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
 import io.streamlitconnect.server.grpc.gen.StreamlitPingPongProto.PingRequest;
 import io.streamlitconnect.server.grpc.gen.StreamlitPingPongProto.PongResponse;
 import io.streamlitconnect.server.grpc.gen.StreamlitPingPongServiceGrpc.StreamlitPingPongServiceImplBase;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionRequestFrame;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionResponseFrame;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionServiceGrpc.StreamlitSessionServiceImplBase;
+import io.streamlitconnect.server.grpc.gen.StreamlitStatsProto.MetricSample;
+import io.streamlitconnect.server.grpc.gen.StreamlitStatsProto.StatsRequest;
+import io.streamlitconnect.server.grpc.gen.StreamlitStatsProto.StatsResponse;
+import io.streamlitconnect.server.grpc.gen.StreamlitStatsServiceGrpc.StreamlitStatsServiceImplBase;
 import io.streamlitconnect.utils.StringUtils;
+import io.streamlitconnect.widgets.Widget;
+import io.streamlitconnect.widgets.WidgetKeyScope;
 import java.io.IOException;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.NonNull;
-import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -66,6 +86,35 @@ public class NettyStreamlitServer implements StreamlitServer {
         }
     }
 
+    private class StreamlitStatsServiceImpl extends StreamlitStatsServiceImplBase {
+
+        @Override
+        public void getStats(
+            StatsRequest request,
+            StreamObserver<StatsResponse> responseObserver
+        ) {
+            if (!(config.getMetricsSink() instanceof MetricsRegistry registry)) {
+                responseObserver.onError(Status.UNIMPLEMENTED
+                    .withDescription("Stats are only available with the default metrics registry")
+                    .asRuntimeException());
+                return;
+            }
+
+            StatsResponse.Builder response = StatsResponse.newBuilder();
+            for (MetricsRegistry.Sample sample : registry.samples()) {
+                if (sample.name().startsWith(request.getNamePrefix())) {
+                    response.addSamples(MetricSample.newBuilder()
+                        .setName(sample.name())
+                        .putAllLabels(sample.labels())
+                        .setValue(sample.value()));
+                }
+            }
+
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+    }
+
     private class StreamlitNavigationServiceImpl extends StreamlitNavigationServiceImplBase {
 
         @Override
@@ -79,50 +128,7 @@ public class NettyStreamlitServer implements StreamlitServer {
             log.debug("Received navigation request: {}", request);
             configureObserver(responseObserver, sessionId, seq);
 
-            // Get an existing session context or create a new one if not present
-            GrpcStreamlitSessionContext sessionContext = getSessionContext(sessionId, request.getApp());
-
-            sessionContext.lock.lock();
-            try {
-                if (seq <= sessionContext.getCurrentSequenceNumber()) {
-                    log.debug("Ignoring navigation request for session: {} seq: {}", sessionId, seq);
-                    responseObserver.onError(new StreamlitException(
-                        "Ignoring navigation request for session: " + sessionId + " seq: " + seq));
-                    return;
-                }
-
-                sessionContext.setCurrentSequenceNumber(seq);
-
-                // Create a new navigation request context
-                GrpcNavigationRequestContext navContext = new GrpcNavigationRequestContext(
-                    sessionContext,
-                    seq,
-                    request,
-                    responseObserver);
-
-                sessionContext.setCurrentNavReqContext(navContext);
-
-                // Get the app
-                StreamlitApp app = appManager.getOrCreateApp(sessionContext);
-
-                // Run the navigation request
-                requestExecutor.submit(() -> {
-                    try {
-                        navContext.handleRequest(app);
-                    } catch(RuntimeException e) {
-                        log.error("Error handling navigation request: {}", e.getMessage(), e);
-                        navContext.cancel();
-                        throw e;
-                    }
-                });
-
-                // Wait for the navigation request to finish
-                sessionContext.waitForNavReqToFinish();
-
-            } finally {
-                sessionContext.lock.unlock();
-            }
-            MDC.clear();
+            handleNavigationRequest(request, responseObserver);
         }
 
         private void configureObserver(StreamObserver<StreamlitNavigation> responseObserver, String sessionId, long seq) {
@@ -131,6 +137,8 @@ public class NettyStreamlitServer implements StreamlitServer {
 
             serverCallStreamObserver.setOnCancelHandler(() -> {
                 log.debug("Streamlit navigation stream cancelled for session: {} seq: {}", sessionId, seq);
+                config.getMetricsSink().requestCancelled(RequestKind.NAVIGATION);
+                cancelRequest(sessionId, responseObserver);
             });
         }
     }
@@ -146,78 +154,169 @@ public class NettyStreamlitServer implements StreamlitServer {
             int seq = request.getSeq();
             Utils.prepareMDC(sessionId, seq);
             log.debug("Received operation request: {}", request);
-            configureObserver(responseObserver, sessionId, seq);
+            FlowControl flowControl = configureObserver(responseObserver, sessionId, seq);
 
-            GrpcStreamlitSessionContext sessionContext = getSessionContext(sessionId, request.getApp());
-
-            sessionContext.lock.lock();
-            try {
-                if (seq < sessionContext.getCurrentSequenceNumber()) {
-                    log.debug("Ignoring operations request for session: {} seq: {}", sessionId, seq);
-                    responseObserver.onError(new StreamlitException(
-                        "Ignoring operation request for session: " + sessionId + " seq: " + seq));
-                    return;
-                }
+            handleOperationsRequest(request, responseObserver, false, flowControl);
+        }
 
-                sessionContext.setCurrentSequenceNumber(seq);
+        @Override
+        public void getOperationBatches(
+            StreamlitOperationsRequest request,
+            StreamObserver<OperationBatch> responseObserver
+        ) {
+            String sessionId = request.getSessionId();
+            int seq = request.getSeq();
+            Utils.prepareMDC(sessionId, seq);
+            log.debug("Received operation batches request: {}", request);
+            FlowControl flowControl = configureObserver(responseObserver, sessionId, seq);
 
-                // Create a new operations request context
-                GrpcOperationsRequestContext opsContext = new GrpcOperationsRequestContext(
-                    sessionContext,
-                    seq,
-                    request,
-                    responseObserver);
+            handleOperationsRequest(request, responseObserver, true, flowControl);
+        }
 
-                sessionContext.setCurrentOpsReqContext(opsContext);
+        private FlowControl configureObserver(StreamObserver<?> responseObserver, String sessionId, long seq) {
+            ServerCallStreamObserver<?> serverCallStreamObserver = (ServerCallStreamObserver<?>) responseObserver;
 
-                // Get the app
-                StreamlitApp app = appManager.getOrCreateApp(sessionContext);
+            serverCallStreamObserver.setOnCancelHandler(() -> {
+                log.debug("Streamlit operation stream cancelled for session: {} seq: {}", sessionId, seq);
+                config.getMetricsSink().requestCancelled(RequestKind.OPERATIONS);
+                cancelRequest(sessionId, responseObserver);
+            });
 
-                // Run the ops request
-                requestExecutor.submit(() -> {
-                    try {
-                        opsContext.handleRequest(app);
-                    } catch (RuntimeException e) {
-                        log.error("Error handling ops request: {}", e.getMessage(), e);
-                        opsContext.cancel();
-                        throw e;
-                    }
-                });
+            return new FlowControl(serverCallStreamObserver, queueMetrics);
+        }
 
-                // Wait for the ops request to finish
-                log.debug("Waiting for ops request '{}' to finish for session: {}", request, sessionId);
-                sessionContext.waitForOpsReqToFinish();
-                log.debug("Ops request '{}' finished for session: {}", request, sessionId);
+    }
 
-            } finally {
-                sessionContext.lock.unlock();
-            }
+    private class StreamlitSessionServiceImpl extends StreamlitSessionServiceImplBase {
 
-            MDC.clear();
-        }
+        @Override
+        public StreamObserver<SessionRequestFrame> sessionChannel(StreamObserver<SessionResponseFrame> responseObserver) {
+            ServerCallStreamObserver<SessionResponseFrame> serverCallStreamObserver =
+                (ServerCallStreamObserver<SessionResponseFrame>) responseObserver;
 
-        private void configureObserver(StreamObserver<StreamlitOperation> responseObserver, String sessionId, long seq) {
-            ServerCallStreamObserver<StreamlitOperation> serverCallStreamObserver =
-                (ServerCallStreamObserver<StreamlitOperation>) responseObserver;
+            // The requests answered on the channel, cancelled with it rather than render for nobody
+            Set<SessionFrameObserver<?>> openRequests = ConcurrentHashMap.newKeySet();
 
             serverCallStreamObserver.setOnCancelHandler(() -> {
-                log.debug("Streamlit operation stream cancelled for session: {} seq: {}", sessionId, seq);
+                log.debug("Streamlit session channel cancelled");
+                cancelRequests(openRequests);
             });
+
+            // Shared by all requests on the channel, as they share its transport
+            FlowControl flowControl = new FlowControl(serverCallStreamObserver, queueMetrics);
+            Lock channelLock = new ReentrantLock();
+
+            return new StreamObserver<>() {
+
+                @Override
+                public void onNext(SessionRequestFrame frame) {
+                    handleFrame(frame, responseObserver, channelLock, openRequests, flowControl);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    log.debug("Streamlit session channel failed: {}", t.getMessage());
+                    cancelRequests(openRequests);
+                }
+
+                @Override
+                public void onCompleted() {
+                    log.debug("Streamlit session channel closed by client");
+                    channelLock.lock();
+                    try {
+                        responseObserver.onCompleted();
+                    } finally {
+                        channelLock.unlock();
+                    }
+                }
+            };
+        }
+
+        private void handleFrame(
+            SessionRequestFrame frame,
+            StreamObserver<SessionResponseFrame> channel,
+            Lock channelLock,
+            Set<SessionFrameObserver<?>> openRequests,
+            FlowControl flowControl
+        ) {
+            switch (frame.getFrameCase()) {
+                case NAVIGATION_REQUEST -> {
+                    StreamlitNavigationRequest request = frame.getNavigationRequest();
+                    Utils.prepareMDC(request.getSessionId(), request.getSeq());
+                    log.debug("Received navigation request on session channel: {}", request);
+                    SessionFrameObserver<StreamlitNavigation> observer = new SessionFrameObserver<>(channel,
+                        channelLock, openRequests, request.getSessionId(), request.getSeq(), RequestKind.NAVIGATION,
+                        SessionResponseFrame.Builder::setNavigation);
+                    openRequests.add(observer);
+                    handleNavigationRequest(request, observer);
+                }
+                case OPERATIONS_REQUEST -> {
+                    StreamlitOperationsRequest request = frame.getOperationsRequest();
+                    Utils.prepareMDC(request.getSessionId(), request.getSeq());
+                    log.debug("Received operation request on session channel: {}", request);
+                    boolean batchOperations =
+                        request.getCapabilitiesList().contains(ClientCapability.OPERATION_BATCHES);
+                    SessionFrameObserver<?> observer;
+                    if (batchOperations) {
+                        observer = new SessionFrameObserver<OperationBatch>(channel, channelLock, openRequests,
+                            request.getSessionId(), request.getSeq(), RequestKind.OPERATIONS,
+                            SessionResponseFrame.Builder::setOperationBatch);
+                    } else {
+                        observer = new SessionFrameObserver<StreamlitOperation>(channel, channelLock, openRequests,
+                            request.getSessionId(), request.getSeq(), RequestKind.OPERATIONS,
+                            SessionResponseFrame.Builder::setOperation);
+                    }
+                    openRequests.add(observer);
+                    handleOperationsRequest(request, observer, batchOperations, flowControl);
+                }
+                default -> log.warn("Ignoring empty frame on session channel");
+            }
+        }
+
+        /**
+         * Cancels the requests of a cancelled or failed session channel: those started are stopped right away, those
+         * still waiting to be started are cancelled as they start.
+         */
+        private void cancelRequests(Set<SessionFrameObserver<?>> openRequests) {
+            for (SessionFrameObserver<?> request : List.copyOf(openRequests)) {
+                log.debug("Cancelling request for session: {} seq: {} of the session channel",
+                    request.getSessionId(), request.getSeq());
+                request.cancel();
+                config.getMetricsSink().requestCancelled(request.getKind());
+                cancelRequest(request.getSessionId(), request);
+            }
         }
 
     }
 
     private static final Logger log = LoggerFactory.getLogger(NettyStreamlitServer.class);
 
-    // sessionId -> GrpcStreamlitContext
-    private final ConcurrentHashMap<String, GrpcStreamlitSessionContext> sessions = new ConcurrentHashMap<>();
+    // The sessions and their apps, bounded by the configured limits
+    private SessionRegistry sessions;
 
     private final AtomicReference<Server> server = new AtomicReference<>();
 
     private StreamlitAppManager appManager;
 
+    private NettyTransport transport;
+
+    private PrometheusEndpoint metricsEndpoint;
+
+    private Config config;
+
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
 
+    private final OperationQueueMetrics queueMetrics = new OperationQueueMetrics();
+
+    private SessionExpiryWheel expiryWheel;
+
+    // Both null if passivation is disabled
+    private SessionPassivator passivator;
+
+    private SessionExpiryWheel passivationWheel;
+
+    private final LongAdder evictedSessions = new LongAdder();
+
     private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, Thread.ofVirtual().factory());
@@ -227,30 +326,28 @@ public class NettyStreamlitServer implements StreamlitServer {
 
     @Override
     public void start(@NonNull StreamlitAppManager appManager, @NonNull Config config) {
+        NettyTransport nettyTransport = new NettyTransport(config.getTransport());
         try {
             boolean started = server.compareAndSet(
                 null,
-                ServerBuilder.forPort(config.getGrpcServerPort())
-                    .addService(new NettyStreamlitServer.StreamlitPingPongServiceImpl())
-                    .addService(new NettyStreamlitServer.StreamlitOperationServiceImpl())
-                    .addService(new NettyStreamlitServer.StreamlitNavigationServiceImpl())
-                    .build()
-                    .start()
+                nettyTransport.build(config.getGrpcServerPort(), bindServices(appManager, config)).start()
             );
             if (!started) {
+                nettyTransport.shutdown();
                 log.error("Server already started");
                 throw new StreamlitException("Server already started");
             }
+            transport = nettyTransport;
             isRunning.set(true);
         } catch (IOException e) {
+            nettyTransport.shutdown();
             log.error("Error staring server: {}", e.getMessage(), e);
             throw new StreamlitException(e);
         }
 
         log.info("Streamlit gRPC server started successfully on port {}", config.getGrpcServerPort());
 
-        this.appManager = appManager;
-
+        startMetricsEndpoint(config);
         scheduleEviction(config);
 
         log.info("Awaiting termination...");
@@ -265,6 +362,36 @@ public class NettyStreamlitServer implements StreamlitServer {
         }
     }
 
+    /**
+     * Binds the server to the given app manager and configuration, and returns the services to serve. Used by
+     * {@link #start(StreamlitAppManager, Config)}, and to serve the services on another transport (e.g. in-process).
+     *
+     * @param appManager The app manager.
+     * @param config     The configuration.
+     * @return The services of the server.
+     */
+    List<BindableService> bindServices(@NonNull StreamlitAppManager appManager, @NonNull Config config) {
+        this.appManager = appManager;
+        this.config = config;
+        this.sessions = new SessionRegistry(config, this::evictSession);
+        this.expiryWheel = new SessionExpiryWheel(
+            TimeUnit.SECONDS.toMillis(config.getEvictionTimeoutSeconds()),
+            config.getEvictionTickMillis(),
+            System.currentTimeMillis());
+        if (config.getPassivationIdleSeconds() > 0) {
+            long idleMillis = TimeUnit.SECONDS.toMillis(config.getPassivationIdleSeconds());
+            this.passivator = new SessionPassivator(config.getSessionStore(), idleMillis);
+            this.passivationWheel = new SessionExpiryWheel(
+                idleMillis, config.getEvictionTickMillis(), System.currentTimeMillis());
+        }
+        return List.of(
+            new NettyStreamlitServer.StreamlitPingPongServiceImpl(),
+            new NettyStreamlitServer.StreamlitStatsServiceImpl(),
+            new NettyStreamlitServer.StreamlitOperationServiceImpl(),
+            new NettyStreamlitServer.StreamlitNavigationServiceImpl(),
+            new NettyStreamlitServer.StreamlitSessionServiceImpl());
+    }
+
     @Override
     public void stop() {
         if (server.get() != null && (!server.get().isShutdown()) && isRunning.compareAndSet(true, false)) {
@@ -274,29 +401,245 @@ public class NettyStreamlitServer implements StreamlitServer {
                 log.error("Error stopping gRPC server: {}", e.getMessage(), e);
                 throw new StreamlitException(e);
             } finally {
-                sessions.forEach((sessionId, context) -> {
-                    context.close();
+                sessions.removeAll().forEach(context -> {
+                    closeSession(context);
+                    config.getMetricsSink().sessionRemoved(context.getAppName(), false);
                 });
                 scheduler.shutdown();
-                sessions.clear();
+                requestExecutor.shutdownNow();
+                config.getSessionStore().close();
                 server.set(null);
+                transport.shutdown();
+                if (metricsEndpoint != null) {
+                    metricsEndpoint.stop();
+                    metricsEndpoint = null;
+                }
             }
             log.info("Streamlit gRPC server stopped");
         }
     }
 
-    private @NotNull GrpcStreamlitSessionContext getSessionContext(String sessionId, String appName
+    /**
+     * Returns the registered context of the session, or null if there is none.
+     */
+    GrpcStreamlitSessionContext getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * Returns the number of live sessions.
+     */
+    int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of sessions evicted for inactivity or to make room for new sessions, since the server was
+     * created.
+     */
+    long getEvictedSessionCount() {
+        return evictedSessions.sum();
+    }
+
+    private void handleNavigationRequest(
+        StreamlitNavigationRequest request,
+        StreamObserver<StreamlitNavigation> responseObserver
+    ) {
+        // Get an existing session context or create a new one if not present
+        GrpcStreamlitSessionContext sessionContext;
+        try {
+            sessionContext = getSessionContext(request.getSessionId(), request.getApp());
+        } catch (StatusRuntimeException e) {
+            rejectSession(request.getApp(), responseObserver, e);
+            return;
+        }
+
+        // Start the request on the session's mailbox - the response is completed asynchronously
+        sessionContext.post(() -> startNavigationRequest(sessionContext, request, responseObserver));
+        MDC.clear();
+    }
+
+    private void startNavigationRequest(
+        GrpcStreamlitSessionContext sessionContext,
+        StreamlitNavigationRequest request,
+        StreamObserver<StreamlitNavigation> responseObserver
+    ) {
+        String sessionId = request.getSessionId();
+        int seq = request.getSeq();
+        Utils.prepareMDC(sessionId, seq);
+
+        if (!sessionContext.advanceSequenceNumber(seq, false)) {
+            log.debug("Ignoring navigation request for session: {} seq: {}", sessionId, seq);
+            sessionContext.getMetrics().requestSuperseded(RequestKind.NAVIGATION);
+            responseObserver.onError(new StreamlitException(
+                "Ignoring navigation request for session: " + sessionId + " seq: " + seq));
+            return;
+        }
+
+        // Create a new navigation request context
+        GrpcNavigationRequestContext navContext = new GrpcNavigationRequestContext(
+            sessionContext,
+            seq,
+            request,
+            responseObserver);
+
+        sessionContext.setCurrentNavReqContext(navContext);
+        if (isCallCancelled(responseObserver)) {
+            navContext.cancel(); // Cancelled by the client before its context was current
+        }
+
+        // Run the navigation request
+        requestExecutor.submit(() -> {
+            try {
+                StreamlitApp app = getOrCreateApp(sessionContext);
+                if (app == null) {
+                    navContext.cancel(); // The session was removed meanwhile
+                    return;
+                }
+                navContext.handleRequest(app);
+            } catch (RuntimeException e) {
+                log.error("Error handling navigation request: {}", e.getMessage(), e);
+                navContext.cancel();
+                throw e;
+            }
+        });
+    }
+
+    private void handleOperationsRequest(
+        StreamlitOperationsRequest request,
+        StreamObserver<?> responseObserver,
+        boolean batchOperations,
+        FlowControl flowControl
     ) {
+        GrpcStreamlitSessionContext sessionContext;
+        try {
+            sessionContext = getSessionContext(request.getSessionId(), request.getApp());
+        } catch (StatusRuntimeException e) {
+            rejectSession(request.getApp(), responseObserver, e);
+            return;
+        }
+
+        // Queue the request, coalescing it with a request of the session still waiting to be started
+        PendingOperationsRequest pending =
+            new PendingOperationsRequest(request, responseObserver, batchOperations, flowControl);
+        PendingOperationsRequest dropped = sessionContext.queueOperationsRequest(pending);
+        if (dropped != null) {
+            log.debug("Coalesced operations request for session: {} seq: {}", request.getSessionId(), dropped.getSeq());
+            sessionContext.getMetrics().requestSuperseded(RequestKind.OPERATIONS);
+            dropped.endDropped();
+        }
+
+        if (dropped != pending) {
+            // Start the request on the session's mailbox, once the debounce window passed without a newer request -
+            // the response is completed asynchronously
+            Runnable start = () -> sessionContext.post(() -> startOperationsRequest(sessionContext, pending));
+            int debounceMillis = config.getRerunDebounceMillis();
+            if (debounceMillis > 0) {
+                try {
+                    scheduler.schedule(start, debounceMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    start.run(); // Stopping
+                }
+            } else {
+                start.run();
+            }
+        }
+        MDC.clear();
+    }
+
+    private void startOperationsRequest(GrpcStreamlitSessionContext sessionContext, PendingOperationsRequest pending) {
+        if (!sessionContext.takeOperationsRequest(pending)) {
+            return; // Dropped, coalesced with a newer request
+        }
+
+        StreamlitOperationsRequest request = pending.getRequest();
+        StreamObserver<?> responseObserver = pending.getResponseObserver();
+        String sessionId = request.getSessionId();
+        int seq = request.getSeq();
+        Utils.prepareMDC(sessionId, seq);
+
+        if (!sessionContext.advanceSequenceNumber(seq, true)) {
+            log.debug("Ignoring operations request for session: {} seq: {}", sessionId, seq);
+            sessionContext.getMetrics().requestSuperseded(RequestKind.OPERATIONS);
+            responseObserver.onError(new StreamlitException(
+                "Ignoring operation request for session: " + sessionId + " seq: " + seq));
+            return;
+        }
+
+        // Get an operations request context, reused from a previous rerun if possible
+        GrpcOperationsRequestContext opsContext = sessionContext.acquireOpsReqContext(
+            seq,
+            request,
+            responseObserver,
+            pending.isBatchOperations(),
+            pending.getFlowControl());
+
+        sessionContext.setCurrentOpsReqContext(opsContext);
+        if (isCallCancelled(responseObserver)) {
+            opsContext.cancel(); // Cancelled by the client before its context was current
+        }
+
+        // Run the ops request
+        requestExecutor.submit(() -> {
+            try {
+                StreamlitApp app = getOrCreateApp(sessionContext);
+                if (app == null) {
+                    opsContext.cancel(); // The session was removed meanwhile
+                    return;
+                }
+                opsContext.handleRequest(app);
+            } catch (RuntimeException e) {
+                log.error("Error handling ops request: {}", e.getMessage(), e);
+                opsContext.cancel();
+                throw e;
+            } finally {
+                // The rerun may have changed the weight of the session
+                sessions.reweigh(sessionContext);
+                sessionContext.releaseOpsReqContext(opsContext);
+            }
+        });
+    }
+
+    /**
+     * Cancels the request of the session answered through the given observer, its call having been cancelled by the
+     * client: the rerun stops rather than render for nobody.
+     */
+    private void cancelRequest(String sessionId, StreamObserver<?> responseObserver) {
+        GrpcStreamlitSessionContext sessionContext = sessions.get(sessionId);
+        if (sessionContext != null) {
+            sessionContext.cancelRequest(responseObserver);
+        }
+    }
+
+    private static boolean isCallCancelled(StreamObserver<?> responseObserver) {
+        return responseObserver instanceof ServerCallStreamObserver<?> call && call.isCancelled()
+            || responseObserver instanceof SessionFrameObserver<?> request && request.isCancelled();
+    }
+
+    /**
+     * Returns the context of the session, creating it if not present.
+     *
+     * @throws StatusRuntimeException With status {@code RESOURCE_EXHAUSTED} if the session is new and there is no room
+     *                                for it.
+     */
+    private GrpcStreamlitSessionContext getSessionContext(String sessionId, String appName) {
         if (org.apache.commons.lang3.StringUtils.isBlank(appName)) {
             appName = null;
         }
 
         final String fAppName = appName;
 
-        // Get an existing context or create a new one if not present
-        GrpcStreamlitSessionContext context = sessions.computeIfAbsent(
+        // Get an existing context or create a new one if not present and admitted
+        GrpcStreamlitSessionContext context = sessions.getOrCreate(
             sessionId,
-            key -> new GrpcStreamlitSessionContext(sessionId, fAppName)
+            () -> new GrpcStreamlitSessionContext(sessionId, fAppName, config, queueMetrics, requestExecutor),
+            newContext -> {
+                config.getMetricsSink().sessionCreated(fAppName);
+                expiryWheel.add(newContext);
+                if (passivationWheel != null) {
+                    passivationWheel.add(newContext);
+                }
+            }
         );
 
         log.debug("Context for session: {} is:\n{}", sessionId, context);
@@ -304,35 +647,193 @@ public class NettyStreamlitServer implements StreamlitServer {
         return context;
     }
 
+    private void rejectSession(String appName, StreamObserver<?> responseObserver, StatusRuntimeException rejection) {
+        config.getMetricsSink().sessionRejected(
+            org.apache.commons.lang3.StringUtils.isBlank(appName) ? null : appName);
+        responseObserver.onError(rejection);
+        MDC.clear();
+    }
+
+    /**
+     * Returns the app of the session, creating it - or rehydrating the passivated session - if not present. Called by the
+     * requests rather than on the mailbox of the session: a slow app constructor only holds up the requests waiting for
+     * the app, while the mailbox goes on starting, superseding and cancelling requests.
+     *
+     * @return The app, or null if the session was removed from the registry, not to create an app nobody closes.
+     */
+    private StreamlitApp getOrCreateApp(GrpcStreamlitSessionContext sessionContext) {
+        StreamlitApp app = sessionContext.getApp();
+        if (app != null) {
+            return app;
+        }
+
+        // Created by the first request holding the lock, found by the requests waiting for it
+        sessionContext.getAppLock().lock();
+        try {
+            app = sessionContext.getApp();
+            if (app != null) {
+                return app;
+            }
+            if (sessions.get(sessionContext.getSessionId()) != sessionContext) {
+                return null;
+            }
+            if (sessionContext.isPassivated()) {
+                sessionContext.resetWidgetIds(); // The widgets of the closed app are gone
+            }
+            // Created in a key scope, so an app created again for the session gets the same widget keys
+            List<Widget<?>> widgets = new ArrayList<>();
+            try (WidgetKeyScope ignored = WidgetKeyScope.open(sessionContext.getWidgetIds(), widgets::add)) {
+                app = appManager.getOrCreateApp(sessionContext);
+            }
+            sessionContext.setApp(app);
+            if (sessionContext.isPassivated()) {
+                // Restored before the widgets are registered, so the restored values are not reported as changes
+                passivator.rehydrate(sessionContext, widgets);
+                passivationWheel.add(sessionContext);
+                config.getMetricsSink().sessionRehydrated(sessionContext.getAppName());
+                log.debug("Rehydrated session: {}", sessionContext.getSessionId());
+            }
+            // Pinned: the widgets of the app are kept across the reruns not rendering them, and registered right away,
+            // so the actions of a rehydrating request find their widgets
+            widgets.forEach(sessionContext::pinWidget);
+            return app;
+        } finally {
+            sessionContext.getAppLock().unlock();
+        }
+    }
+
+    private void startMetricsEndpoint(Config config) {
+        if (config.getMetricsPort() <= 0) {
+            return; // Disabled
+        }
+        if (!(config.getMetricsSink() instanceof MetricsRegistry registry)) {
+            log.warn("Metrics endpoint not started, metrics are reported to: {}", config.getMetricsSink());
+            return;
+        }
+        metricsEndpoint = PrometheusEndpoint.start(config.getMetricsPort(), registry);
+    }
+
     private void scheduleEviction(Config config) {
-        // Schedule a task to run every minute that removes inactive sessions
-        Runnable evictor = () -> {
-            sessions.forEach((sessionId, context) -> {
-                possiblyEvict(config, sessionId, context);
+        // Expire the sessions due in each tick of the wheel, rather than scanning all sessions
+        long tickMillis = config.getEvictionTickMillis();
+        ScheduledFuture<?> evictorHandle = scheduler.scheduleAtFixedRate(
+            this::evictInactiveSessions, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
 
-            });
-        };
+        ScheduledFuture<?> passivatorHandle = passivationWheel == null ? null : scheduler.scheduleAtFixedRate(
+            this::passivateIdleSessions, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+
+        ScheduledFuture<?> metricsHandle = scheduler.scheduleAtFixedRate(
+            () -> log.debug("Operation queue metrics: {}", queueMetrics), 1, 1, TimeUnit.MINUTES);
 
-        ScheduledFuture<?> evictorHandle = scheduler.scheduleAtFixedRate(evictor, 1, 1, TimeUnit.MINUTES);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            evictorHandle.cancel(true);
+            if (passivatorHandle != null) {
+                passivatorHandle.cancel(true);
+            }
+            metricsHandle.cancel(true);
+        }));
+    }
 
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> evictorHandle.cancel(true)));
+    private void evictInactiveSessions() {
+        try {
+            List<GrpcStreamlitSessionContext> expired = expiryWheel.expire(System.currentTimeMillis());
+            int evicted = 0;
+            for (GrpcStreamlitSessionContext context : expired) {
+                // Skip sessions already removed otherwise
+                if (sessions.remove(context)) {
+                    evictSession(context);
+                    evicted++;
+                }
+            }
+            if (evicted > 0) {
+                log.debug("Evicted {} inactive sessions", evicted);
+            }
+        } catch (RuntimeException e) {
+            // Keep the evictor scheduled
+            log.error("Error evicting inactive sessions: {}", e.getMessage(), e);
+        }
     }
 
-    private void possiblyEvict(Config config, String sessionId, GrpcStreamlitSessionContext context) {
-        if (context.getLastActivityAt() == null || !isInactive(context, config)) {
-            return; // Not an inactive session
+    private void passivateIdleSessions() {
+        try {
+            for (GrpcStreamlitSessionContext context : passivationWheel.expire(System.currentTimeMillis())) {
+                // Passivated on the mailbox of the session, so not while a request starts
+                context.post(() -> passivateSession(context));
+            }
+        } catch (RuntimeException e) {
+            // Keep the passivator scheduled
+            log.error("Error passivating idle sessions: {}", e.getMessage(), e);
         }
+    }
 
-        appManager.disposeSession(context.getSessionId());
-        sessions.remove(sessionId);
-        context.close();
-        log.info("Evicted inactive session: {}", sessionId);
+    /**
+     * Passivates the session if it is still idle. Runs on the mailbox of the session.
+     */
+    void passivateSession(GrpcStreamlitSessionContext context) {
+        int bytes;
+        // Not while the app is being created, or the session closed
+        context.getAppLock().lock();
+        try {
+            if (!passivator.isPassivatable(context)) {
+                // Still running a request or active again - unless closed or passivated meanwhile
+                if (context.getApp() != null && !context.isPassivated()) {
+                    passivationWheel.add(context);
+                }
+                return;
+            }
+
+            bytes = passivator.passivate(context);
+            if (bytes < 0) {
+                return; // Left as it is until evicted
+            }
+            appManager.disposeSession(context.getSessionId());
+        } finally {
+            context.getAppLock().unlock();
+        }
+        sessions.reweigh(context);
+        config.getMetricsSink().sessionPassivated(context.getAppName(), bytes);
+        log.debug("Passivated session: {} to {} bytes", context.getSessionId(), bytes);
     }
 
-    private boolean isInactive(GrpcStreamlitSessionContext context, Config config) {
-        long seconds = TimeUnit.MILLISECONDS.toSeconds(
-            Instant.now().toEpochMilli() - context.getLastActivityAt().toEpochMilli());
-        return seconds >= config.getEvictionTimeoutSeconds();
+    /**
+     * Closes a session removed from the registry, for inactivity or to make room for a new session.
+     */
+    private void evictSession(GrpcStreamlitSessionContext context) {
+        evictedSessions.increment();
+        config.getMetricsSink().sessionRemoved(context.getAppName(), true);
+
+        // Close on the mailbox of the session, so a slow close holds up neither the other sessions nor the next
+        // eviction, and the session is not passivated concurrently
+        context.post(() -> {
+            closeSession(context);
+            log.info("Evicted session: {}", context.getSessionId());
+        });
     }
-}
 
+    /**
+     * Closes a session removed from the registry: its app is closed and the app manager disposes of the session, once -
+     * a passivated session only has its stored state left.
+     */
+    void closeSession(GrpcStreamlitSessionContext context) {
+        String sessionId = context.getSessionId();
+        // Waits for an app being created, so it is closed rather than left behind - the session is removed already
+        context.getAppLock().lock();
+        try {
+            if (context.isPassivated()) {
+                // Its app was closed and disposed of by the passivation
+                config.getSessionStore().remove(sessionId);
+            } else {
+                StreamlitApp app = context.getApp();
+                if (app != null) {
+                    app.close();
+                }
+                appManager.disposeSession(sessionId);
+            }
+            context.close();
+        } catch (RuntimeException e) {
+            log.error("Error closing session: {}: {}", sessionId, e.getMessage(), e);
+        } finally {
+            context.getAppLock().unlock();
+        }
+    }
+}
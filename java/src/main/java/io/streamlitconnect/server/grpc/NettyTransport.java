@@ -0,0 +1,174 @@
+package io.streamlitconnect.server.grpc;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.BindableService;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.ServerChannel;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollServerSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.streamlitconnect.TransportConfig;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the Netty based gRPC server according to the {@link TransportConfig}, and owns the event loops and handler
+ * executor it creates - these are released by {@link #shutdown()} once the server is terminated.
+ */
+class NettyTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(NettyTransport.class);
+
+    private final TransportConfig config;
+
+    private final EventLoopGroup bossGroup;
+
+    private final EventLoopGroup workerGroup;
+
+    private final Class<? extends ServerChannel> channelType;
+
+    private final ExecutorService handlerExecutor;
+
+    NettyTransport(@NonNull TransportConfig config) {
+        this.config = config;
+
+        boolean epoll = config.isNativeTransport() && Epoll.isAvailable();
+        if (config.isNativeTransport() && !epoll) {
+            log.warn("Native epoll transport not available, falling back to NIO: {}", Epoll.unavailabilityCause().getMessage());
+        }
+
+        if (epoll) {
+            bossGroup = new EpollEventLoopGroup(config.getBossEventLoopThreads());
+            workerGroup = new EpollEventLoopGroup(config.getWorkerEventLoopThreads());
+            channelType = EpollServerSocketChannel.class;
+        } else {
+            bossGroup = new NioEventLoopGroup(config.getBossEventLoopThreads());
+            workerGroup = new NioEventLoopGroup(config.getWorkerEventLoopThreads());
+            channelType = NioServerSocketChannel.class;
+        }
+
+        handlerExecutor = config.getHandlerExecutor() == TransportConfig.HandlerExecutor.VIRTUAL_THREADS
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : null;
+    }
+
+    /**
+     * Builds the server for the given port and services.
+     *
+     * @param port     The port to listen on.
+     * @param services The services to serve.
+     * @return The server, not yet started.
+     */
+    Server build(int port, @NonNull List<BindableService> services) {
+        NettyServerBuilder builder = NettyServerBuilder.forPort(port)
+            .bossEventLoopGroup(bossGroup)
+            .workerEventLoopGroup(workerGroup)
+            .channelType(channelType)
+            .initialFlowControlWindow(config.getFlowControlWindowBytes())
+            .maxInboundMessageSize(config.getMaxInboundMessageBytes());
+
+        switch (config.getHandlerExecutor()) {
+            case DIRECT -> builder.directExecutor();
+            case VIRTUAL_THREADS -> builder.executor(handlerExecutor);
+            case DEFAULT -> {
+                // gRPC's shared cached thread pool
+            }
+        }
+
+        if (config.getKeepAliveTimeSeconds() > 0) {
+            builder.keepAliveTime(config.getKeepAliveTimeSeconds(), TimeUnit.SECONDS)
+                .keepAliveTimeout(config.getKeepAliveTimeoutSeconds(), TimeUnit.SECONDS);
+        }
+
+        if (config.getMaxConnectionIdleSeconds() > 0) {
+            builder.maxConnectionIdle(config.getMaxConnectionIdleSeconds(), TimeUnit.SECONDS);
+        }
+
+        for (BindableService service : services) {
+            if (config.getMaxOutboundMessageBytes() > 0) {
+                builder.addService(ServerInterceptors.intercept(
+                    service, new MaxOutboundMessageSizeInterceptor(config.getMaxOutboundMessageBytes())));
+            } else {
+                builder.addService(service);
+            }
+        }
+
+        log.debug("Built gRPC server with transport: {} ({})", config, channelType.getSimpleName());
+        return builder.build();
+    }
+
+    /**
+     * Releases the event loops and handler executor. To be called once the server is terminated.
+     */
+    void shutdown() {
+        bossGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        workerGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        if (handlerExecutor != null) {
+            handlerExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Closes a call with RESOURCE_EXHAUSTED instead of sending a protobuf message larger than the limit.
+     */
+    private static class MaxOutboundMessageSizeInterceptor implements ServerInterceptor {
+
+        private final int maxBytes;
+
+        MaxOutboundMessageSizeInterceptor(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next
+        ) {
+            return next.startCall(new SimpleForwardingServerCall<>(call) {
+
+                // Whether the call was closed for an oversized message - the handler's further sends are dropped
+                private volatile boolean exhausted;
+
+                @Override
+                public void sendMessage(RespT message) {
+                    if (exhausted) {
+                        return;
+                    }
+                    if (message instanceof MessageLite lite && lite.getSerializedSize() > maxBytes) {
+                        exhausted = true;
+                        super.close(Status.RESOURCE_EXHAUSTED.withDescription("Outbound message of "
+                            + lite.getSerializedSize() + " bytes exceeds the maximum of " + maxBytes + " bytes"),
+                            new Metadata());
+                        return;
+                    }
+                    super.sendMessage(message);
+                }
+
+                @Override
+                public void close(Status status, Metadata trailers) {
+                    if (!exhausted) {
+                        super.close(status, trailers);
+                    }
+                }
+            }, headers);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.OperationBatch;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Coalesces the operations of a request into {@link OperationBatch}es. The first operation is flushed right away, so the
+ * client can start painting, while later operations are collected until the batch reaches the configured maximum number of
+ * operations or bytes. A non-empty batch is also due once it has lingered for the configured time - the draining thread
+ * polls with {@link #remainingLingerNanos()} and calls {@link #flush()} when no further operation arrived in time.
+ * <p>
+ * Not thread-safe - used by the single thread draining the operations of a request.
+ */
+class OperationBatcher {
+
+    private final Consumer<OperationBatch> out;
+
+    private final int maxOps;
+
+    private final int maxBytes;
+
+    private final long lingerNanos;
+
+    private OperationBatch.Builder batch = OperationBatch.newBuilder();
+
+    private int batchBytes;
+
+    private long batchStartedAt;
+
+    private boolean firstFlushed;
+
+    @Getter
+    private int batchCount;
+
+    OperationBatcher(@NonNull Consumer<OperationBatch> out, @NonNull Config config) {
+        this.out = out;
+        this.maxOps = Math.max(1, config.getOpBatchMaxOps());
+        this.maxBytes = Math.max(1, config.getOpBatchMaxBytes());
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, config.getOpBatchLingerMicros()));
+    }
+
+    /**
+     * Adds an operation to the current batch, flushing the batch if it is due.
+     *
+     * @param operation The operation to send.
+     */
+    void add(@NonNull StreamlitOperation operation) {
+        if (batch.getOperationsCount() == 0) {
+            batchStartedAt = System.nanoTime();
+        }
+        batch.addOperations(operation);
+        batchBytes += operation.getSerializedSize();
+
+        if (!firstFlushed || batch.getOperationsCount() >= maxOps || batchBytes >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the current batch, if not empty.
+     */
+    void flush() {
+        if (batch.getOperationsCount() == 0) {
+            return;
+        }
+        out.accept(batch.build());
+        batch = OperationBatch.newBuilder();
+        batchBytes = 0;
+        firstFlushed = true;
+        batchCount++;
+    }
+
+    boolean hasPending() {
+        return batch.getOperationsCount() > 0;
+    }
+
+    /**
+     * Returns how long the current batch may still wait for further operations - zero or less when it is due.
+     *
+     * @return The remaining linger time in nanoseconds.
+     */
+    long remainingLingerNanos() {
+        return lingerNanos - (System.nanoTime() - batchStartedAt);
+    }
+
+}
@@ -0,0 +1,66 @@
+package io.streamlitconnect.server.grpc;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-wide metrics of the operation queues of all requests: the maximum queue depth reached, how often and how long
+ * render threads were parked on a full queue, and how often and how long the draining threads waited for the transport
+ * to become ready.
+ */
+class OperationQueueMetrics {
+
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder producerStalls = new LongAdder();
+
+    private final LongAdder producerStallNanos = new LongAdder();
+
+    private final LongAdder transportStalls = new LongAdder();
+
+    private final LongAdder transportStallNanos = new LongAdder();
+
+    void recordDepth(int depth) {
+        maxDepth.accumulate(depth);
+    }
+
+    void recordProducerStall(long nanos) {
+        producerStalls.increment();
+        producerStallNanos.add(nanos);
+    }
+
+    void recordTransportStall(long nanos) {
+        transportStalls.increment();
+        transportStallNanos.add(nanos);
+    }
+
+    long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    long getProducerStalls() {
+        return producerStalls.sum();
+    }
+
+    long getProducerStallNanos() {
+        return producerStallNanos.sum();
+    }
+
+    long getTransportStalls() {
+        return transportStalls.sum();
+    }
+
+    long getTransportStallNanos() {
+        return transportStallNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "OperationQueueMetrics{maxDepth=" + getMaxDepth()
+            + ", producerStalls=" + getProducerStalls()
+            + ", producerStallNanos=" + getProducerStallNanos()
+            + ", transportStalls=" + getTransportStalls()
+            + ", transportStallNanos=" + getTransportStallNanos() + "}";
+    }
+
+}
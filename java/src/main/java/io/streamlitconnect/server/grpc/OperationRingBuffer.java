@@ -0,0 +1,248 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.NonNull;
+
+/**
+ * Bounded ring buffer of the operations of a request, filled by the render thread (and the tasks it submits) and drained by
+ * the single thread sending the operations to the client. A producer putting an operation into a full buffer is parked
+ * until the consumer makes room, so a slow client throttles the render thread rather than piling up operations on the
+ * heap.
+ * <p>
+ * Once {@link #terminate(StreamlitOperation) terminated}, the buffer only holds the given last operation and drops any
+ * further operation put into it, so no producer can block on a buffer nobody drains anymore.
+ */
+class OperationRingBuffer {
+
+    private final StreamlitOperation[] items;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final OperationQueueMetrics metrics;
+
+    private int head;
+
+    private int tail;
+
+    private int count;
+
+    private boolean terminated;
+
+    private int highWaterMark;
+
+    private int stallCount;
+
+    private long stallNanos;
+
+    OperationRingBuffer(int capacity, @NonNull OperationQueueMetrics metrics) {
+        isTrue(capacity > 0, "capacity must be > 0");
+        this.items = new StreamlitOperation[capacity];
+        this.metrics = metrics;
+    }
+
+    /**
+     * Puts an operation into the buffer, parking the calling thread while the buffer is full.
+     *
+     * @param operation The operation to put.
+     * @return Whether the operation was put, false if the buffer is terminated.
+     * @throws InterruptedException If interrupted while parked.
+     */
+    boolean put(@NonNull StreamlitOperation operation) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (count == items.length && !terminated) {
+                long parkedAt = System.nanoTime();
+                while (count == items.length && !terminated) {
+                    notFull.await();
+                }
+                long parked = System.nanoTime() - parkedAt;
+                stallCount++;
+                stallNanos += parked;
+                metrics.recordProducerStall(parked);
+            }
+            if (terminated) {
+                return false;
+            }
+            enqueue(operation);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next operation, waiting until one is available.
+     *
+     * @return The next operation.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    StreamlitOperation take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next operation, waiting up to the given time until one is available.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return The next operation, or null if none became available in time.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    StreamlitOperation poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all buffered operations, leaving only the given last operation to be taken, and rejects any further operation.
+     * Parked producers are released.
+     *
+     * @param last The last operation to take from the buffer.
+     */
+    void terminate(@NonNull StreamlitOperation last) {
+        lock.lock();
+        try {
+            clearItems();
+            enqueue(last);
+            terminated = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all buffered operations.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            clearItems();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all buffered operations and accepts further ones again, with the statistics started over: as a new buffer.
+     */
+    void reset() {
+        lock.lock();
+        try {
+            clearItems();
+            terminated = false;
+            highWaterMark = 0;
+            stallCount = 0;
+            stallNanos = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Returns the maximum number of operations buffered at once.
+     */
+    int getHighWaterMark() {
+        lock.lock();
+        try {
+            return highWaterMark;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of times a producer was parked on a full buffer.
+     */
+    int getStallCount() {
+        lock.lock();
+        try {
+            return stallCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the total time producers were parked on a full buffer.
+     */
+    long getStallNanos() {
+        lock.lock();
+        try {
+            return stallNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(StreamlitOperation operation) {
+        items[tail] = operation;
+        tail = (tail + 1) % items.length;
+        count++;
+        if (count > highWaterMark) {
+            highWaterMark = count;
+            metrics.recordDepth(count);
+        }
+        notEmpty.signal();
+    }
+
+    private StreamlitOperation dequeue() {
+        StreamlitOperation operation = items[head];
+        items[head] = null;
+        head = (head + 1) % items.length;
+        count--;
+        notFull.signal();
+        return operation;
+    }
+
+    private void clearItems() {
+        Arrays.fill(items, null);
+        head = 0;
+        tail = 0;
+        count = 0;
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.stub.StreamObserver;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.OperationBatch;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An operations request of a session waiting to be started. While waiting, it may be coalesced with another request of
+ * the session: only the request with the higher sequence number is then rendered, with the actions of both, while the
+ * other one is dropped.
+ */
+@Getter(AccessLevel.PACKAGE)
+class PendingOperationsRequest {
+
+    // Replaced when the actions of a dropped request are merged into it
+    private StreamlitOperationsRequest request;
+
+    private final StreamObserver<?> responseObserver;
+
+    private final boolean batchOperations;
+
+    private final FlowControl flowControl;
+
+    PendingOperationsRequest(
+        @NonNull StreamlitOperationsRequest request,
+        @NonNull StreamObserver<?> responseObserver,
+        boolean batchOperations,
+        FlowControl flowControl
+    ) {
+        this.request = request;
+        this.responseObserver = responseObserver;
+        this.batchOperations = batchOperations;
+        this.flowControl = flowControl;
+    }
+
+    int getSeq() {
+        return request.getSeq();
+    }
+
+    /**
+     * Merges the actions of a dropped request, sent before this one, ahead of the actions of this request - so they are
+     * still applied, in the order they were made.
+     */
+    void mergeActionsOf(@NonNull PendingOperationsRequest dropped) {
+        if (dropped.request.getActionsCount() == 0) {
+            return;
+        }
+        request = request.toBuilder()
+            .clearActions()
+            .addAllActions(dropped.request.getActionsList())
+            .addAllActions(request.getActionsList())
+            .build();
+    }
+
+    /**
+     * Answers the request, dropped without being rendered, with a cancelled END signal: as for a cancelled rerun, the
+     * client shows nothing new and drops its retained operations of the page.
+     */
+    @SuppressWarnings("unchecked")
+    void endDropped() {
+        StreamlitOperation end = GrpcOperationsRequestContext.endSignal(false, true);
+        if (batchOperations) {
+            ((StreamObserver<OperationBatch>) responseObserver).onNext(
+                OperationBatch.newBuilder().addOperations(end).build());
+        } else {
+            ((StreamObserver<StreamlitOperation>) responseObserver).onNext(end);
+        }
+        responseObserver.onCompleted();
+    }
+
+}
@@ -15,7 +15,7 @@ class PlaceholderContainerImpl extends ContainerImpl implements PlaceholderConta
         ContainerImpl parent,
         GrpcOperationsRequestContext context
     ) {
-        super("placeholder_" + Utils.randomKeySuffix(), parent, context);
+        super("placeholder_" + context.nextKeySuffix(), parent, context);
     }
 
 
@@ -0,0 +1,84 @@
+package io.streamlitconnect.server.grpc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the metrics of a {@link MetricsRegistry} in the Prometheus text exposition format at {@code /metrics}, on the
+ * HTTP server of the JDK.
+ */
+class PrometheusEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusEndpoint.class);
+
+    private static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private PrometheusEndpoint(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving the metrics of the registry.
+     *
+     * @param port     The port to listen on.
+     * @param registry The registry to serve.
+     * @return The started endpoint.
+     */
+    static PrometheusEndpoint start(int port, @NonNull MetricsRegistry registry) {
+        HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            log.error("Error starting metrics endpoint: {}", e.getMessage(), e);
+            throw new StreamlitException(e);
+        }
+        server.createContext(PATH, exchange -> serve(exchange, registry));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+        log.info("Prometheus metrics endpoint started on port {}", port);
+        return new PrometheusEndpoint(server, executor);
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdown();
+        log.info("Prometheus metrics endpoint stopped");
+    }
+
+    private static void serve(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            registry.writePrometheus(text);
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.Container;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.widgets.WidgetKeyScope;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A container rendered on a thread of its own: in parallel with its siblings - see
+ * {@link Container#renderParallel(java.util.Map)} - or filled by a task - see
+ * {@link Container#deferred(java.util.function.Supplier)}. The operations emitted on the thread are buffered by the
+ * branch, rather than enqueued, and the keys of the containers created on it are derived from the key of the branch, so
+ * a rerun emits the same operations in the same order whatever the timing of its branches - as render deltas require.
+ * Likewise, the widgets created on the branch get ids derived from the key of the branch and their order on it, from
+ * blocks of ids the session keeps for the branch across reruns.
+ */
+final class RenderBranch {
+
+    private static final ThreadLocal<RenderBranch> CURRENT = new ThreadLocal<>();
+
+    private final GrpcOperationsRequestContext context;
+
+    private final String keyPrefix;
+
+    @Getter(AccessLevel.PACKAGE)
+    private final List<StreamlitOperation> operations = new ArrayList<>();
+
+    // The containers deferred within the branch, to be filled after those declared before the branch
+    @Getter(AccessLevel.PACKAGE)
+    private final List<Deferred> deferred = new ArrayList<>();
+
+    private int keySequence;
+
+    // The widgets created on the branch, and the first id of the current block of their ids
+    private int widgetCount;
+
+    private int widgetIdBlock;
+
+    /**
+     * A deferred container: the branch filling it, rendered by the only task of the scope.
+     */
+    record Deferred(RenderBranch branch, TaskScope scope) {
+
+    }
+
+    RenderBranch(@NonNull GrpcOperationsRequestContext context, @NonNull String keyPrefix) {
+        this.context = context;
+        this.keyPrefix = keyPrefix;
+    }
+
+    /**
+     * Returns the branch rendered by the current thread for the given request, or null if none.
+     */
+    static RenderBranch current(@NonNull GrpcOperationsRequestContext context) {
+        RenderBranch branch = CURRENT.get();
+        return branch != null && branch.context == context ? branch : null;
+    }
+
+    /**
+     * Renders the container on the current thread, buffering its operations.
+     */
+    void render(@NonNull ContainerImpl container, @NonNull Consumer<? super Container> renderer) {
+        RenderBranch outer = CURRENT.get();
+        CURRENT.set(this);
+        try (WidgetKeyScope ignored = WidgetKeyScope.open(this::nextWidgetId)) {
+            renderer.accept(container);
+        } finally {
+            if (outer != null) {
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    void add(@NonNull StreamlitOperation operation) {
+        operations.add(operation);
+    }
+
+    void addDeferred(@NonNull Deferred fill) {
+        deferred.add(fill);
+    }
+
+    String nextKeySuffix() {
+        return keyPrefix + "." + ++keySequence;
+    }
+
+    private int nextWidgetId() {
+        int index = widgetCount++;
+        int offset = index % GrpcStreamlitSessionContext.WIDGET_ID_BLOCK_SIZE;
+        if (offset == 0) {
+            // The first block of the branch is found by its key alone, the next ones by their index as well
+            int block = index / GrpcStreamlitSessionContext.WIDGET_ID_BLOCK_SIZE;
+            String path = block == 0 ? keyPrefix : keyPrefix + "#" + block;
+            widgetIdBlock = context.getSessionContext().getWidgetIdBlock(path);
+        }
+        return widgetIdBlock + offset;
+    }
+
+}
@@ -0,0 +1,164 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.RemoveOp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.RetainOp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Keyed diff of the operations of a rerun against the operations retained from the previous rerun of the same page. The
+ * differ walks the retained operations with a cursor while the operations of the rerun stream in:
+ * <ul>
+ *     <li>an operation equal to the retained operation at the cursor is coalesced into a {@link RetainOp};</li>
+ *     <li>an operation equal to a retained operation further on drops the retained operations up to it with a
+ *     {@link RemoveOp}, and is retained - so removing an element does not change everything after it;</li>
+ *     <li>any other operation is passed on as-is, inserted at the cursor - so inserting an element does not change
+ *     everything after it either. An updated operation is an insertion followed by the removal of the outdated one.</li>
+ * </ul>
+ * The retained operations not reached by the rerun are dropped with a final {@link RemoveOp}. Control operations (end,
+ * rerun, stop, etc.) are never retained nor diffed.
+ * <p>
+ * As the operations are sent while the rerun goes on, the match of each operation is chosen greedily, at the nearest
+ * retained operation equal to it, rather than by a longest common subsequence over the whole rerun. Moving an element
+ * backwards thus sends the elements it skips over again.
+ * <p>
+ * A differ without a baseline passes on every operation, while still collecting the operations that become the baseline of
+ * the next rerun. Not thread-safe - used by the single thread draining the operations of a request.
+ */
+class RenderDiffer {
+
+    /**
+     * The operations of the previous rerun of a page, as retained by both the server and the client.
+     *
+     * @param seq The sequence number of the rerun the operations stem from.
+     * @param ops The (non-control) operations of the rerun in the order they were sent.
+     */
+    record Baseline(int seq, @NonNull List<StreamlitOperation> ops) {
+
+    }
+
+    private final List<StreamlitOperation> previous;
+
+    private final List<StreamlitOperation> current = new ArrayList<>();
+
+    // The positions of the previous operations, ascending - only built once an operation does not match at the cursor
+    private Map<StreamlitOperation, ArrayDeque<Integer>> positions;
+
+    // The position of the next retained operation the client walks to
+    private int cursor;
+
+    private int pendingRetained;
+
+    @Getter
+    private int retainedCount;
+
+    RenderDiffer(Baseline baseline) {
+        this.previous = baseline != null ? baseline.ops() : Collections.emptyList();
+    }
+
+    /**
+     * Diffs the given operation against the baseline and passes on what needs to be sent to the client.
+     *
+     * @param op  The operation emitted by the rerun.
+     * @param out The consumer of the operations to send.
+     */
+    void diff(@NonNull StreamlitOperation op, @NonNull Consumer<StreamlitOperation> out) {
+        if (isControlOp(op)) {
+            flushRetained(out);
+            out.accept(op);
+            return;
+        }
+
+        current.add(op);
+
+        if (cursor < previous.size()) {
+            int match = previous.get(cursor).equals(op) ? cursor : findAfterCursor(op);
+            if (match >= 0) {
+                if (match > cursor) {
+                    flushRetained(out);
+                    remove(match - cursor, out);
+                }
+                cursor = match + 1;
+                pendingRetained++;
+                retainedCount++;
+                return;
+            }
+        }
+
+        flushRetained(out);
+        out.accept(op);
+    }
+
+    /**
+     * Completes the diff before the end operation is sent, dropping the retained operations not reached by this rerun.
+     *
+     * @param out The consumer of the operations to send.
+     */
+    void finish(@NonNull Consumer<StreamlitOperation> out) {
+        flushRetained(out);
+        if (cursor < previous.size()) {
+            remove(previous.size() - cursor, out);
+            cursor = previous.size();
+        }
+    }
+
+    /**
+     * Returns the baseline for the next rerun of the page.
+     *
+     * @param seq The sequence number of this rerun.
+     * @return The new baseline.
+     */
+    Baseline toBaseline(int seq) {
+        return new Baseline(seq, Collections.unmodifiableList(current));
+    }
+
+    private int findAfterCursor(StreamlitOperation op) {
+        if (positions == null) {
+            positions = new HashMap<>();
+            for (int i = cursor; i < previous.size(); i++) {
+                positions.computeIfAbsent(previous.get(i), k -> new ArrayDeque<>()).add(i);
+            }
+        }
+
+        ArrayDeque<Integer> candidates = positions.get(op);
+        if (candidates == null) {
+            return -1;
+        }
+        // Positions before the cursor were retained, removed or skipped already
+        while (!candidates.isEmpty() && candidates.peekFirst() < cursor) {
+            candidates.pollFirst();
+        }
+        return candidates.isEmpty() ? -1 : candidates.pollFirst();
+    }
+
+    private void remove(int count, Consumer<StreamlitOperation> out) {
+        out.accept(StreamlitOperation.newBuilder()
+            .setRemoveOp(RemoveOp.newBuilder().setCount(count).build())
+            .build());
+    }
+
+    private void flushRetained(Consumer<StreamlitOperation> out) {
+        if (pendingRetained > 0) {
+            out.accept(StreamlitOperation.newBuilder()
+                .setRetainOp(RetainOp.newBuilder().setCount(pendingRetained).build())
+                .build());
+            pendingRetained = 0;
+        }
+    }
+
+    static boolean isControlOp(@NonNull StreamlitOperation op) {
+        return switch (op.getOperationCase()) {
+            case ENDOP, RERUNOP, STOPOP, TERMINATESESSIONOP, SWITCHPAGEOP, RETAINOP, REMOVEOP, OPERATION_NOT_SET -> true;
+            default -> false;
+        };
+    }
+
+}
@@ -0,0 +1,136 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.NonNull;
+
+/**
+ * Hashed timing wheel expiring inactive sessions. Each session sits in the slot of the tick its inactivity deadline falls
+ * into, and only the slots of the elapsed ticks are looked at - so the cost of an expiry run is proportional to the
+ * sessions due in it, not to all sessions.
+ * <p>
+ * Activity does not touch the wheel: it only updates the {@link GrpcStreamlitSessionContext#getLastActivityAt() last
+ * activity} of the session, which stays O(1). When the slot of a session that was active since it was scheduled comes
+ * up, the session is moved on to the slot of its new deadline. So an active session is revisited once per timeout,
+ * spreading the work evenly over the ticks. Deadlines beyond the span of the wheel wrap around and are rescheduled the
+ * same way.
+ * <p>
+ * Sessions are {@link #add added} from any thread, while {@link #expire} is called by a single thread.
+ */
+class SessionExpiryWheel {
+
+    // Upper bound of the number of slots, longer timeouts take several rounds of the wheel
+    private static final int MAX_SLOTS = 4096;
+
+    private record Entry(GrpcStreamlitSessionContext session, long tick) {
+
+    }
+
+    private final long tickMillis;
+
+    private final long timeoutMillis;
+
+    private final Queue<Entry>[] slots;
+
+    // The last tick whose slot was expired, only advanced by the expiring thread
+    private volatile long expiredTick;
+
+    /**
+     * @param timeoutMillis The inactivity after which a session expires.
+     * @param tickMillis    The granularity of the expiry: sessions expire up to one tick after their deadline.
+     * @param nowMillis     The current time.
+     */
+    @SuppressWarnings("unchecked")
+    SessionExpiryWheel(long timeoutMillis, long tickMillis, long nowMillis) {
+        isTrue(timeoutMillis > 0, "timeoutMillis must be > 0");
+        isTrue(tickMillis > 0, "tickMillis must be > 0");
+        this.tickMillis = tickMillis;
+        this.timeoutMillis = timeoutMillis;
+        int slotCount = (int) Math.min(MAX_SLOTS, timeoutMillis / tickMillis + 2);
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.expiredTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the expiry of a new session.
+     *
+     * @param session The session.
+     */
+    void add(@NonNull GrpcStreamlitSessionContext session) {
+        schedule(session, deadline(session));
+    }
+
+    /**
+     * Expires the slots of the ticks elapsed since the previous call, and returns the sessions inactive for longer than
+     * the timeout. The sessions still active are rescheduled, the expired ones are no longer tracked.
+     *
+     * @param nowMillis The current time.
+     * @return The expired sessions.
+     */
+    List<GrpcStreamlitSessionContext> expire(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        long fromTick = expiredTick + 1;
+        // After a stall of more than a round, each slot is expired once
+        long toTick = Math.min(nowTick, expiredTick + slots.length);
+
+        List<GrpcStreamlitSessionContext> expired = new ArrayList<>();
+        for (long tick = fromTick; tick <= toTick; tick++) {
+            expireSlot(tick, nowTick, nowMillis, expired);
+        }
+        expiredTick = nowTick;
+        return expired;
+    }
+
+    private void expireSlot(long tick, long nowTick, long nowMillis, List<GrpcStreamlitSessionContext> expired) {
+        Queue<Entry> slot = slots[slotIndex(tick)];
+        List<Entry> later = new ArrayList<>();
+        Entry entry;
+        while ((entry = slot.poll()) != null) {
+            // Compared to the current tick rather than the tick of the slot, so after a stall of more than a round the
+            // entries due meanwhile are expired right away, not one round late
+            if (entry.tick() > nowTick) {
+                later.add(entry); // Due in a later round of the wheel
+                continue;
+            }
+            long deadline = deadline(entry.session());
+            if (deadline <= nowMillis) {
+                expired.add(entry.session());
+            } else {
+                later.add(new Entry(entry.session(), tickOf(deadline)));
+            }
+        }
+        // Entries are rescheduled after the slot was drained, so those falling into this same slot are not seen twice
+        for (Entry e : later) {
+            slots[slotIndex(e.tick())].add(e);
+        }
+    }
+
+    private void schedule(GrpcStreamlitSessionContext session, long deadline) {
+        long tick = tickOf(deadline);
+        slots[slotIndex(tick)].add(new Entry(session, tick));
+    }
+
+    private long tickOf(long deadline) {
+        // Round up, so a session never expires before its deadline, and never into a slot already expired
+        long tick = (deadline + tickMillis - 1) / tickMillis;
+        return Math.max(tick, expiredTick + 1);
+    }
+
+    private int slotIndex(long tick) {
+        return (int) (tick % slots.length);
+    }
+
+    private long deadline(GrpcStreamlitSessionContext session) {
+        Instant lastActivityAt = session.getLastActivityAt();
+        return lastActivityAt.toEpochMilli() + timeoutMillis;
+    }
+
+}
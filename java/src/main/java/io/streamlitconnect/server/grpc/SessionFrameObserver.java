@@ -0,0 +1,138 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.streamlitconnect.metrics.MetricsSink.RequestKind;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionEnd;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionError;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionResponseFrame;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import lombok.Getter;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapts the response observer of a single navigation or operations request to the session channel, wrapping each message
+ * into a {@link SessionResponseFrame} tagged with the sequence number of the request. Completing or failing the request
+ * terminates its response with an end or error frame, while the channel itself stays open for the next request.
+ * <p>
+ * The channel is shared by all requests of the session, so writes are serialized by the lock of the channel. This is a
+ * {@link Lock} rather than a monitor, as the writes happen on virtual threads: a virtual thread blocking inside a
+ * synchronized block pins its carrier thread, and with enough sessions writing at once all carriers can get pinned while
+ * waiting for Netty's buffer pool lock, whose next owner then never gets a carrier to release it.
+ * <p>
+ * The observer is one of the open requests of the channel until its response is terminated, so the request is
+ * cancelled if the channel is.
+ *
+ * @param <T> The type of the messages of the request.
+ */
+class SessionFrameObserver<T> implements StreamObserver<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionFrameObserver.class);
+
+    private final StreamObserver<SessionResponseFrame> channel;
+
+    private final Lock channelLock;
+
+    // The requests of the channel whose response is not terminated yet
+    private final Set<SessionFrameObserver<?>> openRequests;
+
+    @Getter
+    private final String sessionId;
+
+    @Getter
+    private final int seq;
+
+    @Getter
+    private final RequestKind kind;
+
+    private final BiConsumer<SessionResponseFrame.Builder, T> setter;
+
+    private volatile boolean done;
+
+    // Whether the channel was cancelled, or failed, before the response was terminated
+    @Getter
+    private volatile boolean cancelled;
+
+    SessionFrameObserver(
+        @NonNull StreamObserver<SessionResponseFrame> channel,
+        @NonNull Lock channelLock,
+        @NonNull Set<SessionFrameObserver<?>> openRequests,
+        @NonNull String sessionId,
+        int seq,
+        @NonNull RequestKind kind,
+        @NonNull BiConsumer<SessionResponseFrame.Builder, T> setter
+    ) {
+        this.channel = channel;
+        this.channelLock = channelLock;
+        this.openRequests = openRequests;
+        this.sessionId = sessionId;
+        this.seq = seq;
+        this.kind = kind;
+        this.setter = setter;
+    }
+
+    /**
+     * Marks the request as cancelled along with its channel: nothing is written for it anymore.
+     */
+    void cancel() {
+        cancelled = true;
+        openRequests.remove(this);
+    }
+
+    @Override
+    public void onNext(T value) {
+        SessionResponseFrame.Builder frame = SessionResponseFrame.newBuilder().setSeq(seq);
+        setter.accept(frame, value);
+        write(frame.build());
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.debug("Request seq: {} failed on session channel: {}", seq, t.getMessage());
+        SessionError.Builder error = SessionError.newBuilder()
+            .setMessage(String.valueOf(t.getMessage()))
+            .setCode(Status.fromThrowable(t).getCode().name());
+        Metadata trailers = Status.trailersFromThrowable(t);
+        if (trailers != null && trailers.containsKey(SessionRegistry.RETRY_PUSHBACK_KEY)) {
+            error.setRetryAfterMillis(Long.parseLong(trailers.get(SessionRegistry.RETRY_PUSHBACK_KEY)));
+        }
+        write(SessionResponseFrame.newBuilder()
+            .setSeq(seq)
+            .setError(error.build())
+            .build());
+        done = true;
+        openRequests.remove(this);
+    }
+
+    @Override
+    public void onCompleted() {
+        write(SessionResponseFrame.newBuilder()
+            .setSeq(seq)
+            .setEnd(SessionEnd.getDefaultInstance())
+            .build());
+        done = true;
+        openRequests.remove(this);
+    }
+
+    private void write(SessionResponseFrame frame) {
+        channelLock.lock();
+        try {
+            if (done || cancelled) {
+                return; // The response to this request is already terminated, or its channel gone
+            }
+            channel.onNext(frame);
+        } catch (RuntimeException e) {
+            // The channel is cancelled or closed - the request is dropped with it
+            log.debug("Unable to write frame for seq: {} to session channel: {}", seq, e.getMessage());
+            done = true;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.metrics.MetricsSink;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Single-consumer mailbox of a session. Messages posted from any thread are run one at a time, in the order they were
+ * posted, by a drain task scheduled on the executor only while the mailbox has messages - so the state transitions of a
+ * session are serialized without holding a lock, and without parking the posting (gRPC) threads.
+ * <p>
+ * Messages must not block: long-running work, like rendering, is handed off to another executor. The time each message
+ * waits in the mailbox is reported to the {@link MetricsSink}.
+ */
+class SessionMailbox {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionMailbox.class);
+
+    private record Message(Runnable task, long postedAt) {
+
+    }
+
+    private final Queue<Message> messages = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private final Executor executor;
+
+    private final MetricsSink metrics;
+
+    SessionMailbox(@NonNull Executor executor, @NonNull MetricsSink metrics) {
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Posts a message to be run after all messages posted before it.
+     *
+     * @param message The message.
+     */
+    void post(@NonNull Runnable message) {
+        messages.add(new Message(message, System.nanoTime()));
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Message message;
+            while ((message = messages.poll()) != null) {
+                metrics.sessionMailboxWait(System.nanoTime() - message.postedAt());
+                try {
+                    message.task().run();
+                } catch (RuntimeException e) {
+                    log.error("Error running session message: {}", e.getMessage(), e);
+                } finally {
+                    MDC.clear();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // A message posted after the last poll, but before the flag was cleared, needs another drain
+            if (!messages.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+}
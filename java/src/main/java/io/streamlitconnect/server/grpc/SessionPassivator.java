@@ -0,0 +1,170 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.StreamlitApp;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.store.SessionStore;
+import io.streamlitconnect.widgets.Widget;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves the state of idle sessions to the {@link SessionStore}, and back on their next request.
+ * <p>
+ * The state of a session is the values of the widgets of its app, by key, and its serializable attributes. The app
+ * itself is closed on passivation, and created again by the app manager on rehydration - as the server creates apps in
+ * a {@link io.streamlitconnect.widgets.WidgetKeyScope}, the widgets created by the new app get the keys of those of the
+ * old one, and their values are restored by key.
+ * <p>
+ * Both directions are only run on the mailbox of the session, so they never overlap with the start of a request or with
+ * each other.
+ */
+class SessionPassivator {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionPassivator.class);
+
+    private record Snapshot(HashMap<String, Object> widgetValues, HashMap<String, Object> attributes)
+        implements Serializable {
+
+    }
+
+    private final SessionStore store;
+
+    private final long idleMillis;
+
+    /**
+     * @param store      The store of the passivated sessions.
+     * @param idleMillis The inactivity after which a session is passivated.
+     */
+    SessionPassivator(@NonNull SessionStore store, long idleMillis) {
+        this.store = store;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Checks whether a session can be passivated now: it has an app, is not passivated already, has no request running,
+     * and is still idle.
+     *
+     * @param context The session.
+     * @return Whether the session can be passivated.
+     */
+    boolean isPassivatable(@NonNull GrpcStreamlitSessionContext context) {
+        return context.getApp() != null
+            && !context.isPassivated()
+            && context.getCurrentNavReqContext() == null
+            && context.getCurrentOpsReqContext() == null
+            && context.getLastActivityAt().plusMillis(idleMillis).isBefore(Instant.now());
+    }
+
+    /**
+     * Stores the state of a session and drops it from memory, closing its app.
+     *
+     * @param context The session, {@link #isPassivatable passivatable}.
+     * @return The size of the stored state in bytes, or -1 if the state could not be serialized, in which case the
+     *     session is left as it is.
+     */
+    int passivate(@NonNull GrpcStreamlitSessionContext context) {
+        byte[] state;
+        try {
+            state = serialize(snapshot(context));
+        } catch (IOException e) {
+            log.warn("Session: {} not passivated, its state is not serializable: {}", context.getSessionId(),
+                e.getMessage());
+            return -1;
+        }
+
+        store.put(context.getSessionId(), state);
+        StreamlitApp app = context.getApp();
+        context.close();
+        context.setPassivated(true);
+        try {
+            app.close();
+        } catch (RuntimeException e) {
+            log.error("Error closing app of passivated session: {}: {}", context.getSessionId(), e.getMessage(), e);
+        }
+        return state.length;
+    }
+
+    /**
+     * Restores the state of a passivated session into its new app.
+     *
+     * @param context The session, whose app is created again.
+     * @param widgets The widgets created by the new app, in its key scope - not yet registered.
+     */
+    void rehydrate(@NonNull GrpcStreamlitSessionContext context, @NonNull List<Widget<?>> widgets) {
+        context.setPassivated(false);
+        byte[] state = store.take(context.getSessionId());
+        Snapshot snapshot = state != null ? deserialize(state) : null;
+
+        for (Widget<?> widget : widgets) {
+            Object value = snapshot != null ? snapshot.widgetValues().get(widget.getKey()) : null;
+            if (value != null) {
+                restoreValue(widget, value);
+            }
+        }
+        if (snapshot != null) {
+            snapshot.attributes().forEach(context::setAttribute);
+        } else {
+            log.warn("No stored state for passivated session: {}", context.getSessionId());
+        }
+    }
+
+    private static Snapshot snapshot(GrpcStreamlitSessionContext context) {
+        HashMap<String, Object> widgetValues = new HashMap<>();
+        for (Widget<?> widget : context.getWidgets()) {
+            if (widget.getValue() instanceof Serializable) {
+                widgetValues.put(widget.getKey(), widget.getValue());
+            }
+        }
+        HashMap<String, Object> attributes = new HashMap<>();
+        for (Map.Entry<String, Object> attribute : context.getAttributes().entrySet()) {
+            if (attribute.getValue() instanceof Serializable) {
+                attributes.put(attribute.getKey(), attribute.getValue());
+            } else if (attribute.getValue() != null) {
+                log.debug("Dropping non-serializable attribute: {} of passivated session: {}", attribute.getKey(),
+                    context.getSessionId());
+            }
+        }
+        return new Snapshot(widgetValues, attributes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void restoreValue(Widget<?> widget, Object value) {
+        Widget<Object> target = (Widget<Object>) widget;
+        try {
+            target.setValue(value);
+            target.setPreviousValue(null);
+            target.resetChanged();
+        } catch (ClassCastException e) {
+            // The app created its widgets in another order than before
+            log.warn("Not restoring value of type: {} into widget: {}", value.getClass().getName(), widget.getKey());
+        }
+    }
+
+    private static byte[] serialize(Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(snapshot);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Snapshot deserialize(byte[] state) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+            return (Snapshot) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new StreamlitException("Error restoring passivated session state", e);
+        }
+    }
+
+}
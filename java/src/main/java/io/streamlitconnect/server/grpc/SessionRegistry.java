@@ -0,0 +1,263 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.SessionWeigher;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The sessions of the server - each holding its app - bounded by the number and the total weight of the sessions. The
+ * sessions are kept in least recently used order: when a new session does not fit, the least recently used sessions
+ * make room for it if they have been inactive for long enough, otherwise the new session is rejected with
+ * {@code RESOURCE_EXHAUSTED} and a hint when to retry (see {@link #RETRY_PUSHBACK_KEY}).
+ * <p>
+ * Sessions made room for are handed to the eviction listener, to be closed outside the lock of the registry. All
+ * operations take the lock, which is a {@link ReentrantLock} rather than a monitor as the registry is used from virtual
+ * threads, and none of them calls into the app.
+ */
+class SessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRegistry.class);
+
+    /**
+     * The trailer of a rejected request telling the client when to retry, in milliseconds - as for the retry pushback
+     * of gRPC.
+     */
+    static final Metadata.Key<String> RETRY_PUSHBACK_KEY =
+        Metadata.Key.of("grpc-retry-pushback-ms", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final class Entry {
+
+        private final GrpcStreamlitSessionContext context;
+
+        private int weight;
+
+        private Entry(GrpcStreamlitSessionContext context, int weight) {
+            this.context = context;
+            this.weight = weight;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // sessionId -> entry, in least recently used order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maxSessions;
+
+    private final long maxWeight;
+
+    private final long minIdleMillis;
+
+    private final SessionWeigher weigher;
+
+    private final Consumer<GrpcStreamlitSessionContext> evictionListener;
+
+    private long totalWeight;
+
+    /**
+     * @param config           The configuration of the limits.
+     * @param evictionListener Called with each session evicted to make room for another one, without holding the lock.
+     */
+    SessionRegistry(@NonNull Config config, @NonNull Consumer<GrpcStreamlitSessionContext> evictionListener) {
+        this.maxSessions = config.getMaxSessions() > 0 ? config.getMaxSessions() : Integer.MAX_VALUE;
+        this.maxWeight = config.getMaxSessionWeight() > 0 ? config.getMaxSessionWeight() : Long.MAX_VALUE;
+        this.minIdleMillis = TimeUnit.SECONDS.toMillis(config.getAdmissionMinIdleSeconds());
+        this.weigher = config.getSessionWeigher();
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Returns the session with the given id, creating it if not present and admitted.
+     *
+     * @param sessionId The id of the session.
+     * @param factory   Creates the session.
+     * @param onCreated Called with a created session once admitted, holding the lock - so must not block.
+     * @return The session.
+     * @throws StatusRuntimeException With status {@code RESOURCE_EXHAUSTED} if the session is not present, and there is
+     *                                no room for it.
+     */
+    GrpcStreamlitSessionContext getOrCreate(
+        @NonNull String sessionId,
+        @NonNull Supplier<GrpcStreamlitSessionContext> factory,
+        @NonNull Consumer<GrpcStreamlitSessionContext> onCreated
+    ) {
+        List<GrpcStreamlitSessionContext> evicted = new ArrayList<>();
+        GrpcStreamlitSessionContext context;
+        lock.lock();
+        try {
+            Entry entry = entries.get(sessionId);
+            if (entry != null) {
+                return entry.context;
+            }
+
+            context = factory.get();
+            int weight = weigh(context);
+            long retryAfterMillis = makeRoom(1, weight, evicted);
+            if (retryAfterMillis > 0) {
+                throw rejection(sessionId, retryAfterMillis);
+            }
+            entries.put(sessionId, new Entry(context, weight));
+            totalWeight += weight;
+            onCreated.accept(context);
+        } finally {
+            lock.unlock();
+            evicted.forEach(evictionListener);
+        }
+        return context;
+    }
+
+    /**
+     * Returns the session with the given id, or null if not present.
+     */
+    GrpcStreamlitSessionContext get(@NonNull String sessionId) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(sessionId);
+            return entry != null ? entry.context : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Weighs the session again, e.g. after a rerun, making room for a grown session if possible.
+     *
+     * @param context The session.
+     */
+    void reweigh(@NonNull GrpcStreamlitSessionContext context) {
+        List<GrpcStreamlitSessionContext> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            Entry entry = entries.get(context.getSessionId());
+            if (entry == null || entry.context != context) {
+                return; // Removed meanwhile
+            }
+            int weight = weigh(context);
+            totalWeight += weight - entry.weight;
+            entry.weight = weight;
+            if (totalWeight > maxWeight && makeRoom(0, 0, evicted) > 0) {
+                log.warn("Sessions weigh {} exceeding the max weight {}, while all were recently active",
+                    totalWeight, maxWeight);
+            }
+        } finally {
+            lock.unlock();
+            evicted.forEach(evictionListener);
+        }
+    }
+
+    /**
+     * Removes the session, if still registered.
+     *
+     * @param context The session.
+     * @return Whether the session was removed.
+     */
+    boolean remove(@NonNull GrpcStreamlitSessionContext context) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(context.getSessionId());
+            if (entry == null || entry.context != context) {
+                return false;
+            }
+            entries.remove(context.getSessionId());
+            totalWeight -= entry.weight;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all sessions.
+     *
+     * @return The removed sessions.
+     */
+    List<GrpcStreamlitSessionContext> removeAll() {
+        lock.lock();
+        try {
+            List<GrpcStreamlitSessionContext> removed = new ArrayList<>(entries.size());
+            entries.values().forEach(entry -> removed.add(entry.context));
+            entries.clear();
+            totalWeight = 0;
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getTotalWeight() {
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the least recently used sessions inactive for long enough, until the given additional sessions and weight
+     * fit. To be called holding the lock.
+     *
+     * @return 0 if they fit, otherwise the milliseconds until the least recently used session may be evicted.
+     */
+    private long makeRoom(int sessions, int weight, List<GrpcStreamlitSessionContext> evicted) {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> lru = entries.values().iterator();
+        while (entries.size() + sessions > maxSessions || totalWeight + weight > maxWeight) {
+            if (!lru.hasNext()) {
+                return minIdleMillis > 0 ? minIdleMillis : 1; // Does not fit, even without any other session
+            }
+            Entry eldest = lru.next();
+            long idleMillis = now - lastActivityMillis(eldest.context);
+            if (idleMillis < minIdleMillis) {
+                return minIdleMillis - idleMillis;
+            }
+            lru.remove();
+            totalWeight -= eldest.weight;
+            evicted.add(eldest.context);
+        }
+        return 0;
+    }
+
+    private int weigh(GrpcStreamlitSessionContext context) {
+        return Math.max(1, weigher.weigh(context));
+    }
+
+    private static long lastActivityMillis(GrpcStreamlitSessionContext context) {
+        Instant lastActivityAt = context.getLastActivityAt();
+        return lastActivityAt.toEpochMilli();
+    }
+
+    private StatusRuntimeException rejection(String sessionId, long retryAfterMillis) {
+        log.warn("Rejecting new session: {}, {} sessions weighing {} of max {} sessions weighing {}, retry in {} ms",
+            sessionId, entries.size(), totalWeight, maxSessions, maxWeight, retryAfterMillis);
+        Metadata trailers = new Metadata();
+        trailers.put(RETRY_PUSHBACK_KEY, Long.toString(retryAfterMillis));
+        return Status.RESOURCE_EXHAUSTED
+            .withDescription("Too many sessions, retry in " + retryAfterMillis + " ms")
+            .asRuntimeException(trailers);
+    }
+
+}
@@ -14,7 +14,7 @@ class TabContainerImpl extends ContainerImpl implements TabContainer {
         GrpcOperationsRequestContext context,
         @NonNull String name
     ) {
-        super("tab_" + Utils.randomKeySuffix() + "(" + name + ")", parent, context);
+        super("tab_" + context.nextKeySuffix() + "(" + name + ")", parent, context);
         this.name = name;
     }
 
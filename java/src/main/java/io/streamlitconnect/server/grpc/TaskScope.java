@@ -0,0 +1,311 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.StreamlitException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.NonNull;
+
+/**
+ * A group of tasks run on the executor shared by the server, with the semantics of a structured task scope: the tasks
+ * are joined together, up to a deadline, and the scope is shut down - its unfinished tasks cancelled - as soon as its
+ * outcome is known. That is on the first failure for a scope of {@link Policy#ALL} tasks, and on the first success for
+ * a scope of {@link Policy#ANY} task.
+ * <p>
+ * Scopes opened within a scope are shut down with it. They share its count of the tasks still running, which tells when
+ * nothing forked from the scope runs anymore, cancelled tasks included.
+ */
+class TaskScope implements AutoCloseable {
+
+    // The deadline of scopes joined without one
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    enum Policy {
+        // Shut down on the first failure, the outcome being the results of all the tasks
+        ALL,
+        // Shut down on the first success, the outcome being its result
+        ANY
+    }
+
+    private final Executor executor;
+
+    private final Policy policy;
+
+    private final TaskScope parent;
+
+    // The tasks forked and not yet finished on the executor, cancelled or not, shared with the scopes opened within
+    private final AtomicInteger runningTasks;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition finished = lock.newCondition();
+
+    // Guarded by lock
+    private final List<Task<?>> tasks = new ArrayList<>();
+
+    // Guarded by lock
+    private final List<TaskScope> children = new ArrayList<>();
+
+    // The tasks forked and not yet done, guarded by lock
+    private int pending;
+
+    // Guarded by lock
+    private boolean shutdown;
+
+    // The first failure, guarded by lock
+    private Throwable failure;
+
+    // The first result of an ANY scope, guarded by lock
+    private Object result;
+
+    // Guarded by lock
+    private boolean succeeded;
+
+    TaskScope(@NonNull Executor executor, @NonNull Policy policy) {
+        this(executor, policy, null, new AtomicInteger());
+    }
+
+    private TaskScope(Executor executor, Policy policy, TaskScope parent, AtomicInteger runningTasks) {
+        this.executor = executor;
+        this.policy = policy;
+        this.parent = parent;
+        this.runningTasks = runningTasks;
+    }
+
+    /**
+     * Opens a scope within this one, shut down with it. To be closed once joined.
+     */
+    TaskScope open(@NonNull Policy policy) {
+        TaskScope child = new TaskScope(executor, policy, this, runningTasks);
+        lock.lock();
+        try {
+            if (shutdown) {
+                child.shutdown();
+            } else {
+                children.add(child);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return child;
+    }
+
+    /**
+     * Runs a task in the scope. Once the scope is shut down, the task is not run: its future is cancelled.
+     */
+    <T> Future<T> fork(@NonNull Callable<T> callable) {
+        Task<T> task = new Task<>(callable);
+        lock.lock();
+        try {
+            if (shutdown) {
+                task.cancel(false);
+                return task;
+            }
+            task.forked = true;
+            tasks.add(task);
+            pending++;
+        } finally {
+            lock.unlock();
+        }
+
+        runningTasks.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    runningTasks.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            runningTasks.decrementAndGet();
+            task.setException(e);
+        }
+        return task;
+    }
+
+    /**
+     * Waits for the tasks of the scope to be done, shutting it down if the deadline passes first.
+     *
+     * @param deadlineNanos The {@link System#nanoTime()} to wait until, or {@link #NO_DEADLINE}
+     * @throws StreamlitException If the deadline passed or the waiting thread was interrupted - the scope is then shut
+     *                            down - or if a task of an ALL scope failed.
+     */
+    void join(long deadlineNanos) {
+        lock.lock();
+        try {
+            while (pending > 0) {
+                if (deadlineNanos == NO_DEADLINE) {
+                    finished.await();
+                    continue;
+                }
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    shutdownLocked();
+                    tasks.clear();
+                    throw new StreamlitException("Tasks did not complete before their deadline");
+                }
+                finished.awaitNanos(remaining);
+            }
+            tasks.clear();
+            if (policy == Policy.ALL && failure != null) {
+                throw new StreamlitException("Task failed: " + failure.getMessage(), failure);
+            }
+        } catch (InterruptedException e) {
+            shutdownLocked();
+            Thread.currentThread().interrupt(); // Restore the interrupted status
+            throw new StreamlitException("Interrupted waiting for tasks", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the first result of a joined ANY scope.
+     *
+     * @throws StreamlitException If no task succeeded.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T result() {
+        lock.lock();
+        try {
+            if (!succeeded) {
+                throw new StreamlitException("No task succeeded", failure);
+            }
+            return (T) result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the unfinished tasks of the scope and of the scopes opened within it, and no longer runs new ones.
+     */
+    void shutdown() {
+        lock.lock();
+        try {
+            shutdownLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether none of the tasks forked from the scope, or from the scopes opened within it, still runs.
+     */
+    boolean isIdle() {
+        return runningTasks.get() == 0;
+    }
+
+    /**
+     * Makes the scope as new, to be used again once idle.
+     */
+    void reset() {
+        lock.lock();
+        try {
+            tasks.clear();
+            children.clear();
+            pending = 0;
+            shutdown = false;
+            failure = null;
+            result = null;
+            succeeded = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Shuts the scope down, and detaches it from the scope it was opened within.
+     */
+    @Override
+    public void close() {
+        shutdown();
+        if (parent != null) {
+            parent.lock.lock();
+            try {
+                parent.children.remove(this);
+            } finally {
+                parent.lock.unlock();
+            }
+        }
+    }
+
+    private void shutdownLocked() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        // Cancelling completes the tasks right away, their done() re-entering the lock
+        for (Task<?> task : new ArrayList<>(tasks)) {
+            task.cancel(true);
+        }
+        for (TaskScope child : new ArrayList<>(children)) {
+            child.shutdown();
+        }
+    }
+
+    private void taskDone(Task<?> task) {
+        lock.lock();
+        try {
+            if (!task.forked) {
+                return; // Cancelled before being forked
+            }
+            pending--;
+            switch (task.state()) {
+                case SUCCESS -> {
+                    if (policy == Policy.ANY && !succeeded && !shutdown) {
+                        result = task.resultNow();
+                        succeeded = true;
+                        shutdownLocked();
+                    }
+                }
+                case FAILED -> {
+                    if (failure == null && !shutdown) {
+                        failure = task.exceptionNow();
+                        if (policy == Policy.ALL) {
+                            shutdownLocked();
+                        }
+                    }
+                }
+                default -> {
+                    // Cancelled
+                }
+            }
+            if (pending == 0) {
+                finished.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Task<T> extends FutureTask<T> {
+
+        // Whether the task counts as pending, guarded by lock
+        private boolean forked;
+
+        Task(Callable<T> callable) {
+            super(callable);
+        }
+
+        // Overridden to be accessible to the scope
+        @Override
+        protected void setException(Throwable t) {
+            super.setException(t);
+        }
+
+        @Override
+        protected void done() {
+            taskDone(this);
+        }
+
+    }
+
+}
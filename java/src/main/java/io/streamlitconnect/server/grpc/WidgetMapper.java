@@ -2,6 +2,8 @@ package io.streamlitconnect.server.grpc;
 
 import static org.apache.commons.lang3.Validate.isTrue;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 import io.streamlitconnect.StreamlitException;
 import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.IntOrFloat;
 import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ValueRange;
@@ -44,7 +46,9 @@ import io.streamlitconnect.widgets.TimeRangeSlider;
 import io.streamlitconnect.widgets.TimeSlider;
 import io.streamlitconnect.widgets.Toggle;
 import io.streamlitconnect.widgets.Widget;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
@@ -53,9 +57,9 @@ import org.apache.commons.lang3.StringUtils;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 final class WidgetMapper {
 
-    static ButtonOp toButtonOp(@NonNull Button button, @NonNull String containerKey) {
+    static ButtonOp toButtonOp(@NonNull Button button, @NonNull String containerKey, boolean widgetIds) {
         Builder builder = ButtonOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(button, containerKey))
+            .setWidgetProps(toWidgetProperties(button, containerKey, widgetIds))
             .setTypeValue(button.getType().ordinal());
 
         if (button instanceof LinkButton linkButton) {
@@ -64,9 +68,9 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static PageLinkOp toPageLinkOp(@NonNull PageLink pageLink, @NonNull String containerKey) {
+    static PageLinkOp toPageLinkOp(@NonNull PageLink pageLink, @NonNull String containerKey, boolean widgetIds) {
         PageLinkOp.Builder builder = PageLinkOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(pageLink, containerKey))
+            .setWidgetProps(toWidgetProperties(pageLink, containerKey, widgetIds))
             .setPage(pageLink.getPageName());
 
         if (pageLink.getIcon() != null) {
@@ -75,22 +79,22 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static CheckboxOp toCheckboxOp(@NonNull Checkbox checkbox, @NonNull String containerKey) {
+    static CheckboxOp toCheckboxOp(@NonNull Checkbox checkbox, @NonNull String containerKey, boolean widgetIds) {
         CheckboxOp.Builder builder = CheckboxOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(checkbox, containerKey));
+            .setWidgetProps(toWidgetProperties(checkbox, containerKey, widgetIds));
         return builder.build();
     }
 
-    static ToggleOp toToggleOp(@NonNull Toggle toggle, @NonNull String containerKey) {
+    static ToggleOp toToggleOp(@NonNull Toggle toggle, @NonNull String containerKey, boolean widgetIds) {
         ToggleOp.Builder builder = ToggleOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(toggle, containerKey));
+            .setWidgetProps(toWidgetProperties(toggle, containerKey, widgetIds));
 
         return builder.build();
     }
 
-    static RadioOp toRadioOp(@NonNull Radio radio, @NonNull String containerKey) {
+    static RadioOp toRadioOp(@NonNull Radio radio, @NonNull String containerKey, boolean widgetIds) {
         RadioOp.Builder builder = RadioOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(radio, containerKey));
+            .setWidgetProps(toWidgetProperties(radio, containerKey, widgetIds));
 
         if (radio.getOptions() != null) {
             for (String option : radio.getOptions()) {
@@ -107,9 +111,13 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static SelectboxOp toSelectboxOp(@NonNull io.streamlitconnect.widgets.Selectbox selectbox, @NonNull String containerKey) {
+    static SelectboxOp toSelectboxOp(
+        @NonNull io.streamlitconnect.widgets.Selectbox selectbox,
+        @NonNull String containerKey,
+        boolean widgetIds
+    ) {
         SelectboxOp.Builder builder = SelectboxOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(selectbox, containerKey));
+            .setWidgetProps(toWidgetProperties(selectbox, containerKey, widgetIds));
 
         if (selectbox.getOptions() != null) {
             for (String option : selectbox.getOptions()) {
@@ -124,9 +132,14 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static MultiselectOp toMultiselectOp(@NonNull Multiselect multiselect, @NonNull String containerKey) {
+    static MultiselectOp toMultiselectOp(
+        @NonNull Multiselect multiselect,
+        @NonNull String containerKey,
+        boolean widgetIds,
+        boolean packedSelections
+    ) {
         MultiselectOp.Builder builder = MultiselectOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(multiselect, containerKey));
+            .setWidgetProps(toWidgetProperties(multiselect, containerKey, widgetIds));
 
         if (multiselect.getOptions() != null) {
             for (String option : multiselect.getOptions()) {
@@ -134,7 +147,10 @@ final class WidgetMapper {
             }
         }
 
-        if (multiselect.getValue() != null) {
+        ByteString bitmap = packedSelections ? toSelectionBitmap(multiselect.getValue()) : null;
+        if (bitmap != null) {
+            builder.setSelectedBitmap(bitmap);
+        } else if (multiselect.getValue() != null) {
             for (int selectedIndex : multiselect.getValue()) {
                 builder.addSelectedIndices(selectedIndex);
             }
@@ -147,11 +163,42 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static SelectSliderOp toSelectSliderOp(@NonNull SelectSlider selectSlider, @NonNull String containerKey) {
+    /**
+     * Packs the selected indices into a bitmap, bit i (LSB first) of byte i / 8 standing for index i - only if they are
+     * ascending, as the bitmap does not keep the order of the selection, and if the bitmap is smaller than the indices.
+     *
+     * @return The bitmap, or null if the indices are to be sent as they are.
+     */
+    static ByteString toSelectionBitmap(int[] selectedIndices) {
+        if (selectedIndices == null || selectedIndices.length == 0) {
+            return null;
+        }
+        int indicesSize = 0;
+        for (int i = 0; i < selectedIndices.length; i++) {
+            if (selectedIndices[i] < 0 || (i > 0 && selectedIndices[i] <= selectedIndices[i - 1])) {
+                return null;
+            }
+            indicesSize += CodedOutputStream.computeInt32SizeNoTag(selectedIndices[i]);
+        }
+        if (selectedIndices[selectedIndices.length - 1] / 8 + 1 >= indicesSize) {
+            return null;
+        }
+        BitSet bitmap = new BitSet(selectedIndices[selectedIndices.length - 1] + 1);
+        for (int selectedIndex : selectedIndices) {
+            bitmap.set(selectedIndex);
+        }
+        return ByteString.copyFrom(bitmap.toByteArray());
+    }
+
+    static SelectSliderOp toSelectSliderOp(
+        @NonNull SelectSlider selectSlider,
+        @NonNull String containerKey,
+        boolean widgetIds
+    ) {
         SelectSliderOp.Builder builder = SelectSliderOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(selectSlider, containerKey))
-            .setLowerIndex(selectSlider.getValue().getLeft())
-            .setUpperIndex(selectSlider.getValue().getRight());
+            .setWidgetProps(toWidgetProperties(selectSlider, containerKey, widgetIds))
+            .setLowerIndex(selectSlider.getRange().getFrom())
+            .setUpperIndex(selectSlider.getRange().getTo());
 
         if (selectSlider.getOptions() != null) {
             for (String option : selectSlider.getOptions()) {
@@ -162,28 +209,48 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static DateInputOp toDateInputOp(@NonNull DateInput dateInput, @NonNull String containerKey) {
+    static DateInputOp toDateInputOp(
+        @NonNull DateInput dateInput,
+        @NonNull String containerKey,
+        boolean widgetIds,
+        boolean temporalNumbers
+    ) {
         DateInputOp.Builder builder = DateInputOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(dateInput, containerKey))
+            .setWidgetProps(toWidgetProperties(dateInput, containerKey, widgetIds))
             .setDateFormatValue(dateInput.getFormat().ordinal())
             .setDateSeparatorValue(dateInput.getDateSeparator().ordinal());
 
-        if (dateInput.getFromDate() != null) {
-            builder.setFromDate(dateInput.getFromDate().format(DateTimeFormatter.ISO_LOCAL_DATE));
-        }
+        if (temporalNumbers) {
+            if (dateInput.getFromDate() != null) {
+                builder.setFromEpochDay(toEpochDay(dateInput.getFromDate()));
+            }
+            if (dateInput.getToDate() != null) {
+                builder.setToEpochDay(toEpochDay(dateInput.getToDate()));
+            }
+            if (dateInput.getMinDate() != null) {
+                builder.setMinEpochDay(toEpochDay(dateInput.getMinDate()));
+            }
+            if (dateInput.getMaxDate() != null) {
+                builder.setMaxEpochDay(toEpochDay(dateInput.getMaxDate()));
+            }
+        } else {
+            if (dateInput.getFromDate() != null) {
+                builder.setFromDate(dateInput.getFromDate().format(DateTimeFormatter.ISO_LOCAL_DATE));
+            }
 
-        if (dateInput.getToDate() != null) {
-            builder.setToDate(dateInput.getToDate().format(DateTimeFormatter.ISO_LOCAL_DATE));
-        }
+            if (dateInput.getToDate() != null) {
+                builder.setToDate(dateInput.getToDate().format(DateTimeFormatter.ISO_LOCAL_DATE));
+            }
 
-        if (dateInput.getMinDate() != null) {
-            String minDate = dateInput.getMinDate().format(DateTimeFormatter.ISO_LOCAL_DATE);
-            builder.setMinDate(minDate);
-        }
+            if (dateInput.getMinDate() != null) {
+                String minDate = dateInput.getMinDate().format(DateTimeFormatter.ISO_LOCAL_DATE);
+                builder.setMinDate(minDate);
+            }
 
-        if (dateInput.getMaxDate() != null) {
-            String maxDate = dateInput.getMaxDate().format(DateTimeFormatter.ISO_LOCAL_DATE);
-            builder.setMaxDate(maxDate);
+            if (dateInput.getMaxDate() != null) {
+                String maxDate = dateInput.getMaxDate().format(DateTimeFormatter.ISO_LOCAL_DATE);
+                builder.setMaxDate(maxDate);
+            }
         }
 
         builder.setToday(
@@ -195,12 +262,21 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static TimeInputOp toTimeInputOp(@NonNull TimeInput timeInput, @NonNull String containerKey) {
+    static TimeInputOp toTimeInputOp(
+        @NonNull TimeInput timeInput,
+        @NonNull String containerKey,
+        boolean widgetIds,
+        boolean temporalNumbers
+    ) {
         TimeInputOp.Builder builder = TimeInputOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(timeInput, containerKey));
+            .setWidgetProps(toWidgetProperties(timeInput, containerKey, widgetIds));
 
         if (timeInput.getValue() != null) {
-            builder.setValue(timeInput.getValue().format(DateTimeFormatter.ISO_LOCAL_TIME));
+            if (temporalNumbers) {
+                builder.setNanoOfDay(timeInput.getValue().toNanoOfDay());
+            } else {
+                builder.setValue(timeInput.getValue().format(DateTimeFormatter.ISO_LOCAL_TIME));
+            }
         }
 
         builder.setStepSeconds(timeInput.getStepSeconds());
@@ -208,9 +284,13 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static NumberInputOp toNumberInputOp(@NonNull NumberInput numberInput, @NonNull String containerKey) {
+    static NumberInputOp toNumberInputOp(
+        @NonNull NumberInput numberInput,
+        @NonNull String containerKey,
+        boolean widgetIds
+    ) {
         NumberInputOp.Builder builder = NumberInputOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(numberInput, containerKey));
+            .setWidgetProps(toWidgetProperties(numberInput, containerKey, widgetIds));
 
         if (numberInput.getValue() != null) {
             builder.setValue(toIntOrFloat(numberInput.getValue()));
@@ -239,9 +319,9 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static TextInputOp toTextInputOp(@NonNull TextInput textInput, @NonNull String containerKey) {
+    static TextInputOp toTextInputOp(@NonNull TextInput textInput, @NonNull String containerKey, boolean widgetIds) {
         TextInputOp.Builder builder = TextInputOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(textInput, containerKey))
+            .setWidgetProps(toWidgetProperties(textInput, containerKey, widgetIds))
             .setTypeValue(textInput.getType().ordinal());
 
         if (textInput.getValue() != null) {
@@ -259,9 +339,14 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static SliderOp toSliderOp(@NonNull Slider<?, ?> slider, @NonNull String containerKey) {
+    static SliderOp toSliderOp(
+        @NonNull Slider<?, ?> slider,
+        @NonNull String containerKey,
+        boolean widgetIds,
+        boolean temporalNumbers
+    ) {
         SliderOp.Builder builder = SliderOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(slider, containerKey));
+            .setWidgetProps(toWidgetProperties(slider, containerKey, widgetIds));
 
         switch (slider) {
 
@@ -269,13 +354,19 @@ final class WidgetMapper {
                 .setMinValueInt(integerSlider.getMin())
                 .setMaxValueInt(integerSlider.getMax())
                 .setStepInt(integerSlider.getStep())
-                .setValueSingle(ValueSingle.newBuilder().setValueInt(integerSlider.getValue()).build());
+                .setValueSingle(ValueSingle.newBuilder().setValueInt(integerSlider.getInt()).build());
 
             case FloatSlider floatSlider -> builder
                 .setMinValueFloat(floatSlider.getMin())
                 .setMaxValueFloat(floatSlider.getMax())
                 .setStepFloat(floatSlider.getStep())
-                .setValueSingle(ValueSingle.newBuilder().setValueFloat(floatSlider.getValue()).build());
+                .setValueSingle(ValueSingle.newBuilder().setValueFloat(floatSlider.getFloat()).build());
+
+            case DateSlider dateSlider when temporalNumbers -> builder
+                .setMinValueEpochDay(toEpochDay(dateSlider.getMin()))
+                .setMaxValueEpochDay(toEpochDay(dateSlider.getMax()))
+                .setStepInt(dateSlider.getStep())
+                .setValueSingle(ValueSingle.newBuilder().setValueEpochDay(toEpochDay(dateSlider.getValue())).build());
 
             case DateSlider dateSlider -> builder
                 .setMinValueDatetime(dateSlider.getMin().format(DateTimeFormatter.ISO_LOCAL_DATE))
@@ -286,6 +377,13 @@ final class WidgetMapper {
                         .setValueDatetime(dateSlider.getValue().format(DateTimeFormatter.ISO_LOCAL_DATE))
                         .build());
 
+            case TimeSlider timeSlider when temporalNumbers -> builder
+                .setMinValueNanoOfDay(timeSlider.getMin().toNanoOfDay())
+                .setMaxValueNanoOfDay(timeSlider.getMax().toNanoOfDay())
+                .setStepInt(timeSlider.getStep())
+                .setValueSingle(
+                    ValueSingle.newBuilder().setValueNanoOfDay(timeSlider.getValue().toNanoOfDay()).build());
+
             case TimeSlider timeSlider -> builder
                 .setMinValueDatetime(timeSlider.getMin().format(DateTimeFormatter.ISO_LOCAL_TIME))
                 .setMaxValueDatetime(timeSlider.getMax().format(DateTimeFormatter.ISO_LOCAL_TIME))
@@ -305,9 +403,14 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    static SliderOp toSliderOp(@NonNull RangeSlider<?, ?> slider, @NonNull String containerKey) {
+    static SliderOp toSliderOp(
+        @NonNull RangeSlider<?, ?> slider,
+        @NonNull String containerKey,
+        boolean widgetIds,
+        boolean temporalNumbers
+    ) {
         SliderOp.Builder builder = SliderOp.newBuilder()
-            .setWidgetProps(toWidgetProperties(slider, containerKey));
+            .setWidgetProps(toWidgetProperties(slider, containerKey, widgetIds));
 
         switch (slider) {
 
@@ -317,8 +420,8 @@ final class WidgetMapper {
                 .setStepInt(integerRangeSlider.getStep())
                 .setValueRange(
                     ValueRange.newBuilder()
-                        .setFromValueInt(integerRangeSlider.getValue().getLeft())
-                        .setToValueInt(integerRangeSlider.getValue().getRight())
+                        .setFromValueInt(integerRangeSlider.getRange().getFrom())
+                        .setToValueInt(integerRangeSlider.getRange().getTo())
                         .build()
                 );
 
@@ -327,8 +430,19 @@ final class WidgetMapper {
                 .setStepFloat(floatRangeSlider.getStep())
                 .setValueRange(
                     ValueRange.newBuilder()
-                        .setFromValueFloat(floatRangeSlider.getValue().getLeft())
-                        .setToValueFloat(floatRangeSlider.getValue().getRight())
+                        .setFromValueFloat(floatRangeSlider.getRange().getFrom())
+                        .setToValueFloat(floatRangeSlider.getRange().getTo())
+                        .build()
+                );
+
+            case DateRangeSlider dateRangeSlider when temporalNumbers -> builder
+                .setMinValueEpochDay(toEpochDay(dateRangeSlider.getMin()))
+                .setMaxValueEpochDay(toEpochDay(dateRangeSlider.getMax()))
+                .setStepInt(dateRangeSlider.getStep())
+                .setValueRange(
+                    ValueRange.newBuilder()
+                        .setFromValueEpochDay(toEpochDay(dateRangeSlider.getValue().getLeft()))
+                        .setToValueEpochDay(toEpochDay(dateRangeSlider.getValue().getRight()))
                         .build()
                 );
 
@@ -343,6 +457,17 @@ final class WidgetMapper {
                         .build()
                 );
 
+            case TimeRangeSlider timeRangeSlider when temporalNumbers -> builder
+                .setMinValueNanoOfDay(timeRangeSlider.getMin().toNanoOfDay())
+                .setMaxValueNanoOfDay(timeRangeSlider.getMax().toNanoOfDay())
+                .setStepInt(timeRangeSlider.getStep())
+                .setValueRange(
+                    ValueRange.newBuilder()
+                        .setFromValueNanoOfDay(timeRangeSlider.getValue().getLeft().toNanoOfDay())
+                        .setToValueNanoOfDay(timeRangeSlider.getValue().getRight().toNanoOfDay())
+                        .build()
+                );
+
             case TimeRangeSlider timeRangeSlider -> builder
                 .setMinValueDatetime(timeRangeSlider.getMin().format(DateTimeFormatter.ISO_LOCAL_TIME))
                 .setMaxValueDatetime(timeRangeSlider.getMax().format(DateTimeFormatter.ISO_LOCAL_TIME))
@@ -364,13 +489,27 @@ final class WidgetMapper {
         return builder.build();
     }
 
-    private static WidgetProperties toWidgetProperties(@NonNull Widget<?> widget, @NonNull String containerKey) {
+    private static int toEpochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    private static WidgetProperties toWidgetProperties(
+        @NonNull Widget<?> widget,
+        @NonNull String containerKey,
+        boolean widgetIds
+    ) {
         WidgetProperties.Builder builder = WidgetProperties.newBuilder()
             .setContainer(containerKey)
-            .setKey(widget.getKey())
             .setLabel(widget.getLabel())
             .setDisabled(widget.isDisabled());
 
+        // Clients identifying widgets by id get the int id instead of the string key
+        if (widgetIds) {
+            builder.setId(widget.getId());
+        } else {
+            builder.setKey(widget.getKey());
+        }
+
         if (widget.isUseContainerWidthSupported()) {
             builder.setUseContainerWidth(widget.isUseContainerWidth());
         }
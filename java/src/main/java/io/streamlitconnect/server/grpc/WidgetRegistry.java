@@ -0,0 +1,220 @@
+package io.streamlitconnect.server.grpc;
+
+import io.streamlitconnect.widgets.Widget;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.NonNull;
+
+/**
+ * The widgets of a session by {@link Widget#getId() id}: an open-addressing hash map with int keys and linear probing,
+ * so resolving the widget of an action neither boxes the id nor hashes a string, and allocates nothing.
+ * <p>
+ * Each widget is stamped with the generation - the rerun - it was last registered in, so the widgets no longer rendered
+ * can be {@link #sweep swept}. Widgets registered with {@link #PINNED} are never swept.
+ * <p>
+ * Not thread-safe.
+ */
+final class WidgetRegistry {
+
+    /**
+     * The generation of the widgets never swept.
+     */
+    static final int PINNED = Integer.MAX_VALUE;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] ids;
+
+    private int[] generations;
+
+    private Widget<?>[] widgets;
+
+    private int mask;
+
+    private int size;
+
+    WidgetRegistry() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Returns the widget with the given id.
+     *
+     * @param id The id.
+     * @return The widget, or null if not registered.
+     */
+    Widget<?> get(int id) {
+        for (int i = slot(id); widgets[i] != null; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                return widgets[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers a widget, replacing any widget with the same id.
+     *
+     * @param widget     The widget.
+     * @param generation The current generation, or {@link #PINNED}. The generation of a registered widget never goes
+     *                   back.
+     * @return Whether the widget was not registered yet.
+     */
+    boolean put(@NonNull Widget<?> widget, int generation) {
+        int id = widget.getId();
+        int i = slot(id);
+        for (; widgets[i] != null; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                widgets[i] = widget;
+                generations[i] = Math.max(generations[i], generation);
+                return false;
+            }
+        }
+        ids[i] = id;
+        generations[i] = generation;
+        widgets[i] = widget;
+        // Kept at most half full, so the probe sequences stay short
+        if (++size * 2 > widgets.length) {
+            rehash(widgets.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters the widget with the given id.
+     *
+     * @param id The id.
+     * @return Whether a widget was registered.
+     */
+    boolean remove(int id) {
+        int i = slot(id);
+        for (; widgets[i] != null; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                break;
+            }
+        }
+        if (widgets[i] == null) {
+            return false;
+        }
+        // Shift the following entries of the probe sequence back, rather than leaving a tombstone
+        int gap = i;
+        for (int j = (gap + 1) & mask; widgets[j] != null; j = (j + 1) & mask) {
+            int home = slot(ids[j]);
+            // Move the entry into the gap unless its home slot lies cyclically within (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                ids[gap] = ids[j];
+                generations[gap] = generations[j];
+                widgets[gap] = widgets[j];
+                gap = j;
+            }
+        }
+        widgets[gap] = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * Unregisters the widgets last registered before the given generation. The table is rebuilt, and shrunk to the
+     * remaining widgets, only if any widget is swept.
+     *
+     * @param minGeneration The oldest generation kept.
+     * @return The number of widgets swept.
+     */
+    int sweep(int minGeneration) {
+        int swept = 0;
+        for (int i = 0; i < widgets.length; i++) {
+            if (widgets[i] != null && generations[i] < minGeneration) {
+                swept++;
+            }
+        }
+        if (swept == 0) {
+            return 0;
+        }
+
+        int[] oldIds = ids;
+        int[] oldGenerations = generations;
+        Widget<?>[] oldWidgets = widgets;
+        size -= swept;
+        allocate(capacityFor(size));
+        for (int i = 0; i < oldWidgets.length; i++) {
+            if (oldWidgets[i] != null && oldGenerations[i] >= minGeneration) {
+                insert(oldIds[i], oldGenerations[i], oldWidgets[i]);
+            }
+        }
+        return swept;
+    }
+
+    void forEach(@NonNull Consumer<Widget<?>> action) {
+        for (Widget<?> widget : widgets) {
+            if (widget != null) {
+                action.accept(widget);
+            }
+        }
+    }
+
+    List<Widget<?>> values() {
+        List<Widget<?>> values = new ArrayList<>(size);
+        forEach(values::add);
+        return values;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (widgets.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(widgets, null);
+        }
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return values().toString();
+    }
+
+    private int slot(int id) {
+        int hash = id * 0x9E3779B9; // Fibonacci hashing spreads the sequential ids
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldGenerations = generations;
+        Widget<?>[] oldWidgets = widgets;
+        allocate(capacity);
+        for (int i = 0; i < oldWidgets.length; i++) {
+            if (oldWidgets[i] != null) {
+                insert(oldWidgets[i].getId(), oldGenerations[i], oldWidgets[i]);
+            }
+        }
+    }
+
+    // Inserts an entry known to be absent, without growing the table
+    private void insert(int id, int generation, Widget<?> widget) {
+        int i = slot(id);
+        while (widgets[i] != null) {
+            i = (i + 1) & mask;
+        }
+        ids[i] = id;
+        generations[i] = generation;
+        widgets[i] = widget;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        generations = new int[capacity];
+        widgets = new Widget<?>[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int size) {
+        // At most a quarter full after a sweep, so the table does not grow right away again
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size) * 4 - 1) << 1);
+    }
+
+}
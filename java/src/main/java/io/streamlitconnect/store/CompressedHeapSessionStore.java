@@ -0,0 +1,102 @@
+package io.streamlitconnect.store;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import io.streamlitconnect.StreamlitException;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import lombok.NonNull;
+
+/**
+ * Keeps the states of the sessions on the heap, deflate-compressed.
+ */
+public class CompressedHeapSessionStore implements SessionStore {
+
+    private final ConcurrentHashMap<String, byte[]> states = new ConcurrentHashMap<>();
+
+    private final int level;
+
+    /**
+     * Creates a store compressing for speed.
+     */
+    public CompressedHeapSessionStore() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Creates a store compressing with the given level.
+     *
+     * @param level The compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}.
+     */
+    public CompressedHeapSessionStore(int level) {
+        isTrue(level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION,
+            "Invalid compression level: %d", level);
+        this.level = level;
+    }
+
+    @Override
+    public void put(@NonNull String sessionId, byte @NonNull [] state) {
+        states.put(sessionId, compress(state));
+    }
+
+    @Override
+    public byte[] take(@NonNull String sessionId) {
+        byte[] compressed = states.remove(sessionId);
+        return compressed != null ? decompress(compressed) : null;
+    }
+
+    @Override
+    public void remove(@NonNull String sessionId) {
+        states.remove(sessionId);
+    }
+
+    @Override
+    public void close() {
+        states.clear();
+    }
+
+    private byte[] compress(byte[] state) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(state);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(state.length / 2 + Integer.BYTES);
+            // Prefixed by the uncompressed length, to inflate into an array of the right size
+            out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(state.length).array());
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            int length = ByteBuffer.wrap(compressed).getInt();
+            inflater.setInput(compressed, Integer.BYTES, compressed.length - Integer.BYTES);
+            byte[] state = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(state, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new StreamlitException("Truncated session state");
+                }
+                read += n;
+            }
+            return state;
+        } catch (DataFormatException e) {
+            throw new StreamlitException("Corrupt session state", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
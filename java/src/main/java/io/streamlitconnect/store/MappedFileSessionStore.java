@@ -0,0 +1,199 @@
+package io.streamlitconnect.store;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import io.streamlitconnect.StreamlitException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the states of the sessions off-heap, in a memory-mapped file - so they are paged out by the operating system
+ * rather than taking heap, and the file can be placed on a fast local disk.
+ * <p>
+ * The file is divided into fixed-size blocks, each state taking as many blocks as it needs - not necessarily adjacent
+ * ones. Blocks of removed states are reused, so the file grows to the peak size of the stored states, mapped in
+ * segments as it grows. Only the index of the states is kept on the heap. The file is not meant to survive the store:
+ * it is deleted when the store is closed.
+ */
+public class MappedFileSessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedFileSessionStore.class);
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    // The file is mapped, and grown, in segments of this many blocks
+    private static final int BLOCKS_PER_SEGMENT = 16 * 1024;
+
+    private record Slot(int[] blocks, int length) {
+
+    }
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final int blockSize;
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    // Guards the allocation of blocks and the growth of the file
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Replaced on growth, so writers and readers use the segments without the lock
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    private int[] freeBlocks = new int[0];
+
+    private int freeCount;
+
+    private int blockCount;
+
+    /**
+     * Creates a store in a new temporary file.
+     *
+     * @return The store.
+     */
+    public static MappedFileSessionStore createTemp() {
+        try {
+            return new MappedFileSessionStore(Files.createTempFile("streamlit-sessions-", ".bin"), DEFAULT_BLOCK_SIZE);
+        } catch (IOException e) {
+            throw new StreamlitException(e);
+        }
+    }
+
+    /**
+     * Creates a store in the given file, which is truncated.
+     *
+     * @param file      The file.
+     * @param blockSize The size of the blocks of the file in bytes.
+     */
+    public MappedFileSessionStore(@NonNull Path file, int blockSize) {
+        isTrue(blockSize > 0, "blockSize must be > 0");
+        this.file = file;
+        this.blockSize = blockSize;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new StreamlitException(e);
+        }
+    }
+
+    @Override
+    public void put(@NonNull String sessionId, byte @NonNull [] state) {
+        int[] blocks = allocate((state.length + blockSize - 1) / blockSize);
+        MappedByteBuffer[] segments = this.segments;
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * blockSize;
+            int length = Math.min(blockSize, state.length - offset);
+            segment(segments, blocks[i]).put(position(blocks[i]), state, offset, length);
+        }
+        Slot previous = slots.put(sessionId, new Slot(blocks, state.length));
+        if (previous != null) {
+            free(previous.blocks());
+        }
+    }
+
+    @Override
+    public byte[] take(@NonNull String sessionId) {
+        Slot slot = slots.remove(sessionId);
+        if (slot == null) {
+            return null;
+        }
+        byte[] state = new byte[slot.length()];
+        MappedByteBuffer[] segments = this.segments;
+        int[] blocks = slot.blocks();
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * blockSize;
+            int length = Math.min(blockSize, state.length - offset);
+            segment(segments, blocks[i]).get(position(blocks[i]), state, offset, length);
+        }
+        free(blocks);
+        return state;
+    }
+
+    @Override
+    public void remove(@NonNull String sessionId) {
+        Slot slot = slots.remove(sessionId);
+        if (slot != null) {
+            free(slot.blocks());
+        }
+    }
+
+    @Override
+    public void close() {
+        slots.clear();
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Error closing session store file: {}: {}", file, e.getMessage(), e);
+        }
+    }
+
+    private int[] allocate(int count) {
+        int[] blocks = new int[count];
+        lock.lock();
+        try {
+            int i = 0;
+            while (i < count && freeCount > 0) {
+                blocks[i++] = freeBlocks[--freeCount];
+            }
+            while (i < count) {
+                if (blockCount == segments.length * BLOCKS_PER_SEGMENT) {
+                    grow();
+                }
+                blocks[i++] = blockCount++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return blocks;
+    }
+
+    private void free(int[] blocks) {
+        lock.lock();
+        try {
+            if (freeCount + blocks.length > freeBlocks.length) {
+                freeBlocks = Arrays.copyOf(freeBlocks, Math.max(freeCount + blocks.length, freeBlocks.length * 2));
+            }
+            System.arraycopy(blocks, 0, freeBlocks, freeCount, blocks.length);
+            freeCount += blocks.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grow() {
+        long segmentSize = (long) BLOCKS_PER_SEGMENT * blockSize;
+        try {
+            MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, segments.length * segmentSize, segmentSize);
+            MappedByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+            grown[grown.length - 1] = segment;
+            segments = grown;
+            log.debug("Session store file: {} grown to {} MiB", file, grown.length * segmentSize / (1024 * 1024));
+        } catch (IOException e) {
+            throw new StreamlitException(e);
+        }
+    }
+
+    private static MappedByteBuffer segment(MappedByteBuffer[] segments, int block) {
+        return segments[block / BLOCKS_PER_SEGMENT];
+    }
+
+    private int position(int block) {
+        return (block % BLOCKS_PER_SEGMENT) * blockSize;
+    }
+
+}
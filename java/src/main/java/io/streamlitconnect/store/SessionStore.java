@@ -0,0 +1,45 @@
+package io.streamlitconnect.store;
+
+import lombok.NonNull;
+
+/**
+ * Holds the state of passivated sessions, i.e. of sessions inactive for longer than the
+ * {@link io.streamlitconnect.Config#getPassivationIdleSeconds() passivation idle time}, until they are rehydrated by
+ * their next request or evicted. The state is an opaque byte array written by the server.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface SessionStore extends AutoCloseable {
+
+    /**
+     * Stores the state of a session, replacing any state stored before.
+     *
+     * @param sessionId The id of the session.
+     * @param state     The state.
+     */
+    void put(@NonNull String sessionId, byte @NonNull [] state);
+
+    /**
+     * Removes and returns the state of a session.
+     *
+     * @param sessionId The id of the session.
+     * @return The state, or null if none is stored.
+     */
+    byte[] take(@NonNull String sessionId);
+
+    /**
+     * Removes the state of a session, if stored.
+     *
+     * @param sessionId The id of the session.
+     */
+    void remove(@NonNull String sessionId);
+
+    /**
+     * Releases the resources of the store, discarding all states. The default implementation does nothing.
+     */
+    @Override
+    default void close() {
+        // Default implementation does nothing
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.streamlitconnect.widgets;
+
+import java.io.Serial;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * A range of floats held unboxed: the value of the {@link FloatRangeSlider}.
+ * <p>
+ * Its widget alternates between two ranges, updated in place as the user changes the value, so an action allocates
+ * nothing: read the ends with {@link #getFrom()} and {@link #getTo()}, and copy the range to keep it beyond the rerun
+ * it was read in. Equal to any {@link Pair} of the same boxed ends.
+ */
+public final class FloatRange extends Pair<Float, Float> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private float from;
+
+    private float to;
+
+    public FloatRange(float from, float to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public float getFrom() {
+        return from;
+    }
+
+    public float getTo() {
+        return to;
+    }
+
+    @Override
+    public Float getLeft() {
+        return from;
+    }
+
+    @Override
+    public Float getRight() {
+        return to;
+    }
+
+    /**
+     * Not supported: the range is only changed by its widget, which detects the changes.
+     */
+    @Override
+    public Float setValue(Float value) {
+        throw new UnsupportedOperationException("FloatRange is updated by its widget");
+    }
+
+    /**
+     * Sets the value of a widget to the given range, in place: the range of the previous value is reused, and becomes
+     * the new value, while the current value becomes the previous one. The ends are compared as {@link Float#equals}
+     * does.
+     *
+     * @return true if the value has changed, false otherwise
+     */
+    static boolean update(Widget<Pair<Float, Float>> widget, float from, float to) {
+        FloatRange current = widget.value instanceof FloatRange range ? range : null;
+        if (current != null && Float.compare(current.from, from) == 0 && Float.compare(current.to, to) == 0) {
+            return false;
+        }
+        FloatRange next =
+            widget.previousValue instanceof FloatRange range && range != current ? range : new FloatRange(0, 0);
+        next.from = from;
+        next.to = to;
+        widget.previousValue = current != null ? current : widget.value;
+        widget.value = next;
+        widget.setChanged(true);
+        return true;
+    }
+
+}
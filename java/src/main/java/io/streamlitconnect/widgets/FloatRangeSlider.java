@@ -3,7 +3,7 @@ package io.streamlitconnect.widgets;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
-import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 
 /**
  * A FloatRangeSlider represents the interface for interacting with a corresponding Streamlit float range slider.
@@ -17,10 +17,44 @@ public class FloatRangeSlider extends RangeSlider<Float, Float> {
 
     public FloatRangeSlider(@NonNull String label) {
         super(label);
-        setValue(MutablePair.of(0.25f, 0.50f));
+        setRange(0.25f, 0.50f);
         setMin(0.0f);
         setMax(1.0f);
         setStep(0.01f);
     }
 
+    /**
+     * Set the range of the slider. Pairs of non-null ends are stored as a {@link FloatRange}.
+     *
+     * @param value The new range
+     * @return true if the range has changed, false otherwise
+     */
+    @Override
+    public boolean setValue(Pair<Float, Float> value) {
+        if (value == null || value.getLeft() == null || value.getRight() == null) {
+            return super.setValue(value);
+        }
+        return setRange(value.getLeft(), value.getRight());
+    }
+
+    /**
+     * Get the range of the slider, whose ends are read without unboxing.
+     *
+     * @return The range, reused by the slider: copy it to keep it beyond the current rerun
+     */
+    public FloatRange getRange() {
+        return (FloatRange) getValue();
+    }
+
+    /**
+     * Set the range of the slider in place, without allocating.
+     *
+     * @param from The lower end
+     * @param to   The upper end
+     * @return true if the range has changed, false otherwise
+     */
+    public boolean setRange(float from, float to) {
+        return FloatRange.update(this, from, to);
+    }
+
 }
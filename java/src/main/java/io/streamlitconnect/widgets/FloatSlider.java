@@ -1,5 +1,6 @@
 package io.streamlitconnect.widgets;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -8,6 +9,11 @@ import lombok.Setter;
 @Setter
 public class FloatSlider extends Slider<Float, Float> {
 
+    // The value unboxed, kept in step with the value
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private float floatValue;
+
     public FloatSlider(@NonNull String label) {
         super(label);
         setValue(0.0f);
@@ -16,4 +22,41 @@ public class FloatSlider extends Slider<Float, Float> {
         setStep(0.01f);
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        floatValue = 0;
+    }
+
+    @Override
+    public boolean setValue(Float value) {
+        boolean changed = super.setValue(value);
+        if (changed) {
+            floatValue = value != null ? value : 0;
+        }
+        return changed;
+    }
+
+    /**
+     * Get the value of the slider, without unboxing.
+     *
+     * @return The value, 0 if not set
+     */
+    public float getFloat() {
+        return floatValue;
+    }
+
+    /**
+     * Set the value of the slider, only boxing it if it has changed.
+     *
+     * @param value The new value
+     * @return true if the value has changed, false otherwise
+     */
+    public boolean setFloat(float value) {
+        if (this.value != null && Float.compare(floatValue, value) == 0) {
+            return false;
+        }
+        return setValue(value);
+    }
+
 }
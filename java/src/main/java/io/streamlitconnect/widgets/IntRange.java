@@ -0,0 +1,73 @@
+package io.streamlitconnect.widgets;
+
+import java.io.Serial;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * A range of ints held unboxed: the value of the {@link IntegerRangeSlider} and of the {@link SelectSlider}.
+ * <p>
+ * Its widget alternates between two ranges, updated in place as the user changes the value, so an action allocates
+ * nothing: read the ends with {@link #getFrom()} and {@link #getTo()}, and copy the range to keep it beyond the rerun
+ * it was read in. Equal to any {@link Pair} of the same boxed ends.
+ */
+public final class IntRange extends Pair<Integer, Integer> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private int from;
+
+    private int to;
+
+    public IntRange(int from, int to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+
+    @Override
+    public Integer getLeft() {
+        return from;
+    }
+
+    @Override
+    public Integer getRight() {
+        return to;
+    }
+
+    /**
+     * Not supported: the range is only changed by its widget, which detects the changes.
+     */
+    @Override
+    public Integer setValue(Integer value) {
+        throw new UnsupportedOperationException("IntRange is updated by its widget");
+    }
+
+    /**
+     * Sets the value of a widget to the given range, in place: the range of the previous value is reused, and becomes
+     * the new value, while the current value becomes the previous one.
+     *
+     * @return true if the value has changed, false otherwise
+     */
+    static boolean update(Widget<Pair<Integer, Integer>> widget, int from, int to) {
+        IntRange current = widget.value instanceof IntRange range ? range : null;
+        if (current != null && current.from == from && current.to == to) {
+            return false;
+        }
+        IntRange next = widget.previousValue instanceof IntRange range && range != current ? range : new IntRange(0, 0);
+        next.from = from;
+        next.to = to;
+        widget.previousValue = current != null ? current : widget.value;
+        widget.value = next;
+        widget.setChanged(true);
+        return true;
+    }
+
+}
@@ -3,7 +3,7 @@ package io.streamlitconnect.widgets;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
-import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 
 /**
  * An IntegerRangeSlider represents the interface for interacting with a corresponding Streamlit integer range slider.
@@ -22,10 +22,44 @@ public class IntegerRangeSlider extends RangeSlider<Integer, Integer> {
      */
     public IntegerRangeSlider(@NonNull String label) {
         super(label);
-        setValue(MutablePair.of(25, 50));
+        setRange(25, 50);
         setMin(0);
         setMax(100);
         setStep(1);
     }
 
+    /**
+     * Set the range of the slider. Pairs of non-null ends are stored as an {@link IntRange}.
+     *
+     * @param value The new range
+     * @return true if the range has changed, false otherwise
+     */
+    @Override
+    public boolean setValue(Pair<Integer, Integer> value) {
+        if (value == null || value.getLeft() == null || value.getRight() == null) {
+            return super.setValue(value);
+        }
+        return setRange(value.getLeft(), value.getRight());
+    }
+
+    /**
+     * Get the range of the slider, whose ends are read without unboxing.
+     *
+     * @return The range, reused by the slider: copy it to keep it beyond the current rerun
+     */
+    public IntRange getRange() {
+        return (IntRange) getValue();
+    }
+
+    /**
+     * Set the range of the slider in place, without allocating.
+     *
+     * @param from The lower end
+     * @param to   The upper end
+     * @return true if the range has changed, false otherwise
+     */
+    public boolean setRange(int from, int to) {
+        return IntRange.update(this, from, to);
+    }
+
 }
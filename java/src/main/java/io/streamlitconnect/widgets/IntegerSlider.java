@@ -1,5 +1,6 @@
 package io.streamlitconnect.widgets;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -14,6 +15,11 @@ import lombok.Setter;
 @Setter
 public class IntegerSlider extends Slider<Integer, Integer> {
 
+    // The value unboxed, kept in step with the value
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int intValue;
+
     /**
      * Constructor for IntegerSlider. Defaults min to 0, max to 100, and step to 1. The initial value is set to 0.
      *
@@ -27,4 +33,41 @@ public class IntegerSlider extends Slider<Integer, Integer> {
         setStep(1);
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        intValue = 0;
+    }
+
+    @Override
+    public boolean setValue(Integer value) {
+        boolean changed = super.setValue(value);
+        if (changed) {
+            intValue = value != null ? value : 0;
+        }
+        return changed;
+    }
+
+    /**
+     * Get the value of the slider, without unboxing.
+     *
+     * @return The value, 0 if not set
+     */
+    public int getInt() {
+        return intValue;
+    }
+
+    /**
+     * Set the value of the slider, only boxing it if it has changed.
+     *
+     * @param value The new value
+     * @return true if the value has changed, false otherwise
+     */
+    public boolean setInt(int value) {
+        if (this.value != null && intValue == value) {
+            return false;
+        }
+        return setValue(value);
+    }
+
 }
@@ -1,6 +1,8 @@
 package io.streamlitconnect.widgets;
 
 import java.util.Arrays;
+import java.util.BitSet;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -18,6 +20,11 @@ public class Multiselect extends Widget<int[]> {
 
     private String placeholder = DEFAULT_PLACEHOLDER; // Showed if no options are chosen
 
+    // The selected indices as a bitset, derived from the value on first use - for fast lookups in large option lists
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BitSet selection;
+
     public Multiselect(@NonNull String label) {
         super(label, true, true, false, true);
     }
@@ -27,6 +34,55 @@ public class Multiselect extends Widget<int[]> {
         super.reset();
         value = new int[0];
         previousValue = new int[0];
+        selection = null;
+    }
+
+    /**
+     * Set the selected indices, in the order they were selected.
+     *
+     * @param selectedIndices The selected indices
+     * @return true if the selection has changed, false otherwise
+     */
+    @Override
+    public boolean setValue(int[] selectedIndices) {
+        boolean changed = super.setValue(selectedIndices);
+        if (changed) {
+            selection = null;
+        }
+        return changed;
+    }
+
+    /**
+     * Check whether an option is selected, in constant time.
+     *
+     * @param index The index of the option
+     * @return true if the option is selected, false otherwise
+     */
+    public boolean isSelected(int index) {
+        return index >= 0 && selection().get(index);
+    }
+
+    /**
+     * Get the selected indices as a bitset, regardless of the order they were selected in.
+     *
+     * @return A copy of the selection
+     */
+    public BitSet getSelection() {
+        return (BitSet) selection().clone();
+    }
+
+    private BitSet selection() {
+        BitSet selection = this.selection;
+        if (selection == null) {
+            selection = new BitSet(options.length);
+            if (value != null) {
+                for (int index : value) {
+                    selection.set(index);
+                }
+            }
+            this.selection = selection;
+        }
+        return selection;
     }
 
     public String[] getSelectedOptions() {
@@ -5,7 +5,6 @@ import lombok.NonNull;
 import lombok.Setter;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 @Getter
@@ -23,8 +22,42 @@ public class SelectSlider extends Widget<Pair<Integer, Integer>> {
     @Override
     public void reset() {
         super.reset();
-        value = MutablePair.of(0, -1);
-        previousValue = MutablePair.of(0, -1);
+        value = new IntRange(0, -1);
+        previousValue = new IntRange(0, -1);
+    }
+
+    /**
+     * Set the selected range of options. Pairs of non-null indices are stored as an {@link IntRange}.
+     *
+     * @param value The new range of indices
+     * @return true if the range has changed, false otherwise
+     */
+    @Override
+    public boolean setValue(Pair<Integer, Integer> value) {
+        if (value == null || value.getLeft() == null || value.getRight() == null) {
+            return super.setValue(value);
+        }
+        return setRange(value.getLeft(), value.getRight());
+    }
+
+    /**
+     * Get the selected range of option indices, whose ends are read without unboxing.
+     *
+     * @return The range, reused by the slider: copy it to keep it beyond the current rerun
+     */
+    public IntRange getRange() {
+        return (IntRange) getValue();
+    }
+
+    /**
+     * Set the selected range of options in place, without allocating.
+     *
+     * @param lowerIndex The index of the lower option
+     * @param upperIndex The index of the upper option
+     * @return true if the range has changed, false otherwise
+     */
+    public boolean setRange(int lowerIndex, int upperIndex) {
+        return IntRange.update(this, lowerIndex, upperIndex);
     }
 
     public String getLowerOption() {
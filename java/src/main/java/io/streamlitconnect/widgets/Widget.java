@@ -1,8 +1,10 @@
 package io.streamlitconnect.widgets;
 
-import io.streamlitconnect.utils.StringUtils;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -23,14 +25,30 @@ public abstract class Widget<T> {
         COLLAPSED
     }
 
+    private static final String SCOPED_KEY_PREFIX = Widget.class.getSimpleName() + "-";
+
+    private static final String KEY_PREFIX = Widget.class.getSimpleName() + "_";
+
+    // Allocates the ids of the widgets created outside a key scope, counting down so they never collide with the ids
+    // allocated in a scope
+    private static final AtomicInteger UNSCOPED_IDS = new AtomicInteger();
+
     protected T value;
 
     @Setter
     protected T previousValue;
 
-    @Setter(AccessLevel.PACKAGE)
     private boolean changed;
 
+    // Notified when the widget is flagged changed: the session the widget is registered in
+    @Getter(AccessLevel.NONE)
+    private volatile Consumer<Widget<?>> changeListener;
+
+    /**
+     * The id of the widget, unique within its session, never 0. The key of the widget is derived from it.
+     */
+    private final int id;
+
     private final String key;
 
     private final boolean helpSupported;
@@ -71,13 +89,58 @@ public abstract class Widget<T> {
         boolean useContainerWidthSupported,
         boolean changeCallbackSupported
     ) {
-        this.key = Widget.class.getSimpleName() + "_" + StringUtils.randomNumber(6);
+        // Sequential ids within a key scope, e.g. while the server creates or renders the app of a session
+        WidgetKeyScope scope = WidgetKeyScope.current();
+        this.id = scope != null ? scope.nextId() : nextUnscopedId();
+        this.key = keyOf(id);
         this.label = label;
         this.helpSupported = helpSupported;
         this.labelVisibilitySupported = labelVisibilitySupported;
         this.useContainerWidthSupported = useContainerWidthSupported;
         this.changeCallbackSupported = changeCallbackSupported;
         reset();
+        if (scope != null) {
+            scope.created(this);
+        }
+    }
+
+    private static int nextUnscopedId() {
+        // Fails rather than wrap around into the ids of the scopes, as widgets are equal by id
+        return UNSCOPED_IDS.updateAndGet(id -> {
+            if (id == -Integer.MAX_VALUE) {
+                throw new IllegalStateException("Widget ids exhausted, create widgets in a key scope");
+            }
+            return id - 1;
+        });
+    }
+
+    /**
+     * Returns the key of the widget with the given id.
+     *
+     * @param id The id of the widget.
+     * @return The key.
+     */
+    public static String keyOf(int id) {
+        return id > 0 ? SCOPED_KEY_PREFIX + id : KEY_PREFIX + -id;
+    }
+
+    /**
+     * Returns the id of the widget with the given key.
+     *
+     * @param key The key of the widget.
+     * @return The id, or 0 if the key is not a widget key.
+     */
+    public static int idOf(@NonNull String key) {
+        boolean scoped = key.startsWith(SCOPED_KEY_PREFIX);
+        if (!scoped && !key.startsWith(KEY_PREFIX)) {
+            return 0;
+        }
+        try {
+            int n = Integer.parseInt(key, SCOPED_KEY_PREFIX.length(), key.length(), 10);
+            return n > 0 ? (scoped ? n : -n) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     /**
@@ -98,21 +161,45 @@ public abstract class Widget<T> {
 
     /**
      * Set the value of the widget. If the value has changed, the previous value is stored and the touched flag is set to true.
+     * Values are compared by content, arrays included.
      *
      * @param t The new value
      * @return true if the value has changed, false otherwise
      */
     public boolean setValue(T t) {
-        // Check if changed
-        if ((t == null && value == null) || (t != null && t.equals(value))) {
+        // Check if changed, by content: array values are built afresh from every action
+        if (Objects.deepEquals(t, value)) {
             return false;
         }
         previousValue = value;
         value = t;
-        changed = true;
+        setChanged(true);
         return true;
     }
 
+    void setChanged(boolean changed) {
+        this.changed = changed;
+        Consumer<Widget<?>> listener = changeListener;
+        if (changed && listener != null) {
+            listener.accept(this);
+        }
+    }
+
+    /**
+     * Sets the listener notified whenever the widget is flagged changed, by an action or by the app, and notifies it
+     * right away if the widget is changed already. The server sets it to the session the widget is registered in.
+     * <p>
+     * Not meant to be used by apps.
+     *
+     * @param changeListener The listener, or null for none.
+     */
+    public void setChangeListener(Consumer<Widget<?>> changeListener) {
+        this.changeListener = changeListener;
+        if (changed && changeListener != null) {
+            changeListener.accept(this);
+        }
+    }
+
     /**
      * Reset the touched flag.
      */
@@ -121,7 +208,7 @@ public abstract class Widget<T> {
     }
 
     /**
-     * Two widgets are equal if they have the same key.
+     * Two widgets are equal if they have the same id, i.e. the same key.
      *
      * @param obj The object to compare
      * @return true if the objects are equal, false otherwise
@@ -135,17 +222,18 @@ public abstract class Widget<T> {
             return false;
         }
         final Widget<?> other = (Widget<?>) obj;
-        return this.key.equals(other.key);
+        return this.id == other.id;
     }
 
     @Override
     public int hashCode() {
-        return key.hashCode();
+        return Integer.hashCode(id);
     }
 
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
+            .append("id", id)
             .append("key", getKey())
             .append("label", label)
             .append("changed", changed)
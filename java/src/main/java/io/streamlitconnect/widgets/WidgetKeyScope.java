@@ -0,0 +1,107 @@
+package io.streamlitconnect.widgets;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import lombok.NonNull;
+
+/**
+ * Scope in which the widgets created by the current thread get sequential ids - and so keys - from a sequence, rather
+ * than ids from a process-wide counter, and are reported to a listener. The server creates and renders the app of a
+ * session in such a scope, with a sequence of the session, so an app created again for the same session - e.g. when
+ * rehydrating a passivated session - gets the very same widget keys, as long as it creates its widgets in the same
+ * order.
+ * <p>
+ * A part of the app rendered on a thread of its own rather gets its ids from a supplier of its own - e.g. derived from
+ * the position of the part in the app - so they do not depend on the timing of the threads.
+ * <p>
+ * Not meant to be used by apps.
+ */
+public final class WidgetKeyScope implements AutoCloseable {
+
+    private static final ThreadLocal<WidgetKeyScope> CURRENT = new ThreadLocal<>();
+
+    private static final Consumer<Widget<?>> NO_LISTENER = widget -> {
+    };
+
+    private final WidgetKeyScope outer;
+
+    private final IntSupplier ids;
+
+    private final Consumer<Widget<?>> listener;
+
+    private WidgetKeyScope(WidgetKeyScope outer, IntSupplier ids, Consumer<Widget<?>> listener) {
+        this.outer = outer;
+        this.ids = ids;
+        this.listener = listener;
+    }
+
+    /**
+     * Opens a scope on the current thread, to be closed on the same thread.
+     *
+     * @param sequence The last id allocated, incremented for each widget created in the scope.
+     * @return The scope.
+     */
+    public static WidgetKeyScope open(@NonNull AtomicInteger sequence) {
+        return open(sequence, NO_LISTENER);
+    }
+
+    /**
+     * Opens a scope on the current thread, to be closed on the same thread.
+     *
+     * @param sequence The last id allocated, incremented for each widget created in the scope.
+     * @param listener Called with each widget created in the scope, before its constructor completes.
+     * @return The scope.
+     */
+    public static WidgetKeyScope open(@NonNull AtomicInteger sequence, @NonNull Consumer<Widget<?>> listener) {
+        return open(() -> next(sequence), listener);
+    }
+
+    /**
+     * Opens a scope on the current thread, to be closed on the same thread.
+     *
+     * @param ids Supplies the positive id of each widget created in the scope.
+     * @return The scope.
+     */
+    public static WidgetKeyScope open(@NonNull IntSupplier ids) {
+        return open(ids, NO_LISTENER);
+    }
+
+    private static WidgetKeyScope open(IntSupplier ids, Consumer<Widget<?>> listener) {
+        WidgetKeyScope scope = new WidgetKeyScope(CURRENT.get(), ids, listener);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    @Override
+    public void close() {
+        if (outer != null) {
+            CURRENT.set(outer);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    static WidgetKeyScope current() {
+        return CURRENT.get();
+    }
+
+    int nextId() {
+        return ids.getAsInt();
+    }
+
+    void created(Widget<?> widget) {
+        listener.accept(widget);
+    }
+
+    private static int next(AtomicInteger sequence) {
+        // Fails rather than wrap around into the ids of the widgets created outside a scope
+        return sequence.updateAndGet(id -> {
+            if (id == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Widget ids of the scope exhausted");
+            }
+            return id + 1;
+        });
+    }
+
+}
@@ -0,0 +1,138 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.Action;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.CheckboxAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.SliderAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitCommonsProto.ValueSingle;
+import io.streamlitconnect.widgets.Checkbox;
+import io.streamlitconnect.widgets.DateRangeSlider;
+import io.streamlitconnect.widgets.IntegerRangeSlider;
+import io.streamlitconnect.widgets.IntegerSlider;
+import io.streamlitconnect.widgets.TextInput;
+import io.streamlitconnect.widgets.Widget;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ChangedWidgetsTest {
+
+    private final GrpcStreamlitSessionContext session = new GrpcStreamlitSessionContext("session", null,
+        Config.builder().build(), new OperationQueueMetrics(), Runnable::run);
+
+    private static Action check(Checkbox checkbox, boolean value) {
+        return Action.newBuilder()
+            .setCheckboxAction(CheckboxAction.newBuilder().setId(checkbox.getId()).setValue(value))
+            .build();
+    }
+
+    private static Action slide(Widget<?> slider) {
+        return Action.newBuilder()
+            .setSliderAction(SliderAction.newBuilder()
+                .setId(slider.getId())
+                .setValueSingle(ValueSingle.newBuilder().setValueInt(3)))
+            .build();
+    }
+
+    @Test
+    public void reportsTheWidgetsChangedByActions() {
+        Checkbox checkbox = new Checkbox("Accept");
+        session.pinWidget(checkbox);
+
+        session.processActions(List.of(check(checkbox, true)));
+        List<Widget<?>> changed = session.takeChangedWidgets();
+        assertEquals(List.of(checkbox), changed);
+        assertTrue(checkbox.isChanged());
+
+        session.releaseChangedWidgets(changed, false);
+        assertFalse(checkbox.isChanged());
+        assertTrue(session.takeChangedWidgets().isEmpty());
+    }
+
+    @Test
+    public void ignoresActionsForAWidgetOfAnotherType() {
+        TextInput name = new TextInput("Name");
+        session.pinWidget(name);
+        session.releaseChangedWidgets(session.takeChangedWidgets(), false);
+
+        session.processActions(List.of(Action.newBuilder()
+            .setCheckboxAction(CheckboxAction.newBuilder().setId(name.getId()).setValue(true))
+            .build()));
+
+        assertTrue(session.takeChangedWidgets().isEmpty());
+        assertFalse(name.isChanged());
+    }
+
+    @Test
+    public void ignoresSliderActionsForAnotherTypeOfWidget() {
+        TextInput name = new TextInput("Name");
+        DateRangeSlider period = new DateRangeSlider("Period");
+        Checkbox checkbox = new Checkbox("Accept");
+        session.pinWidget(name);
+        session.pinWidget(period);
+        session.pinWidget(checkbox);
+        session.releaseChangedWidgets(session.takeChangedWidgets(), false);
+
+        // Skipped, rather than failing the actions after them
+        session.processActions(List.of(slide(name), slide(period), check(checkbox, true)));
+
+        assertEquals(List.of(checkbox), session.takeChangedWidgets());
+        assertFalse(name.isChanged());
+        assertFalse(period.isChanged());
+    }
+
+    @Test
+    public void reportsTheWidgetsChangedByTheApp() {
+        TextInput name = new TextInput("Name");
+        IntegerSlider level = new IntegerSlider("Level");
+        IntegerRangeSlider range = new IntegerRangeSlider("Range");
+        session.pinWidget(name);
+        session.pinWidget(level);
+        session.pinWidget(range);
+        // Changed by their constructors, before being registered
+        session.releaseChangedWidgets(session.takeChangedWidgets(), false);
+        assertFalse(level.isChanged());
+
+        name.setValue("Ada");
+        level.setInt(5);
+        range.setRange(2, 8);
+
+        List<Widget<?>> changed = session.takeChangedWidgets();
+        assertEquals(List.of(name, level, range), changed);
+        session.releaseChangedWidgets(changed, false);
+        assertFalse(name.isChanged());
+        assertFalse(level.isChanged());
+        assertFalse(range.isChanged());
+    }
+
+    @Test
+    public void handsTheChangesOfACancelledRerunOver() {
+        Checkbox checkbox = new Checkbox("Accept");
+        session.pinWidget(checkbox);
+        checkbox.setValue(true);
+
+        session.releaseChangedWidgets(session.takeChangedWidgets(), true);
+
+        assertEquals(List.of(checkbox), session.takeChangedWidgets());
+        assertTrue(checkbox.isChanged());
+    }
+
+    @Test
+    public void keepsTheChangesMadeDuringARerun() {
+        Checkbox checkbox = new Checkbox("Accept");
+        session.pinWidget(checkbox);
+        checkbox.setValue(true);
+        List<Widget<?>> changed = session.takeChangedWidgets();
+
+        // Changed again, e.g. by the app rendering, before the rerun ended
+        checkbox.setValue(false);
+        session.releaseChangedWidgets(changed, false);
+
+        assertTrue(checkbox.isChanged());
+        assertEquals(List.of(checkbox), session.takeChangedWidgets());
+    }
+
+}
@@ -0,0 +1,118 @@
+package io.streamlitconnect.server.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Server call observer recording the messages sent, with a readiness and cancellation toggled by the test.
+ */
+class FakeServerCallObserver<T> extends ServerCallStreamObserver<T> {
+
+    @Getter
+    private final List<T> messages = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch completion = new CountDownLatch(1);
+
+    @Setter
+    private volatile boolean ready = true;
+
+    @Setter
+    private volatile boolean cancelled;
+
+    @Getter
+    private volatile boolean completed;
+
+    @Getter
+    private volatile Throwable error;
+
+    private volatile Runnable onReadyHandler;
+
+    private volatile Runnable onCancelHandler;
+
+    /**
+     * Makes the transport ready and runs the on-ready handler, as gRPC does once the transport drained.
+     */
+    void becomeReady() {
+        ready = true;
+        Runnable handler = onReadyHandler;
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Cancels the call and runs the on-cancel handler, as gRPC does when the client cancels the call.
+     */
+    void cancel() {
+        cancelled = true;
+        Runnable handler = onCancelHandler;
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Waits until the call is completed or failed.
+     */
+    void awaitCompletion() throws InterruptedException {
+        completion.await();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void setOnReadyHandler(Runnable onReadyHandler) {
+        this.onReadyHandler = onReadyHandler;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setOnCancelHandler(Runnable onCancelHandler) {
+        this.onCancelHandler = onCancelHandler;
+    }
+
+    @Override
+    public void setCompression(String compression) {
+    }
+
+    @Override
+    public void disableAutoInboundFlowControl() {
+    }
+
+    @Override
+    public void request(int count) {
+    }
+
+    @Override
+    public void setMessageCompression(boolean enable) {
+    }
+
+    @Override
+    public void onNext(T value) {
+        messages.add(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        error = t;
+        completion.countDown();
+    }
+
+    @Override
+    public void onCompleted() {
+        completed = true;
+        completion.countDown();
+    }
+
+}
@@ -0,0 +1,49 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+public class FlowControlTest {
+
+    private final OperationQueueMetrics metrics = new OperationQueueMetrics();
+
+    private final FakeServerCallObserver<Object> observer = new FakeServerCallObserver<>();
+
+    @Test
+    public void passesWhileReady() {
+        new FlowControl(observer, metrics).awaitReady();
+        assertEquals(0, metrics.getTransportStalls());
+    }
+
+    @Test
+    public void waitsUntilTheTransportIsReady() throws Exception {
+        observer.setReady(false);
+        FlowControl flowControl = new FlowControl(observer, metrics);
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(flowControl::awaitReady);
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+        observer.becomeReady();
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(1, metrics.getTransportStalls());
+    }
+
+    @Test
+    public void stopsWaitingOnceCancelled() throws Exception {
+        observer.setReady(false);
+        FlowControl flowControl = new FlowControl(observer, metrics);
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(flowControl::awaitReady);
+        assertThrows(TimeoutException.class, () -> waiting.get(50, TimeUnit.MILLISECONDS));
+
+        // No ready signal follows a cancellation: noticed by the bounded wait
+        observer.setCancelled(true);
+        waiting.get(5, TimeUnit.SECONDS);
+    }
+
+}
@@ -0,0 +1,86 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.OperationBatch;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.TextOp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class OperationBatcherTest {
+
+    private final List<OperationBatch> batches = new ArrayList<>();
+
+    private static StreamlitOperation text(String body) {
+        return StreamlitOperation.newBuilder().setTextOp(TextOp.newBuilder().setBody(body).build()).build();
+    }
+
+    private static List<Integer> sizes(List<OperationBatch> batches) {
+        return batches.stream().map(OperationBatch::getOperationsCount).toList();
+    }
+
+    @Test
+    public void flushesTheFirstOperationRightAway() {
+        OperationBatcher batcher = new OperationBatcher(batches::add, Config.builder().build());
+        batcher.add(text("first"));
+        batcher.add(text("second"));
+
+        assertEquals(List.of(1), sizes(batches));
+        assertTrue(batcher.hasPending());
+    }
+
+    @Test
+    public void flushesByNumberOfOperations() {
+        OperationBatcher batcher = new OperationBatcher(batches::add, Config.builder().opBatchMaxOps(3).build());
+        for (int n = 0; n < 8; n++) {
+            batcher.add(text("op " + n));
+        }
+        batcher.flush();
+
+        assertEquals(List.of(1, 3, 3, 1), sizes(batches));
+        assertEquals(4, batcher.getBatchCount());
+        assertFalse(batcher.hasPending());
+    }
+
+    @Test
+    public void flushesBySize() {
+        StreamlitOperation op = text("x".repeat(100));
+        Config config = Config.builder().opBatchMaxBytes(op.getSerializedSize() * 2).build();
+        OperationBatcher batcher = new OperationBatcher(batches::add, config);
+        for (int n = 0; n < 5; n++) {
+            batcher.add(op);
+        }
+
+        assertEquals(List.of(1, 2, 2), sizes(batches));
+    }
+
+    @Test
+    public void isDueOnceLingered() throws Exception {
+        OperationBatcher batcher = new OperationBatcher(batches::add, Config.builder().opBatchLingerMicros(20_000).build());
+        batcher.add(text("first"));
+        batcher.add(text("second"));
+
+        assertTrue(batcher.remainingLingerNanos() > 0);
+        TimeUnit.MILLISECONDS.sleep(30);
+        assertTrue(batcher.remainingLingerNanos() <= 0);
+
+        batcher.flush();
+        assertEquals(List.of(1, 1), sizes(batches));
+    }
+
+    @Test
+    public void ignoresFlushOfEmptyBatch() {
+        OperationBatcher batcher = new OperationBatcher(batches::add, Config.builder().build());
+        batcher.flush();
+
+        assertTrue(batches.isEmpty());
+        assertEquals(0, batcher.getBatchCount());
+    }
+
+}
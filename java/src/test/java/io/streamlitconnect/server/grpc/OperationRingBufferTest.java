@@ -0,0 +1,119 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.TextOp;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+public class OperationRingBufferTest {
+
+    private final OperationQueueMetrics metrics = new OperationQueueMetrics();
+
+    private static StreamlitOperation text(int n) {
+        return StreamlitOperation.newBuilder().setTextOp(TextOp.newBuilder().setBody("op " + n).build()).build();
+    }
+
+    @Test
+    public void keepsTheOrderAcrossWraps() throws Exception {
+        OperationRingBuffer buffer = new OperationRingBuffer(3, metrics);
+        int taken = 0;
+        for (int n = 0; n < 10; n++) {
+            assertTrue(buffer.put(text(n)));
+            if (buffer.size() == 2) {
+                assertEquals(text(taken++), buffer.take());
+            }
+        }
+        while (buffer.size() > 0) {
+            assertEquals(text(taken++), buffer.take());
+        }
+        assertEquals(10, taken);
+        assertEquals(2, buffer.getHighWaterMark());
+        assertEquals(2, metrics.getMaxDepth());
+    }
+
+    @Test
+    public void parksProducersWhileFull() throws Exception {
+        OperationRingBuffer buffer = new OperationRingBuffer(2, metrics);
+        buffer.put(text(0));
+        buffer.put(text(1));
+
+        CompletableFuture<Boolean> parked = CompletableFuture.supplyAsync(() -> put(buffer, text(2)));
+        assertThrows(TimeoutException.class, () -> parked.get(100, TimeUnit.MILLISECONDS));
+
+        assertEquals(text(0), buffer.take());
+        assertTrue(parked.get(5, TimeUnit.SECONDS));
+        assertEquals(text(1), buffer.take());
+        assertEquals(text(2), buffer.take());
+        assertEquals(1, buffer.getStallCount());
+        assertTrue(buffer.getStallNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1, metrics.getProducerStalls());
+    }
+
+    @Test
+    public void pollsWithTimeout() throws Exception {
+        OperationRingBuffer buffer = new OperationRingBuffer(2, metrics);
+        assertNull(buffer.poll(10, TimeUnit.MILLISECONDS));
+        buffer.put(text(0));
+        assertEquals(text(0), buffer.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void terminateKeepsOnlyTheLastOperationAndReleasesProducers() throws Exception {
+        OperationRingBuffer buffer = new OperationRingBuffer(2, metrics);
+        buffer.put(text(0));
+        buffer.put(text(1));
+        CompletableFuture<Boolean> parked = CompletableFuture.supplyAsync(() -> put(buffer, text(2)));
+        assertThrows(TimeoutException.class, () -> parked.get(50, TimeUnit.MILLISECONDS));
+
+        buffer.terminate(text(99));
+
+        assertFalse(parked.get(5, TimeUnit.SECONDS));
+        assertFalse(buffer.put(text(3)));
+        assertEquals(1, buffer.size());
+        assertEquals(text(99), buffer.take());
+        assertNull(buffer.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void resetAcceptsOperationsAgain() throws Exception {
+        OperationRingBuffer buffer = new OperationRingBuffer(2, metrics);
+        buffer.put(text(0));
+        buffer.terminate(text(99));
+        buffer.reset();
+
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getHighWaterMark());
+        assertTrue(buffer.put(text(1)));
+        assertEquals(text(1), buffer.take());
+    }
+
+    @Test
+    public void clearReleasesProducers() throws Exception {
+        OperationRingBuffer buffer = new OperationRingBuffer(1, metrics);
+        buffer.put(text(0));
+        CompletableFuture<Boolean> parked = CompletableFuture.supplyAsync(() -> put(buffer, text(1)));
+        assertThrows(TimeoutException.class, () -> parked.get(50, TimeUnit.MILLISECONDS));
+
+        buffer.clear();
+
+        assertTrue(parked.get(5, TimeUnit.SECONDS));
+        assertEquals(text(1), buffer.take());
+    }
+
+    private static boolean put(OperationRingBuffer buffer, StreamlitOperation operation) {
+        try {
+            return buffer.put(operation);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
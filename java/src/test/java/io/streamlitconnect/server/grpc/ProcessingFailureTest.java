@@ -0,0 +1,77 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.grpc.BindableService;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc.StreamlitOperationServiceImplBase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation.OperationCase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class ProcessingFailureTest {
+
+    private static final String SESSION_ID = "session";
+
+    private static final int TEXTS = 100;
+
+    private static StreamlitOperationServiceImplBase service() {
+        // Far more operations than the queue holds, so the render thread parks on it
+        Config config = Config.builder().opQueueCapacity(4).rerunDebounceMillis(0).build();
+        List<BindableService> services = new NettyStreamlitServer().bindServices(context -> requestContext -> {
+            for (int i = 0; i < TEXTS; i++) {
+                requestContext.getRootContainer().text("Text " + i);
+            }
+        }, config);
+        return services.stream()
+            .filter(StreamlitOperationServiceImplBase.class::isInstance)
+            .map(StreamlitOperationServiceImplBase.class::cast)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static void request(StreamlitOperationServiceImplBase service, int seq,
+                                FakeServerCallObserver<StreamlitOperation> observer) throws Exception {
+        service.getOperations(StreamlitOperationsRequest.newBuilder().setSessionId(SESSION_ID).setSeq(seq).build(),
+            observer);
+        CompletableFuture.runAsync(() -> {
+            try {
+                observer.awaitCompletion();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void cancelsTheRequestWhenSendingFails() throws Exception {
+        StreamlitOperationServiceImplBase service = service();
+
+        FakeServerCallObserver<StreamlitOperation> closed = new FakeServerCallObserver<>() {
+            @Override
+            public void onNext(StreamlitOperation value) {
+                throw new StreamlitException("Stream closed");
+            }
+        };
+        request(service, 1, closed);
+        assertNotNull(closed.getError());
+
+        // The render thread is released, so the session takes the next request
+        FakeServerCallObserver<StreamlitOperation> next = new FakeServerCallObserver<>();
+        request(service, 2, next);
+        assertNull(next.getError());
+        List<StreamlitOperation> messages = next.getMessages();
+        assertEquals(TEXTS + 1, messages.size());
+        assertEquals(OperationCase.ENDOP, messages.getLast().getOperationCase());
+        assertFalse(messages.getLast().getEndOp().getCancelled());
+    }
+
+}
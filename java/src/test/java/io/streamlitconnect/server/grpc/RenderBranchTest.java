@@ -0,0 +1,134 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.grpc.BindableService;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.Container;
+import io.streamlitconnect.StreamlitApp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc.StreamlitOperationServiceImplBase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.widgets.Checkbox;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+public class RenderBranchTest {
+
+    private static final String SESSION_ID = "session";
+
+    private final NettyStreamlitServer server = new NettyStreamlitServer();
+
+    // The ids of the widgets created on the branches by the last rerun, by the path of their branch
+    private final Map<String, List<Integer>> widgetIds = new ConcurrentHashMap<>();
+
+    private StreamlitOperationServiceImplBase service(StreamlitApp app) {
+        Config config = Config.builder().rerunDebounceMillis(0).build();
+        List<BindableService> services = server.bindServices(context -> app, config);
+        return services.stream()
+            .filter(StreamlitOperationServiceImplBase.class::isInstance)
+            .map(StreamlitOperationServiceImplBase.class::cast)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    /**
+     * Reruns the app, returning the ids of the widgets it created.
+     */
+    private Map<String, List<Integer>> rerun(StreamlitOperationServiceImplBase service, int seq)
+        throws InterruptedException {
+        widgetIds.clear();
+        FakeServerCallObserver<StreamlitOperation> observer = new FakeServerCallObserver<>();
+        service.getOperations(StreamlitOperationsRequest.newBuilder().setSessionId(SESSION_ID).setSeq(seq).build(),
+            observer);
+        observer.awaitCompletion();
+        assertNull(observer.getError());
+        return new TreeMap<>(widgetIds);
+    }
+
+    /**
+     * Renders the given levels of two branches in parallel into the container, each with the given number of widgets.
+     */
+    private void renderBranches(Container container, String path, int levels, int widgets) {
+        if (levels == 0) {
+            return;
+        }
+        Map<Container, Consumer<? super Container>> renderers = new LinkedHashMap<>();
+        for (int i = 0; i < 2; i++) {
+            String branchPath = path + "." + i;
+            renderers.put(container.innerContainer(), branch -> {
+                List<Integer> ids = new CopyOnWriteArrayList<>();
+                widgetIds.put(branchPath, ids);
+                for (int j = 0; j < widgets; j++) {
+                    if (ThreadLocalRandom.current().nextInt(4) == 0) {
+                        Thread.yield(); // Shuffles the timing of the branches
+                    }
+                    Checkbox checkbox = new Checkbox("Checkbox " + j);
+                    branch.widget(checkbox);
+                    ids.add(checkbox.getId());
+                }
+                renderBranches(branch, branchPath, levels - 1, widgets);
+            });
+        }
+        container.renderParallel(renderers);
+    }
+
+    private static void assertUnique(Map<String, List<Integer>> widgetIds, int count) {
+        Set<Integer> ids = new HashSet<>();
+        widgetIds.values().forEach(ids::addAll);
+        assertEquals(count, ids.size());
+    }
+
+    @Test
+    public void keepsTheWidgetIdsOfTheBranchesAcrossReruns() throws InterruptedException {
+        StreamlitOperationServiceImplBase service =
+            service(context -> renderBranches(context.getRootContainer(), "root", 3, 4));
+
+        Map<String, List<Integer>> first = rerun(service, 1);
+        int allocated = server.getSession(SESSION_ID).getWidgetIds().get();
+        assertEquals(14, first.size());
+        assertUnique(first, 14 * 4);
+
+        for (int seq = 2; seq <= 200; seq++) {
+            assertEquals(first, rerun(service, seq));
+        }
+        // The reruns use no more ids than the first one
+        assertEquals(allocated, server.getSession(SESSION_ID).getWidgetIds().get());
+    }
+
+    @Test
+    public void nestsBranchesWithoutRunningOutOfIds() throws InterruptedException {
+        StreamlitOperationServiceImplBase service =
+            service(context -> renderBranches(context.getRootContainer(), "root", 6, 3));
+
+        Map<String, List<Integer>> first = rerun(service, 1);
+        assertEquals(126, first.size());
+        assertUnique(first, 126 * 3);
+
+        assertEquals(first, rerun(service, 2));
+    }
+
+    @Test
+    public void givesBranchesMoreWidgetsThanABlockHolds() throws InterruptedException {
+        int widgets = GrpcStreamlitSessionContext.WIDGET_ID_BLOCK_SIZE * 2 + 10;
+        StreamlitOperationServiceImplBase service =
+            service(context -> renderBranches(context.getRootContainer(), "root", 1, widgets));
+
+        Map<String, List<Integer>> first = rerun(service, 1);
+        assertEquals(2, first.size());
+        assertUnique(first, 2 * widgets);
+
+        assertEquals(first, rerun(service, 2));
+    }
+
+}
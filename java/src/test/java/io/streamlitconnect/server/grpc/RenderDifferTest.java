@@ -0,0 +1,165 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.EndOp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.RemoveOp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.RetainOp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.TextOp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+public class RenderDifferTest {
+
+    private static StreamlitOperation text(String body) {
+        return StreamlitOperation.newBuilder().setTextOp(TextOp.newBuilder().setBody(body).build()).build();
+    }
+
+    private static StreamlitOperation retain(int count) {
+        return StreamlitOperation.newBuilder().setRetainOp(RetainOp.newBuilder().setCount(count).build()).build();
+    }
+
+    private static StreamlitOperation remove(int count) {
+        return StreamlitOperation.newBuilder().setRemoveOp(RemoveOp.newBuilder().setCount(count).build()).build();
+    }
+
+    private static List<StreamlitOperation> texts(String... bodies) {
+        return List.of(bodies).stream().map(RenderDifferTest::text).toList();
+    }
+
+    private static List<StreamlitOperation> diff(List<StreamlitOperation> previous, List<StreamlitOperation> current) {
+        RenderDiffer differ = new RenderDiffer(previous != null ? new RenderDiffer.Baseline(1, previous) : null);
+        List<StreamlitOperation> sent = new ArrayList<>();
+        current.forEach(op -> differ.diff(op, sent::add));
+        differ.finish(sent::add);
+        assertEquals(current, differ.toBaseline(2).ops());
+        return sent;
+    }
+
+    /**
+     * Applies the sent operations to the previous operations the way clients do.
+     */
+    private static List<StreamlitOperation> apply(List<StreamlitOperation> previous, List<StreamlitOperation> sent) {
+        List<StreamlitOperation> applied = new ArrayList<>();
+        int cursor = 0;
+        for (StreamlitOperation op : sent) {
+            switch (op.getOperationCase()) {
+                case RETAINOP -> {
+                    applied.addAll(previous.subList(cursor, cursor + op.getRetainOp().getCount()));
+                    cursor += op.getRetainOp().getCount();
+                }
+                case REMOVEOP -> cursor += op.getRemoveOp().getCount();
+                default -> applied.add(op);
+            }
+        }
+        return applied;
+    }
+
+    @Test
+    public void sendsAllOperationsWithoutBaseline() {
+        List<StreamlitOperation> current = texts("a", "b", "c");
+        assertEquals(current, diff(null, current));
+    }
+
+    @Test
+    public void retainsUnchangedRerun() {
+        assertEquals(List.of(retain(3)), diff(texts("a", "b", "c"), texts("a", "b", "c")));
+    }
+
+    @Test
+    public void insertsWithoutResendingTheFollowingOperations() {
+        List<StreamlitOperation> previous = texts("a", "b", "c", "d");
+        List<StreamlitOperation> current = texts("a", "x", "b", "c", "d");
+        assertEquals(List.of(retain(1), text("x"), retain(3)), diff(previous, current));
+    }
+
+    @Test
+    public void removesWithoutResendingTheFollowingOperations() {
+        List<StreamlitOperation> previous = texts("a", "b", "c", "d");
+        List<StreamlitOperation> current = texts("a", "c", "d");
+        assertEquals(List.of(retain(1), remove(1), retain(2)), diff(previous, current));
+    }
+
+    @Test
+    public void updatesByInsertingAndRemoving() {
+        List<StreamlitOperation> previous = texts("a", "b", "c");
+        List<StreamlitOperation> current = texts("a", "B", "c");
+        assertEquals(List.of(retain(1), text("B"), remove(1), retain(1)), diff(previous, current));
+    }
+
+    @Test
+    public void removesTheOperationsNotReached() {
+        List<StreamlitOperation> previous = texts("a", "b", "c", "d");
+        assertEquals(List.of(retain(2), remove(2)), diff(previous, texts("a", "b")));
+    }
+
+    @Test
+    public void passesControlOperationsThrough() {
+        StreamlitOperation end = StreamlitOperation.newBuilder().setEndOp(EndOp.getDefaultInstance()).build();
+        RenderDiffer differ = new RenderDiffer(new RenderDiffer.Baseline(1, texts("a", "b")));
+        List<StreamlitOperation> sent = new ArrayList<>();
+        differ.diff(text("a"), sent::add);
+        differ.diff(end, sent::add);
+        differ.diff(text("b"), sent::add);
+        differ.finish(sent::add);
+        assertEquals(List.of(retain(1), end, retain(1)), sent);
+        assertEquals(texts("a", "b"), differ.toBaseline(2).ops());
+    }
+
+    @Test
+    public void appliedDeltasReproduceTheRerun() {
+        Random random = new Random(42);
+        for (int run = 0; run < 500; run++) {
+            List<StreamlitOperation> previous = randomOps(random);
+            List<StreamlitOperation> current = new ArrayList<>(previous);
+            for (int edit = random.nextInt(5); edit > 0; edit--) {
+                int index = current.isEmpty() ? 0 : random.nextInt(current.size());
+                switch (random.nextInt(3)) {
+                    case 0 -> current.add(index, text(String.valueOf(random.nextInt(8))));
+                    case 1 -> {
+                        if (!current.isEmpty()) {
+                            current.remove(index);
+                        }
+                    }
+                    default -> {
+                        if (!current.isEmpty()) {
+                            current.set(index, text(String.valueOf(random.nextInt(8))));
+                        }
+                    }
+                }
+            }
+            assertEquals(current, apply(previous, diff(previous, current)), "Run " + run);
+        }
+    }
+
+    @Test
+    public void boundsTheRetainedPages() {
+        Config config = Config.builder().renderBaselinePages(2).build();
+        var sessionContext = new GrpcStreamlitSessionContext("session", null, config, new OperationQueueMetrics(),
+            Executors.newVirtualThreadPerTaskExecutor());
+        sessionContext.setRenderBaseline("a", new RenderDiffer.Baseline(1, texts("a")));
+        sessionContext.setRenderBaseline("b", new RenderDiffer.Baseline(2, texts("b")));
+        sessionContext.getRenderBaseline("a");
+        sessionContext.setRenderBaseline("c", new RenderDiffer.Baseline(3, texts("c")));
+
+        assertEquals(2, sessionContext.getRenderBaselineCount());
+        assertEquals(1, sessionContext.getRenderBaseline("a").seq());
+        assertNull(sessionContext.getRenderBaseline("b"));
+        assertEquals(3, sessionContext.getRenderBaseline("c").seq());
+    }
+
+    private static List<StreamlitOperation> randomOps(Random random) {
+        List<StreamlitOperation> ops = new ArrayList<>();
+        for (int i = random.nextInt(12); i > 0; i--) {
+            ops.add(text(String.valueOf(random.nextInt(8))));
+        }
+        return ops;
+    }
+
+}
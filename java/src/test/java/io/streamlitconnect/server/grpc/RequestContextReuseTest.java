@@ -0,0 +1,60 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+public class RequestContextReuseTest {
+
+    private final GrpcStreamlitSessionContext session = new GrpcStreamlitSessionContext("session", null,
+        Config.builder().build(), new OperationQueueMetrics(), Executors.newVirtualThreadPerTaskExecutor());
+
+    private GrpcOperationsRequestContext acquire(int seq) {
+        return session.acquireOpsReqContext(seq, null, new FakeServerCallObserver<StreamlitOperation>(), false, null);
+    }
+
+    @Test
+    public void failsFastWhenUsedAfterRecycle() throws Exception {
+        GrpcOperationsRequestContext context = acquire(1);
+        context.close();
+        session.releaseOpsReqContext(context);
+
+        assertThrows(StreamlitException.class, () -> context.fork(() -> 1));
+        assertThrows(StreamlitException.class, () -> context.setAttribute("name", "value"));
+        assertThrows(StreamlitException.class, () -> context.onCancel(() -> {
+        }));
+        assertThrows(StreamlitException.class, () -> context.getRootContainer().text("stale"));
+        assertThrows(StreamlitException.class, context::changedWidgets);
+
+        // Usable again once reset for a new request
+        assertSame(context, acquire(2));
+        assertEquals(42, context.fork(() -> 42).get());
+    }
+
+    @Test
+    public void isEqualByIdentityAcrossReuse() {
+        GrpcOperationsRequestContext context = acquire(1);
+        Set<GrpcOperationsRequestContext> contexts = new HashSet<>();
+        contexts.add(context);
+        context.close();
+        session.releaseOpsReqContext(context);
+
+        assertSame(context, acquire(2));
+        assertEquals(Set.of(context), contexts);
+
+        // A context for the same request of the session is still another context
+        GrpcOperationsRequestContext other = new GrpcOperationsRequestContext(session, 2, null,
+            new FakeServerCallObserver<StreamlitOperation>(), false, null);
+        assertNotEquals(context, other);
+    }
+
+}
@@ -0,0 +1,145 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.BindableService;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.OperationsRequestContext;
+import io.streamlitconnect.StreamlitApp;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.Action;
+import io.streamlitconnect.server.grpc.gen.StreamlitActionsProto.CheckboxAction;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc.StreamlitOperationServiceImplBase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation.OperationCase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.widgets.Checkbox;
+import io.streamlitconnect.widgets.Widget;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.NonNull;
+import org.junit.jupiter.api.Test;
+
+public class RerunCoalescingTest {
+
+    private static final String SESSION_ID = "session";
+
+    private static class CheckboxApp implements StreamlitApp {
+
+        // Created with the app, so it has the first id of the session
+        private final Checkbox checkbox = new Checkbox("Accept");
+
+        private final List<List<Widget<?>>> renders = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void render(@NonNull OperationsRequestContext context) {
+            renders.add(context.changedWidgets());
+            context.getRootContainer().widget(checkbox);
+        }
+    }
+
+    // Created by the server, in the key scope of the session
+    private CheckboxApp app;
+
+    private StreamlitOperationServiceImplBase service(Config config) {
+        List<BindableService> services = new NettyStreamlitServer().bindServices(context -> app = new CheckboxApp(),
+            config);
+        return services.stream()
+            .filter(StreamlitOperationServiceImplBase.class::isInstance)
+            .map(StreamlitOperationServiceImplBase.class::cast)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static FakeServerCallObserver<StreamlitOperation> request(StreamlitOperationServiceImplBase service,
+                                                                      int seq, Action... actions) {
+        FakeServerCallObserver<StreamlitOperation> observer = new FakeServerCallObserver<>();
+        service.getOperations(StreamlitOperationsRequest.newBuilder()
+            .setSessionId(SESSION_ID)
+            .setSeq(seq)
+            .addAllActions(List.of(actions))
+            .build(), observer);
+        return observer;
+    }
+
+    private static Action check(boolean value) {
+        return Action.newBuilder().setCheckboxAction(CheckboxAction.newBuilder().setId(1).setValue(value)).build();
+    }
+
+    private static StreamlitOperation end(FakeServerCallObserver<StreamlitOperation> observer) {
+        List<StreamlitOperation> messages = observer.getMessages();
+        StreamlitOperation last = messages.getLast();
+        assertEquals(OperationCase.ENDOP, last.getOperationCase());
+        return last;
+    }
+
+    @Test
+    public void rendersABurstOnce() throws InterruptedException {
+        StreamlitOperationServiceImplBase service = service(Config.builder().rerunDebounceMillis(200).build());
+
+        List<FakeServerCallObserver<StreamlitOperation>> observers = new ArrayList<>();
+        observers.add(request(service, 1, check(true)));
+        for (int seq = 2; seq <= 5; seq++) {
+            observers.add(request(service, seq));
+        }
+        for (FakeServerCallObserver<StreamlitOperation> observer : observers) {
+            observer.awaitCompletion();
+            assertTrue(observer.isCompleted());
+            assertNull(observer.getError());
+        }
+
+        assertEquals(1, app.renders.size());
+        // The superseded requests are ended as cancelled, with nothing rendered
+        for (FakeServerCallObserver<StreamlitOperation> superseded : observers.subList(0, 4)) {
+            assertEquals(1, superseded.getMessages().size());
+            assertTrue(end(superseded).getEndOp().getCancelled());
+        }
+        // The actions of the dropped requests are not lost
+        assertFalse(end(observers.getLast()).getEndOp().getCancelled());
+        assertEquals(List.of(app.checkbox), app.renders.getFirst());
+        assertTrue(app.checkbox.getValue());
+    }
+
+    @Test
+    public void rendersEachRequestWithoutDebounce() throws InterruptedException {
+        StreamlitOperationServiceImplBase service = service(Config.builder().rerunDebounceMillis(0).build());
+
+        for (int seq = 1; seq <= 3; seq++) {
+            FakeServerCallObserver<StreamlitOperation> observer = request(service, seq, check(seq % 2 == 1));
+            observer.awaitCompletion();
+            assertNull(observer.getError());
+            assertFalse(end(observer).getEndOp().getCancelled());
+        }
+
+        assertEquals(3, app.renders.size());
+        for (List<Widget<?>> changed : app.renders) {
+            assertEquals(List.of(app.checkbox), changed);
+        }
+        assertTrue(app.checkbox.getValue());
+    }
+
+    @Test
+    public void completesEveryRequestOfABurstWithoutDebounce() throws InterruptedException {
+        StreamlitOperationServiceImplBase service = service(Config.builder().rerunDebounceMillis(0).build());
+
+        List<FakeServerCallObserver<StreamlitOperation>> observers = new ArrayList<>();
+        for (int seq = 1; seq <= 5; seq++) {
+            observers.add(request(service, seq, check(seq % 2 == 1)));
+        }
+        // Started right away, each request supersedes the previous one, cancelled but still completed
+        for (FakeServerCallObserver<StreamlitOperation> observer : observers) {
+            observer.awaitCompletion();
+            assertTrue(observer.isCompleted());
+            assertNull(observer.getError());
+        }
+
+        // The last one is rendered to the end
+        assertTrue(app.renders.size() >= 1 && app.renders.size() <= 5);
+        assertFalse(end(observers.getLast()).getEndOp().getCancelled());
+        assertTrue(app.checkbox.getValue());
+    }
+
+}
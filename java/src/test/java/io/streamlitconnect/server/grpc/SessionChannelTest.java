@@ -0,0 +1,79 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.BindableService;
+import io.grpc.stub.StreamObserver;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitApp;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionRequestFrame;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionProto.SessionResponseFrame;
+import io.streamlitconnect.server.grpc.gen.StreamlitSessionServiceGrpc.StreamlitSessionServiceImplBase;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.Test;
+
+public class SessionChannelTest {
+
+    private static final String SESSION_ID = "session";
+
+    // Started when the app renders, released when its render is interrupted
+    private final CountDownLatch rendering = new CountDownLatch(1);
+
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+
+    private final StreamlitApp app = context -> {
+        rendering.countDown();
+        try {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            Thread.currentThread().interrupt();
+        }
+    };
+
+    private StreamObserver<SessionRequestFrame> openChannel(FakeServerCallObserver<SessionResponseFrame> channel) {
+        Config config = Config.builder().rerunDebounceMillis(0).build();
+        List<BindableService> services = new NettyStreamlitServer().bindServices(context -> app, config);
+        StreamlitSessionServiceImplBase service = services.stream()
+            .filter(StreamlitSessionServiceImplBase.class::isInstance)
+            .map(StreamlitSessionServiceImplBase.class::cast)
+            .findFirst()
+            .orElseThrow();
+        return service.sessionChannel(channel);
+    }
+
+    private void rendersUntil(
+        BiConsumer<FakeServerCallObserver<SessionResponseFrame>, StreamObserver<SessionRequestFrame>> close
+    ) throws InterruptedException {
+        FakeServerCallObserver<SessionResponseFrame> channel = new FakeServerCallObserver<>();
+        StreamObserver<SessionRequestFrame> requests = openChannel(channel);
+        requests.onNext(SessionRequestFrame.newBuilder()
+            .setOperationsRequest(StreamlitOperationsRequest.newBuilder().setSessionId(SESSION_ID).setSeq(1))
+            .build());
+        assertTrue(rendering.await(10, TimeUnit.SECONDS));
+
+        close.accept(channel, requests);
+
+        // The rerun stops rather than render for nobody, and nothing more is written to the channel
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        int written = channel.getMessages().size();
+        Thread.sleep(100);
+        assertEquals(written, channel.getMessages().size());
+    }
+
+    @Test
+    public void cancelsTheRequestsOfACancelledChannel() throws InterruptedException {
+        rendersUntil((channel, requests) -> channel.cancel());
+    }
+
+    @Test
+    public void cancelsTheRequestsOfAFailedChannel() throws InterruptedException {
+        rendersUntil((channel, requests) -> requests.onError(new IllegalStateException("Connection reset")));
+    }
+
+}
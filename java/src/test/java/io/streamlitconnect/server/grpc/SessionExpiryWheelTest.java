@@ -0,0 +1,89 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.streamlitconnect.Config;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SessionExpiryWheelTest {
+
+    private static final long START = 1_000_000;
+
+    private static GrpcStreamlitSessionContext session(String sessionId, long lastActivityMillis) {
+        var session = new GrpcStreamlitSessionContext(sessionId, null, Config.builder().build(),
+            new OperationQueueMetrics(), Runnable::run);
+        session.setLastActivityAt(Instant.ofEpochMilli(lastActivityMillis));
+        return session;
+    }
+
+    /**
+     * Expires the wheel every step until the given time, returning the sessions expired with the time of their expiry.
+     */
+    private static List<String> expireUntil(SessionExpiryWheel wheel, long from, long to, long step) {
+        List<String> expired = new ArrayList<>();
+        for (long now = from; now <= to; now += step) {
+            for (GrpcStreamlitSessionContext session : wheel.expire(now)) {
+                expired.add(session.getSessionId() + "@" + now);
+            }
+        }
+        return expired;
+    }
+
+    @Test
+    public void expiresAtTheDeadline() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(1000, 100, START);
+        wheel.add(session("a", START));
+        wheel.add(session("b", START + 250));
+
+        assertEquals(List.of("a@" + (START + 1000), "b@" + (START + 1300)),
+            expireUntil(wheel, START + 100, START + 5000, 100));
+    }
+
+    @Test
+    public void reschedulesActiveSessions() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(1000, 100, START);
+        GrpcStreamlitSessionContext session = session("a", START);
+        wheel.add(session);
+
+        assertTrue(expireUntil(wheel, START + 100, START + 900, 100).isEmpty());
+        session.setLastActivityAt(Instant.ofEpochMilli(START + 900));
+
+        assertEquals(List.of("a@" + (START + 1900)), expireUntil(wheel, START + 1000, START + 5000, 100));
+    }
+
+    @Test
+    public void rollsOverForTimeoutsBeyondTheWheel() {
+        // 4096 slots of 1 ms: the deadline lies more than two rounds ahead
+        SessionExpiryWheel wheel = new SessionExpiryWheel(10_000, 1, START);
+        wheel.add(session("a", START));
+
+        assertEquals(List.of("a@" + (START + 10_000)), expireUntil(wheel, START + 1, START + 20_000, 1));
+    }
+
+    @Test
+    public void expiresOverdueSessionsAfterAStall() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(10_000, 1, START);
+        wheel.add(session("a", START));
+
+        // No expiry run for more than a round of the wheel
+        assertEquals(List.of("a"), wheel.expire(START + 25_000).stream()
+            .map(GrpcStreamlitSessionContext::getSessionId).toList());
+
+        wheel.add(session("b", START + 25_000));
+        assertEquals(List.of("b@" + (START + 35_000)), expireUntil(wheel, START + 25_001, START + 45_000, 1));
+    }
+
+    @Test
+    public void expiresWithinOneTickOfTheDeadline() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(1000, 100, START);
+        wheel.add(session("a", START + 1));
+
+        // Rounded up to the next tick, never expired before the deadline
+        assertEquals(List.of("a@" + (START + 1100)), expireUntil(wheel, START + 10, START + 2000, 10));
+    }
+
+}
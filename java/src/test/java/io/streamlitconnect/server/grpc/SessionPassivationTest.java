@@ -0,0 +1,172 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.BindableService;
+import io.streamlitconnect.Config;
+import io.streamlitconnect.OperationsRequestContext;
+import io.streamlitconnect.StreamlitApp;
+import io.streamlitconnect.StreamlitAppManager;
+import io.streamlitconnect.StreamlitSessionContext;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationServiceGrpc.StreamlitOperationServiceImplBase;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperationsRequest;
+import io.streamlitconnect.store.CompressedHeapSessionStore;
+import io.streamlitconnect.store.MappedFileSessionStore;
+import io.streamlitconnect.store.SessionStore;
+import io.streamlitconnect.widgets.TextInput;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import lombok.NonNull;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class SessionPassivationTest {
+
+    private static final String SESSION_ID = "session";
+
+    private static class NameApp implements StreamlitApp {
+
+        private final TextInput name = new TextInput("Name");
+
+        private final AtomicInteger closes = new AtomicInteger();
+
+        @Override
+        public void render(@NonNull OperationsRequestContext context) {
+            context.getRootContainer().widget(name);
+        }
+
+        @Override
+        public void close() {
+            closes.incrementAndGet();
+        }
+    }
+
+    private static class NameAppManager implements StreamlitAppManager {
+
+        private final List<NameApp> apps = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger disposals = new AtomicInteger();
+
+        @Override
+        public @NonNull StreamlitApp getOrCreateApp(@NonNull StreamlitSessionContext context) {
+            NameApp app = new NameApp();
+            apps.add(app);
+            return app;
+        }
+
+        @Override
+        public void disposeSession(@NonNull String sessionId) {
+            disposals.incrementAndGet();
+        }
+    }
+
+    static Stream<Arguments> stores() {
+        return Stream.of(
+            Arguments.of("compressed heap", (Supplier<SessionStore>) CompressedHeapSessionStore::new),
+            Arguments.of("mapped file", (Supplier<SessionStore>) MappedFileSessionStore::createTemp));
+    }
+
+    private static void rerun(StreamlitOperationServiceImplBase service, int seq) throws InterruptedException {
+        FakeServerCallObserver<StreamlitOperation> observer = new FakeServerCallObserver<>();
+        service.getOperations(StreamlitOperationsRequest.newBuilder().setSessionId(SESSION_ID).setSeq(seq).build(),
+            observer);
+        observer.awaitCompletion();
+        assertNull(observer.getError());
+    }
+
+    /**
+     * Waits until the session released the context of its last request, after its response is completed.
+     */
+    private static void awaitIdle(GrpcStreamlitSessionContext session) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (session.getCurrentOpsReqContext() != null && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertNull(session.getCurrentOpsReqContext());
+    }
+
+    private static StreamlitOperationServiceImplBase operationService(List<BindableService> services) {
+        return services.stream()
+            .filter(StreamlitOperationServiceImplBase.class::isInstance)
+            .map(StreamlitOperationServiceImplBase.class::cast)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("stores")
+    public void restoresTheWidgetValuesAndClosesTheAppOnce(String name, Supplier<SessionStore> store)
+        throws InterruptedException {
+        Config config = Config.builder().passivationIdleSeconds(1).sessionStore(store.get()).build();
+        NameAppManager appManager = new NameAppManager();
+        NettyStreamlitServer server = new NettyStreamlitServer();
+        StreamlitOperationServiceImplBase service = operationService(server.bindServices(appManager, config));
+
+        rerun(service, 1);
+        NameApp first = appManager.apps.getFirst();
+        first.name.setValue("Ada");
+        GrpcStreamlitSessionContext session = server.getSession(SESSION_ID);
+        awaitIdle(session);
+        session.setLastActivityAt(Instant.now().minusSeconds(2));
+
+        server.passivateSession(session);
+
+        assertTrue(session.isPassivated());
+        assertNull(session.getApp());
+        assertEquals(1, first.closes.get());
+        assertEquals(1, appManager.disposals.get());
+
+        // Rehydrated by the next request into a new app
+        rerun(service, 2);
+        NameApp second = appManager.apps.getLast();
+        assertNotSame(first, second);
+        assertEquals("Ada", second.name.getValue());
+        assertEquals(1, first.closes.get());
+
+        // Passivated again, then evicted: the closed app is not closed or disposed of again
+        awaitIdle(session);
+        session.setLastActivityAt(Instant.now().minusSeconds(2));
+        server.passivateSession(session);
+        server.closeSession(session);
+
+        assertEquals(1, first.closes.get());
+        assertEquals(1, second.closes.get());
+        assertEquals(2, appManager.disposals.get());
+        assertNull(config.getSessionStore().take(SESSION_ID));
+        config.getSessionStore().close();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("stores")
+    public void closesAnActiveSessionOnce(String name, Supplier<SessionStore> store) throws InterruptedException {
+        Config config = Config.builder().passivationIdleSeconds(1).sessionStore(store.get()).build();
+        NameAppManager appManager = new NameAppManager();
+        NettyStreamlitServer server = new NettyStreamlitServer();
+        StreamlitOperationServiceImplBase service = operationService(server.bindServices(appManager, config));
+
+        rerun(service, 1);
+        GrpcStreamlitSessionContext session = server.getSession(SESSION_ID);
+        awaitIdle(session);
+        server.closeSession(session);
+
+        // Not passivated once closed
+        session.setLastActivityAt(Instant.now().minusSeconds(2));
+        server.passivateSession(session);
+
+        assertEquals(1, appManager.apps.getFirst().closes.get());
+        assertEquals(1, appManager.disposals.get());
+        assertNull(config.getSessionStore().take(SESSION_ID));
+        config.getSessionStore().close();
+    }
+
+}
@@ -0,0 +1,130 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.streamlitconnect.Config;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SessionRegistryTest {
+
+    private final List<String> evicted = new ArrayList<>();
+
+    private static GrpcStreamlitSessionContext session(String sessionId, Config config, long idleMillis) {
+        var session = new GrpcStreamlitSessionContext(sessionId, null, config, new OperationQueueMetrics(), Runnable::run);
+        session.setLastActivityAt(Instant.now().minusMillis(idleMillis));
+        return session;
+    }
+
+    private SessionRegistry registry(Config config) {
+        return new SessionRegistry(config, session -> evicted.add(session.getSessionId()));
+    }
+
+    private static GrpcStreamlitSessionContext create(SessionRegistry registry, Config config, String sessionId,
+                                                      long idleMillis) {
+        return registry.getOrCreate(sessionId, () -> session(sessionId, config, idleMillis), session -> {
+        });
+    }
+
+    @Test
+    public void returnsTheRegisteredSession() {
+        Config config = Config.builder().build();
+        SessionRegistry registry = registry(config);
+        GrpcStreamlitSessionContext session = create(registry, config, "a", 0);
+
+        assertSame(session, create(registry, config, "a", 0));
+        assertSame(session, registry.get("a"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedSessions() {
+        Config config = Config.builder().maxSessions(2).admissionMinIdleSeconds(0).build();
+        SessionRegistry registry = registry(config);
+        create(registry, config, "a", 0);
+        create(registry, config, "b", 0);
+        registry.get("a"); // Used more recently than b
+
+        create(registry, config, "c", 0);
+        create(registry, config, "d", 0);
+
+        assertEquals(List.of("b", "a"), evicted);
+        assertNull(registry.get("a"));
+        assertNull(registry.get("b"));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void rejectsNewSessionsWhileAllAreRecentlyActive() {
+        Config config = Config.builder().maxSessions(1).admissionMinIdleSeconds(60).build();
+        SessionRegistry registry = registry(config);
+        create(registry, config, "a", 50_000);
+
+        StatusRuntimeException rejection = assertThrows(StatusRuntimeException.class,
+            () -> create(registry, config, "b", 0));
+
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, rejection.getStatus().getCode());
+        // The least recently used session may be evicted once idle for 60 s, i.e. in about 10 s
+        long pushbackMillis = Long.parseLong(rejection.getTrailers().get(SessionRegistry.RETRY_PUSHBACK_KEY));
+        assertTrue(pushbackMillis > 9_000 && pushbackMillis <= 10_000, "pushback: " + pushbackMillis);
+        assertTrue(evicted.isEmpty());
+        assertNull(registry.get("b"));
+    }
+
+    @Test
+    public void admitsOnceTheLeastRecentlyUsedSessionIsIdle() {
+        Config config = Config.builder().maxSessions(1).admissionMinIdleSeconds(60).build();
+        SessionRegistry registry = registry(config);
+        create(registry, config, "a", 61_000);
+
+        create(registry, config, "b", 0);
+
+        assertEquals(List.of("a"), evicted);
+    }
+
+    @Test
+    public void boundsTheWeightOfTheSessions() {
+        Config config = Config.builder()
+            .maxSessionWeight(4)
+            .admissionMinIdleSeconds(0)
+            .sessionWeigher(session -> session.getAttribute("weight") instanceof Integer weight ? weight : 1)
+            .build();
+        SessionRegistry registry = registry(config);
+        GrpcStreamlitSessionContext a = create(registry, config, "a", 0);
+        create(registry, config, "b", 0);
+        create(registry, config, "c", 0);
+        assertEquals(3, registry.getTotalWeight());
+
+        // Grown by a rerun: the least recently used other sessions make room
+        a.setAttribute("weight", 3);
+        registry.reweigh(a);
+
+        assertEquals(List.of("b"), evicted);
+        assertEquals(4, registry.getTotalWeight());
+    }
+
+    @Test
+    public void removesOnlyTheRegisteredContext() {
+        Config config = Config.builder().build();
+        SessionRegistry registry = registry(config);
+        GrpcStreamlitSessionContext a = create(registry, config, "a", 0);
+
+        assertTrue(registry.remove(a));
+        create(registry, config, "a", 0);
+
+        assertFalse(registry.remove(a));
+        assertEquals(1, registry.size());
+        assertEquals(1, registry.removeAll().size());
+        assertEquals(0, registry.getTotalWeight());
+    }
+
+}
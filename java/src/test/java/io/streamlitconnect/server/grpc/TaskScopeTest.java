@@ -0,0 +1,200 @@
+package io.streamlitconnect.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.streamlitconnect.Config;
+import io.streamlitconnect.StreamlitException;
+import io.streamlitconnect.server.grpc.gen.StreamlitOperationsProto.StreamlitOperation;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class TaskScopeTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Callable<String> after(long millis, String result) {
+        return () -> {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return result;
+        };
+    }
+
+    private static Callable<String> failing(long millis) {
+        return () -> {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            throw new IllegalStateException("boom");
+        };
+    }
+
+    private static long in(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static void awaitIdle(TaskScope scope) throws InterruptedException {
+        long deadline = in(5000);
+        while (!scope.isIdle() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertTrue(scope.isIdle());
+    }
+
+    @Test
+    public void joinsAllTheTasks() throws Exception {
+        TaskScope scope = new TaskScope(executor, TaskScope.Policy.ALL);
+        Future<String> a = scope.fork(after(20, "a"));
+        Future<String> b = scope.fork(after(1, "b"));
+
+        scope.join(TaskScope.NO_DEADLINE);
+
+        assertEquals("a", a.resultNow());
+        assertEquals("b", b.resultNow());
+        awaitIdle(scope);
+    }
+
+    @Test
+    public void shutsAllDownOnTheFirstFailure() throws Exception {
+        TaskScope scope = new TaskScope(executor, TaskScope.Policy.ALL);
+        Future<String> slow = scope.fork(after(10_000, "slow"));
+        scope.fork(failing(1));
+
+        StreamlitException failure = assertThrows(StreamlitException.class, () -> scope.join(in(5000)));
+
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertEquals(Future.State.CANCELLED, slow.state());
+        awaitIdle(scope);
+        assertEquals(Future.State.CANCELLED, scope.fork(after(1, "late")).state());
+    }
+
+    @Test
+    public void returnsTheFirstSuccessOfAny() throws Exception {
+        TaskScope scope = new TaskScope(executor, TaskScope.Policy.ANY);
+        scope.fork(failing(1));
+        Future<String> slow = scope.fork(after(10_000, "slow"));
+        scope.fork(after(20, "fast"));
+
+        scope.join(in(5000));
+
+        assertEquals("fast", scope.result());
+        assertEquals(Future.State.CANCELLED, slow.state());
+        awaitIdle(scope);
+    }
+
+    @Test
+    public void failsAnyWithoutSuccess() {
+        TaskScope scope = new TaskScope(executor, TaskScope.Policy.ANY);
+        scope.fork(failing(1));
+        scope.fork(failing(5));
+
+        scope.join(in(5000));
+
+        StreamlitException failure = assertThrows(StreamlitException.class, scope::result);
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void shutsTheChildScopesDownWithTheParent() throws Exception {
+        TaskScope parent = new TaskScope(executor, TaskScope.Policy.ALL);
+        TaskScope child = parent.open(TaskScope.Policy.ALL);
+        Future<String> task = child.fork(after(10_000, "child"));
+        assertFalse(parent.isIdle());
+
+        parent.shutdown();
+
+        assertEquals(Future.State.CANCELLED, task.state());
+        awaitIdle(parent);
+        // A scope opened once the parent is shut down runs nothing
+        try (TaskScope late = parent.open(TaskScope.Policy.ANY)) {
+            assertEquals(Future.State.CANCELLED, late.fork(after(1, "late")).state());
+        }
+    }
+
+    @Test
+    public void shutsDownAtTheDeadline() throws Exception {
+        TaskScope scope = new TaskScope(executor, TaskScope.Policy.ALL);
+        Future<String> slow = scope.fork(after(10_000, "slow"));
+
+        long start = System.nanoTime();
+        assertThrows(StreamlitException.class, () -> scope.join(in(50)));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(Future.State.CANCELLED, slow.state());
+        awaitIdle(scope);
+    }
+
+    @Test
+    public void shutsDownWhenTheJoiningThreadIsInterrupted() throws Exception {
+        TaskScope scope = new TaskScope(executor, TaskScope.Policy.ALL);
+        Future<String> slow = scope.fork(after(10_000, "slow"));
+        CountDownLatch joining = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        Thread joiner = Thread.ofVirtual().start(() -> {
+            joining.countDown();
+            try {
+                scope.join(TaskScope.NO_DEADLINE);
+            } catch (StreamlitException e) {
+                failure.set(e.getCause());
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        joining.await();
+        TimeUnit.MILLISECONDS.sleep(20);
+        joiner.interrupt();
+        joiner.join(5000);
+
+        assertFalse(joiner.isAlive());
+        assertTrue(failure.get() instanceof InterruptedException);
+        assertTrue(interrupted.get(), "interrupted status restored");
+        assertEquals(Future.State.CANCELLED, slow.state());
+        awaitIdle(scope);
+    }
+
+    @Test
+    public void canBeReusedOnceReset() {
+        TaskScope scope = new TaskScope(executor, TaskScope.Policy.ALL);
+        scope.fork(failing(1));
+        assertThrows(StreamlitException.class, () -> scope.join(in(5000)));
+
+        scope.reset();
+        Future<String> task = scope.fork(after(1, "again"));
+        scope.join(in(5000));
+
+        assertEquals("again", task.resultNow());
+    }
+
+    @Test
+    public void startsTheDeadlineOfARequestWithItsHandling() throws Exception {
+        Config config = Config.builder().taskTimeoutMillis(100).build();
+        GrpcStreamlitSessionContext session = new GrpcStreamlitSessionContext("session", null, config,
+            new OperationQueueMetrics(), executor);
+        GrpcOperationsRequestContext context = session.acquireOpsReqContext(1, null,
+            new FakeServerCallObserver<StreamlitOperation>(), false, null);
+
+        // Waiting for the debounce window and the mailbox does not count
+        TimeUnit.MILLISECONDS.sleep(150);
+        context.startTasksDeadline();
+        assertEquals(List.of("a"), context.all(List.of(after(10, "a"))));
+
+        // Still bounded by the deadline
+        assertThrows(StreamlitException.class, () -> context.all(List.of(after(10_000, "late"))));
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.streamlitconnect.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class SessionStoreTest {
+
+    static Stream<Arguments> stores() {
+        return Stream.of(
+            Arguments.of("compressed heap", (Supplier<SessionStore>) CompressedHeapSessionStore::new),
+            Arguments.of("mapped file", (Supplier<SessionStore>) SessionStoreTest::mappedFile));
+    }
+
+    // Small blocks, so the states span many blocks and the file grows by several segments
+    private static SessionStore mappedFile() {
+        try {
+            return new MappedFileSessionStore(Files.createTempFile("streamlit-sessions-test-", ".bin"), 16);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] state(int length, long seed) {
+        byte[] state = new byte[length];
+        new Random(seed).nextBytes(state);
+        return state;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("stores")
+    public void takesTheStoredStateOnce(String name, Supplier<SessionStore> factory) {
+        try (SessionStore store = factory.get()) {
+            byte[] a = state(100, 1);
+            byte[] b = state(0, 2);
+            store.put("a", a);
+            store.put("b", b);
+
+            assertArrayEquals(a, store.take("a"));
+            assertArrayEquals(b, store.take("b"));
+            assertNull(store.take("a"));
+            assertNull(store.take("unknown"));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("stores")
+    public void replacesAndRemovesStates(String name, Supplier<SessionStore> factory) {
+        try (SessionStore store = factory.get()) {
+            store.put("a", state(1000, 1));
+            byte[] replacement = state(10, 2);
+            store.put("a", replacement);
+            store.put("b", state(10, 3));
+            store.remove("b");
+            store.remove("unknown");
+
+            assertArrayEquals(replacement, store.take("a"));
+            assertNull(store.take("b"));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("stores")
+    public void keepsLargeStatesApartWhileReusingSpace(String name, Supplier<SessionStore> factory) {
+        try (SessionStore store = factory.get()) {
+            // Beyond a segment of the mapped file, then stored again into the freed blocks
+            for (int round = 0; round < 3; round++) {
+                byte[][] states = new byte[8][];
+                for (int i = 0; i < states.length; i++) {
+                    states[i] = state(50_000 + i * 1234, round * 100L + i);
+                    store.put("session-" + i, states[i]);
+                }
+                for (int i = states.length - 1; i >= 0; i--) {
+                    assertArrayEquals(states[i], store.take("session-" + i), "session-" + i);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package io.streamlitconnect.widgets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class WidgetKeyScopeTest {
+
+    @Test
+    public void allocatesSequentialIdsInAScope() {
+        AtomicInteger sequence = new AtomicInteger();
+        List<Widget<?>> created = new ArrayList<>();
+        try (WidgetKeyScope ignored = WidgetKeyScope.open(sequence, created::add)) {
+            Checkbox first = new Checkbox("First");
+            TextInput second = new TextInput("Second");
+
+            assertEquals(1, first.getId());
+            assertEquals(2, second.getId());
+            assertEquals("Widget-2", second.getKey());
+        }
+        assertEquals(2, created.size());
+        assertEquals(2, sequence.get());
+    }
+
+    @Test
+    public void allocatesNegativeIdsOutsideAScope() {
+        Checkbox first = new Checkbox("First");
+        Checkbox second = new Checkbox("Second");
+
+        assertTrue(first.getId() < 0 && second.getId() < first.getId());
+        assertNotEquals(first, second);
+        assertEquals(first.getId(), Widget.idOf(first.getKey()));
+    }
+
+    @Test
+    public void failsRatherThanWrapAround() {
+        AtomicInteger sequence = new AtomicInteger(Integer.MAX_VALUE - 1);
+        try (WidgetKeyScope ignored = WidgetKeyScope.open(sequence)) {
+            assertEquals(Integer.MAX_VALUE, new Checkbox("Last").getId());
+            assertThrows(IllegalStateException.class, () -> new Checkbox("Beyond"));
+        }
+        assertEquals(Integer.MAX_VALUE, sequence.get());
+    }
+
+    @Test
+    public void allocatesTheIdsOfASupplier() {
+        AtomicInteger sequence = new AtomicInteger();
+        try (WidgetKeyScope ignored = WidgetKeyScope.open(sequence)) {
+            AtomicInteger branch = new AtomicInteger(100);
+            try (WidgetKeyScope ignored2 = WidgetKeyScope.open(() -> branch.addAndGet(10))) {
+                assertEquals(110, new Checkbox("First").getId());
+                assertEquals(120, new Checkbox("Second").getId());
+            }
+            // Back to the outer scope
+            assertEquals(1, new Checkbox("Third").getId());
+        }
+    }
+
+    @Test
+    public void mapsKeysToIds() {
+        assertEquals(Integer.MAX_VALUE, Widget.idOf(Widget.keyOf(Integer.MAX_VALUE)));
+        assertEquals(-Integer.MAX_VALUE, Widget.idOf(Widget.keyOf(-Integer.MAX_VALUE)));
+        assertEquals(0, Widget.idOf("Widget-0"));
+        assertEquals(0, Widget.idOf("custom"));
+    }
+
+}
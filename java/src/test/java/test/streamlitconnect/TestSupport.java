@@ -1,6 +1,5 @@
 package test.streamlitconnect;
 
-import io.streamlitconnect.AppCache;
 import io.streamlitconnect.Config;
 import io.streamlitconnect.StreamlitAppManager;
 import io.streamlitconnect.StreamlitServer;
@@ -16,8 +15,6 @@ public class TestSupport {
     private static final Logger log = LoggerFactory.getLogger(TestSupport.class);
 
     public static void startServer(@NonNull StreamlitAppManager appManager) {
-        AppCache appCache = new AppCache(appManager);
-
         var config = Config.builder()
             .grpcServerPort(Config.DEFAULT_GRPC_SERVER_PORT)
             .build();
@@ -25,7 +22,7 @@ public class TestSupport {
         StreamlitServer server = StreamlitServer.getDefault();
 
         log.debug("Starting Streamlit gRPC server: {} with config: {}", server, config);
-        server.start(appCache, config);
+        server.start(appManager, config);
     }
 
 }
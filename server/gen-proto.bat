@@ -19,7 +19,7 @@ echo Creating %OUTPUT_DIR%...
 mkdir %OUTPUT_DIR%
 
 :: Define the .proto files to compile
-set PROTO_FILES=actions.proto commons.proto navigation.proto operations.proto pingpong.proto
+set PROTO_FILES=actions.proto commons.proto navigation.proto operations.proto pingpong.proto session.proto stats.proto
 
 :: Generate the gRPC code
 echo Generating gRPC code...
@@ -18,7 +18,7 @@ echo "Creating $OUTPUT_DIR..."
 mkdir -p "$OUTPUT_DIR"
 
 # Define the .proto files to compile
-PROTO_FILES="actions.proto commons.proto navigation.proto operations.proto pingpong.proto"
+PROTO_FILES="actions.proto commons.proto navigation.proto operations.proto pingpong.proto session.proto stats.proto"
 
 # Generate the gRPC code
 echo "Generating gRPC code..."
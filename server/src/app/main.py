@@ -13,6 +13,7 @@ src_dir = os.path.join(current_dir, '..')
 # Add the src directory to sys.path
 sys.path.insert(0, src_dir)
 
+from core.grpc_client import ServerBusyError
 from core.remote_streamlit_client import RemoteStreamlitClient
 from utils.interpolator import interpolate
 from logging_config import LoggingConfig
@@ -22,6 +23,10 @@ def main():
     client = _get_or_create_client()
     try:
         client.render()
+    except ServerBusyError as e:
+        logging.getLogger("streamlit_connect").warning(f"Server busy: {e}")
+        retry = f"in {int(e.retry_after) + 1} seconds" if e.retry_after else "later"
+        st.warning(f"The server is busy, please try again {retry}.")
     except Exception as e:
         logging.getLogger("streamlit_connect").error(f"Error rendering: {e}")
         st.error(f"Error rendering: {str(e)}")
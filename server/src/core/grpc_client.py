@@ -1,12 +1,93 @@
+import queue
 import random
 import time
 
 import grpc
 
+import proto.commons_pb2 as commons_proto
 import proto.navigation_pb2_grpc as nav_grpc
 import proto.operations_pb2_grpc as op_grpc
 import proto.pingpong_pb2 as pingpong_proto
 import proto.pingpong_pb2_grpc as pingpong_grpc
+import proto.session_pb2 as session_proto
+import proto.session_pb2_grpc as session_grpc
+
+
+RETRY_PUSHBACK_KEY = 'grpc-retry-pushback-ms'
+
+
+class ServerBusyError(Exception):
+    """
+    The server has no room for a new session, and asks to retry later.
+
+    :param message: str - The message of the server.
+    :param retry_after: float - The seconds after which to retry, None if not given.
+    """
+
+    def __init__(self, message, retry_after=None):
+        super().__init__(message)
+        self.retry_after = retry_after
+
+
+class SessionChannel:
+    """
+    A long-lived bidirectional stream to the Streamlit backend, opened once per session. Requests are sent as frames on
+    the stream, and the responses to them are read back from the same stream, tagged with the sequence number of the
+    request.
+
+    :param stub: obj - The session service stub.
+    :param logger: obj - The logger object for logging messages.
+    """
+
+    def __init__(self, stub, logger):
+        self._log = logger
+        self._requests = queue.Queue()
+        self._responses = stub.SessionChannel(iter(self._requests.get, None))
+        self._pending_seq = None  # The seq of the last request, if its response is not read to the end
+
+    def request(self, frame, seq):
+        """
+        Sends a request frame and yields the response frames to it, until the response is complete.
+
+        :param frame: SessionRequestFrame - The request frame.
+        :param seq: int - The sequence number of the request.
+        """
+        self._drain()
+        self._requests.put(frame)
+        self._pending_seq = seq
+        while True:
+            response = self._next()
+            if response.seq != seq:
+                self._log.debug(f"Skipping frame of superseded request with seq: {response.seq}")
+                continue
+            kind = response.WhichOneof('frame')
+            if kind == 'end':
+                self._pending_seq = None
+                return
+            if kind == 'error':
+                self._pending_seq = None
+                error = response.error
+                if error.code == 'RESOURCE_EXHAUSTED':
+                    raise ServerBusyError(error.message, error.retry_after_millis / 1000 or None)
+                raise Exception(f"Request with seq: {seq} failed: {response.error.message}")
+            yield response
+
+    def close(self):
+        self._requests.put(None)
+        self._responses.cancel()
+
+    def _drain(self):
+        # Skip the rest of a response the caller stopped reading, e.g. the end frame after the end op
+        while self._pending_seq is not None:
+            response = self._next()
+            if response.seq == self._pending_seq and response.WhichOneof('frame') in ('end', 'error'):
+                self._pending_seq = None
+
+    def _next(self):
+        response = next(self._responses, None)
+        if response is None:
+            raise ConnectionError("Session channel closed by server")
+        return response
 
 
 class GrpcClient:
@@ -18,9 +99,11 @@ class GrpcClient:
     :param max_retries: int - The maximum number of connection retries (default is 5).
     :param base_delay: float - The base delay for calculating exponential backoff (default is 1.0).
     :param max_delay: float - The maximum delay for calculating exponential backoff (default is 10.0).
+    :param use_session_channel: bool - Whether to send the requests on a session channel (default is True). Falls back
+        to a unary call per request if the server does not implement the channel.
     """
 
-    def __init__(self, address, logger, max_retries=5, base_delay=1.0, max_delay=10.0):
+    def __init__(self, address, logger, max_retries=5, base_delay=1.0, max_delay=10.0, use_session_channel=True):
         self._address = address
         self._log = logger
         self._max_retries = max_retries
@@ -30,17 +113,32 @@ class GrpcClient:
         self._ping_pong_stub = None
         self._nav_service_stub = None
         self._op_service_stub = None
+        self._session_service_stub = None
+        self._session_channel = None
+        self._use_session_channel = use_session_channel
         self._reconnect()
 
     def get_navigation(self, request):
         self._log.debug(f"Getting navigation with request:\n{request}")
+        if self._use_session_channel:
+            try:
+                navigation = None
+                frame = session_proto.SessionRequestFrame(navigation_request=request)
+                for response in self._get_session_channel().request(frame, request.seq):
+                    navigation = response.navigation
+                return navigation
+            except grpc.RpcError as e:
+                self._on_session_channel_error(e)
         return self._attempt_rpc(self._nav_service_stub.GetNavigation, request)
 
     def get_operations(self, request):
         self._log.debug(f"Getting operations with request:\n{request}")
-        return self._attempt_rpc(self._op_service_stub.GetOperations, request)
+        if self._use_session_channel:
+            return self._get_operations_on_session_channel(request)
+        return self._get_operations_unary(request)
 
     def disconnect(self):
+        self._close_session_channel()
         try:
             self._channel.close()
         except Exception as e:
@@ -48,6 +146,65 @@ class GrpcClient:
         self._ping_pong_stub = None
         self._nav_service_stub = None
         self._op_service_stub = None
+        self._session_service_stub = None
+
+    def _get_operations_on_session_channel(self, request):
+        frame = session_proto.SessionRequestFrame(operations_request=request)
+        responses = self._get_session_channel().request(frame, request.seq)
+        try:
+            first = next(responses, None)
+        except grpc.RpcError as e:
+            # Nothing is read yet, so the request can still be sent as a unary call
+            self._on_session_channel_error(e)
+            yield from self._get_operations_unary(request)
+            return
+
+        if first is None:
+            return
+        yield from self._unbatch_frame(first)
+        try:
+            for response in responses:
+                yield from self._unbatch_frame(response)
+        except grpc.RpcError as e:
+            self._on_session_channel_error(e)
+            raise
+
+    def _get_operations_unary(self, request):
+        if commons_proto.OPERATION_BATCHES in request.capabilities:
+            batches = self._attempt_rpc(self._op_service_stub.GetOperationBatches, request)
+            return (operation for batch in batches for operation in batch.operations)
+        return self._attempt_rpc(self._op_service_stub.GetOperations, request)
+
+    @staticmethod
+    def _unbatch_frame(response):
+        if response.WhichOneof('frame') == 'operation_batch':
+            yield from response.operation_batch.operations
+        else:
+            yield response.operation
+
+    def _get_session_channel(self):
+        if not self._channel:
+            self._reconnect()
+        if self._session_channel is None:
+            self._log.debug("Opening session channel")
+            self._session_channel = SessionChannel(self._session_service_stub, self._log)
+        return self._session_channel
+
+    def _on_session_channel_error(self, e):
+        if e.code() == grpc.StatusCode.UNIMPLEMENTED:
+            self._log.info("Session channel not supported by server, falling back to unary requests")
+            self._use_session_channel = False
+        else:
+            self._log.warn(f"Error on session channel: {e}")
+        self._close_session_channel()
+
+    def _close_session_channel(self):
+        if self._session_channel is not None:
+            try:
+                self._session_channel.close()
+            except Exception as e:
+                self._log.warn(f"Error closing session channel: {e}")
+            self._session_channel = None
 
     def _attempt_rpc(self, rpc_call, request):
         for i in range(self._max_retries + 1):
@@ -57,12 +214,22 @@ class GrpcClient:
                 response = rpc_call(request)
                 return response
             except grpc.RpcError as e:
+                if e.code() == grpc.StatusCode.RESOURCE_EXHAUSTED:
+                    raise self._server_busy_error(e)
                 self._log.warn(f"Error calling RPC on attempt '{i}' : {e}")
                 self._channel = None
                 continue
 
         raise Exception(f"Failed to get response after {self._max_retries} retries")
 
+    @staticmethod
+    def _server_busy_error(e):
+        retry_after = None
+        for key, value in e.trailing_metadata() or ():
+            if key == RETRY_PUSHBACK_KEY:
+                retry_after = int(value) / 1000
+        return ServerBusyError(e.details(), retry_after)
+
     def _check_connection(self):
         try:
             ping_request = pingpong_proto.PingRequest()
@@ -75,6 +242,7 @@ class GrpcClient:
             return False
 
     def _reconnect(self):
+        self._close_session_channel()  # Bound to the previous channel
         for attempt in range(self._max_retries):
             self._log.debug(f"gRPC (re)connect attempt {attempt + 1}")
             try:
@@ -82,6 +250,7 @@ class GrpcClient:
                 self._nav_service_stub = nav_grpc.StreamlitNavigationServiceStub(self._channel)
                 self._op_service_stub = op_grpc.StreamlitOperationServiceStub(self._channel)
                 self._ping_pong_stub = pingpong_grpc.StreamlitPingPongServiceStub(self._channel)
+                self._session_service_stub = session_grpc.StreamlitSessionServiceStub(self._channel)
                 if self._check_connection():
                     return  # Successfully reconnected
             except grpc.RpcError as e:
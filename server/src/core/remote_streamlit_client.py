@@ -2,7 +2,7 @@ import logging
 import queue
 import types
 import uuid
-from datetime import datetime, date, timedelta
+from datetime import datetime, date, time, timedelta
 from typing import Dict
 
 import streamlit as st
@@ -17,6 +17,114 @@ from core.grpc_client import GrpcClient
 from utils.session_logger_adapter import SessionLoggerAdapter
 
 
+# Ops controlling the (re)run - these are never retained for render deltas
+_CONTROL_OPS = {'endOp', 'rerunOp', 'stopOp', 'terminateSessionOp', 'switchPageOp', 'retainOp', 'removeOp'}
+
+# The display ops, which only call a Streamlit function on their container: op type -> function of the op message
+# returning the name of the function and its arguments. Their calls are prepared once and kept with the retained op,
+# so replaying a retained display op neither reads the op again nor dispatches it.
+_DISPLAY_CALLS = {
+    'titleOp': lambda op: ('title', (op.body, op.anchor), {'help': op.help}),
+    'headerOp': lambda op: ('header', (op.body, op.anchor), {'help': op.help, 'divider': op.divider}),
+    'subheaderOp': lambda op: ('subheader', (op.body, op.anchor), {'help': op.help, 'divider': op.divider}),
+    'captionOp': lambda op: ('caption', (op.body,), {}),
+    'codeOp': lambda op: ('code', (op.body,), {'language': op.language, 'line_numbers': op.line_numbers}),
+    'dividerOp': lambda op: ('divider', (), {}),
+    'latexOp': lambda op: ('latex', (op.body,), {}),
+    'textOp': lambda op: ('text', (op.body,), {'help': op.help}),
+    'markdownOp': lambda op: ('markdown', (op.body,), {'unsafe_allow_html': op.unsafe_allow_html, 'help': op.help}),
+}
+
+# Prefix of the Streamlit keys of the widgets the server identifies by id (WIDGET_IDS capability)
+_WIDGET_ID_KEY_PREFIX = 'widget-id:'
+
+
+def _widget_key(widget_properties):
+    """
+    Returns the Streamlit key of a widget: derived from its id, or its key if the server does not send ids.
+    """
+    if widget_properties.id:
+        return f"{_WIDGET_ID_KEY_PREFIX}{widget_properties.id}"
+    return widget_properties.key
+
+
+def _widget_ref(key):
+    """
+    Returns the fields identifying the widget with the given Streamlit key in an action.
+    """
+    if key.startswith(_WIDGET_ID_KEY_PREFIX):
+        return {'id': int(key[len(_WIDGET_ID_KEY_PREFIX):])}
+    return {'key': key}
+
+
+def _unpack_selection(bitmap):
+    """
+    Returns the ascending indices of a selection packed into a bitmap (PACKED_SELECTIONS capability): bit i, LSB first,
+    of byte i // 8 stands for index i.
+    """
+    bits = int.from_bytes(bitmap, 'little')
+    return [index for index in range(len(bitmap) * 8) if bits >> index & 1]
+
+
+def _selection_ref(selected_indices):
+    """
+    Returns the fields of the selection of a multiselect action: packed into a bitmap if the indices are ascending, as
+    the bitmap does not keep the order of the selection, and if the bitmap is smaller than the indices.
+    """
+    ascending = all(a < b for a, b in zip(selected_indices, selected_indices[1:]))
+    indices_size = sum(max(1, (index.bit_length() + 6) // 7) for index in selected_indices)
+    if selected_indices and ascending and selected_indices[-1] // 8 + 1 < indices_size:
+        bits = sum(1 << index for index in selected_indices)
+        return {'selected_bitmap': bits.to_bytes(selected_indices[-1] // 8 + 1, 'little')}
+    return {'selected_indices': selected_indices}
+
+
+# Dates and times are exchanged as epoch days and nanos of day with servers supporting TEMPORAL_NUMBERS
+_EPOCH = date(1970, 1, 1)
+
+
+def _from_epoch_day(epoch_day):
+    return _EPOCH + timedelta(days=epoch_day)
+
+
+def _to_epoch_day(value):
+    return ((value.date() if isinstance(value, datetime) else value) - _EPOCH).days
+
+
+def _from_nano_of_day(nano_of_day):
+    seconds, nanos = divmod(nano_of_day, 1_000_000_000)
+    return time(seconds // 3600, seconds // 60 % 60, seconds % 60, nanos // 1000)
+
+
+def _to_nano_of_day(value):
+    return ((value.hour * 60 + value.minute) * 60 + value.second) * 1_000_000_000 + value.microsecond * 1000
+
+
+def _temporal_value(message, field):
+    """
+    Returns the date or time of a oneof of a slider op, sent as a number or as an ISO string.
+    """
+    if message.HasField(f'{field}_epoch_day'):
+        return datetime.combine(_from_epoch_day(getattr(message, f'{field}_epoch_day')), time())
+    if message.HasField(f'{field}_nano_of_day'):
+        return _from_nano_of_day(getattr(message, f'{field}_nano_of_day'))
+    return datetime.fromisoformat(getattr(message, f'{field}_datetime'))
+
+
+def _temporal_fields(field, value, numbers):
+    """
+    Returns the fields of the date or time of a slider action: as a number if the server sends numbers, else as an ISO
+    string.
+    """
+    if isinstance(value, (date, time)) and numbers:
+        if isinstance(value, date):
+            return {f'{field}_epoch_day': _to_epoch_day(value)}
+        return {f'{field}_nano_of_day': _to_nano_of_day(value)}
+    if isinstance(value, datetime):
+        return {f'{field}_datetime': value.isoformat()}
+    return {}
+
+
 class RemoteStreamlitClient:
     # Only one instance of this client is created per session
 
@@ -26,11 +134,14 @@ class RemoteStreamlitClient:
         self._request_actions = []
         host = config.get('host', 'localhost')
         port = config.get('port', '50051')
-        self._grpc_client = GrpcClient(f'{host}:{port}', self._log)
+        session_channel = str(config.get('session_channel', 'true')).lower() == 'true'
+        self._grpc_client = GrpcClient(f'{host}:{port}', self._log, use_session_channel=session_channel)
         self._reset_contexts()
         self._app = st.query_params.get("app", None)
         self._streams = {}
         self._seq = 0
+        self._retained = {}  # page -> (seq, ops) of the last completed rerun of the page, see _run_ops
+        self._temporal_numbers = False  # Whether the server sends dates and times as numbers, so it also accepts them
 
     @property
     def session_id(self):
@@ -96,28 +207,82 @@ class RemoteStreamlitClient:
     def _run_ops(self, page):
         self._log.debug(f"Requesting operations for page: {page}")
 
+        # The ops of the previous rerun of this page, which the server can refer to with render deltas
+        page_key = page or ''
+        base_seq, base_ops = self._retained.pop(page_key, (0, []))
+
         streamlit_request = ops_proto.StreamlitOperationsRequest(
             session_id=self._session_id,
             seq=self._seq,
             app=self._app,
             page=page,
-            actions=self._request_actions
+            actions=self._request_actions,
+            capabilities=[commons_proto.RENDER_DELTAS, commons_proto.OPERATION_BATCHES, commons_proto.WIDGET_IDS,
+                          commons_proto.PACKED_SELECTIONS, commons_proto.TEMPORAL_NUMBERS],
+            delta_base_seq=base_seq
         )
 
         operations = self._grpc_client.get_operations(streamlit_request)
 
+        retained_ops = []  # The (op, prepared call) of this rerun, see _retain
+        cursor = 0  # The next base op
         for operation in operations:
             streamlit_op_type = operation.WhichOneof('operation')
 
-            self._log.debug(f"Operation: {operation}")
+            self._log.debug("Operation: %s", operation)
+
+            if streamlit_op_type == 'retainOp':
+                # Replay the next retained ops unchanged
+                count = operation.retainOp.count
+                if cursor + count > len(base_ops):
+                    raise ValueError(f"Cannot retain {count} ops at {cursor} of {len(base_ops)}")
+                for retained in base_ops[cursor:cursor + count]:
+                    self._replay(retained)
+                retained_ops.extend(base_ops[cursor:cursor + count])
+                cursor += count
+                continue
+
+            if streamlit_op_type == 'removeOp':
+                cursor += operation.removeOp.count  # Skip the next retained ops
+                continue
+
+            if streamlit_op_type not in _CONTROL_OPS:
+                retained = self._retain(streamlit_op_type, operation)  # Inserts the op at the cursor
+                retained_ops.append(retained)
+                self._replay(retained)
+                continue
 
             self._handle_streamlit_operation(streamlit_op_type, operation)
             if streamlit_op_type == 'endOp':
+                if not operation.endOp.cancelled:
+                    self._retained[page_key] = (self._seq, retained_ops)
                 break
 
         self._post_op_cleanup()
         self._log.debug(f"App (re)run ended for session: {self._session_id}")
 
+    @staticmethod
+    def _retain(streamlit_op_type, operation):
+        """
+        Returns the retained entry of an op: the op, and the prepared call of a display op (None for other ops).
+        """
+        display_call = _DISPLAY_CALLS.get(streamlit_op_type)
+        if display_call is None:
+            return operation, None
+        message = getattr(operation, streamlit_op_type)
+        return operation, (message.container, *display_call(message))
+
+    def _replay(self, retained):
+        """
+        Handles a retained op: a display op with its prepared call, any other op as received.
+        """
+        operation, call = retained
+        if call is None:
+            self._handle_streamlit_operation(operation.WhichOneof('operation'), operation)
+            return
+        container, func_name, args, kwargs = call
+        self._get_context(container).call_func(func_name, *args, **kwargs)
+
     def _get_or_create_dynamic_get_page_function(self, page):
         """
         :param page: The page name for which the dynamic function is being created.
@@ -170,13 +335,13 @@ def {func_name}(self):
         self._contexts = {"root": ContainerContext(st), "sidebar": ContainerContext(st.sidebar)}
 
     def _get_context(self, key='root'):
-        self._log.debug(f"Getting context with key: {key}")
+        self._log.debug("Getting context with key: %s", key)
         if key is None:
             key = 'root'
         if key not in self._contexts:
             raise KeyError(f"No context found with key {key} in contexts.")
         context = self._contexts[key]
-        self._log.debug(f"Using context for key {key}: {context}")
+        self._log.debug("Using context for key %s: %s", key, context)
         return context
 
     def _save_context(self, key, context):
@@ -192,7 +357,7 @@ def {func_name}(self):
             self._handle_expandable_container_operation(operation.expandableContainerOp)
 
         elif streamlit_operation_type == 'placeholderContainerOp':
-            self._handle_placeholder_container_operation(operation.placeholderContainersOp)
+            self._handle_placeholder_container_operation(operation.placeholderContainerOp)
 
         elif streamlit_operation_type == 'tabContainersOp':
             self._handle_tab_containers_operation(operation.tabContainersOp)
@@ -200,32 +365,8 @@ def {func_name}(self):
         elif streamlit_operation_type == 'columnContainersOp':
             self._handle_column_containers_operation(operation.columnContainersOp)
 
-        elif streamlit_operation_type == 'titleOp':
-            self._handle_title_operation(operation.titleOp)
-
-        elif streamlit_operation_type == 'headerOp':
-            self._handle_header_operation(operation.headerOp)
-
-        elif streamlit_operation_type == 'subheaderOp':
-            self._handle_subheader_operation(operation.subheaderOp)
-
-        elif streamlit_operation_type == 'captionOp':
-            self._handle_caption_operation(operation.captionOp)
-
-        elif streamlit_operation_type == 'codeOp':
-            self._handle_code_operation(operation.codeOp)
-
-        elif streamlit_operation_type == 'dividerOp':
-            self._handle_divider_operation(operation.dividerOp)
-
-        elif streamlit_operation_type == 'latexOp':
-            self._handle_latex_operation(operation.latexOp)
-
-        elif streamlit_operation_type == 'textOp':
-            self._handle_text_operation(operation.textOp)
-
-        elif streamlit_operation_type == 'markdownOp':
-            self._handle_markdown_operation(operation.markdownOp)
+        elif streamlit_operation_type in _DISPLAY_CALLS:
+            self._replay(self._retain(streamlit_operation_type, operation))
 
         elif streamlit_operation_type == 'writeStreamChunkOp':
             self._handle_write_stream_chunk_operation(operation.writeStreamChunkOp)
@@ -284,47 +425,6 @@ def {func_name}(self):
         elif streamlit_operation_type == 'switchPageOp':
             self._handle_switch_page_operation(operation.terminateSessionOp)
 
-    def _handle_title_operation(self, operation: ops_proto.TitleOp):
-        context = self._get_context(operation.container)
-        context.call_func("title", operation.body, operation.anchor, help=operation.help)
-
-    def _handle_header_operation(self, operation: ops_proto.HeaderOp):
-        context = self._get_context(operation.container)
-        context.call_func("header", operation.body, operation.anchor, help=operation.help, divider=operation.divider)
-
-    def _handle_subheader_operation(self, operation: ops_proto.SubheaderOp):
-        context = self._get_context(operation.container)
-        context.call_func("subheader", operation.body, operation.anchor, help=operation.help, divider=operation.divider)
-
-    def _handle_caption_operation(self, operation: ops_proto.CaptionOp):
-        context = self._get_context(operation.container)
-        context.call_func("caption", operation.body)
-
-    def _handle_code_operation(self, operation: ops_proto.CodeOp):
-        context = self._get_context(operation.container)
-        context.call_func("code", operation.body, language=operation.language, line_numbers=operation.line_numbers)
-
-    def _handle_divider_operation(self, operation: ops_proto.DividerOp):
-        context = self._get_context(operation.container)
-        context.call_func("divider")
-
-    def _handle_latex_operation(self, operation: ops_proto.LatexOp):
-        context = self._get_context(operation.container)
-        context.call_func("latex", operation.body)
-
-    def _handle_text_operation(self, operation: ops_proto.TextOp):
-        context = self._get_context(operation.container)
-        context.call_func("text", operation.body, help=operation.help)
-
-    def _handle_markdown_operation(self, operation: ops_proto.MarkdownOp):
-        context = self._get_context(operation.container)
-        context.call_func(
-            "markdown",
-            operation.body,
-            unsafe_allow_html=operation.unsafe_allow_html,
-            help=operation.help
-        )
-
     # ------------------------------------------------
     # Write Stream Chunk
     # ------------------------------------------------
@@ -386,7 +486,7 @@ def {func_name}(self):
         self._log.debug(f'Button click callback: {key}')
 
         # Create a ButtonAction message
-        button_action = actions_proto.ButtonAction(key=key, args=args[1:], kwargs=kwargs)
+        button_action = actions_proto.ButtonAction(**_widget_ref(key), args=args[1:], kwargs=kwargs)
 
         # Create an Action message with the ButtonAction
         action = actions_proto.Action(button_action=button_action)
@@ -397,7 +497,7 @@ def {func_name}(self):
     def _handle_button_operation(self, operation: ops_proto.ButtonOp):
         # prepend button.key to the args list
         widget_properties = operation.widget_props
-        callback_args = [widget_properties.key]
+        callback_args = [_widget_key(widget_properties)]
         context = self._get_context(widget_properties.container)
 
         if operation.url:
@@ -413,7 +513,7 @@ def {func_name}(self):
         else:
             clicked = context.call_func(
                 "button",
-                key=widget_properties.key,
+                key=_widget_key(widget_properties),
                 label=widget_properties.label,
                 help=widget_properties.help,
                 on_click=self._button_click_callback,
@@ -424,7 +524,7 @@ def {func_name}(self):
                 use_container_width=widget_properties.use_container_width,
             )
             if clicked:
-                self._log.debug(f"Button clicked: {widget_properties.key}")
+                self._log.debug(f"Button clicked: {_widget_key(widget_properties)}")
 
     # ------------------------------------------------
     # Checkbox
@@ -439,7 +539,7 @@ def {func_name}(self):
         self._log.debug(f"Checkbox changed to '{value}': {key}")
 
         # Create a CheckboxAction message
-        checkbox_action = actions_proto.CheckboxAction(key=key, value=value, args=args[2:], kwargs=kwargs)
+        checkbox_action = actions_proto.CheckboxAction(**_widget_ref(key), value=value, args=args[2:], kwargs=kwargs)
 
         # Create an Action message with the CheckboxAction
         action = actions_proto.Action(checkbox_action=checkbox_action)
@@ -450,12 +550,12 @@ def {func_name}(self):
     def _handle_checkbox_operation(self, operation: ops_proto.CheckboxOp):
         # prepend checkbox.key and reversed value to the args list
         widget_properties = operation.widget_props
-        callback_args = [widget_properties.key, not operation.value]
+        callback_args = [_widget_key(widget_properties), not operation.value]
         context = self._get_context(widget_properties.container)
 
         checked = context.call_func(
             "checkbox",
-            key=widget_properties.key,
+            key=_widget_key(widget_properties),
             label=widget_properties.label,
             help=widget_properties.help,
             value=operation.value,
@@ -467,7 +567,7 @@ def {func_name}(self):
                 'collapsed' if widget_properties.label_visibility == 2 else 'visible'),
         )
         if checked:
-            self._log.debug(f"Checkbox checked: {widget_properties.key}")
+            self._log.debug(f"Checkbox checked: {_widget_key(widget_properties)}")
 
     # ------------------------------------------------
     # Toggle
@@ -477,18 +577,18 @@ def {func_name}(self):
         key = args[0]
         value: bool = args[1]
         self._log.debug(f"Toggle switeched to '{value}': {key}")
-        toggle_action = actions_proto.ToggleAction(key=key, value=value, args=args[2:], kwargs=kwargs)
+        toggle_action = actions_proto.ToggleAction(**_widget_ref(key), value=value, args=args[2:], kwargs=kwargs)
         action = actions_proto.Action(toggle_action=toggle_action)
         self._request_actions.append(action)
 
     def _handle_toggle_operation(self, operation: ops_proto.ToggleOp):
         widget_properties = operation.widget_props
-        callback_args = [widget_properties.key, not operation.value]
+        callback_args = [_widget_key(widget_properties), not operation.value]
         context = self._get_context(widget_properties.container)
 
         on = context.call_func(
             "toggle",
-            key=widget_properties.key,
+            key=_widget_key(widget_properties),
             label=widget_properties.label,
             help=widget_properties.help,
             value=operation.value,
@@ -500,9 +600,9 @@ def {func_name}(self):
                 'collapsed' if widget_properties.label_visibility == 2 else 'visible'),
         )
         if on:
-            self._log.debug(f"Toggle ON: {widget_properties.key}")
+            self._log.debug(f"Toggle ON: {_widget_key(widget_properties)}")
         else:
-            self._log.debug(f"Toggle OFF: {widget_properties.key}")
+            self._log.debug(f"Toggle OFF: {_widget_key(widget_properties)}")
 
     # ------------------------------------------------
     # Radio
@@ -518,7 +618,7 @@ def {func_name}(self):
         self._log.debug(f"Radio '{key}' changed to [{index}]: {selected_option}'")
 
         radio_action = actions_proto.RadioAction(
-            key=key,
+            **_widget_ref(key),
             index=index,
             args=args[len(options) + 1:],
             kwargs=kwargs
@@ -529,7 +629,7 @@ def {func_name}(self):
 
     def _handle_radio_operation(self, operation: ops_proto.RadioOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
         options = list(operation.options)
         index = None if operation.index < 0 or operation.index >= len(options) else operation.index
 
@@ -556,7 +656,7 @@ def {func_name}(self):
             kwargs={},
         )
 
-        self._log.debug(f"Radio '{widget_properties.key}' selected [{index}]: {selected_option}")
+        self._log.debug(f"Radio '{key}' selected [{index}]: {selected_option}")
 
     # ------------------------------------------------
     # Selectbox
@@ -571,7 +671,7 @@ def {func_name}(self):
         self._log.debug(f"Selectbox '{key}' changed to [{index}]: {selected_option}'")
 
         selectbox_action = actions_proto.SelectboxAction(
-            key=key,
+            **_widget_ref(key),
             index=index,
             args=args[len(options) + 1:],
             kwargs=kwargs
@@ -582,7 +682,7 @@ def {func_name}(self):
 
     def _handle_selectbox_operation(self, operation: ops_proto.SelectboxOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
         options = list(operation.options)
         index = None if operation.index < 0 or operation.index >= len(options) else operation.index
 
@@ -607,7 +707,7 @@ def {func_name}(self):
             index=index,
         )
 
-        self._log.debug(f"Selectbox '{widget_properties.key}' selected [{index}]: {selected_option}")
+        self._log.debug(f"Selectbox '{key}' selected [{index}]: {selected_option}")
 
     # ------------------------------------------------
     # Multiselect
@@ -622,8 +722,8 @@ def {func_name}(self):
         self._log.debug(f"Multiselect '{key}' changed to {selected_indices}: {selected_options}")
 
         multiselect_action = actions_proto.MultiselectAction(
-            key=key,
-            selected_indices=selected_indices,
+            **_widget_ref(key),
+            **_selection_ref(selected_indices),
             args=args[len(options) + 1:],
             kwargs=kwargs
         )
@@ -633,9 +733,13 @@ def {func_name}(self):
 
     def _handle_multiselect_operation(self, operation: ops_proto.MultiselectOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
         options = list(operation.options)
-        selected_indices = [index for index in operation.selected_indices if 0 <= index < len(options)]
+        if operation.selected_bitmap:
+            selected_indices = _unpack_selection(operation.selected_bitmap)
+        else:
+            selected_indices = operation.selected_indices
+        selected_indices = [index for index in selected_indices if 0 <= index < len(options)]
 
         # Set the selected options in the session state
         st.session_state[key] = [options[index] for index in selected_indices]
@@ -658,7 +762,7 @@ def {func_name}(self):
             default=st.session_state[key],
         )
 
-        self._log.debug(f"Multiselect '{widget_properties.key}' selected {selected_indices}: {selected_options}")
+        self._log.debug(f"Multiselect '{key}' selected {selected_indices}: {selected_options}")
 
     # ------------------------------------------------
     # SelectSlider
@@ -684,7 +788,7 @@ def {func_name}(self):
             f"SelectSlider '{key}' changed to [{lower_value}, {upper_value}] (indices: [{lower_index}, {upper_index}])")
 
         select_slider_action = actions_proto.SelectSliderAction(
-            key=key,
+            **_widget_ref(key),
             lower_index=lower_index,
             upper_index=upper_index,
             args=args[len(options) + 1:],
@@ -696,7 +800,7 @@ def {func_name}(self):
 
     def _handle_select_slider_operation(self, operation: ops_proto.SelectSliderOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
         options = list(operation.options)
         lower_index = None if operation.lower_index < 0 or operation.lower_index >= len(options) else (
             operation.lower_index)
@@ -729,7 +833,7 @@ def {func_name}(self):
             value=selected_options,
         )
 
-        self._log.debug(f"SelectSlider '{widget_properties.key}' selected [{lower_index},{upper_index}]:"
+        self._log.debug(f"SelectSlider '{key}' selected [{lower_index},{upper_index}]:"
                         f" {result_selected_options}")
 
     # ------------------------------------------------
@@ -748,15 +852,18 @@ def {func_name}(self):
             from_date = range_values if not isinstance(range_values, tuple) else range_values[0]
             to_date = None
 
-        from_date_str = from_date.strftime('%Y-%m-%d') if from_date else None
-        to_date_str = to_date.strftime('%Y-%m-%d') if to_date else None
+        self._log.debug(f"DateInput '{key}' changed to [{from_date}, {to_date}]")
 
-        self._log.debug(f"DateInput '{key}' changed to [{from_date_str}, {to_date_str}]")
+        if self._temporal_numbers:
+            dates = {'from_epoch_day': _to_epoch_day(from_date) if from_date else None,
+                     'to_epoch_day': _to_epoch_day(to_date) if to_date else None}
+        else:
+            dates = {'from_date': from_date.strftime('%Y-%m-%d') if from_date else None,
+                     'to_date': to_date.strftime('%Y-%m-%d') if to_date else None}
 
         date_input_action = actions_proto.DateInputAction(
-            key=key,
-            from_date=from_date_str,
-            to_date=to_date_str,
+            **_widget_ref(key),
+            **dates,
             args=args[1:],
             kwargs=kwargs
         )
@@ -766,7 +873,7 @@ def {func_name}(self):
 
     def _handle_date_input_operation(self, operation: ops_proto.DateInputOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
         format_mapping = {ops_proto.DateFormat.YYYYMMDD: "YYYY/MM/DD",
                           ops_proto.DateFormat.DDMMYYYY: "DD/MM/YYYY",
                           ops_proto.DateFormat.MMDDYYYY: "MM/DD/YYYY"}
@@ -775,12 +882,19 @@ def {func_name}(self):
                              ops_proto.DateSeparator.DOT: "."}
         format_string = format_mapping[operation.date_format].replace("/", separator_mapping[operation.date_separator])
 
-        min_date = datetime.strptime(operation.min_date, '%Y-%m-%d') if operation.min_date else None
-        max_date = datetime.strptime(operation.max_date, '%Y-%m-%d') if operation.max_date else None
+        def op_date(field):
+            if operation.HasField(f'{field}_epoch_day'):
+                self._temporal_numbers = True
+                return _from_epoch_day(getattr(operation, f'{field}_epoch_day'))
+            value = getattr(operation, f'{field}_date')
+            return datetime.strptime(value, '%Y-%m-%d') if value else None
+
+        min_date = op_date('min')
+        max_date = op_date('max')
 
         if key not in st.session_state:
-            from_date = datetime.strptime(operation.from_date, '%Y-%m-%d') if operation.from_date else None
-            to_date = datetime.strptime(operation.to_date, '%Y-%m-%d') if operation.to_date else None
+            from_date = op_date('from')
+            to_date = op_date('to')
 
             if operation.today and from_date is None and to_date is None:
                 value = date.today()
@@ -815,7 +929,7 @@ def {func_name}(self):
                 'collapsed' if widget_properties.label_visibility == 2 else 'visible'),
         )
 
-        self._log.debug(f"DateInput '{widget_properties.key}' selected: {selected_range}")
+        self._log.debug(f"DateInput '{key}' selected: {selected_range}")
 
     # ------------------------------------------------
     # TimeInput
@@ -824,13 +938,16 @@ def {func_name}(self):
     def _time_input_callback(self, *args, **kwargs):
         key = args[0]
         value = st.session_state[key]
-        value_str = value.strftime('%H:%M:%S') if value else None
+        self._log.debug(f"TimeInput '{key}' changed to {value}")
 
-        self._log.debug(f"TimeInput '{key}' changed to {value_str}")
+        if self._temporal_numbers:
+            time_value = {'nano_of_day': _to_nano_of_day(value) if value else None}
+        else:
+            time_value = {'value': value.strftime('%H:%M:%S') if value else None}
 
         time_input_action = actions_proto.TimeInputAction(
-            key=key,
-            value=value_str,
+            **_widget_ref(key),
+            **time_value,
             args=args[1:],
             kwargs=kwargs
         )
@@ -840,8 +957,12 @@ def {func_name}(self):
 
     def _handle_time_input_operation(self, operation: ops_proto.TimeInputOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
-        time_value = datetime.strptime(operation.value, '%H:%M:%S').time() if operation.value else None
+        key = _widget_key(widget_properties)
+        if operation.HasField('nano_of_day'):
+            self._temporal_numbers = True
+            time_value = _from_nano_of_day(operation.nano_of_day)
+        else:
+            time_value = datetime.strptime(operation.value, '%H:%M:%S').time() if operation.value else None
 
         if key not in st.session_state:
             st.session_state[key] = time_value
@@ -867,7 +988,7 @@ def {func_name}(self):
             step=operation.step_seconds,
         )
 
-        self._log.debug(f"TimeInput '{widget_properties.key}' selected: {selected_time}")
+        self._log.debug(f"TimeInput '{key}' selected: {selected_time}")
 
     # ------------------------------------------------
     # NumberInput
@@ -884,7 +1005,7 @@ def {func_name}(self):
             value = commons_proto.IntOrFloat(f=value)
 
         number_input_action = actions_proto.NumberInputAction(
-            key=key,
+            **_widget_ref(key),
             value=value,
             args=args[1:],
             kwargs=kwargs
@@ -895,7 +1016,7 @@ def {func_name}(self):
 
     def _handle_number_input_operation(self, operation: ops_proto.NumberInputOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
         value = operation.value.i if operation.value.HasField('i') else operation.value.f if operation.value.HasField(
             'f') else None
 
@@ -932,7 +1053,7 @@ def {func_name}(self):
             step=step_value,
         )
 
-        self._log.debug(f"NumberInput '{widget_properties.key}' selected: {selected_number}")
+        self._log.debug(f"NumberInput '{key}' selected: {selected_number}")
 
     # ------------------------------------------------
     # TextInput
@@ -944,7 +1065,7 @@ def {func_name}(self):
         self._log.debug(f"TextInput '{key}' changed to {value}")
 
         text_input_action = actions_proto.TextInputAction(
-            key=key,
+            **_widget_ref(key),
             value=value,
             args=args[1:],
             kwargs=kwargs
@@ -955,7 +1076,7 @@ def {func_name}(self):
 
     def _handle_text_input_operation(self, operation: ops_proto.TextInputOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
         value = operation.value
 
         if key not in st.session_state:
@@ -985,7 +1106,7 @@ def {func_name}(self):
             max_chars=operation.max_chars
         )
 
-        self._log.debug(f"TextInput '{widget_properties.key}': {text}")
+        self._log.debug(f"TextInput '{key}': {text}")
 
     # ------------------------------------------------
     # Slider
@@ -1001,27 +1122,31 @@ def {func_name}(self):
             value_range = commons_proto.ValueRange(
                 from_value_float=value[0] if isinstance(value[0], float) else None,
                 from_value_int=value[0] if isinstance(value[0], int) else None,
-                from_value_datetime=value[0].isoformat() if isinstance(value[0], datetime) else None,
+                **_temporal_fields('from_value', value[0], self._temporal_numbers),
                 to_value_float=value[1] if isinstance(value[1], float) else None,
                 to_value_int=value[1] if isinstance(value[1], int) else None,
-                to_value_datetime=value[1].isoformat() if isinstance(value[1], datetime) else None,
+                **_temporal_fields('to_value', value[1], self._temporal_numbers),
             )
-            slider_action = actions_proto.SliderAction(key=key, value_range=value_range, args=args[1:], kwargs=kwargs)
+            slider_action = actions_proto.SliderAction(
+                **_widget_ref(key), value_range=value_range, args=args[1:], kwargs=kwargs)
         else:
             # Handling single values
             value_single = commons_proto.ValueSingle(
                 value_float=value if isinstance(value, float) else None,
                 value_int=value if isinstance(value, int) else None,
-                value_datetime=value.isoformat() if isinstance(value, datetime) else None
+                **_temporal_fields('value', value, self._temporal_numbers)
             )
-            slider_action = actions_proto.SliderAction(key=key, value_single=value_single, args=args[1:], kwargs=kwargs)
+            slider_action = actions_proto.SliderAction(
+                **_widget_ref(key), value_single=value_single, args=args[1:], kwargs=kwargs)
 
         action = actions_proto.Action(slider_action=slider_action)
         self._request_actions.append(action)
 
     def _handle_slider_operation(self, operation: ops_proto.SliderOp):
         widget_properties = operation.widget_props
-        key = widget_properties.key
+        key = _widget_key(widget_properties)
+        if operation.WhichOneof('min_value') in ('min_value_epoch_day', 'min_value_nano_of_day'):
+            self._temporal_numbers = True
 
         if operation.HasField("value_single"):
             value = (
@@ -1029,7 +1154,7 @@ def {func_name}(self):
                 if operation.value_single.HasField("value_float")
                 else operation.value_single.value_int
                 if operation.value_single.HasField("value_int")
-                else datetime.fromisoformat(operation.value_single.value_datetime)
+                else _temporal_value(operation.value_single, 'value')
             )
         else:  # handle value range
             value = (
@@ -1046,8 +1171,8 @@ def {func_name}(self):
                 if operation.value_range.HasField("from_value_int")
 
                 else (
-                    datetime.fromisoformat(operation.value_range.from_value_datetime),
-                    datetime.fromisoformat(operation.value_range.to_value_datetime),
+                    _temporal_value(operation.value_range, 'from_value'),
+                    _temporal_value(operation.value_range, 'to_value'),
                 )
             )
 
@@ -1065,7 +1190,7 @@ def {func_name}(self):
             if operation.HasField("min_value_float")
             else operation.min_value_int
             if operation.HasField("min_value_int")
-            else datetime.fromisoformat(operation.min_value_datetime)
+            else _temporal_value(operation, 'min_value')
         )
 
         max_value = (
@@ -1073,7 +1198,7 @@ def {func_name}(self):
             if operation.HasField("max_value_float")
             else operation.max_value_int
             if operation.HasField("max_value_int")
-            else datetime.fromisoformat(operation.max_value_datetime)
+            else _temporal_value(operation, 'max_value')
         )
 
         step = (
@@ -1102,7 +1227,7 @@ def {func_name}(self):
                 'collapsed' if widget_properties.label_visibility == 2 else 'visible'),
         )
 
-        self._log.debug(f"Slider '{widget_properties.key}' selected: {slider_value}")
+        self._log.debug(f"Slider '{key}' selected: {slider_value}")
 
     # ------------------------------------------------
     # PageLink
@@ -1201,13 +1326,13 @@ def {func_name}(self):
     # ------------------------------------------------
     def _handle_placeholder_container_operation(self, operation: ops_proto.PlaceholderContainerOp):
         # validate_message(operation, 'key')
-        if operation.parent == "" and not operation.empty:
+        if not operation.empty:
             context = self._get_context(operation.parent)
             container = context.empty()
             self._save_context(operation.key, container)
             self._log.debug(f"Created placeholder (empty) container '{operation.key}' in '{operation.parent}'")
         else:
-            context = self._get_context(operation.key)
+            context = self._contexts.get(operation.key)
             if not context:
                 self._log.debug(f"Placeholder container '{operation.key}' not found")
             else: